@@ -68,6 +68,22 @@ public enum FieldsEnum implements Fields {
    * Name for the average task transport time.
    */
   AVG_TRANSPORT_TIME,
+  /**
+   * Name for the 50th percentile of the task transport time.
+   */
+  P50_TRANSPORT_TIME,
+  /**
+   * Name for the 90th percentile of the task transport time.
+   */
+  P90_TRANSPORT_TIME,
+  /**
+   * Name for the 99th percentile of the task transport time.
+   */
+  P99_TRANSPORT_TIME,
+  /**
+   * Name for the 99.9th percentile of the task transport time.
+   */
+  P999_TRANSPORT_TIME,
   /**
    * Name for the total execution time for all tasks on the nodes.
    */
@@ -88,6 +104,22 @@ public enum FieldsEnum implements Fields {
    * Name for the average task execution time on a node.
    */
   AVG_NODE_EXECUTION_TIME,
+  /**
+   * Name for the 50th percentile of the task execution time in the nodes.
+   */
+  P50_NODE_EXECUTION_TIME,
+  /**
+   * Name for the 90th percentile of the task execution time in the nodes.
+   */
+  P90_NODE_EXECUTION_TIME,
+  /**
+   * Name for the 99th percentile of the task execution time in the nodes.
+   */
+  P99_NODE_EXECUTION_TIME,
+  /**
+   * Name for the 99.9th percentile of the task execution time in the nodes.
+   */
+  P999_NODE_EXECUTION_TIME,
   /**
    * Name for the time the last queued task remained in the queue.
    */
@@ -108,6 +140,22 @@ public enum FieldsEnum implements Fields {
    * Name for the maximum time a task remained in the queue .
    */
   AVG_QUEUE_TIME,
+  /**
+   * Name for the 50th percentile of the time tasks spend in the queue.
+   */
+  P50_QUEUE_TIME,
+  /**
+   * Name for the 90th percentile of the time tasks spend in the queue.
+   */
+  P90_QUEUE_TIME,
+  /**
+   * Name for the 99th percentile of the time tasks spend in the queue.
+   */
+  P99_QUEUE_TIME,
+  /**
+   * Name for the 99.9th percentile of the time tasks spend in the queue.
+   */
+  P999_QUEUE_TIME,
   /**
    * Name for the total number of tasks that have been queued.
    */
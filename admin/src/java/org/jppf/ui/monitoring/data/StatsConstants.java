@@ -50,7 +50,8 @@ public class StatsConstants {
   /**
    * List of stats properties related to queue operations.
    */
-  public static final Fields[] QUEUE_FIELDS = { LATEST_QUEUE_TIME, TOTAL_QUEUE_TIME, MIN_QUEUE_TIME, MAX_QUEUE_TIME, AVG_QUEUE_TIME, TOTAL_QUEUED, QUEUE_SIZE, MAX_QUEUE_SIZE };
+  public static final Fields[] QUEUE_FIELDS = { LATEST_QUEUE_TIME, TOTAL_QUEUE_TIME, MIN_QUEUE_TIME, MAX_QUEUE_TIME, AVG_QUEUE_TIME, P50_QUEUE_TIME, P90_QUEUE_TIME, P99_QUEUE_TIME,
+    P999_QUEUE_TIME, TOTAL_QUEUED, QUEUE_SIZE, MAX_QUEUE_SIZE };
   /**
    * List of stats properties related to tasks execution.
    */
@@ -58,11 +59,13 @@ public class StatsConstants {
   /**
    * List of stats properties related to tasks execution.
    */
-  public static final Fields[] NODE_EXECUTION_FIELDS = { TOTAL_NODE_EXECUTION_TIME, LATEST_NODE_EXECUTION_TIME, MIN_NODE_EXECUTION_TIME, MAX_NODE_EXECUTION_TIME, AVG_NODE_EXECUTION_TIME };
+  public static final Fields[] NODE_EXECUTION_FIELDS = { TOTAL_NODE_EXECUTION_TIME, LATEST_NODE_EXECUTION_TIME, MIN_NODE_EXECUTION_TIME, MAX_NODE_EXECUTION_TIME, AVG_NODE_EXECUTION_TIME,
+    P50_NODE_EXECUTION_TIME, P90_NODE_EXECUTION_TIME, P99_NODE_EXECUTION_TIME, P999_NODE_EXECUTION_TIME };
   /**
    * List of stats properties related to tasks execution.
    */
-  public static final Fields[] TRANSPORT_FIELDS = { TOTAL_TRANSPORT_TIME, LATEST_TRANSPORT_TIME, MIN_TRANSPORT_TIME, MAX_TRANSPORT_TIME, AVG_TRANSPORT_TIME };
+  public static final Fields[] TRANSPORT_FIELDS = { TOTAL_TRANSPORT_TIME, LATEST_TRANSPORT_TIME, MIN_TRANSPORT_TIME, MAX_TRANSPORT_TIME, AVG_TRANSPORT_TIME,
+    P50_TRANSPORT_TIME, P90_TRANSPORT_TIME, P99_TRANSPORT_TIME, P999_TRANSPORT_TIME };
   /**
    * List of stats properties related to job execution.
    */
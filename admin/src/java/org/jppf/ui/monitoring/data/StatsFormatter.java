@@ -54,7 +54,8 @@ public final class StatsFormatter {
    */
   private static final Set<Fields> DOUBLE_FORMATTED = CollectionUtils.setOf(Fields.class, LATEST_EXECUTION_TIME, MIN_EXECUTION_TIME, MAX_EXECUTION_TIME, AVG_EXECUTION_TIME,
     LATEST_NODE_EXECUTION_TIME, MIN_NODE_EXECUTION_TIME, MAX_NODE_EXECUTION_TIME, AVG_NODE_EXECUTION_TIME, LATEST_TRANSPORT_TIME, MIN_TRANSPORT_TIME, MAX_TRANSPORT_TIME, AVG_TRANSPORT_TIME,
-    LATEST_QUEUE_TIME, MIN_QUEUE_TIME, MAX_QUEUE_TIME, AVG_QUEUE_TIME, JOBS_LATEST_TIME, JOBS_MIN_TIME, JOBS_MAX_TIME, JOBS_AVG_TIME, JOBS_AVG_TASKS, NODE_AVG_CL_REQUEST_TIME,
+    LATEST_QUEUE_TIME, MIN_QUEUE_TIME, MAX_QUEUE_TIME, AVG_QUEUE_TIME, P50_TRANSPORT_TIME, P90_TRANSPORT_TIME, P99_TRANSPORT_TIME, P999_TRANSPORT_TIME,
+    P50_NODE_EXECUTION_TIME, P90_NODE_EXECUTION_TIME, P99_NODE_EXECUTION_TIME, P999_NODE_EXECUTION_TIME, P50_QUEUE_TIME, P90_QUEUE_TIME, P99_QUEUE_TIME, P999_QUEUE_TIME, JOBS_LATEST_TIME, JOBS_MIN_TIME, JOBS_MAX_TIME, JOBS_AVG_TIME, JOBS_AVG_TASKS, NODE_AVG_CL_REQUEST_TIME,
     NODE_MIN_CL_REQUEST_TIME, NODE_MAX_CL_REQUEST_TIME, NODE_LATEST_CL_REQUEST_TIME, CLIENT_AVG_CL_REQUEST_TIME, CLIENT_MIN_CL_REQUEST_TIME, CLIENT_MAX_CL_REQUEST_TIME,
     CLIENT_LATEST_CL_REQUEST_TIME, HEALTH_HEAP_PCT, HEALTH_NON_HEAP_PCT, HEALTH_RAM_PCT, HEALTH_CPU, HEALTH_SYSTEM_CPU);
   /**
@@ -76,18 +76,30 @@ public class StatsTransformer {
     map.put(MIN_NODE_EXECUTION_TIME, snapshot.getMin() == Long.MAX_VALUE ? 0L : snapshot.getMin());
     map.put(MAX_NODE_EXECUTION_TIME, snapshot.getMax());
     map.put(AVG_NODE_EXECUTION_TIME, snapshot.getAvg());
+    putPercentile(map, P50_NODE_EXECUTION_TIME, snapshot, 50d);
+    putPercentile(map, P90_NODE_EXECUTION_TIME, snapshot, 90d);
+    putPercentile(map, P99_NODE_EXECUTION_TIME, snapshot, 99d);
+    putPercentile(map, P999_NODE_EXECUTION_TIME, snapshot, 99.9d);
     snapshot = stats.getSnapshot(TRANSPORT_TIME);
     map.put(TOTAL_TRANSPORT_TIME, snapshot.getTotal());
     map.put(LATEST_TRANSPORT_TIME, snapshot.getLatest());
     map.put(MIN_TRANSPORT_TIME, snapshot.getMin() == Long.MAX_VALUE ? 0L : snapshot.getMin());
     map.put(MAX_TRANSPORT_TIME, snapshot.getMax());
     map.put(AVG_TRANSPORT_TIME, snapshot.getAvg());
+    putPercentile(map, P50_TRANSPORT_TIME, snapshot, 50d);
+    putPercentile(map, P90_TRANSPORT_TIME, snapshot, 90d);
+    putPercentile(map, P99_TRANSPORT_TIME, snapshot, 99d);
+    putPercentile(map, P999_TRANSPORT_TIME, snapshot, 99.9d);
     snapshot = stats.getSnapshot(TASK_QUEUE_TIME);
     map.put(LATEST_QUEUE_TIME, snapshot.getLatest());
     map.put(TOTAL_QUEUE_TIME, snapshot.getTotal());
     map.put(MIN_QUEUE_TIME, snapshot.getMin() == Long.MAX_VALUE ? 0L : snapshot.getMin());
     map.put(MAX_QUEUE_TIME, snapshot.getMax());
     map.put(AVG_QUEUE_TIME, snapshot.getAvg());
+    putPercentile(map, P50_QUEUE_TIME, snapshot, 50d);
+    putPercentile(map, P90_QUEUE_TIME, snapshot, 90d);
+    putPercentile(map, P99_QUEUE_TIME, snapshot, 99d);
+    putPercentile(map, P999_QUEUE_TIME, snapshot, 99.9d);
     map.put(TOTAL_QUEUED, stats.getSnapshot(TASK_QUEUE_TOTAL).getTotal());
     snapshot = stats.getSnapshot(TASK_QUEUE_COUNT);
     map.put(QUEUE_SIZE, snapshot.getLatest());
@@ -178,6 +190,17 @@ public class StatsTransformer {
     map.put(TOTAL_OUTBOUND_MB, sum);
   }
 
+  /**
+   * Put the specified percentile of a snapshot in the map. The value is 0 if the snapshot does not record the distribution of its values.
+   * @param map the map to fill.
+   * @param field the field to which the percentile is mapped.
+   * @param snapshot the snapshot from which to compute the percentile.
+   * @param percentile the percentile to compute.
+   */
+  private static void putPercentile(final Map<Fields, Double> map, final Fields field, final JPPFSnapshot snapshot, final double percentile) {
+    map.put(field, isHistogram(snapshot) ? snapshot.getPercentile(percentile) : 0d);
+  }
+
   /**
    * Fill the map of values represented as doubles for a specified data snapshot.
    * @param map the map to fill.
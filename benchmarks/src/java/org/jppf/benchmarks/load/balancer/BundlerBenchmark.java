@@ -0,0 +1,155 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.benchmarks.load.balancer;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.jppf.load.balancer.Bundler;
+import org.jppf.load.balancer.impl.*;
+import org.jppf.utils.TypedProperties;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the cost of the {@link Bundler#feedback(int, double) feedback()} and {@link Bundler#getBundleSize() getBundleSize()} calls
+ * made by the driver for each bundle returned by a node, for the adaptive load-balancing algorithms.
+ * <p>There is one bundler per simulated node, and each node executes its tasks at its own mean speed.
+ * The contended variants run several threads against the same set of bundlers, as the driver does when results come back from several nodes at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundlerBenchmark {
+  /**
+   * The load-balancing algorithm.
+   */
+  @Param({ "proportional", "autotuned", "rl2" })
+  public String algorithm;
+  /**
+   * The number of bundlers, that is, of simulated nodes.
+   */
+  @Param({ "1", "32" })
+  public int nbBundlers;
+  /**
+   * The bundlers to feed back.
+   */
+  private Bundler<?>[] bundlers;
+  /**
+   * The mean time per task in nanoseconds for each bundler.
+   */
+  private double[] meanTaskTimes;
+
+  /**
+   * Create and set up the bundlers.
+   */
+  @Setup
+  public void setup() {
+    bundlers = new Bundler<?>[nbBundlers];
+    meanTaskTimes = new double[nbBundlers];
+    for (int i=0; i<nbBundlers; i++) {
+      bundlers[i] = createBundler(algorithm);
+      bundlers[i].setup();
+      meanTaskTimes[i] = (i + 1) * 1_000_000d;
+    }
+  }
+
+  /**
+   * Dispose of the bundlers.
+   */
+  @TearDown
+  public void tearDown() {
+    for (final Bundler<?> bundler: bundlers) bundler.dispose();
+  }
+
+  /**
+   * Feed a performance sample to a bundler and get its new bundle size, from a single thread.
+   * @param state the per-thread state.
+   * @return the bundle size.
+   */
+  @Benchmark
+  public int feedback(final ThreadState state) {
+    return feedbackAndGetSize(state);
+  }
+
+  /**
+   * Feed a performance sample to a bundler and get its new bundle size, from 4 concurrent threads.
+   * @param state the per-thread state.
+   * @return the bundle size.
+   */
+  @Benchmark
+  @Threads(4)
+  public int feedbackContended(final ThreadState state) {
+    return feedbackAndGetSize(state);
+  }
+
+  /**
+   * Get the bundle size of a bundler, from 4 concurrent threads.
+   * @param state the per-thread state.
+   * @return the bundle size.
+   */
+  @Benchmark
+  @Threads(4)
+  public int getBundleSizeContended(final ThreadState state) {
+    return bundlers[state.random.nextInt(nbBundlers)].getBundleSize();
+  }
+
+  /**
+   * Feed a performance sample with some jitter to a randomly chosen bundler, then get its bundle size.
+   * @param state the per-thread state.
+   * @return the bundle size.
+   */
+  private int feedbackAndGetSize(final ThreadState state) {
+    final int index = state.random.nextInt(nbBundlers);
+    final Bundler<?> bundler = bundlers[index];
+    final int size = Math.max(1, bundler.getBundleSize());
+    final double time = size * meanTaskTimes[index] * (0.9d + 0.2d * state.random.nextDouble());
+    bundler.feedback(size, time);
+    return bundler.getBundleSize();
+  }
+
+  /**
+   * Create a bundler with the default parameters of the specified algorithm.
+   * @param algorithm the name of the algorithm.
+   * @return a new {@link Bundler}.
+   */
+  private static Bundler<?> createBundler(final String algorithm) {
+    final TypedProperties config = new TypedProperties();
+    switch(algorithm) {
+      case "proportional": return new ProportionalBundler(new ProportionalProfile(config));
+      case "autotuned": return new AutoTunedBundler(new AnnealingTuneProfile(config));
+      case "rl2": return new RL2Bundler(new RL2Profile(config));
+      default: throw new IllegalArgumentException("unknown load-balancing algorithm: " + algorithm);
+    }
+  }
+
+  /**
+   * Per-thread state of the benchmark.
+   */
+  @State(Scope.Thread)
+  public static class ThreadState {
+    /**
+     * Chooses the bundlers and the jitter on the execution times.
+     */
+    final Random random = new Random();
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.benchmarks.nio;
+
+import java.net.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.jppf.io.*;
+import org.jppf.nio.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the transfer of multi-part messages with the length-prefixed framing of {@link AbstractNioMessage},
+ * over a pair of non-blocking socket channels connected through the loopback interface.
+ * <p>The writing and reading ends are driven alternately by the benchmark thread, as a selector thread would when both are ready.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NioFramingBenchmark {
+  /**
+   * The size in bytes of each object in a message.
+   */
+  @Param({ "1024", "65536", "1048576" })
+  public int objectSize;
+  /**
+   * The number of objects in a message.
+   */
+  @Param({ "1", "16" })
+  public int nbObjects;
+  /**
+   * The server socket which accepts the reading end.
+   */
+  private ServerSocketChannel server;
+  /**
+   * Context for the writing end.
+   */
+  private BenchmarkContext writer;
+  /**
+   * Context for the reading end.
+   */
+  private BenchmarkContext reader;
+  /**
+   * The objects to send in each message.
+   */
+  private final List<DataLocation> payload = new ArrayList<>();
+
+  /**
+   * Connect the channels and create the payload.
+   * @throws Exception if any error occurs.
+   */
+  @Setup
+  public void setup() throws Exception {
+    server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    final SocketChannel out = SocketChannel.open(server.getLocalAddress());
+    final SocketChannel in = server.accept();
+    for (final SocketChannel channel: new SocketChannel[] { out, in }) {
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      channel.configureBlocking(false);
+    }
+    writer = new BenchmarkContext(out);
+    reader = new BenchmarkContext(in);
+    final Random random = new Random(objectSize);
+    for (int i=0; i<nbObjects; i++) {
+      final byte[] bytes = new byte[objectSize];
+      random.nextBytes(bytes);
+      payload.add(new MultipleBuffersLocation(bytes));
+    }
+  }
+
+  /**
+   * Close the channels.
+   * @throws Exception if any error occurs.
+   */
+  @TearDown
+  public void tearDown() throws Exception {
+    writer.getSocketChannel().close();
+    reader.getSocketChannel().close();
+    server.close();
+    payload.clear();
+  }
+
+  /**
+   * Write a message at one end and read it fully at the other end.
+   * @return the data locations of the message that was read.
+   * @throws Exception if any error occurs.
+   */
+  @Benchmark
+  public List<DataLocation> transfer() throws Exception {
+    final FramedMessage out = new FramedMessage(writer, nbObjects);
+    for (final DataLocation location: payload) out.addLocation(location);
+    final FramedMessage in = new FramedMessage(reader, nbObjects);
+    boolean written = false, read = false;
+    while (!written || !read) {
+      if (!written) written = out.write();
+      if (!read) read = in.read();
+    }
+    return in.getLocations();
+  }
+
+  /**
+   * A message made of a known number of objects.
+   */
+  private static class FramedMessage extends AbstractNioMessage {
+    /**
+     * The number of objects in this message.
+     */
+    private final int expectedObjects;
+
+    /**
+     * Initialize this message.
+     * @param channel the channel to read from or write to.
+     * @param expectedObjects the number of objects in this message.
+     */
+    private FramedMessage(final NioContext channel, final int expectedObjects) {
+      super(channel);
+      this.expectedObjects = expectedObjects;
+    }
+
+    @Override
+    protected void afterFirstRead() throws Exception {
+      nbObjects = expectedObjects;
+    }
+
+    @Override
+    protected void beforeFirstWrite() throws Exception {
+      nbObjects = expectedObjects;
+    }
+  }
+
+  /**
+   * A minimal context which only provides the socket channel to the messages.
+   */
+  private static class BenchmarkContext extends AbstractNioContext {
+    /**
+     * Initialize this context.
+     * @param socketChannel the channel to read from or write to.
+     */
+    private BenchmarkContext(final SocketChannel socketChannel) {
+      this.socketChannel = socketChannel;
+    }
+
+    @Override
+    public boolean readMessage() throws Exception {
+      return readMessage.read();
+    }
+
+    @Override
+    public boolean writeMessage() throws Exception {
+      return writeMessage.write();
+    }
+
+    @Override
+    public void handleException(final Exception e) {
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.benchmarks.queue;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.server.JPPFDriver;
+import org.jppf.server.protocol.*;
+import org.jppf.server.queue.JPPFPriorityQueue;
+import org.jppf.utils.TypedProperties;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures a full cycle of the driver's job queue: jobs are added with {@link JPPFPriorityQueue#addBundle(ServerTaskBundleClient) addBundle()},
+ * dispatched in bundles of a fixed size with {@link JPPFPriorityQueue#nextBundle(ServerJob, int, org.jppf.execute.ExecutorChannel) nextBundle()},
+ * then removed from the queue as if they had completed.
+ * <p>The driver is created but not started, so no network server, persistence or management is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriorityQueueBenchmark {
+  /**
+   * The number of jobs added to the queue in each cycle.
+   */
+  @Param({ "1", "16" })
+  public int nbJobs;
+  /**
+   * The number of tasks in each job.
+   */
+  @Param({ "100" })
+  public int nbTasks;
+  /**
+   * The number of tasks in each dispatched bundle.
+   */
+  @Param({ "1", "10" })
+  public int bundleSize;
+  /**
+   * Used to generate unique job uuids.
+   */
+  private final AtomicLong jobCount = new AtomicLong(0L);
+  /**
+   * The driver which owns the queue.
+   */
+  private JPPFDriver driver;
+  /**
+   * The queue to benchmark.
+   */
+  private JPPFPriorityQueue queue;
+  /**
+   * The serialized form of each task, shared by all the tasks.
+   */
+  private final DataLocation taskData = new MultipleBuffersLocation(new byte[256]);
+  /**
+   * The serialized form of the data provider, shared by all the jobs.
+   */
+  private final DataLocation dataProvider = new MultipleBuffersLocation(new byte[64]);
+
+  /**
+   * Create the driver and get its queue.
+   */
+  @Setup
+  public void setup() {
+    driver = new JPPFDriver(new TypedProperties().set(JPPFProperties.MANAGEMENT_ENABLED, false));
+    queue = driver.getQueue();
+  }
+
+  /**
+   * Close the queue.
+   */
+  @TearDown
+  public void tearDown() {
+    queue.close();
+  }
+
+  /**
+   * Add the jobs to the queue, dispatch all their tasks, then remove them.
+   * @param bh consumes the dispatched bundles.
+   */
+  @Benchmark
+  public void addAndDispatch(final Blackhole bh) {
+    cycle(bh);
+  }
+
+  /**
+   * Add the jobs to the queue, dispatch all their tasks, then remove them, from 4 concurrent threads sharing the same queue.
+   * @param bh consumes the dispatched bundles.
+   */
+  @Benchmark
+  @Threads(4)
+  public void addAndDispatchContended(final Blackhole bh) {
+    cycle(bh);
+  }
+
+  /**
+   * Perform a full queue cycle.
+   * @param bh consumes the dispatched bundles.
+   */
+  private void cycle(final Blackhole bh) {
+    final List<ServerJob> jobs = new ArrayList<>(nbJobs);
+    for (int i=0; i<nbJobs; i++) jobs.add(queue.addBundle(createClientBundle()));
+    for (final ServerJob job: jobs) {
+      int remaining = nbTasks;
+      while (remaining > 0) {
+        final ServerTaskBundleNode bundle = queue.nextBundle(job, bundleSize, null);
+        remaining -= bundle.getTaskCount();
+        bh.consume(bundle);
+      }
+      queue.removeBundle(job);
+    }
+  }
+
+  /**
+   * Create a client bundle as the driver would upon receiving a new job.
+   * @return a new {@link ServerTaskBundleClient}.
+   */
+  private ServerTaskBundleClient createClientBundle() {
+    final TaskBundle header = new JPPFTaskBundle();
+    final long n = jobCount.incrementAndGet();
+    header.setUuid("benchmark-job-" + n);
+    header.setName("benchmark job " + n);
+    header.setSLA(new JobSLA());
+    header.setMetadata(new JPPFJobMetadata());
+    header.setTaskCount(nbTasks);
+    header.setInitialTaskCount(nbTasks);
+    final int[] positions = new int[nbTasks];
+    for (int i=0; i<nbTasks; i++) positions[i] = i;
+    header.setParameter(BundleParameter.TASK_POSITIONS, positions);
+    return new ServerTaskBundleClient(header, dataProvider, Collections.nCopies(nbTasks, taskData), false);
+  }
+}
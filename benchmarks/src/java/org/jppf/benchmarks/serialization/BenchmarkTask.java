@@ -0,0 +1,130 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.benchmarks.serialization;
+
+import java.io.Serializable;
+import java.util.*;
+
+import org.jppf.node.protocol.AbstractTask;
+
+/**
+ * A task whose state mixes primitive arrays, strings, collections and references shared between tasks,
+ * which is typical of the object graphs sent by the clients.
+ */
+public class BenchmarkTask extends AbstractTask<String> {
+  /**
+   * Explicit serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+  /**
+   * The position of this task in its graph.
+   */
+  private final int index;
+  /**
+   * Some numeric input data.
+   */
+  private final double[] values;
+  /**
+   * Parameters shared by all the tasks of a graph.
+   */
+  private final Map<String, Object> parameters;
+  /**
+   * Some structured input data.
+   */
+  private final List<Item> items = new ArrayList<>();
+
+  /**
+   * Initialize this task.
+   * @param index the position of this task in its graph.
+   * @param parameters the parameters shared by all the tasks of the graph.
+   * @param random source of the input data.
+   */
+  public BenchmarkTask(final int index, final Map<String, Object> parameters, final Random random) {
+    this.index = index;
+    this.parameters = parameters;
+    setId("task-" + index);
+    values = new double[64];
+    for (int i=0; i<values.length; i++) values[i] = random.nextDouble();
+    for (int i=0; i<8; i++) items.add(new Item("item-" + index + '-' + i, random.nextLong(), random.nextInt(100)));
+  }
+
+  @Override
+  public void run() {
+    double sum = 0d;
+    for (final double value: values) sum += value;
+    setResult(index + ":" + sum + ":" + items.size() + ":" + parameters.size());
+  }
+
+  /**
+   * Create a list of tasks sharing the same parameters.
+   * @param nbTasks the number of tasks to create.
+   * @return a list of {@link BenchmarkTask} instances.
+   */
+  public static List<BenchmarkTask> createTasks(final int nbTasks) {
+    final Random random = new Random(nbTasks);
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("name", "benchmark");
+    parameters.put("iterations", 1000);
+    parameters.put("threshold", 0.5d);
+    parameters.put("labels", new ArrayList<>(Arrays.asList("a", "b", "c", "d")));
+    final List<BenchmarkTask> tasks = new ArrayList<>(nbTasks);
+    for (int i=0; i<nbTasks; i++) tasks.add(new BenchmarkTask(i, parameters, random));
+    return tasks;
+  }
+
+  /**
+   * A simple structured value.
+   */
+  public static class Item implements Serializable {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * The name of this item.
+     */
+    private final String name;
+    /**
+     * A timestamp.
+     */
+    private final long timestamp;
+    /**
+     * A quantity.
+     */
+    private final int quantity;
+
+    /**
+     * Initialize this item.
+     * @param name the name of this item.
+     * @param timestamp a timestamp.
+     * @param quantity a quantity.
+     */
+    public Item(final String name, final long timestamp, final int quantity) {
+      this.name = name;
+      this.timestamp = timestamp;
+      this.quantity = quantity;
+    }
+
+    @Override
+    public String toString() {
+      return name + '[' + timestamp + ", " + quantity + ']';
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.benchmarks.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.jppf.serialization.JPPFSerialization;
+import org.jppf.utils.JPPFConfiguration;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.streams.JPPFByteArrayOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the serialization schemes available in JPPF on a list of tasks similar to what a client submits in a job.
+ * <p>The schemes are set up the same way as with the {@code jppf.object.serialization.class} configuration property, including the compressing composites.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+  /**
+   * The serialization scheme, specified as the value of the {@code jppf.object.serialization.class} property.
+   */
+  @Param({ "org.jppf.serialization.DefaultJavaSerialization", "org.jppf.serialization.DefaultJPPFSerialization",
+    "LZ4 org.jppf.serialization.DefaultJPPFSerialization", "ZLIB org.jppf.serialization.DefaultJPPFSerialization" })
+  public String scheme;
+  /**
+   * The number of tasks in the serialized graph.
+   */
+  @Param({ "1", "100" })
+  public int nbTasks;
+  /**
+   * The serialization to benchmark.
+   */
+  private JPPFSerialization serialization;
+  /**
+   * The object graph to serialize.
+   */
+  private List<BenchmarkTask> tasks;
+  /**
+   * The graph in serialized form, for the deserialization benchmark.
+   */
+  private byte[] serialized;
+
+  /**
+   * Configure the serialization scheme and build the object graph.
+   * @throws Exception if any error occurs.
+   */
+  @Setup
+  public void setup() throws Exception {
+    JPPFConfiguration.set(JPPFProperties.OBJECT_SERIALIZATION_CLASS, scheme);
+    JPPFSerialization.Factory.reset();
+    serialization = JPPFSerialization.Factory.getSerialization();
+    tasks = BenchmarkTask.createTasks(nbTasks);
+    serialized = serialize();
+  }
+
+  /**
+   * Serialize the task graph.
+   * @return the serialized graph.
+   * @throws Exception if any error occurs.
+   */
+  @Benchmark
+  public byte[] serialize() throws Exception {
+    final JPPFByteArrayOutputStream os = new JPPFByteArrayOutputStream(4096);
+    serialization.serialize(tasks, os);
+    return os.toByteArray();
+  }
+
+  /**
+   * Deserialize the task graph.
+   * @return the deserialized graph.
+   * @throws Exception if any error occurs.
+   */
+  @Benchmark
+  public Object deserialize() throws Exception {
+    return serialization.deserialize(new ByteArrayInputStream(serialized));
+  }
+}
@@ -26,6 +26,7 @@ import javax.sql.DataSource;
 import org.jppf.client.balancer.*;
 import org.jppf.client.balancer.queue.JPPFPriorityQueue;
 import org.jppf.client.event.*;
+import org.jppf.client.nio.ClientNioServer;
 import org.jppf.discovery.*;
 import org.jppf.load.balancer.persistence.*;
 import org.jppf.load.balancer.spi.JPPFBundlerFactory;
@@ -37,6 +38,7 @@ import org.jppf.utils.*;
 import org.jppf.utils.concurrent.*;
 import org.jppf.utils.configuration.*;
 import org.jppf.utils.hooks.HookFactory;
+import org.jppf.utils.stats.*;
 import org.slf4j.*;
 
 /**
@@ -109,6 +111,18 @@ public abstract class AbstractGenericClient extends AbstractJPPFClient implement
    * Whether the client should print connection events to stdout.
    */
   private boolean sysoutEnabled;
+  /**
+   * The statistics of this client.
+   */
+  private final JPPFStatistics statistics = JPPFStatisticsHelper.createClientStatistics();
+  /**
+   * Serializes the tasks sent to the drivers.
+   */
+  private TaskSerializationPipeline serializationPipeline;
+  /**
+   * Handles the job channels of the driver connections in non-blocking mode, or {@code null} if dedicated threads are used for each connection.
+   */
+  private ClientNioServer nioServer;
 
   /**
    * Initialize this client with a specified application UUID.
@@ -154,6 +168,16 @@ public abstract class AbstractGenericClient extends AbstractJPPFClient implement
     final BlockingQueue<Runnable> queue = new SynchronousQueue<>();
     executor = new ThreadPoolExecutor(coreThreads, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, queue, new JPPFThreadFactory("JPPF Client"));
     executor.allowCoreThreadTimeOut(true);
+    serializationPipeline = new TaskSerializationPipeline(config, statistics);
+    if (config.get(JPPFProperties.CLIENT_NIO_ENABLED)) {
+      try {
+        nioServer = new ClientNioServer("JPPF Client NIO", config, executor);
+        nioServer.start();
+      } catch (final Exception e) {
+        log.error("could not start the non-blocking transport, dedicated threads will be used for each connection", e);
+        nioServer = null;
+      }
+    }
     if (jobManager == null) jobManager = createJobManager();
     defaultPolicy.set(retrieveDefaultPolicy(JPPFProperties.JOB_SLA_DEFAULT_POLICY));
     defaultClientPolicy.set(retrieveDefaultPolicy(JPPFProperties.JOB_CLIENT_SLA_DEFAULT_POLICY));
@@ -315,6 +339,14 @@ public abstract class AbstractGenericClient extends AbstractJPPFClient implement
         executor.shutdownNow();
         executor = null;
       }
+      if (serializationPipeline != null) {
+        serializationPipeline.close();
+        serializationPipeline = null;
+      }
+      if (nioServer != null) {
+        nioServer.shutdown();
+        nioServer = null;
+      }
       if (debugEnabled) log.debug("clearing registered class loaders");
       classLoaderRegistrationHandler.close();
       super.close();
@@ -372,6 +404,31 @@ public abstract class AbstractGenericClient extends AbstractJPPFClient implement
     return executor;
   }
 
+  /**
+   * Get the object which serializes the tasks sent to the drivers.
+   * @return a {@link TaskSerializationPipeline} instance.
+   */
+  TaskSerializationPipeline getSerializationPipeline() {
+    return serializationPipeline;
+  }
+
+  /**
+   * Get the object which handles the job channels of the driver connections in non-blocking mode.
+   * @return a {@link ClientNioServer} instance, or {@code null} if dedicated threads are used for each connection.
+   */
+  ClientNioServer getNioServer() {
+    return nioServer;
+  }
+
+  /**
+   * Get the statistics of this client. They currently include the times, size and throughput of the serialization of the tasks sent to the drivers.
+   * @return a {@link JPPFStatistics} instance.
+   * @since 6.3
+   */
+  public JPPFStatistics getStatistics() {
+    return statistics;
+  }
+
   /**
    * Get the job manager for this JPPF client.
    * @return a <code>JobManager</code> instance.
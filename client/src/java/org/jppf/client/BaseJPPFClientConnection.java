@@ -21,14 +21,16 @@ package org.jppf.client;
 import static org.jppf.client.JPPFClientConnectionStatus.NEW;
 
 import java.io.NotSerializableException;
+import java.nio.channels.ClosedChannelException;
 import java.util.*;
 import java.util.concurrent.atomic.*;
 import java.util.concurrent.locks.*;
 
 import org.jppf.JPPFException;
 import org.jppf.client.balancer.ClientTaskBundle;
+import org.jppf.client.nio.*;
 import org.jppf.comm.socket.*;
-import org.jppf.io.IOHelper;
+import org.jppf.io.*;
 import org.jppf.node.protocol.*;
 import org.jppf.node.protocol.graph.TaskGraphInfo;
 import org.jppf.serialization.*;
@@ -64,6 +66,10 @@ abstract class BaseJPPFClientConnection implements JPPFClientConnection {
    * A sequence number used as suffix for the {@code connectionUuid}.
    */
   static AtomicInteger connectionCount = new AtomicInteger(0);
+  /**
+   * Maximum time in milliseconds to wait for the close command job to be sent over a non-blocking channel.
+   */
+  private static final long CLOSE_COMMAND_TIMEOUT = 5000L;
   /**
    * Handler for the connection to the task server.
    */
@@ -142,42 +148,56 @@ abstract class BaseJPPFClientConnection implements JPPFClientConnection {
     }
     if (debugEnabled) log.debug("found {} dependencies for bundle {}", (deps == null ? 0 : deps.size()), clientBundle);
     final List<Task<?>> tasks = prepareTasksToSend(header, clientBundle);
-
+    // the tasks are serialized in the background while the header and data provider are sent
+    final TaskSerializationPipeline.Batch batch = pool.getClient().getSerializationPipeline().start(job, ser, cl, tasks, deps);
+    if (taskServerConnection.isNonBlocking()) return sendTasks(header, job, ser, batch);
     final SocketWrapper socketClient = taskServerConnection.getSocketClient();
-    IOHelper.sendData(socketClient, header, ser);
     try {
-      IOHelper.sendData(socketClient, job.getDataProvider(), ser);
-    } catch(final NotSerializableException e) {
-      log.error("error serializing data provider for {} : {}\nthe job will be cancelled", job, ExceptionUtils.getStackTrace(e));
-      IOHelper.sendData(socketClient, null, ser);
+      IOHelper.sendData(socketClient, header, ser);
+      try {
+        IOHelper.sendData(socketClient, job.getDataProvider(), ser);
+      } catch(final NotSerializableException e) {
+        log.error("error serializing data provider for {} : {}\nthe job will be cancelled", job, ExceptionUtils.getStackTrace(e));
+        IOHelper.sendData(socketClient, null, ser);
+      }
+    } catch(final Exception e) {
+      batch.cancel();
+      throw e;
     }
-    final List<Task<?>> notSerializableTasks = sendTasks(job, ser, socketClient, tasks);
-    if (deps != null) sendTasks(job, ser, socketClient, deps);
+    final List<Task<?>> notSerializableTasks = batch.send(socketClient);
     socketClient.flush();
     return notSerializableTasks;
   }
 
   /**
-   * Send a set of tasks to a driver.
-   * @param job the job towhich the tasks belong.
+   * Send tasks to the server over the non-blocking channel. The whole request is serialized, then queued for writing by a selector thread.
+   * @param header the task bundle to send to the driver.
+   * @param job the job whose tasks are sent.
    * @param ser the serializer to use.
-   * @param socketClient an abstraction of the socket connection to send the tasks through.
-   * @param tasks the tasks to send.
+   * @param batch the tasks being serialized.
    * @return a list of tasks that couldn't be serialized, possibly empty.
    * @throws Exception if an error occurs while sending the request.
    */
-  private static List<Task<?>> sendTasks(final JPPFJob job, final ObjectSerializer ser, final SocketWrapper socketClient, final List<? extends PositionalElement<?>> tasks) throws Exception {
-    final List<Task<?>> notSerializableTasks =  new ArrayList<>(tasks.size());
-    for (final PositionalElement<?> task : tasks) {
+  private List<Task<?>> sendTasks(final TaskBundle header, final JPPFJob job, final ObjectSerializer ser, final TaskSerializationPipeline.Batch batch) throws Exception {
+    final ClientJobContext context = taskServerConnection.getNioContext();
+    final List<DataLocation> locations = new ArrayList<>(header.getTaskCount() + 2);
+    try {
+      if (context == null) throw new ClosedChannelException();
+      locations.add(IOHelper.serializeData(header, ser));
       try {
-        IOHelper.sendData(socketClient, task, ser);
+        locations.add(IOHelper.serializeData(job.getDataProvider(), ser));
       } catch(final NotSerializableException e) {
-        log.error("error serializing task {} for {} : {}", task, job, ExceptionUtils.getStackTrace(e));
-        ((Task<?>) task).setThrowable(e);
-        IOHelper.sendNullData(socketClient);
-        notSerializableTasks.add((Task<?>) task);
+        log.error("error serializing data provider for {} : {}\nthe job will be cancelled", job, ExceptionUtils.getStackTrace(e));
+        locations.add(IOHelper.serializeData(null, ser));
       }
+    } catch(final Exception e) {
+      batch.cancel();
+      throw e;
     }
+    final List<Task<?>> notSerializableTasks = batch.collect(locations);
+    final ClientJobMessage message = new ClientJobMessage(context, locations);
+    message.setWrittenAction(batch::releaseCollected);
+    context.offer(message);
     return notSerializableTasks;
   }
 
@@ -255,11 +275,18 @@ abstract class BaseJPPFClientConnection implements JPPFClientConnection {
     header.setParameter(BundleParameter.CLOSE_COMMAND, true);
     header.setSLA(null);
     header.setMetadata(null);
-    final SocketWrapper socketClient = taskServerConnection.getSocketClient();
-    if (socketClient != null) {
-      IOHelper.sendData(socketClient, header, ser);
-      IOHelper.sendData(socketClient, null, ser); // null data provider
-      socketClient.flush();
+    final ClientJobContext context = taskServerConnection.getNioContext();
+    if (context != null) {
+      final ClientJobMessage message = new ClientJobMessage(context, Arrays.asList(IOHelper.serializeData(header, ser), IOHelper.serializeData(null, ser)));
+      context.offer(message);
+      if (!message.awaitWritten(CLOSE_COMMAND_TIMEOUT)) log.warn("{} timed out sending the close command job", toDebugString());
+    } else {
+      final SocketWrapper socketClient = taskServerConnection.getSocketClient();
+      if (socketClient != null) {
+        IOHelper.sendData(socketClient, header, ser);
+        IOHelper.sendData(socketClient, null, ser); // null data provider
+        socketClient.flush();
+      }
     }
     if (debugEnabled) log.debug("{} sent close command job", toDebugString());
   }
@@ -308,11 +335,24 @@ abstract class BaseJPPFClientConnection implements JPPFClientConnection {
    * @throws Exception if an error is raised while reading the results from the server.
    */
   public List<Task<?>> receiveTasks(final TaskBundle bundle, final ObjectSerializer ser, final ClassLoader cl) throws Exception {
+    return receiveTasks(bundle, ser, cl, null);
+  }
+
+  /**
+   * Receive results of tasks execution, either from the socket connection or from the objects of a message read by the non-blocking channel.
+   * @param bundle the job header.
+   * @param ser the serializer to use.
+   * @param cl the class loader to use for deserializing the tasks.
+   * @param locations the serialized objects of the message, starting with the job header, or {@code null} to read the results from the socket connection.
+   * @return a pair of objects representing the executed tasks results, and the index of the first result within the initial task execution request.
+   * @throws Exception if an error is raised while reading the results from the server.
+   */
+  public List<Task<?>> receiveTasks(final TaskBundle bundle, final ObjectSerializer ser, final ClassLoader cl, final List<DataLocation> locations) throws Exception {
     final ClassLoader ctxCl = Thread.currentThread().getContextClassLoader();
     try {
       final ClassLoader loader = (cl == null) ? getClass().getClassLoader() : cl;
       Thread.currentThread().setContextClassLoader(loader);
-      final SocketWrapper socketClient = taskServerConnection.getSocketClient();
+      final SocketWrapper socketClient = (locations == null) ? taskServerConnection.getSocketClient() : null;
       final int count = bundle.getTaskCount();
       final int[] positions = bundle.getParameter(BundleParameter.TASK_POSITIONS);
       final List<Task<?>> taskList = new ArrayList<>(count);
@@ -320,7 +360,12 @@ abstract class BaseJPPFClientConnection implements JPPFClientConnection {
       if (SEQUENTIAL_DESERIALIZATION) lock.lock();
       try {
         for (int i = 0; i < count; i++) {
-          final Task<?> task = (Task<?>) IOHelper.unwrappedData(socketClient, ser);
+          final Task<?> task;
+          if (locations == null) task = (Task<?>) IOHelper.unwrappedData(socketClient, ser);
+          else {
+            final DataLocation location = locations.get(i + 1);
+            task = (location == null) ? null : (Task<?>) IOHelper.unwrappedData(location, ser);
+          }
           if (task != null) {
             if ((positions != null) && (i < positions.length)) task.setPosition(positions[i]);
             taskList.add(task);
@@ -0,0 +1,421 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.client;
+
+import static org.jppf.utils.stats.JPPFStatisticsHelper.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.comm.socket.SocketWrapper;
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.serialization.ObjectSerializer;
+import org.jppf.utils.*;
+import org.jppf.utils.concurrent.JPPFThreadFactory;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.stats.JPPFStatistics;
+import org.jppf.utils.streams.MultipleBuffersOutputStream;
+import org.slf4j.*;
+
+/**
+ * Serializes the tasks sent by a client in parallel, while the tasks already serialized are written to the driver connection in position order.
+ * <p>The number of tasks serialized ahead of those being written is bounded, so that the memory used by a large job remains under control.
+ * The pooled buffers holding the serialized tasks are returned to their pool once written.
+ * <p>A task which cannot be serialized is sent as a {@code null} object and reported to the caller, as when the tasks are sent sequentially.
+ * @exclude
+ */
+class TaskSerializationPipeline {
+  /**
+   * Logger for this class.
+   */
+  private static Logger log = LoggerFactory.getLogger(TaskSerializationPipeline.class);
+  /**
+   * Determines whether the debug level is enabled in the logging configuration, without the cost of a method call.
+   */
+  private static boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
+  /**
+   * The threads which serialize the tasks, or {@code null} if the tasks are serialized by the sending thread.
+   */
+  private final ThreadPoolExecutor executor;
+  /**
+   * Maximum number of serialized tasks waiting to be written.
+   */
+  private final int maxPending;
+  /**
+   * The client statistics to update.
+   */
+  private final JPPFStatistics statistics;
+
+  /**
+   * Initialize this pipeline.
+   * @param config the client configuration.
+   * @param statistics the client statistics to update.
+   */
+  TaskSerializationPipeline(final TypedProperties config, final JPPFStatistics statistics) {
+    this.statistics = statistics;
+    final int nbThreads = config.get(JPPFProperties.CLIENT_SERIALIZATION_THREADS);
+    this.maxPending = config.get(JPPFProperties.CLIENT_SERIALIZATION_MAX_PENDING);
+    if (nbThreads > 1) {
+      executor = new ThreadPoolExecutor(nbThreads, nbThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new JPPFThreadFactory("TaskSerializer"));
+      executor.allowCoreThreadTimeOut(true);
+    } else executor = null;
+    if (debugEnabled) log.debug("initialized with {} threads and maxPending={}", nbThreads, maxPending);
+  }
+
+  /**
+   * Start serializing the specified tasks. The serialization proceeds in the background until the tasks are written with {@link Batch#send(SocketWrapper)} or {@link Batch#collect(List)}.
+   * @param job the job the tasks belong to.
+   * @param ser the object serializer.
+   * @param cl the class loader to set as context class loader of the serialization threads.
+   * @param tasks the tasks to send.
+   * @param dependencies the task dependencies to send after the tasks, may be {@code null}.
+   * @return a {@link Batch} which writes the serialized tasks in position order.
+   */
+  Batch start(final JPPFJob job, final ObjectSerializer ser, final ClassLoader cl, final List<? extends PositionalElement<?>> tasks, final List<? extends PositionalElement<?>> dependencies) {
+    final List<PositionalElement<?>> elements = new ArrayList<>(tasks.size() + ((dependencies == null) ? 0 : dependencies.size()));
+    elements.addAll(tasks);
+    if (dependencies != null) elements.addAll(dependencies);
+    final Batch batch = new Batch(job, ser, cl, elements, tasks.size());
+    batch.fill();
+    return batch;
+  }
+
+  /**
+   * Stop the serialization threads.
+   */
+  void close() {
+    if (executor != null) executor.shutdownNow();
+  }
+
+  /**
+   * The serialized form of a task.
+   */
+  private static final class SerializedTask {
+    /**
+     * The serialized task, or {@code null} if it could not be serialized.
+     */
+    private final DataLocation data;
+    /**
+     * The buffers holding the serialized task, when serialized in memory.
+     */
+    private final List<JPPFBuffer> buffers;
+    /**
+     * The exception raised if the task is not serializable.
+     */
+    private final NotSerializableException error;
+    /**
+     * The time it took to serialize the task, in nanoseconds.
+     */
+    private final long elapsed;
+
+    /**
+     * Initialize with the specified data.
+     * @param data the serialized task, or {@code null} if it could not be serialized.
+     * @param buffers the buffers holding the serialized task, when serialized in memory.
+     * @param error the exception raised if the task is not serializable.
+     * @param elapsed the time it took to serialize the task, in nanoseconds.
+     */
+    private SerializedTask(final DataLocation data, final List<JPPFBuffer> buffers, final NotSerializableException error, final long elapsed) {
+      this.data = data;
+      this.buffers = buffers;
+      this.error = error;
+      this.elapsed = elapsed;
+    }
+  }
+
+  /**
+   * A set of tasks sent in a single request to the driver.
+   */
+  class Batch {
+    /**
+     * The job the tasks belong to.
+     */
+    private final JPPFJob job;
+    /**
+     * The object serializer.
+     */
+    private final ObjectSerializer ser;
+    /**
+     * The class loader to set as context class loader of the serialization threads.
+     */
+    private final ClassLoader cl;
+    /**
+     * The tasks and dependencies to send.
+     */
+    private final List<PositionalElement<?>> elements;
+    /**
+     * The number of elements which are tasks of the job, as opposed to dependencies.
+     */
+    private final int nbTasks;
+    /**
+     * The pending serializations, in position order.
+     */
+    private final Deque<Future<SerializedTask>> pending = new ArrayDeque<>();
+    /**
+     * Index of the next element to submit for serialization.
+     */
+    private int next;
+    /**
+     * The buffers of the tasks handed over by {@link #collect(List)}, to release once they are written.
+     */
+    private final List<JPPFBuffer> collectedBuffers = new ArrayList<>();
+    /**
+     * The tasks serialized in the background and not yet handed over, whose buffers must be released if this batch is cancelled.
+     */
+    private final Set<SerializedTask> unclaimed = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * Whether this batch was cancelled. Guarded by {@link #unclaimed}.
+     */
+    private boolean cancelled;
+
+    /**
+     * Initialize this batch.
+     * @param job the job the tasks belong to.
+     * @param ser the object serializer.
+     * @param cl the class loader to set as context class loader of the serialization threads.
+     * @param elements the tasks and dependencies to send.
+     * @param nbTasks the number of elements which are tasks of the job.
+     */
+    private Batch(final JPPFJob job, final ObjectSerializer ser, final ClassLoader cl, final List<PositionalElement<?>> elements, final int nbTasks) {
+      this.job = job;
+      this.ser = ser;
+      this.cl = cl;
+      this.elements = elements;
+      this.nbTasks = nbTasks;
+    }
+
+    /**
+     * Write the serialized tasks to the specified socket, in position order, waiting for their serialization to complete as needed.
+     * @param socketClient the socket to write to.
+     * @return the list of tasks that could not be serialized.
+     * @throws Exception if any error occurs.
+     */
+    List<Task<?>> send(final SocketWrapper socketClient) throws Exception {
+      final OutputDestination dest = new SocketWrapperOutputDestination(socketClient);
+      return drain((serialized) -> {
+        if (serialized.data == null) IOHelper.sendNullData(socketClient);
+        else {
+          try {
+            socketClient.writeInt(serialized.data.getSize());
+            serialized.data.transferTo(dest, true);
+          } finally {
+            if (serialized.buffers != null) release(serialized.buffers);
+          }
+        }
+      });
+    }
+
+    /**
+     * Wait for all the tasks to be serialized and add them to the specified list, in position order.
+     * Unlike {@link #send(SocketWrapper)}, this method keeps all the serialized tasks in memory, until they are written by a non-blocking channel.
+     * @param locations the list to which the serialized tasks are added. A task that could not be serialized is added as an empty location.
+     * @return the list of tasks that could not be serialized.
+     * @throws Exception if any error occurs.
+     */
+    List<Task<?>> collect(final List<DataLocation> locations) throws Exception {
+      try {
+        return drain((serialized) -> {
+          locations.add((serialized.data == null) ? new MultipleBuffersLocation(0) : serialized.data);
+          if (serialized.buffers != null) collectedBuffers.addAll(serialized.buffers);
+        });
+      } catch (final Exception|Error e) {
+        // the tasks will not be written
+        releaseCollected();
+        throw e;
+      }
+    }
+
+    /**
+     * Return the pooled buffers of the tasks handed over by {@link #collect(List)} to their pool. This method must only be called once the tasks are written.
+     */
+    void releaseCollected() {
+      release(collectedBuffers);
+      collectedBuffers.clear();
+    }
+
+    /**
+     * Hand the serialized tasks over to the specified consumer, in position order, waiting for their serialization to complete as needed.
+     * @param consumer receives each serialized task.
+     * @return the list of tasks that could not be serialized.
+     * @throws Exception if any error occurs.
+     */
+    private List<Task<?>> drain(final SerializedTaskConsumer consumer) throws Exception {
+      final List<Task<?>> notSerializableTasks =  new ArrayList<>();
+      long bytes = 0L, elapsed = 0L;
+      try {
+        for (int i=0; i<elements.size(); i++) {
+          final PositionalElement<?> element = elements.get(i);
+          final SerializedTask serialized = (executor == null) ? serialize(element) : claim(await(pending.poll()));
+          fill();
+          if (serialized.error != null) {
+            log.error("error serializing task {} for {} : {}", element, job, ExceptionUtils.getStackTrace(serialized.error));
+            ((Task<?>) element).setThrowable(serialized.error);
+            if (i < nbTasks) notSerializableTasks.add((Task<?>) element);
+          } else bytes += serialized.data.getSize();
+          // the serialization time excludes the time spent writing the tasks
+          elapsed += serialized.elapsed;
+          consumer.accept(serialized);
+        }
+      } finally {
+        cancel();
+      }
+      statistics.addValue(CLIENT_TASK_SERIALIZATION_BYTES, bytes);
+      if (elapsed > 0L) statistics.addValue(CLIENT_TASK_SERIALIZATION_THROUGHPUT, (bytes * 1000d) / elapsed);
+      return notSerializableTasks;
+    }
+
+    /**
+     * Submit elements for serialization until the maximum number of pending serialized tasks is reached.
+     */
+    private void fill() {
+      if (executor == null) return;
+      while ((next < elements.size()) && (pending.size() < maxPending)) {
+        final PositionalElement<?> element = elements.get(next++);
+        pending.offer(executor.submit(() -> {
+          final Thread thread = Thread.currentThread();
+          final ClassLoader oldCl = thread.getContextClassLoader();
+          if (cl != null) thread.setContextClassLoader(cl);
+          try {
+            return register(serialize(element));
+          } finally {
+            thread.setContextClassLoader(oldCl);
+          }
+        }));
+      }
+    }
+
+    /**
+     * Record a task serialized in the background, or release its buffers if this batch was cancelled in the meantime.
+     * @param serialized the serialized task.
+     * @return the serialized task.
+     */
+    private SerializedTask register(final SerializedTask serialized) {
+      synchronized(unclaimed) {
+        if (!cancelled) {
+          unclaimed.add(serialized);
+          return serialized;
+        }
+      }
+      if (serialized.buffers != null) release(serialized.buffers);
+      return serialized;
+    }
+
+    /**
+     * Take ownership of a task serialized in the background, so that its buffers are no longer released if this batch is cancelled.
+     * @param serialized the serialized task.
+     * @return the serialized task.
+     */
+    private SerializedTask claim(final SerializedTask serialized) {
+      synchronized(unclaimed) {
+        unclaimed.remove(serialized);
+      }
+      return serialized;
+    }
+
+    /**
+     * Cancel the serializations that are still pending and release the buffers of the tasks that were serialized but not handed over.
+     */
+    void cancel() {
+      Future<SerializedTask> future;
+      while ((future = pending.poll()) != null) future.cancel(false);
+      final List<SerializedTask> toRelease;
+      synchronized(unclaimed) {
+        cancelled = true;
+        toRelease = new ArrayList<>(unclaimed);
+        unclaimed.clear();
+      }
+      for (final SerializedTask serialized: toRelease) {
+        if (serialized.buffers != null) release(serialized.buffers);
+      }
+    }
+
+    /**
+     * Serialize the specified element.
+     * @param element the element to serialize.
+     * @return the serialized element.
+     * @throws Exception if any error other than a {@link NotSerializableException} occurs.
+     */
+    private SerializedTask serialize(final PositionalElement<?> element) throws Exception {
+      final long time = System.nanoTime();
+      DataLocation data = null;
+      List<JPPFBuffer> buffers = null;
+      NotSerializableException error = null;
+      final MultipleBuffersOutputStream mbos = new MultipleBuffersOutputStream();
+      try {
+        ser.serialize(element, mbos);
+        buffers = mbos.toBufferList();
+        data = new MultipleBuffersLocation(buffers, mbos.size());
+      } catch(@SuppressWarnings("unused") final OutOfMemoryError e) {
+        release(mbos.toBufferList());
+        data = IOHelper.serializeDataToFile(element, ser);
+      } catch(final NotSerializableException e) {
+        release(mbos.toBufferList());
+        error = e;
+      } catch(final Exception e) {
+        release(mbos.toBufferList());
+        throw e;
+      }
+      final long elapsed = System.nanoTime() - time;
+      statistics.addValue(CLIENT_TASK_SERIALIZATION_TIME, elapsed / 1e6d);
+      return new SerializedTask(data, buffers, error, elapsed);
+    }
+  }
+
+  /**
+   * Receives the serialized tasks of a batch, in position order.
+   */
+  @FunctionalInterface
+  private interface SerializedTaskConsumer {
+    /**
+     * Process the specified serialized task.
+     * @param serialized the serialized task, whose data is {@code null} if the task could not be serialized.
+     * @throws Exception if any error occurs.
+     */
+    void accept(SerializedTask serialized) throws Exception;
+  }
+
+  /**
+   * Wait for the specified serialization to complete.
+   * @param future the pending serialization.
+   * @return the serialized task.
+   * @throws Exception if the serialization failed.
+   */
+  private static SerializedTask await(final Future<SerializedTask> future) throws Exception {
+    try {
+      return future.get();
+    } catch (final ExecutionException e) {
+      final Throwable t = e.getCause();
+      if (t instanceof Exception) throw (Exception) t;
+      if (t instanceof Error) throw (Error) t;
+      throw e;
+    }
+  }
+
+  /**
+   * Return the pooled buffers of a written task to their pool.
+   * @param buffers the buffers to release.
+   */
+  private static void release(final List<JPPFBuffer> buffers) {
+    for (final JPPFBuffer buffer: buffers) {
+      if (buffer.buffer.length == IO.TEMP_BUFFER_SIZE) IO.TEMP_BUFFER_POOL.put(buffer.buffer);
+    }
+  }
+}
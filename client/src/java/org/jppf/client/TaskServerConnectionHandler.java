@@ -19,8 +19,9 @@
 package org.jppf.client;
 
 import org.jppf.JPPFException;
+import org.jppf.client.nio.*;
 import org.jppf.comm.interceptor.InterceptorHandler;
-import org.jppf.comm.socket.SocketClient;
+import org.jppf.comm.socket.*;
 import org.jppf.utils.*;
 import org.slf4j.*;
 
@@ -38,6 +39,18 @@ public class TaskServerConnectionHandler extends AbstractClientConnectionHandler
    * Determines whether the debug level is enabled in the logging configuration, without the cost of a method call.
    */
   private static boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
+  /**
+   * Handles the channel in non-blocking mode once the handshake is done, or {@code null} if the channel is always used in blocking mode.
+   */
+  private final ClientNioServer nioServer;
+  /**
+   * The context of the channel registered with the {@link #nioServer}, if any.
+   */
+  private volatile ClientJobContext nioContext;
+  /**
+   * Processes the messages received by the non-blocking channel.
+   */
+  private volatile ClientJobContext.Handler nioHandler;
 
   /**
    * Initialize this connection with the specified owner.
@@ -49,6 +62,7 @@ public class TaskServerConnectionHandler extends AbstractClientConnectionHandler
     super(owner, owner.getName() + " - TasksServer");
     this.host = host;
     this.port = port;
+    this.nioServer = owner.isSSLEnabled() ? null : owner.getConnectionPool().getClient().getNioServer();
   }
 
   /**
@@ -59,6 +73,7 @@ public class TaskServerConnectionHandler extends AbstractClientConnectionHandler
   public void init() throws Exception {
     boolean done = false;
     while (!done && !isClosed()) {
+      closeNioContext();
       if (socketClient == null) initSocketClient();
       final boolean sysoutEnabled = owner.getConnectionPool().getClient().isSysoutEnabled();
       String msg = String.format("[client: %s] Attempting connection to the task server at %s:%d", name, host, port);
@@ -78,6 +93,12 @@ public class TaskServerConnectionHandler extends AbstractClientConnectionHandler
         owner.getConnectionPool().setJmxPort(owner.isSSLEnabled() ? sslJmxPort : plainJmxPort);
         */
         owner.getConnectionPool().setJmxPort(owner.getConnectionPool().getDriverPort());
+        if (nioServer != null) {
+          final ClientJobContext context = nioServer.register(((SocketChannelClient) socketClient).getChannel());
+          context.setConnectionUuid(owner.getConnectionUuid());
+          context.setHandler(nioHandler);
+          nioContext = context;
+        }
         msg = "[client: " + name + "] Reconnected to the JPPF task server";
         if (sysoutEnabled) System.out.println(msg);
         log.info(msg);
@@ -96,8 +117,51 @@ public class TaskServerConnectionHandler extends AbstractClientConnectionHandler
    */
   @Override
   public void initSocketClient() throws Exception {
-    socketClient = new SocketClient();
+    socketClient = (nioServer != null) ? new SocketChannelClient(true) : new SocketClient();
     socketClient.setHost(host);
     socketClient.setPort(port);
   }
+
+  @Override
+  public void close() {
+    closeNioContext();
+    super.close();
+  }
+
+  /**
+   * Close the context of the non-blocking channel, if any.
+   */
+  private void closeNioContext() {
+    final ClientJobContext context = nioContext;
+    if (context != null) {
+      nioContext = null;
+      context.close();
+    }
+  }
+
+  /**
+   * Determine whether the channel is used in non-blocking mode once the handshake with the driver is done.
+   * @return {@code true} if the channel is handled by the client's shared selector threads, {@code false} if it is used in blocking mode.
+   */
+  public boolean isNonBlocking() {
+    return nioServer != null;
+  }
+
+  /**
+   * Get the context of the non-blocking channel.
+   * @return a {@link ClientJobContext}, or {@code null} if the channel is used in blocking mode or is not connected.
+   */
+  public ClientJobContext getNioContext() {
+    return nioContext;
+  }
+
+  /**
+   * Set the object which processes the messages received by the non-blocking channel, including after a reconnection.
+   * @param handler a {@link ClientJobContext.Handler} instance.
+   */
+  public void setNioHandler(final ClientJobContext.Handler handler) {
+    this.nioHandler = handler;
+    final ClientJobContext context = nioContext;
+    if (context != null) context.setHandler(handler);
+  }
 }
@@ -21,10 +21,13 @@ package org.jppf.client.balancer;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jppf.JPPFException;
 import org.jppf.client.*;
 import org.jppf.client.event.*;
+import org.jppf.client.nio.*;
+import org.jppf.io.*;
 import org.jppf.load.balancer.BundlerHelper;
 import org.jppf.node.protocol.*;
 import org.jppf.serialization.ObjectSerializer;
@@ -77,6 +80,33 @@ public class ChannelWrapperRemoteAsync extends AbstractChannelWrapperRemote {
    * Used to synchronize on the jobs resubmission.
    */
   private final Object resubmitLock = new Object();
+  /**
+   * Whether the job channel is handled by the client's shared selector threads, instead of dedicated sender and receiver threads.
+   */
+  private boolean nonBlocking;
+  /**
+   * The messages received by the non-blocking channel and not yet processed.
+   */
+  private final Queue<ClientJobMessage> receivedMessages = new ConcurrentLinkedQueue<>();
+  /**
+   * Whether a thread is currently processing the received messages, which are processed one at a time and in the order they were received.
+   */
+  private final AtomicBoolean receiving = new AtomicBoolean(false);
+  /**
+   * Processes the messages received by the non-blocking channel and the errors which break its connection.
+   */
+  private final ClientJobContext.Handler nioHandler = new ClientJobContext.Handler() {
+    @Override
+    public void messageReceived(final ClientJobContext context, final ClientJobMessage message) {
+      receivedMessages.offer(message);
+      processReceivedMessages();
+    }
+
+    @Override
+    public void connectionError(final ClientJobContext context, final Exception e) {
+      handleThrowable(null, e, false);
+    }
+  };
 
   /**
    * Default initializer for remote channel wrapper.
@@ -92,9 +122,14 @@ public class ChannelWrapperRemoteAsync extends AbstractChannelWrapperRemote {
     super.initChannelID();
     if (!initDone) {
       initDone = true;
-      final ExecutorService executor = this.channel.getConnectionPool().getClient().getExecutor();
-      futures.add(executor.submit(new RemoteSender()));
-      futures.add(executor.submit(new RemoteReceiver()));
+      final TaskServerConnectionHandler taskServerConnection = ((JPPFClientConnectionImpl) channel).getTaskServerConnection();
+      nonBlocking = taskServerConnection.isNonBlocking();
+      if (nonBlocking) taskServerConnection.setNioHandler(nioHandler);
+      else {
+        final ExecutorService executor = this.channel.getConnectionPool().getClient().getExecutor();
+        futures.add(executor.submit(new RemoteSender()));
+        futures.add(executor.submit(new RemoteReceiver()));
+      }
     }
   }
 
@@ -105,6 +140,7 @@ public class ChannelWrapperRemoteAsync extends AbstractChannelWrapperRemote {
       jobCount.incrementAndGet();
       if (getCurrentNbJobs() >= getMaxJobs()) setStatus(JPPFClientConnectionStatus.EXECUTING);
       bundleQueue.offer(bundle);
+      if (nonBlocking) channel.getConnectionPool().getClient().getExecutor().execute(this::sendNextBundle);
       if (debugEnabled) log.debug("submitted {} to {}", bundle, this);
     } else {
       if (debugEnabled) log.debug("resubmitting {}", bundle);
@@ -123,52 +159,15 @@ public class ChannelWrapperRemoteAsync extends AbstractChannelWrapperRemote {
    * Also handles exceptions and failover and recovery scenarios when the driver connection breaks.
    */
   private class RemoteSender implements Runnable {
-    /**
-     * Logger for this class.
-     */
-    private Logger thisLog = LoggerFactory.getLogger(RemoteSender.class);
-    /**
-     * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
-     */
-    private boolean thisDebugEnabled = LoggingUtils.isDebugEnabled(thisLog);
-
     @Override
     public void run() {
       if (debugEnabled) log.debug("entering sender loop for {}", ChannelWrapperRemoteAsync.this);
-      final JPPFClientConnectionImpl connection = (JPPFClientConnectionImpl) channel;
       while (!channel.isClosed()) {
         ClientTaskBundle clientBundle = null;
         try {
           awaitStatus();
           clientBundle = bundleQueue.take();
-          final long bundleId = clientBundle.getBundleId();
-          final List<Task<?>> tasks = clientBundle.getTasksL();
-          if (thisDebugEnabled) {
-            final int size = tasks.size();
-            final int[] positions = new int[size];
-            for (int i=0; i<size; i++) positions[i] = tasks.get(i).getPosition();
-            thisLog.debug("{} executing {} tasks of job {} with bundleId = {}, positions={}", ChannelWrapperRemoteAsync.this, size, clientBundle, bundleId, Arrays.toString(positions));
-          }
-          final Collection<ClassLoader> loaders = registerClassLoaders(clientBundle.getUuid(), tasks);
-          final TaskBundle bundle = createBundle(clientBundle, bundleId);
-          bundle.setUuid(uuid);
-          bundle.setInitialTaskCount(clientBundle.getClientJob().initialTaskCount);
-          final ClassLoader cl = loaders.isEmpty() ? null : loaders.iterator().next();
-          final ObjectSerializer ser = connection.makeHelper(cl).getSerializer();
-          final long start = System.nanoTime();
-          final RemoteResponse response = new RemoteResponse(clientBundle, 0, cl, ser, start);
-          synchronized(response) {
-            if (response.currentCount < response.taskCount) responseMap.put(bundleId, response);
-            if (thisDebugEnabled) thisLog.debug("{} sending {}", ChannelWrapperRemoteAsync.this, clientBundle);
-            final List<Task<?>> notSerializableTasks = connection.sendTasks(ser, cl, bundle, clientBundle);
-            clientBundle.jobDispatched(ChannelWrapperRemoteAsync.this);
-            if (!notSerializableTasks.isEmpty()) {
-              if (thisDebugEnabled) thisLog.debug("got {} non-serializable tasks for {}", notSerializableTasks.size(), clientBundle);
-              response.currentCount = notSerializableTasks.size();
-              clientBundle.resultsReceived(notSerializableTasks);
-            }
-            if (response.currentCount >= response.taskCount) handleBundleComplete(clientBundle, null);
-          }
+          sendBundle(clientBundle);
         } catch (final Throwable t) {
           handleThrowable(clientBundle, t, true);
         }
@@ -181,56 +180,135 @@ public class ChannelWrapperRemoteAsync extends AbstractChannelWrapperRemote {
    * Thread which receives the task results from the driver.
    */
   private class RemoteReceiver implements Runnable {
-    /**
-     * Logger for this class.
-     */
-    private Logger thisLog = LoggerFactory.getLogger(RemoteReceiver.class);
-    /**
-     * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
-     */
-    private boolean thisDebugEnabled = LoggingUtils.isDebugEnabled(thisLog);
-
     @Override
     public void run() {
       if (debugEnabled) log.debug("entering receiver loop for {}", ChannelWrapperRemoteAsync.this);
       final JPPFClientConnectionImpl connection = (JPPFClientConnectionImpl) channel;
       while (!channel.isClosed()) {
-        ClientTaskBundle clientBundle = null;
-        Exception exception = null;
-        boolean complete = false;
+        final TaskBundle bundle;
         try {
           awaitStatus();
-          final TaskBundle bundle = connection.receiveHeader(null, null);
-          if (thisDebugEnabled) thisLog.debug("received bundle {}", bundle);
-          final long bundleId = bundle.getParameter(BundleParameter.CLIENT_BUNDLE_ID);
-          final RemoteResponse response = responseMap.remove(bundleId);
-          if (response == null) {
-            thisLog.debug("response object no longer in queue for bundleId = {}", bundleId);
-            continue;
-          }
-          synchronized(response) {
-            clientBundle = response.clientBundle;
-            final List<Task<?>> tasks = connection.receiveTasks(bundle, response.ser, response.cl);
-            if (thisDebugEnabled) thisLog.debug("received {} tasks for {}", tasks.size(), clientBundle);
-            response.handleResults(tasks);
-            if (response.currentCount < response.taskCount) {
-              responseMap.put(bundleId, response);
-            } else {
-              complete = true;
-              BundlerHelper.updateBundler(bundler, tasks.size(), response.elapsed);
-              getLoadBalancerPersistenceManager().storeBundler(channelID, bundler, bundlerAlgorithm);
-            }
-          }
+          bundle = connection.receiveHeader(null, null);
         } catch (final Throwable t) {
-          exception = handleThrowable(clientBundle, t, false);
-        } finally {
-          if (complete) handleBundleComplete(clientBundle, exception);
+          handleThrowable(null, t, false);
+          continue;
         }
+        processResults(bundle, null);
       }
       if (debugEnabled) log.debug("exiting receiver loop for {}", ChannelWrapperRemoteAsync.this);
     }
   }
 
+  /**
+   * Send the next queued bundle over the non-blocking channel. This method is invoked from the client's executor, once for each submitted bundle.
+   */
+  private void sendNextBundle() {
+    ClientTaskBundle clientBundle = null;
+    try {
+      awaitStatus();
+      clientBundle = bundleQueue.poll();
+      if (clientBundle != null) sendBundle(clientBundle);
+    } catch (final Throwable t) {
+      handleThrowable(clientBundle, t, true);
+    }
+  }
+
+  /**
+   * Send the specified bundle to the driver.
+   * @param clientBundle the bundle to send.
+   * @throws Exception if any error occurs.
+   */
+  private void sendBundle(final ClientTaskBundle clientBundle) throws Exception {
+    final JPPFClientConnectionImpl connection = (JPPFClientConnectionImpl) channel;
+    final long bundleId = clientBundle.getBundleId();
+    final List<Task<?>> tasks = clientBundle.getTasksL();
+    if (debugEnabled) {
+      final int size = tasks.size();
+      final int[] positions = new int[size];
+      for (int i=0; i<size; i++) positions[i] = tasks.get(i).getPosition();
+      log.debug("{} executing {} tasks of job {} with bundleId = {}, positions={}", this, size, clientBundle, bundleId, Arrays.toString(positions));
+    }
+    final Collection<ClassLoader> loaders = registerClassLoaders(clientBundle.getUuid(), tasks);
+    final TaskBundle bundle = createBundle(clientBundle, bundleId);
+    bundle.setUuid(uuid);
+    bundle.setInitialTaskCount(clientBundle.getClientJob().initialTaskCount);
+    final ClassLoader cl = loaders.isEmpty() ? null : loaders.iterator().next();
+    final ObjectSerializer ser = connection.makeHelper(cl).getSerializer();
+    final long start = System.nanoTime();
+    final RemoteResponse response = new RemoteResponse(clientBundle, 0, cl, ser, start);
+    synchronized(response) {
+      if (response.currentCount < response.taskCount) responseMap.put(bundleId, response);
+      if (debugEnabled) log.debug("{} sending {}", this, clientBundle);
+      final List<Task<?>> notSerializableTasks = connection.sendTasks(ser, cl, bundle, clientBundle);
+      clientBundle.jobDispatched(this);
+      if (!notSerializableTasks.isEmpty()) {
+        if (debugEnabled) log.debug("got {} non-serializable tasks for {}", notSerializableTasks.size(), clientBundle);
+        response.currentCount = notSerializableTasks.size();
+        clientBundle.resultsReceived(notSerializableTasks);
+      }
+      if (response.currentCount >= response.taskCount) handleBundleComplete(clientBundle, null);
+    }
+  }
+
+  /**
+   * Process the messages received by the non-blocking channel, unless another thread is already doing it.
+   */
+  private void processReceivedMessages() {
+    while (!receivedMessages.isEmpty() && receiving.compareAndSet(false, true)) {
+      try {
+        ClientJobMessage message;
+        while ((message = receivedMessages.poll()) != null) {
+          try {
+            processResults(message.getBundle(), message.getLocations());
+          } finally {
+            // the results are fully deserialized at this point, the pooled memory holding them can be reused right away
+            IOHelper.release(message.getLocations());
+          }
+        }
+      } finally {
+        receiving.set(false);
+      }
+    }
+  }
+
+  /**
+   * Process the results of a bundle received from the driver.
+   * @param bundle the header of the results.
+   * @param locations the serialized objects of the message read by the non-blocking channel, or {@code null} to read the results from the socket connection.
+   */
+  private void processResults(final TaskBundle bundle, final List<DataLocation> locations) {
+    final JPPFClientConnectionImpl connection = (JPPFClientConnectionImpl) channel;
+    ClientTaskBundle clientBundle = null;
+    Exception exception = null;
+    boolean complete = false;
+    try {
+      if (debugEnabled) log.debug("received bundle {}", bundle);
+      final long bundleId = bundle.getParameter(BundleParameter.CLIENT_BUNDLE_ID);
+      final RemoteResponse response = responseMap.remove(bundleId);
+      if (response == null) {
+        log.debug("response object no longer in queue for bundleId = {}", bundleId);
+        return;
+      }
+      synchronized(response) {
+        clientBundle = response.clientBundle;
+        final List<Task<?>> tasks = connection.receiveTasks(bundle, response.ser, response.cl, locations);
+        if (debugEnabled) log.debug("received {} tasks for {}", tasks.size(), clientBundle);
+        response.handleResults(tasks);
+        if (response.currentCount < response.taskCount) {
+          responseMap.put(bundleId, response);
+        } else {
+          complete = true;
+          BundlerHelper.updateBundler(bundler, tasks.size(), response.elapsed);
+          getLoadBalancerPersistenceManager().storeBundler(channelID, bundler, bundlerAlgorithm);
+        }
+      }
+    } catch (final Throwable t) {
+      exception = handleThrowable(clientBundle, t, false);
+    } finally {
+      if (complete) handleBundleComplete(clientBundle, exception);
+    }
+  }
+
   /**
    * Sends the tasks to the driver and gets the results back.
    * Also handles exceptions and failover and recovery scenarios when the driver connection breaks.
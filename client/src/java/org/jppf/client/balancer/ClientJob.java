@@ -176,16 +176,11 @@ public class ClientJob extends AbstractClientJob {
           for (final Task<?> task: list) dispatchedTasks.add(task.getPosition());
         }
       } else {
-        final Set<Integer> availablePos = taskGraph.getAvailableNodes();
-        final int effectiveNbTasks = Math.min(nbTasks, availablePos.size());
-        final Iterator<Integer> it = availablePos.iterator();
-        list = new ArrayList<>(effectiveNbTasks);
-        for (int i=0; i<effectiveNbTasks; i++) {
-          final int pos = it.next();
-          if (!dispatchedTasks.contains(pos)) {
-            dispatchedTasks.add(pos);
-            list.add(tasks.get(pos));
-          }
+        final int[] availablePos = taskGraph.nextAvailableNodes(nbTasks, dispatchedTasks::contains);
+        list = new ArrayList<>(availablePos.length);
+        for (final int pos: availablePos) {
+          dispatchedTasks.add(pos);
+          list.add(tasks.get(pos));
         }
         if (debugEnabled) log.debug("taskGraph = {}, sentTasks = {}", taskGraph, dispatchedTasks);
       }
@@ -569,7 +564,7 @@ public class ClientJob extends AbstractClientJob {
   public boolean hasAvvailableGraphNode() {
     synchronized (tasks) {
       if (taskGraph == null) return false;
-      return taskGraph.getAvailableNodes().size() - dispatchedTasks.size() > 0;
+      return taskGraph.getAvailableCount() - dispatchedTasks.size() > 0;
     }
   }
 
@@ -578,7 +573,7 @@ public class ClientJob extends AbstractClientJob {
    */
   public int getAvailableGraphNodeCount() {
     synchronized (tasks) {
-      return (taskGraph != null) ? taskGraph.getAvailableNodes().size() - dispatchedTasks.size() : -1;
+      return (taskGraph != null) ? taskGraph.getAvailableCount() - dispatchedTasks.size() : -1;
     }
   }
 }
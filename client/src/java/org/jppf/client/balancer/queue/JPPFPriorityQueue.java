@@ -30,6 +30,7 @@ import org.jppf.management.JPPFManagementInfo;
 import org.jppf.node.protocol.JobSLA;
 import org.jppf.queue.*;
 import org.jppf.utils.*;
+import org.jppf.utils.collections.*;
 import org.slf4j.*;
 
 /**
@@ -58,6 +59,10 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ClientJob, ClientJob, C
    * A priority queue holding broadcast jobs that could not be sent due to no available connection.
    */
   private final ConcurrentHashMap<String, ClientJob> pendingBroadcasts = new ConcurrentHashMap<>();
+  /**
+   * A map of task bundles, ordered by descending priority.
+   */
+  private final LinkedListSortedMap<Integer, ClientJob> priorityMap = new LinkedListSortedMap<>(new DescendingIntegerComparator());
 
   /**
    * Initialize this queue.
@@ -149,6 +154,11 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ClientJob, ClientJob, C
     return result;
   }
 
+  @Override
+  public Iterator<ClientJob> iterator() {
+    return priorityMap.iterator(lock);
+  }
+
   @Override
   public boolean isEmpty() {
     lock.lock();
@@ -159,6 +169,16 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ClientJob, ClientJob, C
     }
   }
 
+  @Override
+  public int getQueueSize() {
+    lock.lock();
+    try {
+      return priorityMap.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
   /**
    * Get the bundle size to use for bundle size tuning.
    * @param job the bundle to get the size from.
@@ -0,0 +1,205 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.client.nio;
+
+import java.nio.channels.*;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jppf.nio.*;
+import org.jppf.utils.ExceptionUtils;
+import org.slf4j.*;
+
+/**
+ * Context associated with the non-blocking job channel of a client connection to a driver.
+ * <p>The messages to send are queued and written by a selector thread of the {@link ClientNioServer}, while the results received
+ * from the driver are handed off to this context's {@link Handler}, one at a time and in the order in which they were read,
+ * whatever the number of threads of the client's executor.
+ */
+public class ClientJobContext extends AbstractNioContext {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(ClientJobContext.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * The server that handles this context.
+   */
+  final ClientNioServer server;
+  /**
+   * The messages waiting to be sent to the driver.
+   */
+  private final Queue<ClientJobMessage> sendQueue = new ConcurrentLinkedQueue<>();
+  /**
+   * The messages read from the driver and waiting to be processed.
+   */
+  private final Queue<ClientJobMessage> receiveQueue = new ConcurrentLinkedQueue<>();
+  /**
+   * Whether a task of the client's executor is currently processing the received messages.
+   */
+  private final AtomicBoolean processing = new AtomicBoolean(false);
+  /**
+   * Processes the messages received from the driver and the connection errors.
+   */
+  private volatile Handler handler;
+
+  /**
+   * Initialize this context.
+   * @param server the server that handles this context.
+   * @param socketChannel the associated socket channel.
+   */
+  protected ClientJobContext(final ClientNioServer server, final SocketChannel socketChannel) {
+    this.server = server;
+    this.socketChannel = socketChannel;
+  }
+
+  @Override
+  public boolean readMessage() throws Exception {
+    if (readMessage == null) readMessage = new ClientJobMessage(this);
+    readByteCount = readMessage.getChannelReadCount();
+    final boolean b = readMessage.read();
+    readByteCount = readMessage.getChannelReadCount() - readByteCount;
+    return b;
+  }
+
+  @Override
+  public boolean writeMessage() throws Exception {
+    writeByteCount = writeMessage.getChannelWriteCount();
+    final boolean b = writeMessage.write();
+    writeByteCount = writeMessage.getChannelWriteCount() - writeByteCount;
+    return b;
+  }
+
+  /**
+   * Queue the specified message for sending to the driver.
+   * @param message the message to send.
+   * @throws Exception if the channel is closed or any other error occurs.
+   */
+  public void offer(final ClientJobMessage message) throws Exception {
+    if (isClosed()) throw new ClosedChannelException();
+    sendQueue.offer(message);
+    server.updateInterestOps(getSelectionKey(), SelectionKey.OP_WRITE, true);
+  }
+
+  @Override
+  protected ClientJobMessage nextMessageToSend() {
+    return sendQueue.poll();
+  }
+
+  /**
+   * Queue a message fully read from the driver, for processing after the messages previously read.
+   * @param message the message that was read.
+   * @return {@code true} if the caller must start processing the received messages, {@code false} if they are already being processed.
+   */
+  boolean messageRead(final ClientJobMessage message) {
+    receiveQueue.offer(message);
+    return processing.compareAndSet(false, true);
+  }
+
+  /**
+   * Get the next received message to process. When there is none, the processing ends and a subsequent call to {@link #messageRead(ClientJobMessage)}
+   * will request it to start again.
+   * @return the next message to process, or {@code null} if there is none.
+   */
+  ClientJobMessage nextReceivedMessage() {
+    while (true) {
+      final ClientJobMessage message = receiveQueue.poll();
+      if (message != null) return message;
+      processing.set(false);
+      // a message queued after the poll() but before set(false) would otherwise be left unprocessed
+      if (receiveQueue.isEmpty() || !processing.compareAndSet(false, true)) return null;
+    }
+  }
+
+  @Override
+  public void handleException(final Exception e) {
+    if (closed.compareAndSet(false, true)) {
+      if (debugEnabled) log.debug("handling exception on {}:{}", this, (e == null) ? " null" : "\n" + ExceptionUtils.getStackTrace(e));
+      server.closeConnection(this);
+      sendQueue.clear();
+      receiveQueue.clear();
+      final Handler h = handler;
+      if ((h != null) && (e != null)) h.connectionError(this, e);
+    }
+  }
+
+  /**
+   * Close this context and its channel, without notifying the handler.
+   */
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      if (debugEnabled) log.debug("closing {}", this);
+      server.closeConnection(this);
+      sendQueue.clear();
+      receiveQueue.clear();
+    }
+  }
+
+  /**
+   * @return the object which processes the messages received from the driver and the connection errors.
+   */
+  Handler getHandler() {
+    return handler;
+  }
+
+  /**
+   * Set the object which processes the messages received from the driver and the connection errors.
+   * @param handler a {@link Handler} instance.
+   */
+  public void setHandler(final Handler handler) {
+    this.handler = handler;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append('[');
+    sb.append("connectionUuid=").append(connectionUuid);
+    sb.append(", closed=").append(closed.get());
+    sb.append(", sendQueue size=").append(sendQueue.size());
+    sb.append(", receiveQueue size=").append(receiveQueue.size());
+    sb.append(", interestOps=").append(getInterestOps());
+    sb.append(", socketChannel=").append(socketChannel);
+    return sb.append(']').toString();
+  }
+
+  /**
+   * Processes the messages received over a job channel, along with the errors which break the connection.
+   */
+  public interface Handler {
+    /**
+     * Called when a message was fully read from the driver. This method is invoked from a thread of the client's executor,
+     * never concurrently for the same context, and in the order in which the messages were read.
+     * @param context the context which read the message.
+     * @param message the message read from the driver.
+     * @throws Exception if any error occurs.
+     */
+    void messageReceived(ClientJobContext context, ClientJobMessage message) throws Exception;
+
+    /**
+     * Called when an error breaks the connection. The channel is already closed when this method is invoked.
+     * @param context the context on which the error occurred.
+     * @param e the error that occurred.
+     */
+    void connectionError(ClientJobContext context, Exception e);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.client.nio;
+
+import java.util.List;
+
+import org.jppf.io.*;
+import org.jppf.nio.*;
+import org.jppf.node.protocol.TaskBundle;
+import org.slf4j.*;
+
+/**
+ * A message exchanged with a driver over a non-blocking job channel.
+ * <p>A message sent to the driver holds the job header, the data provider, then the serialized tasks and their dependencies.
+ * A message received from the driver holds the job header followed by the task results, whose number is known once the header is read.
+ */
+public class ClientJobMessage extends AbstractNioMessage {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(ClientJobMessage.class);
+  /**
+   * Determines whether the trace level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean traceEnabled = log.isTraceEnabled();
+  /**
+   * The job header, deserialized once fully read.
+   */
+  private TaskBundle bundle;
+  /**
+   * Whether this message was fully written to the channel.
+   */
+  private boolean written;
+  /**
+   * An action to run once this message is fully written to the channel, may be {@code null}.
+   */
+  private Runnable writtenAction;
+
+  /**
+   * Initialize this message for reading from the specified context.
+   * @param context the context to read from.
+   */
+  public ClientJobMessage(final NioContext context) {
+    super(context);
+  }
+
+  /**
+   * Initialize this message for writing the specified serialized objects to the specified context.
+   * @param context the context to write to.
+   * @param locations the serialized objects to write, starting with the job header.
+   */
+  public ClientJobMessage(final NioContext context, final List<DataLocation> locations) {
+    super(context);
+    this.locations.addAll(locations);
+    nbObjects = locations.size();
+  }
+
+  @Override
+  protected void afterFirstRead() throws Exception {
+    final ClassLoader cl = Thread.currentThread().getContextClassLoader();
+    try {
+      Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+      bundle = (TaskBundle) IOHelper.unwrappedData(locations.get(0));
+    } finally {
+      Thread.currentThread().setContextClassLoader(cl);
+    }
+    nbObjects = bundle.getTaskCount() + 1;
+    if (traceEnabled) log.trace("read header {}, context = {}", bundle, channel);
+  }
+
+  /**
+   * Get the job header of a message received from the driver.
+   * @return a {@link TaskBundle} instance, or {@code null} if the header was not yet read.
+   */
+  public TaskBundle getBundle() {
+    return bundle;
+  }
+
+  /**
+   * Called once this message was fully written to the channel.
+   */
+  void setWritten() {
+    final Runnable action;
+    synchronized(this) {
+      written = true;
+      action = writtenAction;
+      writtenAction = null;
+      notifyAll();
+    }
+    if (action != null) action.run();
+  }
+
+  /**
+   * Set an action to run once this message is fully written to the channel, for instance to release the buffers which hold the serialized objects.
+   * The action is not run if the message is never fully written.
+   * @param action the action to run.
+   */
+  public synchronized void setWrittenAction(final Runnable action) {
+    this.writtenAction = action;
+  }
+
+  /**
+   * Wait until this message is fully written to the channel, or the specified timeout expires.
+   * @param timeout the maximum time to wait in milliseconds.
+   * @return {@code true} if the message was written, {@code false} if the timeout expired.
+   * @throws InterruptedException if the current thread is interrupted while waiting.
+   */
+  public synchronized boolean awaitWritten(final long timeout) throws InterruptedException {
+    final long end = System.currentTimeMillis() + timeout;
+    long remaining = timeout;
+    while (!written && (remaining > 0L)) {
+      wait(remaining);
+      remaining = end - System.currentTimeMillis();
+    }
+    return written;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append('[');
+    sb.append("nb locations=").append(locations.size());
+    sb.append(", position=").append(position);
+    sb.append(", nbObjects=").append(nbObjects);
+    sb.append(", count=").append(count);
+    sb.append(", currentLength=").append(currentLength);
+    sb.append(", bundle=").append(bundle);
+    sb.append(']');
+    return sb.toString();
+  }
+}
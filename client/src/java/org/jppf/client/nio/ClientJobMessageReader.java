@@ -0,0 +1,102 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.client.nio;
+
+import java.util.concurrent.ExecutorService;
+
+import org.jppf.nio.*;
+import org.jppf.utils.ExceptionUtils;
+import org.slf4j.*;
+
+/**
+ * Reads the messages sent by the drivers over the job channels. The fully read messages are handed off to the client's executor for deserialization
+ * and processing, sequentially for each channel, so that the results of a job are processed in the order in which the driver sent them.
+ */
+public class ClientJobMessageReader extends NioMessageReader<ClientJobContext> {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(ClientJobMessageReader.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+
+  /**
+   * Initialize this message reader.
+   * @param server the nio server.
+   */
+  public ClientJobMessageReader(final ClientNioServer server) {
+    super(server);
+  }
+
+  @Override
+  protected MessageHandler<ClientJobContext> createMessageHandler() {
+    return ClientJobMessageReader::handleMessage;
+  }
+
+  @Override
+  protected void doRead(final ClientJobContext context) throws Exception {
+    while (true) {
+      final boolean b = context.readMessage();
+      if (b) {
+        final ClientJobMessage message = (ClientJobMessage) context.getReadMessage();
+        if (debugEnabled) log.debug("read message {} from {}", message, context);
+        context.setReadMessage(null);
+        if (context.messageRead(message)) getExecutor().execute(() -> processReceivedMessages(context));
+      } else if (context.readByteCount <= 0L) break;
+    }
+  }
+
+  /**
+   * Process the messages received by the specified context, until none is left.
+   * @param context the context which read the messages.
+   */
+  private void processReceivedMessages(final ClientJobContext context) {
+    ClientJobMessage message;
+    while ((message = context.nextReceivedMessage()) != null) {
+      try {
+        messageHandler.execute(context, message);
+      } catch (final Exception e) {
+        if (debugEnabled) log.debug("error on channel {} :\n{}", context, ExceptionUtils.getStackTrace(e));
+        else log.warn("error on channel {} : {}", context, ExceptionUtils.getMessage(e));
+        context.handleException(e);
+      }
+    }
+  }
+
+  @Override
+  protected ExecutorService getExecutor() {
+    return ((ClientNioServer) server).getExecutor();
+  }
+
+  /**
+   * Route the specified message to the handler of the context that read it.
+   * @param context the context associated with the channel.
+   * @param message the message to handle.
+   * @throws Exception if any error occurs.
+   */
+  private static void handleMessage(final ClientJobContext context, final NioMessage message) throws Exception {
+    final ClientJobMessage msg = (ClientJobMessage) message;
+    if (debugEnabled) log.debug("read bundle {} from {}", msg.getBundle(), context);
+    final ClientJobContext.Handler handler = context.getHandler();
+    if (handler != null) handler.messageReceived(context, msg);
+    else log.warn("no handler to process {} from {}", msg, context);
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.client.nio;
+
+import java.nio.channels.*;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import org.jppf.nio.*;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
+
+/**
+ * Handles the job channels of all the driver connections of a JPPF client with a fixed number of selector threads.
+ * <p>Unlike a driver-side server, this server does not accept connections: the channels are connected and the handshake with the driver
+ * is performed in blocking mode, after which they are {@link #register(SocketChannel) registered} with this server in non-blocking mode.
+ * The selector threads read and write the messages directly, while the processing of the messages received from the drivers is performed
+ * by the client's executor. The messages received over the same channel are processed sequentially, in the order in which they were read,
+ * whether the executor has one or many threads.
+ */
+public class ClientNioServer extends StatelessNioServer<ClientJobContext> {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(ClientNioServer.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * The executor which processes the messages received from the drivers.
+   */
+  private final ExecutorService executor;
+
+  /**
+   * Initialize this server.
+   * @param name the name of this server's main selector thread.
+   * @param configuration the client configuration.
+   * @param executor the executor which processes the messages received from the drivers.
+   * @throws Exception if any error occurs.
+   */
+  public ClientNioServer(final String name, final TypedProperties configuration, final ExecutorService executor) throws Exception {
+    super(name, JPPFIdentifiers.CLIENT_JOB_DATA_CHANNEL, false, configuration);
+    this.executor = executor;
+  }
+
+  @Override
+  protected void initReaderAndWriter() {
+    messageReader = new ClientJobMessageReader(this);
+    messageWriter = new ClientJobMessageWriter(this);
+  }
+
+  @Override
+  protected boolean isSelectorShardingSupported() {
+    return true;
+  }
+
+  @Override
+  protected int getConfiguredSelectorShards(final TypedProperties config) {
+    return config.get(JPPFProperties.CLIENT_NIO_THREADS);
+  }
+
+  /**
+   * Process the selected keys in the selector thread, whether the main one or that of a shard, instead of handing them off to the global NIO executor.
+   */
+  @Override
+  protected void go(final Set<SelectionKey> selectedKeys) throws Exception {
+    processSelectedKeys(selectedKeys);
+  }
+
+  /**
+   * @return the client's executor.
+   */
+  @Override
+  protected Executor getSelectionExceptionExecutor() {
+    return executor;
+  }
+
+  @Override
+  protected void handleSelectionException(final SelectionKey key, final Exception e) {
+    final ClientJobContext context = (ClientJobContext) key.attachment();
+    if (context != null) context.handleException(e);
+  }
+
+  /**
+   * Register the specified connected channel with this server, in non-blocking mode.
+   * @param channel the channel to register.
+   * @return the context associated with the channel.
+   * @throws Exception if any error occurs.
+   */
+  public ClientJobContext register(final SocketChannel channel) throws Exception {
+    channel.configureBlocking(false);
+    final ClientJobContext context = createNioContext(channel);
+    registerChannel(context, channel);
+    if (debugEnabled) log.debug("registered {}", context);
+    return context;
+  }
+
+  /**
+   * This server never listens on a server socket, hence it is never requested to accept a connection.
+   * Should it still happen, the specified channel is closed, since no driver can be associated with it.
+   * The channels handled by this server are {@link #register(SocketChannel) registered} instead.
+   */
+  @Override
+  public void accept(final ServerSocketChannel serverSocketChannel, final SocketChannel channel, final SSLHandler sslHandler, final boolean ssl,
+    final boolean peer, final Object... params) {
+    log.warn("{} does not accept connections, closing {}", getClass().getSimpleName(), channel);
+    try {
+      channel.close();
+    } catch (final Exception e) {
+      if (debugEnabled) log.debug("error closing {}", channel, e);
+    }
+  }
+
+  @Override
+  public ClientJobContext createNioContext(final Object...params) {
+    return new ClientJobContext(this, (SocketChannel) params[0]);
+  }
+
+  /**
+   * Close the channel of the specified context.
+   * @param context the context to close.
+   */
+  void closeConnection(final ClientJobContext context) {
+    try {
+      final SocketChannel channel = context.getSocketChannel();
+      final SelectionKey key = keyFor(channel);
+      if (key != null) key.cancel();
+      channel.close();
+    } catch (final Exception e) {
+      log.error("error closing channel {}: {}", context, ExceptionUtils.getStackTrace(e));
+    }
+  }
+
+  /**
+   * @return the executor which processes the messages received from the drivers.
+   */
+  ExecutorService getExecutor() {
+    return executor;
+  }
+}
@@ -18,10 +18,11 @@
 
 package org.jppf.caching;
 
-import java.util.*;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Cache implementation backed by a {@link Set} wihh synchronized access.
+ * Cache implementation backed by a concurrent {@link Set}, which can be accessed by multiple threads without locking.
  * @param <E> the type of the cache elements.
  * @author Laurent Cohen
  */
@@ -29,35 +30,25 @@ public class JPPFSimpleSetCache<E> implements JPPFCollectionCache<E> {
   /**
    * The backing set for this cache.
    */
-  private final Set<E> set = new HashSet<>();
+  private final Set<E> set = ConcurrentHashMap.newKeySet();
 
   @Override
   public void add(final E element) {
-    synchronized (set) {
-      set.add(element);
-    }
+    set.add(element);
   }
 
   @Override
   public boolean has(final E element) {
-    synchronized (set) {
-      return set.contains(element);
-    }
+    return set.contains(element);
   }
 
   @Override
   public E remove(final E element) {
-    final boolean b;
-    synchronized (set) {
-      b = set.remove(element);
-    }
-    return b ? element : null;
+    return set.remove(element) ? element : null;
   }
 
   @Override
   public void clear() {
-    synchronized (set) {
-      set.clear();
-    }
+    set.clear();
   }
 }
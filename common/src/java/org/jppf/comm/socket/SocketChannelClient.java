@@ -17,7 +17,7 @@
  */
 package org.jppf.comm.socket;
 
-import java.io.IOException;
+import java.io.*;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
@@ -208,7 +208,11 @@ public class SocketChannelClient implements SocketWrapper {
   public int read(final byte[] data, final int offset, final int len) throws Exception {
     final ByteBuffer byteBuffer = ByteBuffer.wrap(data, offset, len);
     int count = 0;
-    while (count < len) count += channel.read(byteBuffer);
+    while (count < len) {
+      final int n = channel.read(byteBuffer);
+      if (n < 0) throw new EOFException("end of stream reached after " + count + " bytes out of " + len);
+      count += n;
+    }
     return count;
   }
 
@@ -227,7 +231,11 @@ public class SocketChannelClient implements SocketWrapper {
   public int readInt() throws Exception {
     final ByteBuffer buf = ByteBuffer.allocate(4);
     int count = 0;
-    while (count < 4) count += channel.read(buf);
+    while (count < 4) {
+      final int n = channel.read(buf);
+      if (n < 0) throw new EOFException("end of stream reached while reading an int value");
+      count += n;
+    }
     buf.flip();
     return buf.getInt();
   }
@@ -88,6 +88,8 @@ public interface ThreadManager {
 
   /**
    * Create the thread manager instance. Default is {@link ThreadManagerThreadPool}.
+   * <p>When the configured thread manager is {@code "virtual"} and the JVM supports virtual threads, a {@link ThreadManagerVirtual} is created.
+   * Whether it is used is then reflected in the configuration by the {@link JPPFProperties#PROCESSING_VIRTUAL_THREADS} property.
    * @param config the configuration to get the thread manager properties from.
    * @param nbThreadsProperty the name of the property which configures the number of threads.
    * @return an instance of {@link ThreadManager}.
@@ -98,7 +100,15 @@ public interface ThreadManager {
     final int poolSize = computePoolSize(config, nbThreadsProperty);
     config.set(nbThreadsProperty, poolSize);
     final String s = config.get(JPPFProperties.THREAD_MANAGER_CLASS);
-    if (!"default".equalsIgnoreCase(s) && !ThreadManagerThreadPool.class.getName().equals(s) && s != null) {
+    config.set(JPPFProperties.PROCESSING_VIRTUAL_THREADS, false);
+    if ("virtual".equalsIgnoreCase(s) || ThreadManagerVirtual.class.getName().equals(s)) {
+      if (ThreadManagerVirtual.isSupported()) {
+        final int maxConcurrency = config.get(JPPFProperties.PROCESSING_VIRTUAL_THREADS_MAX);
+        result = new ThreadManagerVirtual(maxConcurrency);
+        config.set(JPPFProperties.PROCESSING_VIRTUAL_THREADS, true);
+        log.info("Using virtual threads, with at most {} concurrent tasks", maxConcurrency);
+      } else log.warn("virtual threads are not supported by this JVM, falling back to the default thread manager");
+    } else if (!"default".equalsIgnoreCase(s) && !ThreadManagerThreadPool.class.getName().equals(s) && s != null) {
       try {
         final Class<?> clazz = Class.forName(s);
         final Object instance = ReflectionHelper.invokeConstructor(clazz, new Class[]{Integer.TYPE}, poolSize);
@@ -0,0 +1,348 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.execute;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.utils.*;
+import org.slf4j.*;
+
+/**
+ * This class runs each task of the node's execution manager in its own virtual thread, when the JVM supports them.
+ * <p>The number of tasks that run concurrently is bounded by a limit which is independent of the number of available processors,
+ * such that I/O-bound tasks do not leave the cores idle. Tasks submitted beyond that limit are queued and started as running tasks complete.
+ * <p>Since the node is compiled for Java 8, virtual threads are created via reflection. {@link #isSupported()} determines whether they
+ * are available in the current JVM.
+ * @since 6.3
+ */
+public class ThreadManagerVirtual extends AbstractThreadManager {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(ThreadManagerVirtual.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
+  /**
+   * The factory of virtual threads, or {@code null} if virtual threads are not supported.
+   */
+  private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+  /**
+   * The executor which starts a virtual thread for each task.
+   */
+  private final VirtualThreadExecutor executor;
+  /**
+   * Whether the cpu time of virtual threads can be measured.
+   */
+  private final boolean cpuTimeEnabled;
+
+  /**
+   * Initialize this thread manager.
+   * @param maxConcurrency the maximum number of tasks that can run concurrently.
+   * @throws IllegalStateException if virtual threads are not supported by the JVM.
+   */
+  public ThreadManagerVirtual(final int maxConcurrency) {
+    this(maxConcurrency, VIRTUAL_THREAD_FACTORY);
+  }
+
+  /**
+   * Initialize this thread manager with the specified factory of threads, which may create platform threads.
+   * @param maxConcurrency the maximum number of tasks that can run concurrently.
+   * @param threadFactory the factory of the threads which run the tasks.
+   * @throws IllegalStateException if the factory is {@code null}.
+   * @exclude
+   */
+  public ThreadManagerVirtual(final int maxConcurrency, final ThreadFactory threadFactory) {
+    if (threadFactory == null) throw new IllegalStateException("virtual threads are not supported by this JVM");
+    executor = new VirtualThreadExecutor(maxConcurrency, threadFactory);
+    // not computed in the static initializer, since the probe thread runs code of this class
+    cpuTimeEnabled = determineCpuTimeEnabled(threadFactory);
+  }
+
+  /**
+   * Determine whether virtual threads are supported by the current JVM.
+   * @return {@code true} if virtual threads are supported, {@code false} otherwise.
+   */
+  public static boolean isSupported() {
+    return VIRTUAL_THREAD_FACTORY != null;
+  }
+
+  @Override
+  protected long[] getThreadIds() {
+    return executor.getThreadIds();
+  }
+
+  @Override
+  public ExecutorService getExecutorService() {
+    return executor;
+  }
+
+  /**
+   * Set the maximum number of tasks that can run concurrently.
+   * @param size the new concurrency limit.
+   */
+  @Override
+  public void setPoolSize(final int size) {
+    if (size <= 0) {
+      log.warn("ignored attempt to set the maximum concurrency to 0 or less: " + size);
+      return;
+    }
+    executor.setMaxConcurrency(size);
+  }
+
+  /**
+   * @return the maximum number of tasks that can run concurrently.
+   */
+  @Override
+  public int getPoolSize() {
+    return executor.maxConcurrency;
+  }
+
+  /**
+   * @return {@link Thread#NORM_PRIORITY}, since the priority of virtual threads cannot be changed.
+   */
+  @Override
+  public int getPriority() {
+    return Thread.NORM_PRIORITY;
+  }
+
+  /**
+   * This method has no effect, since the priority of virtual threads cannot be changed.
+   * @param priority not used.
+   */
+  @Override
+  public void setPriority(final int priority) {
+    if (debugEnabled) log.debug("ignored attempt to set the priority of virtual threads to {}", priority);
+  }
+
+  @Override
+  public boolean isCpuTimeEnabled() {
+    return cpuTimeEnabled;
+  }
+
+  @Override
+  public UsedClassLoader useClassLoader(final ClassLoader classLoader) {
+    final ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
+    if (classLoader != null) Thread.currentThread().setContextClassLoader(classLoader);
+    return new ThreadManagerThreadPool.UsedClassLoaderThread(classLoader, oldClassLoader);
+  }
+
+  /**
+   * Create a factory of virtual threads named after {@link #THREAD_NAME_PREFIX}, via {@code Thread.ofVirtual().name(prefix, 1L).factory()}.
+   * @return a {@link ThreadFactory}, or {@code null} if virtual threads are not supported.
+   */
+  private static ThreadFactory createVirtualThreadFactory() {
+    try {
+      final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      final Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+      final Method factoryMethod = builderClass.getMethod("factory");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = nameMethod.invoke(builder, THREAD_NAME_PREFIX + "-virtual-", 1L);
+      return (ThreadFactory) factoryMethod.invoke(builder);
+    } catch (final Exception|LinkageError e) {
+      if (debugEnabled) log.debug("virtual threads are not supported: {}", ExceptionUtils.getMessage(e));
+      return null;
+    }
+  }
+
+  /**
+   * Determine whether the cpu time of a thread created by the specified factory can be measured.
+   * @param threadFactory the factory of the threads which run the tasks.
+   * @return {@code true} if cpu time can be measured, {@code false} otherwise.
+   */
+  private static boolean determineCpuTimeEnabled(final ThreadFactory threadFactory) {
+    if (!CpuTimeCollector.isCpuTimeEnabled()) return false;
+    final long[] cpuTime = { -1L };
+    final Thread thread = threadFactory.newThread(() -> cpuTime[0] = CpuTimeCollector.getCpuTime(Thread.currentThread().getId()));
+    try {
+      thread.start();
+      thread.join();
+    } catch (final Exception e) {
+      if (debugEnabled) log.debug("could not determine whether the cpu time of virtual threads can be measured: {}", ExceptionUtils.getMessage(e));
+      return false;
+    }
+    return cpuTime[0] >= 0L;
+  }
+
+  /**
+   * An executor which starts a new virtual thread for each submitted task, with a bound on the number of tasks running concurrently.
+   */
+  private static final class VirtualThreadExecutor extends AbstractExecutorService {
+    /**
+     * The factory of the threads which run the tasks.
+     */
+    private final ThreadFactory threadFactory;
+    /**
+     * The tasks waiting for a running task to complete.
+     */
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    /**
+     * The threads of the running tasks.
+     */
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    /**
+     * The number of running tasks.
+     */
+    private final AtomicInteger running = new AtomicInteger(0);
+    /**
+     * The maximum number of running tasks.
+     */
+    private volatile int maxConcurrency;
+    /**
+     * Whether this executor was shut down.
+     */
+    private volatile boolean shutdown;
+    /**
+     * Used to wait for the termination of this executor.
+     */
+    private final Object terminationLock = new Object();
+
+    /**
+     * Initialize this executor.
+     * @param maxConcurrency the maximum number of running tasks.
+     * @param threadFactory the factory of the threads which run the tasks.
+     */
+    private VirtualThreadExecutor(final int maxConcurrency, final ThreadFactory threadFactory) {
+      this.maxConcurrency = Math.max(1, maxConcurrency);
+      this.threadFactory = threadFactory;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+      if (command == null) throw new NullPointerException("command is null");
+      if (shutdown) throw new RejectedExecutionException("executor was shut down");
+      pending.offer(command);
+      startPending();
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(final Runnable runnable, final T value) {
+      final RunnableFuture<T> future = super.newTaskFor(runnable, value);
+      if (runnable instanceof NodeTaskWrapper) ((NodeTaskWrapper) runnable).setFuture(future);
+      return future;
+    }
+
+    /**
+     * Start a virtual thread for each pending task, as long as the concurrency limit allows it.
+     */
+    private void startPending() {
+      while (!pending.isEmpty()) {
+        final int n = running.get();
+        if (n >= maxConcurrency) return;
+        if (!running.compareAndSet(n, n + 1)) continue;
+        final Runnable task = pending.poll();
+        if (task == null) {
+          running.decrementAndGet();
+          continue;
+        }
+        try {
+          threadFactory.newThread(() -> run(task)).start();
+        } catch (final RuntimeException|Error e) {
+          log.error("could not start a virtual thread for {}", task, e);
+          running.decrementAndGet();
+          throw e;
+        }
+      }
+    }
+
+    /**
+     * Run the specified task in the current virtual thread, then start the next pending tasks.
+     * @param task the task to run.
+     */
+    private void run(final Runnable task) {
+      final Thread thread = Thread.currentThread();
+      threads.add(thread);
+      try {
+        task.run();
+      } catch (final Throwable t) {
+        log.error("uncaught exception in {} : {}", thread, ExceptionUtils.getStackTrace(t));
+      } finally {
+        threads.remove(thread);
+        running.decrementAndGet();
+        startPending();
+        if (isTerminated()) {
+          synchronized (terminationLock) {
+            terminationLock.notifyAll();
+          }
+        }
+      }
+    }
+
+    /**
+     * Set the maximum number of running tasks, and start pending tasks if it was increased.
+     * @param maxConcurrency the new maximum number of running tasks.
+     */
+    private void setMaxConcurrency(final int maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+      startPending();
+    }
+
+    /**
+     * @return the ids of the threads of the running tasks.
+     */
+    private long[] getThreadIds() {
+      final List<Thread> list = new ArrayList<>(threads);
+      final long[] ids = new long[list.size()];
+      for (int i=0; i<ids.length; i++) ids[i] = list.get(i).getId();
+      return ids;
+    }
+
+    @Override
+    public void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      shutdown = true;
+      final List<Runnable> list = new ArrayList<>();
+      Runnable task;
+      while ((task = pending.poll()) != null) list.add(task);
+      for (final Thread thread: threads) thread.interrupt();
+      return list;
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return shutdown && (running.get() <= 0) && pending.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+      final long deadline = System.nanoTime() + unit.toNanos(timeout);
+      synchronized (terminationLock) {
+        long remaining;
+        while (!isTerminated()) {
+          if ((remaining = deadline - System.nanoTime()) <= 0L) return false;
+          TimeUnit.NANOSECONDS.timedWait(terminationLock, remaining);
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -91,6 +91,14 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
    * Mapping of job uuids to the ids of the pending bundles for each job.
    */
   protected final CollectionMap<String, Long> pendingBundleIds = new ArrayListHashMap<>();
+  /**
+   * Number of completed tasks after which their results are sent while the other tasks of the same bundle are still executing, 0 if disabled.
+   */
+  protected final int resultsBatchSize;
+  /**
+   * Maximum time in nanoseconds during which the results of completed tasks are held before being sent, 0 if there is no time limit.
+   */
+  protected final long resultsBatchTime;
 
   /**
    * Initialize this execution manager with the specified node.
@@ -100,6 +108,8 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
   public AbstractAsyncExecutionManager(final TypedProperties config, final JPPFProperty<Integer> nbThreadsProperty) {
     taskNotificationDispatcher = new TaskExecutionDispatcher(getClass().getClassLoader());
     threadManager = ThreadManager.newInstance(config, nbThreadsProperty);
+    resultsBatchSize = config.get(JPPFProperties.NODE_RESULTS_BATCH_SIZE);
+    resultsBatchTime = config.get(JPPFProperties.NODE_RESULTS_BATCH_TIME) * 1_000_000L;
   }
 
   @Override
@@ -253,6 +263,11 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
         taskNotificationDispatcher.fireTaskEnded(task, bundle.getUuid(), bundle.getName(), cpuTime, elapsedTime / 1_000_000L, task.getThrowable() != null);
         if (traceEnabled) log.trace("resultCount={} for {}", n, taskWrapper);
         if (n >= submittedCount) endJob = true;
+        else if ((jobEntry.resultsBatch != null) && !jobEntry.jobCancelled.get()) {
+          final List<Task<?>> batch = nextResultsBatch(jobEntry, task);
+          // fired while holding the lock, so that the batches are handed over in order and before the remaining results
+          if (batch != null) fireTasksExecuted(bundle, batch);
+        }
       }
       if (endJob) jobEnded(jobEntry);
     } catch (final RuntimeException e) {
@@ -260,6 +275,26 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
     }
   }
 
+  /**
+   * Add the specified completed task to the current results batch of a job, and determine whether the batch must be sent.
+   * This method must be called while holding the lock on the job entry.
+   * @param jobEntry the job to which the task belongs.
+   * @param task the task that completed.
+   * @return the list of tasks to send, or {@code null} if the batch is not yet complete.
+   */
+  private List<Task<?>> nextResultsBatch(final JobProcessingEntry jobEntry, final Task<?> task) {
+    // tasks to resubmit are sent with the remaining results, along with their positions
+    if ((task instanceof AbstractTask) && ((AbstractTask<?>) task).isResubmit()) return null;
+    final List<Task<?>> batch = jobEntry.resultsBatch;
+    final long now = System.nanoTime();
+    if (batch.isEmpty()) jobEntry.batchStartTime = now;
+    batch.add(task);
+    if ((batch.size() < resultsBatchSize) && ((resultsBatchTime <= 0L) || (now - jobEntry.batchStartTime < resultsBatchTime))) return null;
+    for (final Task<?> t: batch) jobEntry.sentPositions.add(t.getPosition());
+    jobEntry.resultsBatch = new ArrayList<>();
+    return batch;
+  }
+
   /**
    * 
    * @param jobEntry the job to process.
@@ -272,6 +307,8 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
       bundle = jobEntry.bundle;
       taskList = jobEntry.taskList;
       t = jobEntry.t;
+      if ((jobEntry.sentPositions != null) && !jobEntry.sentPositions.isEmpty()) taskList = remainingTasks(jobEntry);
+      jobEntry.resultsBatch = null;
       cleanup(jobEntry);
     }
     if (debugEnabled) log.debug("processing completion of {} tasks of job {}", taskList.size(), bundle);
@@ -282,6 +319,35 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
     fireJobFinished(bundle, taskList, t);
   }
 
+  /**
+   * Get the tasks of a job whose results were not sent as partial results, and record their positions in the job header.
+   * @param jobEntry the job to process.
+   * @return the list of remaining tasks.
+   */
+  private static List<Task<?>> remainingTasks(final JobProcessingEntry jobEntry) {
+    final List<Task<?>> remaining = new ArrayList<>(jobEntry.taskList.size() - jobEntry.sentPositions.size());
+    for (final Task<?> task: jobEntry.taskList) {
+      if (!jobEntry.sentPositions.contains(task.getPosition())) remaining.add(task);
+    }
+    // the task count of the header determines the number of tasks in the message sent back to the server
+    jobEntry.bundle.setTaskCount(remaining.size());
+    jobEntry.bundle.setParameter(BundleParameter.RESULTS_POSITIONS, positionsOf(remaining));
+    if (debugEnabled) log.debug("{} results already sent, {} remaining for {}", jobEntry.sentPositions.size(), remaining.size(), jobEntry.bundle);
+    return remaining;
+  }
+
+  /**
+   * Get the positions of the specified tasks.
+   * @param tasks the tasks whose positions to get.
+   * @return an array of task positions, in the same order as the tasks.
+   */
+  private static int[] positionsOf(final List<Task<?>> tasks) {
+    final int[] positions = new int[tasks.size()];
+    int i = 0;
+    for (final Task<?> task: tasks) positions[i++] = task.getPosition();
+    return positions;
+  }
+
   @Override
   public ExecutorService getExecutor() {
     return threadManager.getExecutorService();
@@ -373,6 +439,23 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
     }
   }
 
+  /**
+   * Called when some of the tasks of a task bundle have completed, while the other tasks are still executing.
+   * @param bundle the TaskBundle which holds information on the job.
+   * @param tasks the tasks that completed.
+   */
+  protected void fireTasksExecuted(final TaskBundle bundle, final List<Task<?>> tasks) {
+    final TaskBundle header = bundle.copy();
+    header.setTaskCount(tasks.size());
+    header.setParameter(BundleParameter.PARTIAL_RESULTS, true);
+    header.setParameter(BundleParameter.RESULTS_POSITIONS, positionsOf(tasks));
+    header.removeParameter(BundleParameter.JOB_TASK_GRAPH_INFO);
+    if (debugEnabled) log.debug("sending notification to listeners for completion of {} tasks of job {}", tasks.size(), bundle);
+    for (final ExecutionManagerListener listener: listeners) {
+      if (listener != null) listener.tasksExecuted(header, tasks);
+    }
+  }
+
   @Override
   public void addPendingJobEntry(final TaskBundle bundle) {
     if (debugEnabled) log.debug("adding pending entry for {}", bundle);
@@ -383,4 +466,20 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
       pendingBundleIds.putValue(bundle.getUuid(), bundle.getBundleId());
     }
   }
+
+  @Override
+  public void removePendingJobEntry(final TaskBundle bundle) {
+    if (debugEnabled) log.debug("removing pending entry for {}", bundle);
+    synchronized(jobEntries) {
+      if (pendingEntries.remove(bundle.getUuid() + bundle.getBundleId()) != null) pendingBundleIds.removeValue(bundle.getUuid(), bundle.getBundleId());
+    }
+  }
+
+  @Override
+  public boolean isPendingJobCancelled(final TaskBundle bundle) {
+    synchronized(jobEntries) {
+      final JobPendingEntry entry = pendingEntries.get(bundle.getUuid() + bundle.getBundleId());
+      return (entry != null) && entry.jobCancelled.get();
+    }
+  }
 }
@@ -139,4 +139,17 @@ public interface AsyncExecutionManager {
    * @param bundle the bundle to process.
    */
   void addPendingJobEntry(TaskBundle bundle);
+
+  /**
+   * Called when a task bundle received by the node will not be submitted to this execution manager.
+   * @param bundle the bundle to process.
+   */
+  void removePendingJobEntry(TaskBundle bundle);
+
+  /**
+   * Determine whether a task bundle received by the node, but not yet submitted to this execution manager, was cancelled.
+   * @param bundle the bundle to check.
+   * @return {@code true} if the bundle was cancelled, {@code false} otherwise.
+   */
+  boolean isPendingJobCancelled(TaskBundle bundle);
 }
@@ -34,4 +34,13 @@ public interface ExecutionManagerListener {
    * @param t a {@link Throwable} that prevented or interrupted the job processing.
    */
   void bundleExecuted(final TaskBundle bundle, final List<Task<?>> tasks, final Throwable t);
+
+  /**
+   * Called when some of the tasks of a task bundle have completed, while the other tasks are still executing.
+   * This method is invoked in the same order as the tasks batches complete, and always before {@link #bundleExecuted(TaskBundle, List, Throwable)} for the same bundle.
+   * @param bundle a copy of the bundle header, which identifies the positions of the completed tasks.
+   * @param tasks the tasks that completed.
+   */
+  default void tasksExecuted(final TaskBundle bundle, final List<Task<?>> tasks) {
+  }
 }
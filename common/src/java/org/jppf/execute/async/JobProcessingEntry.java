@@ -18,7 +18,7 @@
 
 package org.jppf.execute.async;
 
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.atomic.*;
 
 import org.jppf.execute.NodeTaskWrapper;
@@ -71,6 +71,18 @@ public class JobProcessingEntry extends JobPendingEntry {
    * A {@link Throwable} that prevented or interrupted the job processing.
    */
   public Throwable t;
+  /**
+   * The completed tasks whose results were not yet sent, or {@code null} if the results are only sent when the whole bundle completes.
+   */
+  public List<Task<?>> resultsBatch;
+  /**
+   * The positions of the tasks whose results were already sent as partial results.
+   */
+  public Set<Integer> sentPositions;
+  /**
+   * The time, in nanoseconds, at which the first task of the current results batch completed.
+   */
+  public long batchStartTime;
 
   /**
    * @return the class loader fot htis task bundle.
@@ -121,6 +121,13 @@ public class ChannelInputSource implements InputSource {
   public void close() throws IOException {
   }
 
+  /**
+   * @return the backing channel.
+   */
+  public ReadableByteChannel getChannel() {
+    return channel;
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder();
@@ -102,6 +102,13 @@ public class ChannelOutputDestination implements OutputDestination {
   public void close() throws IOException {
   }
 
+  /**
+   * @return the backing channel.
+   */
+  public WritableByteChannel getChannel() {
+    return channel;
+  }
+
   @Override
   public String toString() {
     final StringBuilder builder = new StringBuilder();
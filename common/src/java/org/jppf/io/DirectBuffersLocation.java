@@ -0,0 +1,352 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.concurrent.atomic.*;
+
+import org.jppf.utils.pooling.DirectSegmentPool;
+
+/**
+ * Data location backed by direct byte buffer segments obtained from a {@link DirectSegmentPool}.
+ * <p>When transferring from a {@link ChannelInputSource} or to a {@link ChannelOutputDestination}, the data is read and written with scattering
+ * and gathering channel operations, directly into and from the segments, without any intermediate copy.
+ * <p>Copies of this location share the same segments, which are returned to the pool once this location and all its copies are closed.
+ * The segments of locations that are never closed are returned to the pool once these locations are no longer referenced.
+ * @exclude
+ */
+public class DirectBuffersLocation extends AbstractDataLocation implements Closeable {
+  /**
+   * The segments holding the data, shared among copies of this location.
+   */
+  private final Segments segments;
+  /**
+   * Views of the segments for the current transfer, each with its own position and limit.
+   */
+  private ByteBuffer[] views;
+  /**
+   * Index of the first view with remaining bytes in the current transfer.
+   */
+  private int index;
+  /**
+   * The current count of bytes transferred.
+   */
+  private int count;
+  /**
+   * Whether this location was closed.
+   */
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  /**
+   * Initialize this location with the specified shared segments and size.
+   * @param segments the segments holding the data.
+   * @param size the size of the data.
+   */
+  private DirectBuffersLocation(final Segments segments, final int size) {
+    this.segments = segments;
+    this.size = size;
+  }
+
+  /**
+   * Create a location for the specified size, with segments from the default pool.
+   * @param size the size of the data.
+   * @return a new {@link DirectBuffersLocation}, or {@code null} if the pool cannot provide the required memory.
+   */
+  public static DirectBuffersLocation create(final int size) {
+    return create(size, DirectSegmentPool.getInstance());
+  }
+
+  /**
+   * Create a location for the specified size, with segments from the specified pool.
+   * @param size the size of the data.
+   * @param pool the pool from which to get the segments.
+   * @return a new {@link DirectBuffersLocation}, or {@code null} if the pool cannot provide the required memory.
+   */
+  public static DirectBuffersLocation create(final int size, final DirectSegmentPool pool) {
+    final Segments segments = new Segments(pool);
+    if ((segments.buffers = pool.provide(size, segments)) == null) return null;
+    return new DirectBuffersLocation(segments, size);
+  }
+
+  @Override
+  public int transferFrom(final InputSource source, final boolean blocking) throws Exception {
+    if (!transferring) startTransfer();
+    try {
+      ScatteringByteChannel channel = null;
+      if (source instanceof ChannelInputSource) {
+        final ReadableByteChannel ch = ((ChannelInputSource) source).getChannel();
+        if (ch instanceof ScatteringByteChannel) channel = (ScatteringByteChannel) ch;
+      }
+      int total = 0;
+      while (count < size) {
+        final int n = (channel != null) ? (int) channel.read(views, index, views.length - index) : source.read(views[index]);
+        if (n < 0) throw new EOFException();
+        advance(n);
+        total += n;
+        if ((n == 0) || !blocking) break;
+      }
+      if (blocking && (count < size)) throw new EOFException("read " + count + " bytes out of " + size);
+      if (count >= size) transferring = false;
+      return total;
+    } catch (final Exception e) {
+      transferring = false;
+      throw e;
+    }
+  }
+
+  @Override
+  public int transferTo(final OutputDestination dest, final boolean blocking) throws Exception {
+    if (!transferring) startTransfer();
+    try {
+      GatheringByteChannel channel = null;
+      if (dest instanceof ChannelOutputDestination) {
+        final WritableByteChannel ch = ((ChannelOutputDestination) dest).getChannel();
+        if (ch instanceof GatheringByteChannel) channel = (GatheringByteChannel) ch;
+      }
+      int total = 0;
+      while (count < size) {
+        final int n = (channel != null) ? (int) channel.write(views, index, views.length - index) : dest.write(views[index]);
+        if (n <= 0) break;
+        advance(n);
+        total += n;
+        if (!blocking) break;
+      }
+      if (count >= size) transferring = false;
+      return total;
+    } catch (final Exception e) {
+      transferring = false;
+      throw e;
+    }
+  }
+
+  /**
+   * Start a new transfer with fresh views of the segments.
+   */
+  private void startTransfer() {
+    transferring = true;
+    views = newViews();
+    index = 0;
+    count = 0;
+  }
+
+  /**
+   * Update the state of the current transfer after the specified number of bytes was transferred.
+   * @param n the number of bytes transferred.
+   */
+  private void advance(final int n) {
+    count += n;
+    while ((index < views.length) && !views[index].hasRemaining()) index++;
+  }
+
+  /**
+   * Create views of the segments, positioned at the start of the data and limited to the data size.
+   * @return an array of buffers sharing the content of the segments.
+   */
+  private ByteBuffer[] newViews() {
+    if (closed.get()) throw new IllegalStateException("data location is closed");
+    final ByteBuffer[] buffers = segments.buffers;
+    final ByteBuffer[] result = new ByteBuffer[buffers.length];
+    int remaining = size;
+    for (int i=0; i<buffers.length; i++) {
+      final ByteBuffer view = buffers[i].duplicate();
+      view.clear();
+      view.limit(Math.min(view.capacity(), remaining));
+      remaining -= view.limit();
+      result[i] = view;
+    }
+    return result;
+  }
+
+  @Override
+  public InputStream getInputStream() throws Exception {
+    return new SegmentsInputStream();
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws Exception {
+    return new SegmentsOutputStream();
+  }
+
+  /**
+   * {@inheritDoc}
+   * @throws IllegalStateException if this location is closed.
+   */
+  @Override
+  public DataLocation copy() {
+    if (closed.get() || !segments.retain()) throw new IllegalStateException("data location is closed");
+    return new DirectBuffersLocation(segments, size);
+  }
+
+  /**
+   * Close this location. Its segments are returned to the pool once this location and all its copies are closed. Closing a location more than once has no effect.
+   */
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) segments.release();
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(getClass().getSimpleName()).append('[');
+    sb.append("size=").append(size);
+    sb.append(", count=").append(count);
+    sb.append(", index=").append(index);
+    sb.append(", transferring=").append(transferring);
+    sb.append(", closed=").append(closed.get());
+    sb.append(", nbSegments=").append(segments.buffers.length);
+    sb.append(']');
+    return sb.toString();
+  }
+
+  /**
+   * Holds the segments shared by a location and its copies. The segments are returned to the pool when the last location that uses them
+   * is closed, or otherwise when this object is no longer reachable.
+   */
+  private static final class Segments {
+    /**
+     * The pool which provided the segments.
+     */
+    private final DirectSegmentPool pool;
+    /**
+     * The number of open locations which use the segments.
+     */
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    /**
+     * The segments holding the data.
+     */
+    private ByteBuffer[] buffers;
+
+    /**
+     * @param pool the pool which provides the segments.
+     */
+    private Segments(final DirectSegmentPool pool) {
+      this.pool = pool;
+    }
+
+    /**
+     * Register one more location using the segments.
+     * @return {@code true} if the segments are still in use, {@code false} if they were already released.
+     */
+    private boolean retain() {
+      int n;
+      do {
+        if ((n = refCount.get()) <= 0) return false;
+      } while (!refCount.compareAndSet(n, n + 1));
+      return true;
+    }
+
+    /**
+     * Unregister a location using the segments, and return them to the pool if it was the last one.
+     */
+    private void release() {
+      if (refCount.decrementAndGet() == 0) pool.release(buffers);
+    }
+  }
+
+  /**
+   * The state of a stream over the data of this location, with its own views of the segments.
+   */
+  private final class SegmentsStream {
+    /**
+     * The views of the segments for this stream.
+     */
+    final ByteBuffer[] streamViews = newViews();
+    /**
+     * Index of the current view.
+     */
+    int current;
+
+    /**
+     * Get the current view, skipping those with no remaining bytes.
+     * @return a {@link ByteBuffer}, or {@code null} if all views are exhausted.
+     */
+    ByteBuffer currentView() {
+      while ((current < streamViews.length) && !streamViews[current].hasRemaining()) current++;
+      return (current < streamViews.length) ? streamViews[current] : null;
+    }
+  }
+
+  /**
+   * An input stream which reads the data of this location.
+   */
+  private final class SegmentsInputStream extends InputStream {
+    /**
+     * The views to read from.
+     */
+    private final SegmentsStream stream = new SegmentsStream();
+
+    @Override
+    public int read() throws IOException {
+      final ByteBuffer view = stream.currentView();
+      return (view == null) ? -1 : view.get() & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (len == 0) return 0;
+      int n = 0;
+      ByteBuffer view;
+      while ((n < len) && ((view = stream.currentView()) != null)) {
+        final int chunk = Math.min(len - n, view.remaining());
+        view.get(b, off + n, chunk);
+        n += chunk;
+      }
+      return (n == 0) ? -1 : n;
+    }
+
+    @Override
+    public int available() throws IOException {
+      int n = 0;
+      for (int i=stream.current; i<stream.streamViews.length; i++) n += stream.streamViews[i].remaining();
+      return n;
+    }
+  }
+
+  /**
+   * An output stream which writes into the segments of this location.
+   */
+  private final class SegmentsOutputStream extends OutputStream {
+    /**
+     * The views to write to.
+     */
+    private final SegmentsStream stream = new SegmentsStream();
+
+    @Override
+    public void write(final int b) throws IOException {
+      final ByteBuffer view = stream.currentView();
+      if (view == null) throw new EOFException("data location capacity exceeded");
+      view.put((byte) b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      int n = 0;
+      while (n < len) {
+        final ByteBuffer view = stream.currentView();
+        if (view == null) throw new EOFException("data location capacity exceeded");
+        final int chunk = Math.min(len - n, view.remaining());
+        view.put(b, off + n, chunk);
+        n += chunk;
+      }
+    }
+  }
+}
@@ -20,7 +20,7 @@ package org.jppf.io;
 
 import java.io.*;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.channels.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.*;
@@ -225,10 +225,11 @@ public class FileDataLocation extends AbstractDataLocation {
     if (!transferring) {
       transferring = true;
       fileChannel = new FileInputStream(filePath).getChannel();
-      buffer = ByteBuffer.wrap(IO.TEMP_BUFFER_POOL.get());
+      if (!(dest instanceof ChannelOutputDestination)) buffer = ByteBuffer.wrap(IO.TEMP_BUFFER_POOL.get());
       count = 0;
     }
     try {
+      if (dest instanceof ChannelOutputDestination) return channelTransferTo(((ChannelOutputDestination) dest).getChannel(), blocking);
       return blocking ? blockingTransferTo(dest) : nonBlockingTransferTo(dest);
     } catch(final Exception e) {
       transferring = false;
@@ -244,6 +245,27 @@ public class FileDataLocation extends AbstractDataLocation {
     }
   }
 
+  /**
+   * Transfer the file content to the specified channel with {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+   * which lets the operating system move the data from the file to the channel without copying it through the heap.
+   * @param channel the channel to transfer to.
+   * @param blocking whether to transfer all the remaining data, or perform a single transfer operation.
+   * @return the number of bytes actually transferred.
+   * @throws Exception if an IO error occurs.
+   */
+  private int channelTransferTo(final WritableByteChannel channel, final boolean blocking) throws Exception {
+    int total = 0;
+    while (count < size) {
+      final int n = (int) fileChannel.transferTo(count, size - count, channel);
+      if (n <= 0) break;
+      count += n;
+      total += n;
+      if (!blocking) break;
+    }
+    if (count >= size) transferring = false;
+    return total;
+  }
+
   /**
    * Perform a non-blocking from this data location to the specified output destination.
    * @param dest the output destination to transfer to.
@@ -82,4 +82,8 @@ public interface IO extends Closeable {
    * Whether to check for low memory and trigger disk offloading.
    */
   boolean CHECK_LOW_MEMORY = JPPFConfiguration.get(JPPFProperties.CHECK_LOW_MEMORY);
+  /**
+   * Whether NIO messages are read into pooled direct buffers. Defaults to false.
+   */
+  boolean NIO_DIRECT_BUFFERS_ENABLED = JPPFConfiguration.get(JPPFProperties.NIO_DIRECT_BUFFERS_ENABLED);
 }
@@ -20,7 +20,7 @@ package org.jppf.io;
 
 import java.io.*;
 import java.text.NumberFormat;
-import java.util.Locale;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.jppf.comm.socket.SocketWrapper;
@@ -94,6 +94,41 @@ public final class IOHelper {
     return new FileDataLocation(file, size);
   }
 
+  /**
+   * Create a data location for an object read from a non-blocking channel.
+   * If pooled direct buffers are enabled and available, the data is stored in a {@link DirectBuffersLocation},
+   * otherwise this method behaves like {@link #createDataLocationMemorySensitive(int)}.
+   * @param size the requested size of the data location to create.
+   * @return a <code>DataLocation</code> object.
+   * @throws Exception if an IO error occurs.
+   */
+  public static DataLocation createNioDataLocation(final int size) throws Exception {
+    if (IO.NIO_DIRECT_BUFFERS_ENABLED) {
+      final DataLocation dl = DirectBuffersLocation.create(size);
+      if (dl != null) return dl;
+      if (traceEnabled) log.trace("no direct buffer available for {} bytes, falling back to heap", size);
+    }
+    return createDataLocationMemorySensitive(size);
+  }
+
+  /**
+   * Release the resources held by the specified data locations, such as the pooled segments of {@link DirectBuffersLocation}s.
+   * The locations must no longer be used after this method is called.
+   * @param locations the locations to release, may contain {@code null} elements.
+   */
+  public static void release(final List<DataLocation> locations) {
+    for (final DataLocation location: locations) release(location);
+  }
+
+  /**
+   * Release the resources held by the specified data location, such as the pooled segments of a {@link DirectBuffersLocation}.
+   * The location must no longer be used after this method is called.
+   * @param location the location to release, may be {@code null}.
+   */
+  public static void release(final DataLocation location) {
+    if (location instanceof DirectBuffersLocation) ((DirectBuffersLocation) location).close();
+  }
+
   /**
    * Read a provider or task data from an input source.
    * The data may be stored in memory or on another medium depending on its size and the available memory.
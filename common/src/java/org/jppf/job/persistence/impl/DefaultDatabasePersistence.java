@@ -26,6 +26,7 @@ import org.jppf.job.persistence.*;
 import org.jppf.persistence.AbstractDatabasePersistence;
 import org.jppf.utils.*;
 import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.streams.StreamUtils;
 import org.slf4j.*;
 
 /**
@@ -87,6 +88,12 @@ import org.slf4j.*;
  * jppf.datasource.jobs.maximumPoolSize = 10
  * jppf.datasource.jobs.connectionTimeout = 30000
  * jppf.datasource.jobs.idleTimeout = 600000</pre>
+ *
+ * <p>When the database supports a single-statement insert-or-update, for instance with H2, MySQL, MariaDB or PostgreSQL, job elements are stored with JDBC batches
+ * of such statements. Otherwise, the elements of a newly submitted job are stored with batches of inserts, falling back to a lock-then-insert-or-update sequence
+ * for each element when some of them already exist. The size of the batches is given by the {@code jppf.job.persistence.batch.size} configuration property.
+ * <p>The streams returned by {@link #load(Collection) load()} read the content of the elements directly from the database, one row at a time, rather than
+ * loading all the rows in memory.
  * @author Laurent Cohen
  */
 public class DefaultDatabasePersistence extends AbstractDatabasePersistence<PersistenceInfo> implements JobPersistence {
@@ -110,6 +117,10 @@ public class DefaultDatabasePersistence extends AbstractDatabasePersistence<Pers
    * Whether to wrap input streams into buffered input streams.
    */
   private final boolean bufferStreams = JPPFConfiguration.getProperties().getBoolean("jppf.job.persistence.bufferStreams", true);
+  /**
+   * Maximum number of elements stored with a single JDBC batch.
+   */
+  private final int batchSize = JPPFConfiguration.get(JPPFProperties.JOB_PERSISTENCE_BATCH_SIZE);
 
   /**
    * Intialize this persistence with the {@linkplain #DEFAULT_TABLE default table name}.
@@ -141,7 +152,11 @@ public class DefaultDatabasePersistence extends AbstractDatabasePersistence<Pers
       connection.setAutoCommit(false);
       try {
         connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
-        for (PersistenceInfo info: infos) storeElement(connection, info, null);
+        final String upsert = getDialectSQL(connection, "store.upsert.sql");
+        if (upsert != null) storeBatches(connection, upsert, infos);
+        else if ((infos.size() <= 1) || !insertBatches(connection, infos)) {
+          for (PersistenceInfo info: infos) storeElement(connection, info, null);
+        }
         connection.commit();
         if (debugEnabled) log.debug("commit done");
       } catch(final Exception e) {
@@ -158,32 +173,32 @@ public class DefaultDatabasePersistence extends AbstractDatabasePersistence<Pers
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>The rows are queried on demand, as the returned streams are read, with a single JDBC connection which is released once all the streams
+   * are either closed or read until the end. Callers must therefore close all the returned streams, including those they do not read.
+   * As with an eager load, the elements which are not found in the database are skipped and have no stream in the returned list.
+   * An element deleted after this method returns causes an {@link IOException} to be thrown upon reading its stream.
+   * <p>The returned streams are meant to be read one after the other. If a stream is read before the previous one is exhausted,
+   * the remaining content of the previous one is first copied in memory, since not all JDBC drivers support multiple open result sets on a connection.
+   */
   @Override
   public List<InputStream> load(final Collection<PersistenceInfo> infos) throws JobPersistenceException {
     if (debugEnabled) log.debug("loading {}", infos);
-    try (Connection connection = dataSource.getConnection()) {
-      final boolean autocommit = connection.getAutoCommit();
-      connection.setAutoCommit(false);
-      try {
-        final List<InputStream> result = new ArrayList<>(infos.size());
-        for (PersistenceInfo info: infos) {
-          try (PreparedStatement ps = prepareLoadStatement(connection, info)) {
-            try (ResultSet rs= ps.executeQuery()) {
-              if (rs.next()) result.add(getInputStream(rs.getBinaryStream(1)));
-            }
-          }
-        }
-        connection.commit();
-        return result;
-      } catch(final Exception e) {
-        connection.rollback();
-        throw e;
-      } finally {
-        connection.setAutoCommit(autocommit);
+    if (infos.isEmpty()) return new ArrayList<>();
+    LoadSession session = null;
+    try {
+      session = new LoadSession();
+      final List<PersistenceInfo> found = session.existing(infos);
+      final List<InputStream> result = new ArrayList<>(found.size());
+      if (found.isEmpty()) session.close();
+      else {
+        session.pending = found.size();
+        for (final PersistenceInfo info: found) result.add(new LoadStream(session, info));
       }
-    } catch(final JobPersistenceException e) {
-      throw e;
+      return result;
     } catch(final Exception e) {
+      if (session != null) session.close();
       throw new JobPersistenceException(e);
     }
   }
@@ -288,15 +303,69 @@ public class DefaultDatabasePersistence extends AbstractDatabasePersistence<Pers
     }
   }
 
+  /**
+   * Store the specified elements with JDBC batches of the specified statement, which takes the job uuid, element type, position and content as parameters.
+   * @param connection the JDBC connection with which to create and execute the statement.
+   * @param sql the insert or upsert statement to execute.
+   * @param infos the elements to store.
+   * @throws Exception if any error occurs.
+   */
+  private void storeBatches(final Connection connection, final String sql, final Collection<PersistenceInfo> infos) throws Exception {
+    try (final PreparedStatement ps = connection.prepareStatement(sql)) {
+      int count = 0;
+      for (final PersistenceInfo info: infos) {
+        ps.setString(1, info.getJobUuid());
+        ps.setString(2, info.getType().name());
+        ps.setInt(3, info.getPosition());
+        setContent(ps, 4, info);
+        ps.addBatch();
+        if (++count % batchSize == 0) ps.executeBatch();
+      }
+      if (count % batchSize != 0) ps.executeBatch();
+      if (debugEnabled) log.debug("stored {} elements with batches of at most {}", count, batchSize);
+    }
+  }
+
+  /**
+   * Attempt to store the specified elements with JDBC batches of inserts, which fails if any of them already exists.
+   * @param connection the JDBC connection with which to create and execute the statement.
+   * @param infos the elements to store.
+   * @return {@code true} if all the elements were inserted, {@code false} if the insertion failed and the current transaction was rolled back.
+   * @throws Exception if any error occurs.
+   */
+  private boolean insertBatches(final Connection connection, final Collection<PersistenceInfo> infos) throws Exception {
+    try {
+      storeBatches(connection, getSQL("store.insert.sql"), infos);
+      return true;
+    } catch (final SQLException e) {
+      if (debugEnabled) log.debug("batch insert failed, storing each element separately: {}", ExceptionUtils.getMessage(e));
+      connection.rollback();
+      return false;
+    }
+  }
+
+  /**
+   * Set the content of the specified element as a blob parameter of the specified statement.
+   * @param ps the statement to set the parameter on.
+   * @param index the index of the parameter.
+   * @param info the element whose content to set.
+   * @throws Exception if any error occurs.
+   */
+  private void setContent(final PreparedStatement ps, final int index, final PersistenceInfo info) throws Exception {
+    final InputStream is = getInputStream(info.getInputStream());
+    final int size = info.getSize();
+    if (size >= 0) ps.setBlob(index, is, size);
+    else ps.setBlob(index, is);
+  }
+
   /** @exclude */
   @Override
   protected void insertElement(final Connection connection, final PersistenceInfo info, final byte[] bytes) throws Exception {
     try (final PreparedStatement ps = connection.prepareStatement(getSQL("store.insert.sql"))) {
-      final InputStream is = getInputStream(info.getInputStream());
       ps.setString(1, info.getJobUuid());
       ps.setString(2, info.getType().name());
       ps.setInt(3, info.getPosition());
-      ps.setBlob(4, is);
+      setContent(ps, 4, info);
       ps.executeUpdate();
     }
   }
@@ -305,8 +374,7 @@ public class DefaultDatabasePersistence extends AbstractDatabasePersistence<Pers
   @Override
   protected void updateElement(final Connection connection, final PersistenceInfo info, final byte[] bytes) throws Exception {
     try (PreparedStatement ps2 = connection.prepareStatement(getSQL("store.update.sql"))) {
-      final InputStream is = getInputStream(info.getInputStream());
-      ps2.setBlob(1, is);
+      setContent(ps2, 1, info);
       ps2.setString(2, info.getJobUuid());
       ps2.setString(3, info.getType().name());
       ps2.setInt(4, info.getPosition());
@@ -390,4 +458,245 @@ public class DefaultDatabasePersistence extends AbstractDatabasePersistence<Pers
   private InputStream getInputStream(final InputStream is) throws Exception {
     return !bufferStreams || (is instanceof BufferedInputStream) ? is : new BufferedInputStream(is);
   }
+
+  /**
+   * The JDBC resources shared by the streams returned by a call to {@link DefaultDatabasePersistence#load(Collection) load()}.
+   * At most one of the streams reads from an open result set at any given time.
+   */
+  private final class LoadSession {
+    /**
+     * The connection on which all the rows are queried.
+     */
+    private final Connection connection;
+    /**
+     * The auto-commit flag of the connection, restored when it is released.
+     */
+    private final boolean autocommit;
+    /**
+     * The number of streams that are neither closed nor fully read.
+     */
+    private int pending;
+    /**
+     * The stream currently reading from an open result set, if any.
+     */
+    private LoadStream current;
+
+    /**
+     * Initialize this session.
+     * @throws Exception if a connection could not be obtained.
+     */
+    private LoadSession() throws Exception {
+      connection = dataSource.getConnection();
+      try {
+        autocommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+      } catch (final Exception e) {
+        connection.close();
+        throw e;
+      }
+    }
+
+    /**
+     * Determine which of the specified elements are in the database, with one query per job and element type.
+     * @param infos information on the elements to look up.
+     * @return the elements that were found, in the same order.
+     * @throws Exception if any error occurs.
+     */
+    private List<PersistenceInfo> existing(final Collection<PersistenceInfo> infos) throws Exception {
+      final Map<Pair<String, PersistenceObjectType>, Set<Integer>> positionsMap = new HashMap<>();
+      final List<PersistenceInfo> result = new ArrayList<>(infos.size());
+      for (final PersistenceInfo info: infos) {
+        final Pair<String, PersistenceObjectType> key = new Pair<>(info.getJobUuid(), info.getType());
+        Set<Integer> positions = positionsMap.get(key);
+        if (positions == null) {
+          positions = new HashSet<>();
+          try (PreparedStatement ps = prepareGetPositionsStatement(connection, info.getJobUuid(), info.getType());
+            ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) positions.add(rs.getInt(1));
+          }
+          positionsMap.put(key, positions);
+        }
+        if (positions.contains(info.getPosition())) result.add(info);
+        else if (debugEnabled) log.debug("could not find {}, skipping it", info);
+      }
+      return result;
+    }
+
+    /**
+     * Query the row for the specified stream, after copying the remaining content of the current stream, if any, in memory.
+     * @param stream the stream to query the row for.
+     * @return {@code true} if the row was found, {@code false} otherwise.
+     * @throws Exception if any error occurs.
+     */
+    private boolean select(final LoadStream stream) throws Exception {
+      if ((current != null) && (current != stream)) current.detach();
+      current = null;
+      stream.ps = prepareLoadStatement(connection, stream.info);
+      stream.rs = stream.ps.executeQuery();
+      if (!stream.rs.next()) {
+        stream.closeResources();
+        return false;
+      }
+      stream.content = getInputStream(stream.rs.getBinaryStream(1));
+      current = stream;
+      return true;
+    }
+
+    /**
+     * Called when the specified stream is closed or fully read. The connection is released when this is the last stream.
+     * @param stream the stream that no longer needs the session.
+     */
+    private void release(final LoadStream stream) {
+      if (current == stream) current = null;
+      if (--pending <= 0) close();
+    }
+
+    /**
+     * End the read transaction and release the connection.
+     */
+    private void close() {
+      try {
+        connection.commit();
+        connection.setAutoCommit(autocommit);
+      } catch (final Exception e) {
+        log.warn("error ending the load transaction: {}", ExceptionUtils.getMessage(e));
+      } finally {
+        try {
+          connection.close();
+        } catch (final Exception e) {
+          if (debugEnabled) log.debug(e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * A stream which reads the content of a job element from the database when it is first read.
+   */
+  private final class LoadStream extends InputStream {
+    /**
+     * The session this stream belongs to.
+     */
+    private final LoadSession session;
+    /**
+     * The element to read.
+     */
+    private final PersistenceInfo info;
+    /**
+     * The statement which queries the element's row.
+     */
+    private PreparedStatement ps;
+    /**
+     * The result set holding the element's row.
+     */
+    private ResultSet rs;
+    /**
+     * The stream from which the content is read, either from the database or in memory.
+     */
+    private InputStream content;
+    /**
+     * Whether this stream no longer needs the session.
+     */
+    private boolean released;
+
+    /**
+     * Initialize this stream.
+     * @param session the session this stream belongs to.
+     * @param info the element to read.
+     */
+    private LoadStream(final LoadSession session, final PersistenceInfo info) {
+      this.session = session;
+      this.info = info;
+    }
+
+    @Override
+    public int read() throws IOException {
+      synchronized(session) {
+        if (released) return -1;
+        final int n = content().read();
+        if (n < 0) finish();
+        return n;
+      }
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (len == 0) return 0;
+      synchronized(session) {
+        if (released) return -1;
+        final int n = content().read(b, off, len);
+        if (n < 0) finish();
+        return n;
+      }
+    }
+
+    @Override
+    public int available() throws IOException {
+      synchronized(session) {
+        return (released || (content == null)) ? 0 : content.available();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      synchronized(session) {
+        finish();
+      }
+    }
+
+    /**
+     * Get the stream from which to read the content, querying the element's row if needed.
+     * @return an {@link InputStream}.
+     * @throws IOException if the row could not be read or was not found.
+     */
+    private InputStream content() throws IOException {
+      if (content == null) {
+        final boolean found;
+        try {
+          found = session.select(this);
+        } catch (final Exception e) {
+          throw (e instanceof IOException) ? (IOException) e : new IOException(e);
+        }
+        if (!found) throw new IOException("could not find " + info + " in the database");
+      }
+      return content;
+    }
+
+    /**
+     * Copy the remaining content in memory and close the JDBC resources, so another stream can query its row.
+     * @throws IOException if the content could not be read.
+     */
+    private void detach() throws IOException {
+      final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      StreamUtils.copyStream(content, baos, false);
+      closeResources();
+      content = new ByteArrayInputStream(baos.toByteArray());
+    }
+
+    /**
+     * Close the JDBC resources and release the session, if not already done.
+     */
+    private void finish() {
+      if (released) return;
+      released = true;
+      closeResources();
+      content = null;
+      session.release(this);
+    }
+
+    /**
+     * Close the statement and result set, if any.
+     */
+    private void closeResources() {
+      try {
+        if (rs != null) rs.close();
+        if (ps != null) ps.close();
+      } catch (final SQLException e) {
+        if (debugEnabled) log.debug(e.getMessage(), e);
+      } finally {
+        rs = null;
+        ps = null;
+      }
+    }
+  }
 }
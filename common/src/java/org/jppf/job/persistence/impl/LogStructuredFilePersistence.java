@@ -0,0 +1,1086 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.job.persistence.impl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.util.zip.CRC32;
+
+import org.jppf.job.persistence.*;
+import org.jppf.persistence.AbstractFilePersistence;
+import org.jppf.utils.*;
+import org.jppf.utils.concurrent.JPPFThreadFactory;
+import org.jppf.utils.streams.*;
+import org.slf4j.*;
+
+/**
+ * A file-based persistent store for jobs, where all the elements of a job are appended to log segment files rather than stored in a file each.
+ * <p>The store's structure is made of a root directory, under which there is one directory per job, named after the job's uuid.
+ * Each job directory contains one or more files named <code>segment-<i>n</i>.log</code>, each made of a sequence of records with the following layout:
+ * <ul>
+ * <li>the type of the job element, as the ordinal of a {@link PersistenceObjectType} on 1 byte</li>
+ * <li>the position of the task or task result, or {@code -1} for the job header and data provider, on 4 bytes</li>
+ * <li>the length of the data, on 4 bytes</li>
+ * <li>the data itself</li>
+ * <li>a CRC-32 checksum of the preceding fields and data, on 4 bytes</li>
+ * </ul>
+ * <p>The location of the latest record for each job element is kept in an in-memory index, which is rebuilt from the segments the first time a job is accessed,
+ * for instance after a driver restart. This index answers {@link #getTaskPositions(String)}, {@link #getTaskResultPositions(String)}
+ * and {@link #isJobPersisted(String)} without any file system access. A record with a wrong checksum or which is truncated, as happens when the driver dies
+ * during a write, marks the end of the valid records of its segment and is discarded.
+ * <p>Concurrent store operations share their disk synchronizations: the data written by all the threads waiting for a synchronization is flushed
+ * with a single {@link FileChannel#force(boolean) force()} call per segment file. Once all the tasks of a job have a result, the live records of the job are
+ * rewritten in a single segment by a background thread, and the older segments are deleted.
+ * <p>The number of segment files kept open is bounded: when it is exceeded, the channels of the least recently used segments which are not in use are closed,
+ * and reopened the next time their segment is accessed.
+ * <p>This persistence is configured as follows:
+ * <pre class="jppf_pre">
+ * jppf.job.persistence = org.jppf.job.persistence.impl.LogStructuredFilePersistence &lt;root_dir&gt; &lt;sync_policy&gt; &lt;commit_delay&gt; &lt;max_open_files&gt;</pre>
+ * where:
+ * <ul>
+ * <li><i>root_dir</i> is the root directory of the store, defaulting to "persistence"</li>
+ * <li><i>sync_policy</i> is either "always", to synchronize the data to the disk before a store operation returns, or "never", to leave it up to the operating system.
+ * It defaults to "always"</li>
+ * <li><i>commit_delay</i> is the number of milliseconds to wait for more store operations to join a disk synchronization, defaulting to 0</li>
+ * <li><i>max_open_files</i> is the maximum number of segment files kept open, defaulting to 256</li>
+ * </ul>
+ * @since 6.3
+ */
+public class LogStructuredFilePersistence extends AbstractFilePersistence<PersistenceInfo, JobPersistenceException> implements JobPersistence {
+  /**
+   * Logger for this class.
+   */
+  private static Logger log = LoggerFactory.getLogger(LogStructuredFilePersistence.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * The default root path if none is specified.
+   */
+  private static final String DEFAULT_ROOT = "persistence";
+  /**
+   * The default maximum number of open segment files.
+   */
+  private static final int DEFAULT_MAX_OPEN_FILES = 256;
+  /**
+   * Prefix for the segment file names.
+   */
+  private static final String SEGMENT_PREFIX = "segment-";
+  /**
+   * Extension of the segment file names.
+   */
+  private static final String SEGMENT_EXTENSION = ".log";
+  /**
+   * Size above which a new segment is started for a job.
+   */
+  private static final long MAX_SEGMENT_SIZE = 64L * 1024L * 1024L;
+  /**
+   * Size of the fields written before the data of each record.
+   */
+  private static final int RECORD_HEADER_SIZE = 9;
+  /**
+   * Size of the checksum written after the data of each record.
+   */
+  private static final int RECORD_TRAILER_SIZE = 4;
+  /**
+   * The persisted object types, indexed by ordinal.
+   */
+  private static final PersistenceObjectType[] TYPES = PersistenceObjectType.values();
+  /**
+   * Mapping of job uuids to their log.
+   */
+  private final Map<String, JobLog> jobLogs = new HashMap<>();
+  /**
+   * Whether to synchronize the data to the disk before the store operations return.
+   */
+  private final boolean syncOnStore;
+  /**
+   * Performs the disk synchronizations on behalf of the concurrent store operations.
+   */
+  private final GroupCommit groupCommit;
+  /**
+   * Keeps track of the open segment channels and closes the least recently used ones.
+   */
+  private final ChannelCache channelCache;
+  /**
+   * Performs the compaction of the completed jobs.
+   */
+  private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(new JPPFThreadFactory("JobLogCompaction", false, true));
+
+  /**
+   * Initialize this persistence with the root path {@link #DEFAULT_ROOT} under the current user directory.
+   */
+  public LogStructuredFilePersistence() {
+    this(DEFAULT_ROOT);
+  }
+
+  /**
+   * Initialize this persistence with the specified parameters.
+   * @param params the root directory for this persistence, optionally followed by the sync policy, the commit delay in milliseconds and the maximum number of open files.
+   */
+  public LogStructuredFilePersistence(final String... params) {
+    super(params.length > 0 ? params : new String[] { DEFAULT_ROOT });
+    final String policy = (params.length > 1) ? params[1] : "always";
+    if ("always".equalsIgnoreCase(policy)) syncOnStore = true;
+    else if ("never".equalsIgnoreCase(policy)) syncOnStore = false;
+    else throw new IllegalArgumentException("invalid sync policy '" + policy + "', it must be either 'always' or 'never'");
+    long delay = 0L;
+    if (params.length > 2) {
+      try {
+        delay = Long.valueOf(params[2]);
+      } catch (final NumberFormatException e) {
+        throw new IllegalArgumentException("invalid commit delay '" + params[2] + "'", e);
+      }
+    }
+    groupCommit = new GroupCommit(delay);
+    int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+    if (params.length > 3) {
+      try {
+        maxOpenFiles = Integer.valueOf(params[3]);
+      } catch (final NumberFormatException e) {
+        throw new IllegalArgumentException("invalid maximum number of open files '" + params[3] + "'", e);
+      }
+      if (maxOpenFiles < 1) throw new IllegalArgumentException("invalid maximum number of open files '" + params[3] + "', it must be at least 1");
+    }
+    channelCache = new ChannelCache(maxOpenFiles, syncOnStore);
+    if (debugEnabled) log.debug("initialized with rootPath={}, syncOnStore={}, commitDelay={}, maxOpenFiles={}", rootPath, syncOnStore, delay, maxOpenFiles);
+  }
+
+  /**
+   * In this implementation, the job elements are appended to the job's current segment, then the index is updated.
+   * If the sync policy is "always", this method returns once the data is synchronized to the disk.
+   * @param infos collection of information objects on the job elements to store.
+   * @throws JobPersistenceException if any erorr occurs during the persistence operation.
+   */
+  @Override
+  public void store(final Collection<PersistenceInfo> infos) throws JobPersistenceException {
+    if ((infos == null) || infos.isEmpty()) return;
+    final String uuid = infos.iterator().next().getJobUuid();
+    final JobLog jobLog = lockJobLog(uuid);
+    long sequence = -1L;
+    try {
+      if (debugEnabled) log.debug("storing {}", infos);
+      jobLog.load();
+      checkDirectory(jobLog.dir);
+      final byte[] buffer = new byte[32 * 1024];
+      final Set<Segment> written = new HashSet<>();
+      for (final PersistenceInfo info: infos) written.add(jobLog.append(info, buffer));
+      if (syncOnStore) {
+        for (final Segment segment: written) sequence = groupCommit.register(segment.channel());
+      }
+      if (jobLog.needsCompaction()) {
+        jobLog.compactionPending = true;
+        compactionExecutor.execute(() -> compact(jobLog));
+      }
+    } catch (final Exception e) {
+      throw convertException(e);
+    } finally {
+      jobLog.lock.unlock();
+    }
+    if (sequence >= 0L) {
+      try {
+        groupCommit.await(sequence);
+      } catch (final IOException e) {
+        throw convertException(e);
+      }
+    }
+  }
+
+  @Override
+  public List<InputStream> load(final Collection<PersistenceInfo> infos) throws JobPersistenceException {
+    if ((infos == null) || infos.isEmpty()) return null;
+    final String uuid = infos.iterator().next().getJobUuid();
+    final List<InputStream> result = new ArrayList<>(infos.size());
+    final JobLog jobLog = findJobLog(uuid);
+    if (jobLog == null) return result;
+    jobLog.lock.lock();
+    try {
+      if (debugEnabled) log.debug("loading {}", infos);
+      jobLog.load();
+      for (final PersistenceInfo info: infos) {
+        final Entry entry = jobLog.getEntry(info.getType(), info.getPosition());
+        if (entry == null) throw new JobPersistenceException(String.format("could not find %s at position %d for job uuid=%s", info.getType(), info.getPosition(), uuid));
+        result.add(new ByteArrayInputStream(entry.read()));
+      }
+      return result;
+    } catch (final Exception e) {
+      throw convertException(e);
+    } finally {
+      jobLog.lock.unlock();
+    }
+  }
+
+  @Override
+  public List<String> getPersistedJobUuids() throws JobPersistenceException {
+    try {
+      final List<String> result = new ArrayList<>();
+      if (Files.exists(rootPath)) {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(rootPath, new DirectoryFilter())) {
+          for (Path path : ds) {
+            if (path != null) result.add(path.getFileName().toString());
+          }
+        }
+      }
+      if (debugEnabled) log.debug("uuids of persisted jobs: {}", result);
+      return result;
+    } catch (final Exception e) {
+      throw new JobPersistenceException(e);
+    }
+  }
+
+  @Override
+  public int[] getTaskPositions(final String jobUuid) throws JobPersistenceException {
+    final int[] result = getPositions(jobUuid, PersistenceObjectType.TASK);
+    if (debugEnabled) log.debug("positions of tasks for job uuid={} : {}", jobUuid, StringUtils.buildString(", ", "{", "}", result));
+    return result;
+  }
+
+  @Override
+  public int[] getTaskResultPositions(final String jobUuid) throws JobPersistenceException {
+    final int[] result = getPositions(jobUuid, PersistenceObjectType.TASK_RESULT);
+    if (debugEnabled) log.debug("positions of results for job uuid={} : {}", jobUuid, StringUtils.buildString(", ", "{", "}", result));
+    return result;
+  }
+
+  @Override
+  public void deleteJob(final String jobUuid) throws JobPersistenceException {
+    final JobLog jobLog = getJobLog(jobUuid);
+    jobLog.lock.lock();
+    try {
+      if (debugEnabled) log.debug("deleting job with uuid = {}", jobUuid);
+      jobLog.close();
+      if (Files.exists(jobLog.dir)) Files.walkFileTree(jobLog.dir, new DeleteFileVisitor());
+    } catch (final Exception e) {
+      throw new JobPersistenceException(e);
+    } finally {
+      synchronized(jobLogs) {
+        if (jobLogs.get(jobUuid) == jobLog) jobLogs.remove(jobUuid);
+      }
+      jobLog.lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isJobPersisted(final String jobUuid) throws JobPersistenceException {
+    final JobLog jobLog = findJobLog(jobUuid);
+    if (jobLog == null) return false;
+    jobLog.lock.lock();
+    try {
+      jobLog.load();
+      return jobLog.header != null;
+    } catch (final IOException e) {
+      throw new JobPersistenceException(e);
+    } finally {
+      jobLog.lock.unlock();
+    }
+  }
+
+  /**
+   * Get the positions of the specified type of job elements from the index.
+   * @param jobUuid the job uuid for which to get the tasks positions.
+   * @param type the type of elements for which to get the tasks positions.
+   * Must be one of {@link PersistenceObjectType#TASK} or {@link PersistenceObjectType#TASK_RESULT}.
+   * @return the positions of the elements.
+   * @throws JobPersistenceException if any error occurs.
+   */
+  private int[] getPositions(final String jobUuid, final PersistenceObjectType type) throws JobPersistenceException {
+    final JobLog jobLog = findJobLog(jobUuid);
+    if (jobLog == null) return new int[0];
+    jobLog.lock.lock();
+    try {
+      jobLog.load();
+      final Map<Integer, Entry> entries = (type == PersistenceObjectType.TASK) ? jobLog.tasks : jobLog.results;
+      final int[] positions = new int[entries.size()];
+      int count = 0;
+      for (final Integer position: entries.keySet()) positions[count++] = position;
+      return positions;
+    } catch (final IOException e) {
+      throw new JobPersistenceException(e);
+    } finally {
+      jobLog.lock.unlock();
+    }
+  }
+
+  /**
+   * Rewrite the live records of the specified job into a new segment and delete its previous segments.
+   * @param jobLog the log of the job to compact.
+   */
+  private void compact(final JobLog jobLog) {
+    jobLog.lock.lock();
+    try {
+      jobLog.compactionPending = false;
+      if (jobLog.closed || !jobLog.needsCompaction()) return;
+      if (debugEnabled) log.debug("compacting {}", jobLog);
+      jobLog.compact();
+    } catch (final Exception e) {
+      log.error("error compacting {} : {}", jobLog, ExceptionUtils.getStackTrace(e));
+    } finally {
+      jobLog.lock.unlock();
+    }
+  }
+
+  /**
+   * Get the log for the specified job, creating it if needed.
+   * @param uuid the uuid of the job.
+   * @return a {@link JobLog} instance.
+   */
+  private JobLog getJobLog(final String uuid) {
+    synchronized(jobLogs) {
+      JobLog jobLog = jobLogs.get(uuid);
+      if (jobLog == null) {
+        jobLog = new JobLog(uuid, getSubDir(uuid), channelCache);
+        jobLogs.put(uuid, jobLog);
+      }
+      return jobLog;
+    }
+  }
+
+  /**
+   * Get the log for the specified job and acquire its lock, making sure it was not deleted in the meantime.
+   * @param uuid the uuid of the job.
+   * @return a locked {@link JobLog} instance.
+   */
+  private JobLog lockJobLog(final String uuid) {
+    while (true) {
+      final JobLog jobLog = getJobLog(uuid);
+      jobLog.lock.lock();
+      if (!jobLog.closed) return jobLog;
+      jobLog.lock.unlock();
+    }
+  }
+
+  /**
+   * Get the log for the specified job, only if it already exists in memory or on the file system.
+   * @param uuid the uuid of the job.
+   * @return a {@link JobLog} instance, or {@code null} if the job is not persisted.
+   */
+  private JobLog findJobLog(final String uuid) {
+    synchronized(jobLogs) {
+      final JobLog jobLog = jobLogs.get(uuid);
+      if ((jobLog != null) || !Files.exists(getSubDir(uuid))) return jobLog;
+    }
+    return getJobLog(uuid);
+  }
+
+  /** @exclude */
+  @Override
+  protected JobPersistenceException convertException(final Exception e) {
+    return (e instanceof JobPersistenceException) ? (JobPersistenceException) e : new JobPersistenceException(e);
+  }
+
+  /**
+   * Write the whole content of the specified buffer at the specified position in a channel.
+   * @param channel the channel to write to.
+   * @param buffer the data to write.
+   * @param position the position at which to write.
+   * @throws IOException if any I/O error occurs.
+   */
+  private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+    long pos = position;
+    while (buffer.hasRemaining()) pos += channel.write(buffer, pos);
+  }
+
+  /**
+   * Read from a channel at the specified position until the specified buffer is full.
+   * @param channel the channel to read from.
+   * @param buffer the buffer to fill.
+   * @param position the position at which to read.
+   * @throws IOException if any I/O error occurs or the end of the channel is reached.
+   */
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+    long pos = position;
+    while (buffer.hasRemaining()) {
+      final int n = channel.read(buffer, pos);
+      if (n < 0) throw new EOFException("could only read " + (pos - position) + " bytes at position " + position);
+      pos += n;
+    }
+  }
+
+  /**
+   * The segments and index of a persisted job. All accesses must be made while holding the job's lock.
+   */
+  private static final class JobLog {
+    /**
+     * Prevents concurrent operations on the same job.
+     */
+    private final Lock lock = new ReentrantLock();
+    /**
+     * The uuid of the job.
+     */
+    private final String uuid;
+    /**
+     * The directory of the job's segments.
+     */
+    private final Path dir;
+    /**
+     * Keeps track of the open segment channels.
+     */
+    private final ChannelCache channelCache;
+    /**
+     * The job's segments, in ascending id order. The last one is the segment being appended to.
+     */
+    private final List<Segment> segments = new ArrayList<>();
+    /**
+     * Location of the latest job header.
+     */
+    private Entry header;
+    /**
+     * Location of the latest data provider.
+     */
+    private Entry dataProvider;
+    /**
+     * Locations of the latest tasks, sorted by position.
+     */
+    private final SortedMap<Integer, Entry> tasks = new TreeMap<>();
+    /**
+     * Locations of the latest task results, sorted by position.
+     */
+    private final SortedMap<Integer, Entry> results = new TreeMap<>();
+    /**
+     * Total size of the records superseded by more recent ones.
+     */
+    private long garbageSize;
+    /**
+     * Whether the index was loaded from the existing segments.
+     */
+    private boolean loaded;
+    /**
+     * Whether this log was closed, after which it is no longer usable.
+     */
+    private boolean closed;
+    /**
+     * Whether a compaction of this log is already scheduled.
+     */
+    private boolean compactionPending;
+
+    /**
+     * Initialize this log.
+     * @param uuid the uuid of the job.
+     * @param dir the directory of the job's segments.
+     * @param channelCache keeps track of the open segment channels.
+     */
+    private JobLog(final String uuid, final Path dir, final ChannelCache channelCache) {
+      this.uuid = uuid;
+      this.dir = dir;
+      this.channelCache = channelCache;
+    }
+
+    /**
+     * Build the index from the existing segments, if not already done.
+     * @throws IOException if any I/O error occurs.
+     */
+    private void load() throws IOException {
+      if (loaded || closed) return;
+      loaded = true;
+      if (!Files.exists(dir)) return;
+      final SortedMap<Long, Path> paths = new TreeMap<>();
+      try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+        for (final Path path: ds) {
+          final String name = path.getFileName().toString();
+          if (!name.startsWith(SEGMENT_PREFIX)) continue;
+          // an interrupted compaction
+          if (name.endsWith(TEMP_EXTENSION)) Files.deleteIfExists(path);
+          else if (name.endsWith(SEGMENT_EXTENSION)) paths.put(Long.valueOf(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_EXTENSION.length())), path);
+        }
+      }
+      for (final Map.Entry<Long, Path> mapEntry: paths.entrySet()) {
+        final Segment segment = new Segment(this, mapEntry.getKey(), mapEntry.getValue());
+        segments.add(segment);
+        recover(segment);
+      }
+      if (debugEnabled) log.debug("loaded {}", this);
+    }
+
+    /**
+     * Add the valid records of the specified segment to the index, and discard any invalid or truncated record at its end.
+     * @param segment the segment to scan.
+     * @throws IOException if any I/O error occurs.
+     */
+    private void recover(final Segment segment) throws IOException {
+      final FileChannel channel = segment.channel();
+      final long fileSize = channel.size();
+      final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+      final ByteBuffer buffer = ByteBuffer.allocate(32 * 1024);
+      final CRC32 crc = new CRC32();
+      long pos = 0L;
+      while (pos + RECORD_HEADER_SIZE + RECORD_TRAILER_SIZE <= fileSize) {
+        recordHeader.clear();
+        readFully(channel, recordHeader, pos);
+        final int ordinal = recordHeader.get(0);
+        final int position = recordHeader.getInt(1);
+        final int length = recordHeader.getInt(5);
+        if ((ordinal < 0) || (ordinal >= TYPES.length) || (length < 0) || (pos + RECORD_HEADER_SIZE + length + RECORD_TRAILER_SIZE > fileSize)) break;
+        crc.reset();
+        crc.update(recordHeader.array(), 0, RECORD_HEADER_SIZE);
+        long dataPos = pos + RECORD_HEADER_SIZE;
+        final long dataEnd = dataPos + length;
+        while (dataPos < dataEnd) {
+          buffer.clear();
+          buffer.limit((int) Math.min(buffer.capacity(), dataEnd - dataPos));
+          readFully(channel, buffer, dataPos);
+          crc.update(buffer.array(), 0, buffer.limit());
+          dataPos += buffer.limit();
+        }
+        buffer.clear().limit(RECORD_TRAILER_SIZE);
+        readFully(channel, buffer, dataEnd);
+        if (buffer.getInt(0) != (int) crc.getValue()) break;
+        index(TYPES[ordinal], position, new Entry(segment, pos, length));
+        pos = dataEnd + RECORD_TRAILER_SIZE;
+      }
+      if (pos < fileSize) {
+        log.warn("discarding {} bytes of incomplete or corrupted records at the end of {}", fileSize - pos, segment.path);
+        channel.truncate(pos);
+      }
+      segment.size = pos;
+    }
+
+    /**
+     * Append the specified job element to the current segment and update the index.
+     * @param info the job element to append.
+     * @param buffer a buffer used to copy the data.
+     * @return the segment to which the element was appended.
+     * @throws Exception if any error occurs.
+     */
+    private Segment append(final PersistenceInfo info, final byte[] buffer) throws Exception {
+      final Segment segment = currentSegment();
+      final long start = segment.size;
+      InputStream in = info.getInputStream();
+      try {
+        int size = info.getSize();
+        if (size < 0) {
+          final JPPFByteArrayOutputStream baos = new JPPFByteArrayOutputStream();
+          StreamUtils.copyStream(in, baos, true);
+          size = baos.size();
+          in = new ByteArrayInputStream(baos.getBuf(), 0, size);
+        }
+        final CRC32 crc = new CRC32();
+        final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        recordHeader.put((byte) info.getType().ordinal()).putInt(info.getPosition()).putInt(size).flip();
+        crc.update(recordHeader.array(), 0, RECORD_HEADER_SIZE);
+        writeFully(segment.channel(), recordHeader, start);
+        long pos = start + RECORD_HEADER_SIZE;
+        final long end = pos + size;
+        int n;
+        while ((pos < end) && ((n = in.read(buffer, 0, (int) Math.min(buffer.length, end - pos))) > 0)) {
+          crc.update(buffer, 0, n);
+          writeFully(segment.channel(), ByteBuffer.wrap(buffer, 0, n), pos);
+          pos += n;
+        }
+        if (pos < end) throw new EOFException(String.format("could only read %d bytes out of %d for %s", pos - start - RECORD_HEADER_SIZE, size, info));
+        final ByteBuffer trailer = ByteBuffer.allocate(RECORD_TRAILER_SIZE);
+        trailer.putInt((int) crc.getValue()).flip();
+        writeFully(segment.channel(), trailer, end);
+        segment.size = end + RECORD_TRAILER_SIZE;
+        index(info.getType(), info.getPosition(), new Entry(segment, start, size));
+        return segment;
+      } catch (final Exception e) {
+        // leave no partial record behind
+        segment.channel().truncate(start);
+        segment.size = start;
+        throw e;
+      } finally {
+        StreamUtils.closeSilent(in);
+      }
+    }
+
+    /**
+     * Get the segment to append to, starting a new one if there is none or if the current one is full.
+     * @return a {@link Segment} instance.
+     * @throws IOException if any I/O error occurs.
+     */
+    private Segment currentSegment() throws IOException {
+      if (closed) throw new ClosedChannelException();
+      Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+      if ((segment == null) || (segment.size >= MAX_SEGMENT_SIZE)) {
+        final long id = (segment == null) ? 0L : segment.id + 1L;
+        segment = new Segment(this, id, segmentPath(id, SEGMENT_EXTENSION));
+        segments.add(segment);
+      }
+      return segment;
+    }
+
+    /**
+     * Record the location of a job element in the index.
+     * @param type the type of job element.
+     * @param position the position of the task or task result.
+     * @param entry the location of the element's record.
+     */
+    private void index(final PersistenceObjectType type, final int position, final Entry entry) {
+      final Entry previous;
+      switch(type) {
+        case JOB_HEADER:
+          previous = header;
+          header = entry;
+          break;
+        case DATA_PROVIDER:
+          previous = dataProvider;
+          dataProvider = entry;
+          break;
+        case TASK:
+          previous = tasks.put(position, entry);
+          break;
+        default:
+          previous = results.put(position, entry);
+          break;
+      }
+      if (previous != null) garbageSize += previous.recordSize();
+    }
+
+    /**
+     * Get the location of the specified job element.
+     * @param type the type of job element.
+     * @param position the position of the task or task result.
+     * @return an {@link Entry}, or {@code null} if the element is not in the index.
+     */
+    private Entry getEntry(final PersistenceObjectType type, final int position) {
+      switch(type) {
+        case JOB_HEADER: return header;
+        case DATA_PROVIDER: return dataProvider;
+        case TASK: return tasks.get(position);
+        default: return results.get(position);
+      }
+    }
+
+    /**
+     * Determine whether this log should be compacted, that is, whether the job has completed and has either more than one segment,
+     * or superseded records which make up at least a quarter of its single segment.
+     * @return {@code true} if a compaction should be performed, {@code false} otherwise.
+     */
+    private boolean needsCompaction() {
+      if (compactionPending || (header == null) || tasks.isEmpty() || (results.size() < tasks.size())) return false;
+      if ((segments.size() <= 1) && ((garbageSize <= 0L) || (4L * garbageSize < segments.get(0).size))) return false;
+      return results.keySet().containsAll(tasks.keySet());
+    }
+
+    /**
+     * Copy the live records to a new segment, then delete the previous segments.
+     * The new segment is written to a temporary file first, so that an interrupted compaction leaves the previous segments untouched.
+     * @throws IOException if any I/O error occurs.
+     */
+    private void compact() throws IOException {
+      final long id = segments.get(segments.size() - 1).id + 1L;
+      final Path tmpPath = segmentPath(id, TEMP_EXTENSION);
+      final List<Entry> entries = new ArrayList<>(2 + tasks.size() + results.size());
+      if (header != null) entries.add(header);
+      if (dataProvider != null) entries.add(dataProvider);
+      entries.addAll(tasks.values());
+      entries.addAll(results.values());
+      final long[] newOffsets = new long[entries.size()];
+      long pos = 0L;
+      try (FileChannel out = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        for (int i=0; i<entries.size(); i++) {
+          final Entry entry = entries.get(i);
+          newOffsets[i] = pos;
+          final long size = entry.recordSize();
+          long count = 0L;
+          final FileChannel in = entry.segment.channel();
+          while (count < size) count += in.transferTo(entry.offset + count, size - count, out);
+          pos += size;
+        }
+        out.force(true);
+      }
+      final Path path = segmentPath(id, SEGMENT_EXTENSION);
+      Files.move(tmpPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      final Segment compacted = new Segment(this, id, path);
+      compacted.size = pos;
+      final List<Segment> oldSegments = new ArrayList<>(segments);
+      segments.clear();
+      segments.add(compacted);
+      header = dataProvider = null;
+      tasks.clear();
+      results.clear();
+      garbageSize = 0L;
+      for (int i=0; i<entries.size(); i++) {
+        final Entry entry = entries.get(i);
+        index(entry.type(), entry.position(), new Entry(compacted, newOffsets[i], entry.length));
+      }
+      for (final Segment segment: oldSegments) {
+        segment.close();
+        Files.deleteIfExists(segment.path);
+      }
+      if (debugEnabled) log.debug("compacted {} segments into {} bytes for {}", oldSegments.size(), pos, this);
+    }
+
+    /**
+     * Get the path of the segment file with the specified id and extension.
+     * @param id the id of the segment.
+     * @param extension the file extension.
+     * @return a {@link Path} instance.
+     */
+    private Path segmentPath(final long id, final String extension) {
+      return dir.resolve(SEGMENT_PREFIX + id + extension);
+    }
+
+    /**
+     * Close all the segments of this log, which can no longer be used afterwards.
+     */
+    private void close() {
+      closed = true;
+      for (final Segment segment: segments) segment.close();
+      segments.clear();
+    }
+
+    @Override
+    public String toString() {
+      return new StringBuilder(getClass().getSimpleName()).append('[')
+        .append("uuid=").append(uuid)
+        .append(", nbSegments=").append(segments.size())
+        .append(", nbTasks=").append(tasks.size())
+        .append(", nbResults=").append(results.size())
+        .append(", garbageSize=").append(garbageSize)
+        .append(']').toString();
+    }
+  }
+
+  /**
+   * A segment file of a job log. Its channel is opened on first use, and may be closed by the {@link ChannelCache} while the job's lock is not held.
+   */
+  private static final class Segment {
+    /**
+     * The log this segment belongs to.
+     */
+    private final JobLog owner;
+    /**
+     * The id of this segment, which determines the order of the segments.
+     */
+    private final long id;
+    /**
+     * The path of the segment file.
+     */
+    private final Path path;
+    /**
+     * The channel used to read and write the segment file, or {@code null} if it is not open.
+     */
+    private FileChannel channel;
+    /**
+     * The size of the valid records in this segment, which is also the position of the next record.
+     */
+    private long size;
+
+    /**
+     * Initialize the segment with the specified id. Its file is created when the segment is first accessed, if it doesn't exist.
+     * @param owner the log this segment belongs to.
+     * @param id the id of this segment.
+     * @param path the path of the segment file.
+     */
+    private Segment(final JobLog owner, final long id, final Path path) {
+      this.owner = owner;
+      this.id = id;
+      this.path = path;
+    }
+
+    /**
+     * Get the channel of this segment, opening it if needed. This method must be called while holding the lock of the owner log.
+     * @return the channel used to read and write the segment file.
+     * @throws IOException if any I/O error occurs.
+     */
+    private FileChannel channel() throws IOException {
+      if (owner.closed) throw new ClosedChannelException();
+      if (channel == null) {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        owner.channelCache.opened(this);
+      } else owner.channelCache.accessed(this);
+      return channel;
+    }
+
+    /**
+     * Close the channel of this segment and stop tracking it.
+     */
+    private void close() {
+      owner.channelCache.closed(this);
+      closeChannel();
+    }
+
+    /**
+     * Close the channel of this segment, if it is open.
+     */
+    private void closeChannel() {
+      if (channel == null) return;
+      try {
+        channel.close();
+      } catch (final IOException e) {
+        if (debugEnabled) log.debug("error closing {} : {}", path, ExceptionUtils.getMessage(e));
+      }
+      channel = null;
+    }
+  }
+
+  /**
+   * Keeps track of the open segment channels, in least recently used order, and closes the channels in excess of a maximum.
+   * Only the segments of other jobs whose log is not locked, and which are therefore not in use, are closed.
+   * When the data is synchronized on store, it is forced to the disk before closing a channel, since a pending group commit would otherwise skip it.
+   */
+  private static final class ChannelCache {
+    /**
+     * The segments with an open channel, in least recently used order.
+     */
+    private final Map<Segment, Boolean> segments = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The maximum number of open channels.
+     */
+    private final int maxOpenChannels;
+    /**
+     * Whether to force the data to the disk before closing a channel.
+     */
+    private final boolean syncOnClose;
+
+    /**
+     * Initialize this cache.
+     * @param maxOpenChannels the maximum number of open channels.
+     * @param syncOnClose whether to force the data to the disk before closing a channel.
+     */
+    private ChannelCache(final int maxOpenChannels, final boolean syncOnClose) {
+      this.maxOpenChannels = maxOpenChannels;
+      this.syncOnClose = syncOnClose;
+    }
+
+    /**
+     * Called when the channel of a segment is opened, closes the least recently used channels in excess of the maximum.
+     * @param segment the segment whose channel was opened.
+     */
+    private synchronized void opened(final Segment segment) {
+      segments.put(segment, Boolean.TRUE);
+      if (segments.size() <= maxOpenChannels) return;
+      final Iterator<Segment> it = segments.keySet().iterator();
+      while ((segments.size() > maxOpenChannels) && it.hasNext()) {
+        final Segment eldest = it.next();
+        // the segments of the job being processed by the current thread may be in use
+        if ((eldest.owner == segment.owner) || !eldest.owner.lock.tryLock()) continue;
+        try {
+          if (evict(eldest)) it.remove();
+        } finally {
+          eldest.owner.lock.unlock();
+        }
+      }
+    }
+
+    /**
+     * Called when the channel of a segment is accessed, to update the least recently used order.
+     * @param segment the segment whose channel was accessed.
+     */
+    private synchronized void accessed(final Segment segment) {
+      segments.get(segment);
+    }
+
+    /**
+     * Called when a segment is closed, to stop tracking it.
+     * @param segment the closed segment.
+     */
+    private synchronized void closed(final Segment segment) {
+      segments.remove(segment);
+    }
+
+    /**
+     * Close the channel of the specified segment, whose owner's lock is held by the current thread.
+     * @param segment the segment to close.
+     * @return {@code true} if the channel was closed, {@code false} if the data could not be synchronized and the channel is kept open.
+     */
+    private boolean evict(final Segment segment) {
+      if (syncOnClose && (segment.channel != null)) {
+        try {
+          segment.channel.force(false);
+        } catch (final IOException e) {
+          // keep the channel open, so that the error is reported by the pending group commit
+          if (debugEnabled) log.debug("error synchronizing {} : {}", segment.path, ExceptionUtils.getMessage(e));
+          return false;
+        }
+      }
+      segment.closeChannel();
+      return true;
+    }
+  }
+
+  /**
+   * The location of a record in a segment.
+   */
+  private static final class Entry {
+    /**
+     * The segment which holds the record.
+     */
+    private final Segment segment;
+    /**
+     * The position of the record in the segment.
+     */
+    private final long offset;
+    /**
+     * The length of the record's data.
+     */
+    private final int length;
+
+    /**
+     * Initialize this entry.
+     * @param segment the segment which holds the record.
+     * @param offset the position of the record in the segment.
+     * @param length the length of the record's data.
+     */
+    private Entry(final Segment segment, final long offset, final int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /**
+     * @return the total size of the record, including its header and checksum.
+     */
+    private long recordSize() {
+      return RECORD_HEADER_SIZE + length + RECORD_TRAILER_SIZE;
+    }
+
+    /**
+     * @return the type of job element in the record.
+     * @throws IOException if any I/O error occurs.
+     */
+    private PersistenceObjectType type() throws IOException {
+      final ByteBuffer buffer = ByteBuffer.allocate(1);
+      readFully(segment.channel(), buffer, offset);
+      return TYPES[buffer.get(0)];
+    }
+
+    /**
+     * @return the position of the task or task result in the record.
+     * @throws IOException if any I/O error occurs.
+     */
+    private int position() throws IOException {
+      final ByteBuffer buffer = ByteBuffer.allocate(4);
+      readFully(segment.channel(), buffer, offset + 1);
+      return buffer.getInt(0);
+    }
+
+    /**
+     * Read the data of the record.
+     * @return the data as a byte array.
+     * @throws IOException if any I/O error occurs.
+     */
+    private byte[] read() throws IOException {
+      final byte[] data = new byte[length];
+      readFully(segment.channel(), ByteBuffer.wrap(data), offset + RECORD_HEADER_SIZE);
+      return data;
+    }
+  }
+
+  /**
+   * Groups the disk synchronizations of concurrent store operations. A store operation registers the channels it wrote to, then waits until a synchronization
+   * that includes its writes has completed. The first waiting thread performs the synchronization of all the registered channels, while the others wait for it.
+   */
+  private static final class GroupCommit {
+    /**
+     * Used to synchronize the registrations and synchronizations.
+     */
+    private final Lock lock = new ReentrantLock();
+    /**
+     * Signalled when a synchronization ends.
+     */
+    private final Condition synced = lock.newCondition();
+    /**
+     * The channels written to since the last synchronization.
+     */
+    private final Set<FileChannel> dirty = new HashSet<>();
+    /**
+     * How long to wait for more store operations to register before a synchronization, in milliseconds.
+     */
+    private final long delay;
+    /**
+     * Sequence number of the latest registration.
+     */
+    private long registered;
+    /**
+     * Sequence number of the latest registration included in a completed synchronization.
+     */
+    private long committed;
+    /**
+     * Whether a synchronization is in progress.
+     */
+    private boolean syncing;
+
+    /**
+     * Initialize this group commit.
+     * @param delay how long to wait for more store operations to register before a synchronization, in milliseconds.
+     */
+    private GroupCommit(final long delay) {
+      this.delay = delay;
+    }
+
+    /**
+     * Register a channel that was written to.
+     * @param channel the channel to synchronize.
+     * @return the sequence number of this registration.
+     */
+    private long register(final FileChannel channel) {
+      lock.lock();
+      try {
+        dirty.add(channel);
+        return ++registered;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Wait until the registration with the specified sequence number is included in a completed synchronization, performing the synchronization if no other thread does.
+     * @param sequence the sequence number of the registration.
+     * @throws IOException if the synchronization failed.
+     */
+    private void await(final long sequence) throws IOException {
+      lock.lock();
+      try {
+        while (committed < sequence) {
+          if (syncing) {
+            synced.await();
+            continue;
+          }
+          syncing = true;
+          if (delay > 0L) synced.await(delay, TimeUnit.MILLISECONDS);
+          final long target = registered;
+          final List<FileChannel> channels = new ArrayList<>(dirty);
+          dirty.clear();
+          IOException error = null;
+          lock.unlock();
+          try {
+            for (final FileChannel channel: channels) {
+              try {
+                channel.force(false);
+              } catch (@SuppressWarnings("unused") final ClosedChannelException e) {
+                // the job was deleted or compacted in the meantime
+              }
+            }
+          } catch (final IOException e) {
+            error = e;
+          } finally {
+            lock.lock();
+            syncing = false;
+            if (error == null) committed = Math.max(committed, target);
+            else dirty.addAll(channels);
+            synced.signalAll();
+          }
+          if (error != null) throw error;
+        }
+      } catch (final InterruptedException e) {
+        throw new InterruptedIOException(ExceptionUtils.getMessage(e));
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -20,6 +20,8 @@ package org.jppf.load.balancer.impl;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
 import java.util.concurrent.locks.*;
 
 import org.jppf.load.balancer.*;
@@ -32,9 +34,9 @@ import org.slf4j.*;
  * The scope of this bundler is all nodes, which means that it computes the size for all nodes.<br>
  * The mean execution time is computed as a moving average over a number of tasks, specified in the bundling
  * algorithm profile configuration as &quot;minSamplesToAnalyse&quot;<br>
- * This algorithm is well suited for relatively small networks (a few dozen nodes at most). It generates an overhead
- * every time the performance data for a node is updated. In the case of a small network, this overhead is not
- * large enough to impact the overall performance significantly.
+ * Each bundler only updates its own performance data upon feedback. The bundle sizes of all the nodes are recomputed once enough
+ * feedback was received since the last computation, or when the last computation is too old, and are assigned to each bundler,
+ * whose bundle size is read without locking. In a network of a few dozen nodes at most, the bundle sizes are recomputed upon each feedback, as they always were.
  * @author Laurent Cohen
  */
 public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalProfile> implements PersistentState {
@@ -51,13 +53,41 @@ public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalPro
    */
   private static boolean traceEnabled = log.isTraceEnabled();
   /**
-   * Mapping of individual bundler to corresponding performance data - global.
+   * The number of bundlers for each additional feedback required before the bundle sizes are recomputed.
    */
-  private static final Set<ProportionalBundler> bundlers = new HashSet<>();
+  private static final int BUNDLERS_PER_FEEDBACK = 16;
+  /**
+   * Maximum time in nanoseconds between a feedback and the computation of the bundle sizes that accounts for it.
+   */
+  private static final long MAX_COMPUTATION_INTERVAL = 100_000_000L;
+  /**
+   * The set of all proportional bundlers - global.
+   */
+  private static final Set<ProportionalBundler> bundlers = ConcurrentHashMap.newKeySet();
+  /**
+   * The time of the latest computation of the bundle sizes, as given by {@code System.nanoTime()} - global.
+   */
+  private static volatile long lastComputeNanos = System.nanoTime();
+  /**
+   * Number of feedbacks received since the last computation of the bundle sizes - global.
+   */
+  private static final AtomicInteger pendingFeedbacks = new AtomicInteger(0);
+  /**
+   * Whether the bundle sizes are being computed - global.
+   */
+  private static final AtomicBoolean computing = new AtomicBoolean(false);
+  /**
+   * Whether a computation of the bundle sizes was requested and not yet started - global.
+   */
+  private static final AtomicBoolean computeRequested = new AtomicBoolean(false);
   /**
    * The state of this bundler.
    */
   private final BundlerState state;
+  /**
+   * The mean execution time of the performance cache, published for the computation of the bundle sizes.
+   */
+  private volatile double mean;
   /**
    * Lock used to synchronize access to the load-balancer state.
    */
@@ -71,6 +101,7 @@ public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalPro
     super(profile);
     state = new BundlerState();
     state.performanceCache = new PerformanceCache(profile.getPerformanceCacheSize(), profile.getInitialMeanTime());
+    mean = state.performanceCache.getMean();
     state.bundleSize = profile.getInitialSize();
     if (state.bundleSize < 1) state.bundleSize = 1;
     if (debugEnabled) log.debug("Bundler#" + bundlerNumber + ": Using proportional bundle size - the initial size is " + state.bundleSize + ", profile: " + profile);
@@ -78,12 +109,7 @@ public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalPro
 
   @Override
   public int getBundleSize() {
-    lock.lock();
-    try {
-      return state.bundleSize;
-    } finally {
-      lock.unlock();
-    }
+    return state.bundleSize;
   }
 
   /**
@@ -91,16 +117,11 @@ public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalPro
    * @param size the bundle size as an int value.
    */
   public void setBundleSize(final int size) {
-    lock.lock();
-    try {
-      state.bundleSize = size <= 0 ? 1 : size;
-    } finally {
-      lock.unlock();
-    }
+    state.bundleSize = size <= 0 ? 1 : size;
   }
 
   /**
-   * This method delegates the bundle size calculation to the singleton instance of <code>SimpleBundler</code>.
+   * Add a performance sample to this bundler and recompute the bundle sizes of all the nodes if enough feedback was received since the last computation.
    * @param size the number of tasks executed.
    * @param time the time in nanoseconds it took to execute the tasks.
    */
@@ -109,15 +130,15 @@ public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalPro
     if (traceEnabled) log.trace("Bundler#" + bundlerNumber + ": new performance sample [size=" + size + ", time=" + (long) time + ']');
     if (size <= 0) return;
     final PerformanceSample sample = new PerformanceSample(time / size, size);
-    synchronized (bundlers) {
-      lock.lock();
-      try {
-        state.performanceCache.addSample(sample);
-      } finally {
-        lock.unlock();
-      }
-      computeBundleSizes();
+    lock.lock();
+    try {
+      state.performanceCache.addSample(sample);
+      mean = state.performanceCache.getMean();
+    } finally {
+      lock.unlock();
     }
+    final int pending = pendingFeedbacks.incrementAndGet();
+    if ((pending > bundlers.size() / BUNDLERS_PER_FEEDBACK) || (System.nanoTime() - lastComputeNanos >= MAX_COMPUTATION_INTERVAL)) computeBundleSizes();
   }
 
   /**
@@ -125,9 +146,7 @@ public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalPro
    */
   @Override
   public void setup() {
-    synchronized (bundlers) {
-      bundlers.add(this);
-    }
+    bundlers.add(this);
   }
 
   /**
@@ -136,9 +155,7 @@ public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalPro
   @Override
   public void dispose() {
     super.dispose();
-    synchronized (bundlers) {
-      bundlers.remove(this);
-    }
+    bundlers.remove(this);
     lock.lock();
     try {
       state.performanceCache.clear();
@@ -148,68 +165,63 @@ public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalPro
   }
 
   /**
-   * Update the bundler sizes.
+   * Update the bundler sizes. If another thread is already doing it, that thread computes them once more when it is done,
+   * so that the feedback received in the meantime is accounted for.
    */
   private void computeBundleSizes() {
-    synchronized (bundlers) {
-      double maxMean = Double.NEGATIVE_INFINITY;
-      double minMean = Double.POSITIVE_INFINITY;
-      ProportionalBundler minBundler = null;
-      double meanSum = 0d;
-      double m;
-      for (ProportionalBundler b : bundlers) {
-        b.getStateLock().lock();
-        try {
-          m = b.state.performanceCache.getMean();
-        } finally {
-          b.getStateLock().unlock();
-        }
-        if (m > maxMean) maxMean = m;
-        if (m < minMean) {
-          minMean = m;
-          minBundler = b;
-        }
-        meanSum += normalize(m);
-      }
-      final int max = maxSize();
-      int sum = 0;
-      double p;
-      for (final ProportionalBundler b : bundlers) {
-        b.getStateLock().lock();
-        try {
-          p = normalize(b.state.performanceCache.getMean()) / meanSum;
-        } finally {
-          b.getStateLock().unlock();
-        }
-        int size = Math.max(1, (int) (p * max));
-        if (size >= max) size = max - 1;
-        b.setBundleSize(size);
-        sum += size;
+    computeRequested.set(true);
+    while (computeRequested.get() && computing.compareAndSet(false, true)) {
+      try {
+        computeRequested.set(false);
+        doComputeBundleSizes();
+      } finally {
+        computing.set(false);
       }
-      if ((sum < max) && (minBundler != null)) {
-        final int size = minBundler.getBundleSize();
-        minBundler.setBundleSize(size + (max - sum));
+    }
+  }
+
+  /**
+   * Compute the bundler sizes of all the bundlers. Only one thread at a time runs this method.
+   */
+  private void doComputeBundleSizes() {
+    pendingFeedbacks.set(0);
+    final List<ProportionalBundler> list = new ArrayList<>(bundlers);
+    final double[] means = new double[list.size()];
+    double maxMean = Double.NEGATIVE_INFINITY;
+    double minMean = Double.POSITIVE_INFINITY;
+    int minIndex = -1;
+    double meanSum = 0d;
+    for (int i=0; i<means.length; i++) {
+      final double m = means[i] = list.get(i).mean;
+      if (m > maxMean) maxMean = m;
+      if (m < minMean) {
+        minMean = m;
+        minIndex = i;
       }
-      if (traceEnabled) {
-        final StringBuilder sb = new StringBuilder();
-        sb.append("bundler info:\n");
-        getStateLock().lock();
-        try {
-        sb.append("  minMean=").append(minMean).append(", maxMean=").append(maxMean).append(", maxSize=").append(max).append('\n');
-        } finally {
-          getStateLock().unlock();
-        }
-        for (ProportionalBundler b : bundlers) {
-          b.getStateLock().lock();
-          try {
-            sb.append("  bundler #").append(b.getBundlerNumber()).append(" : bundleSize=").append(b.getBundleSize()).append(", ");
-            sb.append(b.state.performanceCache).append('\n');
-          } finally {
-            b.getStateLock().unlock();
-          }
-        }
-        log.trace(sb.toString());
+      meanSum += normalize(m);
+    }
+    final int max = maxSize();
+    final Map<ProportionalBundler, Integer> sizes = new IdentityHashMap<>(means.length);
+    int sum = 0;
+    for (int i=0; i<means.length; i++) {
+      final double p = normalize(means[i]) / meanSum;
+      int size = Math.max(1, (int) (p * max));
+      if (size >= max) size = max - 1;
+      sizes.put(list.get(i), size);
+      sum += size;
+    }
+    if ((sum < max) && (minIndex >= 0)) sizes.put(list.get(minIndex), sizes.get(list.get(minIndex)) + (max - sum));
+    for (final Map.Entry<ProportionalBundler, Integer> entry: sizes.entrySet()) entry.getKey().setBundleSize(entry.getValue());
+    lastComputeNanos = System.nanoTime();
+    if (traceEnabled) {
+      final StringBuilder sb = new StringBuilder();
+      sb.append("bundler info:\n");
+      sb.append("  minMean=").append(minMean).append(", maxMean=").append(maxMean).append(", maxSize=").append(max).append('\n');
+      for (int i=0; i<means.length; i++) {
+        final ProportionalBundler b = list.get(i);
+        sb.append("  bundler #").append(b.getBundlerNumber()).append(" : bundleSize=").append(sizes.get(b)).append(", mean=").append(means[i]).append('\n');
       }
+      log.trace(sb.toString());
     }
   }
 
@@ -241,10 +253,11 @@ public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalPro
     try {
       state.bundleSize = other.bundleSize;
       state.performanceCache = other.performanceCache;
-      computeBundleSizes();
+      mean = state.performanceCache.getMean();
     } finally {
       lock.unlock();
     }
+    computeBundleSizes();
   }
 
   @Override
@@ -263,7 +276,7 @@ public class ProportionalBundler extends AbstractAdaptiveBundler<ProportionalPro
     /**
      * The current bundle size.
      */
-    private int bundleSize = 1;
+    private volatile int bundleSize = 1;
     /**
      * Bounded memory of the past performance updates.
      */
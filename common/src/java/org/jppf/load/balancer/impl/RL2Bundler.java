@@ -81,12 +81,7 @@ public class RL2Bundler extends AbstractAdaptiveBundler<RL2Profile> implements P
 
   @Override
   public int getBundleSize() {
-    lock.lock();
-    try {
-      return rl2State.bundleSize;
-    } finally {
-      lock.unlock();
-    }
+    return rl2State.bundleSize;
   }
 
   @Override
@@ -294,7 +289,7 @@ public class RL2Bundler extends AbstractAdaptiveBundler<RL2Profile> implements P
     /**
      * The current bundle size.
      */
-    private int bundleSize = 1;
+    private volatile int bundleSize = 1;
     /**
      * Bounded memory of the past performance updates.
      */
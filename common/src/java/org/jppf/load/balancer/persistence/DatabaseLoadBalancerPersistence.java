@@ -174,7 +174,10 @@ public class DatabaseLoadBalancerPersistence extends AbstractDatabasePersistence
     try (ConnectionWrapper wrapper = getConnection(false, Connection.TRANSACTION_READ_COMMITTED)) {
       final Connection connection = wrapper.getConnection();
       try {
-        storeElement(connection, info, info.getStateAsBytes());
+        final byte[] bytes = info.getStateAsBytes();
+        final String upsert = getDialectSQL(connection, "upsert.sql");
+        if (upsert != null) upsertElement(connection, upsert, info, bytes);
+        else storeElement(connection, info, bytes);
         connection.commit();
       } catch(final Exception e) {
         connection.rollback();
@@ -285,6 +288,29 @@ public class DatabaseLoadBalancerPersistence extends AbstractDatabasePersistence
     }
   }
 
+  /**
+   * Insert or update the specified element with a single statement.
+   * @param connection the JDBC connection with which to create and execute the statement.
+   * @param sql the upsert statement to execute.
+   * @param info the information on the object to persist.
+   * @param bytes the serialized object to persist.
+   * @throws Exception if any error occurs.
+   */
+  private void upsertElement(final Connection connection, final String sql, final LoadBalancerPersistenceInfo info, final byte[] bytes) throws Exception {
+    if (debugEnabled) log.debug("before performing SQL update = \"{}\" with params = [{}, {}, blob(length={})]", sql, info.getChannelID(), info.getAlgorithmID(), bytes.length);
+    try (final PreparedStatement ps = connection.prepareStatement(sql)) {
+      try (final InputStream is = new ByteArrayInputStream(bytes)) {
+        ps.setString(1, info.getChannelID());
+        ps.setString(2, info.getAlgorithmID());
+        ps.setBlob(3, is, bytes.length);
+        ps.executeUpdate();
+      }
+    } catch(final SQLException e) {
+      final String message = "error performing SQL update = \"" + sql + "\" with params = [" + info.getChannelID() + ", " + info.getAlgorithmID() + ", blob(length=" + bytes.length + ")]";
+      throw new LoadBalancerPersistenceException(message, e);
+    }
+  }
+
   /** @exclude */
   @Override
   protected void insertElement(final Connection connection, final LoadBalancerPersistenceInfo info, final byte[] bytes) throws Exception {
@@ -0,0 +1,121 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.management;
+
+import java.io.Serializable;
+
+/**
+ * Instances of this class hold a snapshot of the state of a node's cache of deserialized data providers.
+ * @since 6.3
+ */
+public class DataProviderCacheInfo implements Serializable {
+  /**
+   * Explicit serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+  /**
+   * The maximum number of data providers kept for each client class loader.
+   */
+  private final int maxSize;
+  /**
+   * The number of data providers currently in the cache, for all class loaders.
+   */
+  private final int size;
+  /**
+   * The number of class loaders for which data providers are cached.
+   */
+  private final int nbClassLoaders;
+  /**
+   * The number of bundles whose data provider was found in the cache.
+   */
+  private final long hits;
+  /**
+   * The number of bundles whose data provider was expected in the cache but could not be found.
+   */
+  private final long misses;
+
+  /**
+   * Initialize this cache information.
+   * @param maxSize the maximum number of data providers kept for each client class loader.
+   * @param size the number of data providers currently in the cache.
+   * @param nbClassLoaders the number of class loaders for which data providers are cached.
+   * @param hits the number of bundles whose data provider was found in the cache.
+   * @param misses the number of bundles whose data provider could not be found in the cache.
+   * @exclude
+   */
+  public DataProviderCacheInfo(final int maxSize, final int size, final int nbClassLoaders, final long hits, final long misses) {
+    this.maxSize = maxSize;
+    this.size = size;
+    this.nbClassLoaders = nbClassLoaders;
+    this.hits = hits;
+    this.misses = misses;
+  }
+
+  /**
+   * Get the maximum number of data providers kept for each client class loader.
+   * @return the maximum cache size, 0 if the cache is disabled.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Get the number of data providers currently in the cache, for all class loaders.
+   * @return the number of cached data providers.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Get the number of class loaders for which data providers are cached.
+   * @return the number of class loaders.
+   */
+  public int getNbClassLoaders() {
+    return nbClassLoaders;
+  }
+
+  /**
+   * Get the number of bundles whose data provider was found in the cache.
+   * @return the number of cache hits.
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Get the number of bundles whose data provider was expected in the cache but could not be found.
+   * Each miss causes the bundle to be sent again by the server, along with its data provider.
+   * @return the number of cache misses.
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(getClass().getSimpleName()).append('[')
+      .append("maxSize=").append(maxSize)
+      .append(", size=").append(size)
+      .append(", nbClassLoaders=").append(nbClassLoaders)
+      .append(", hits=").append(hits)
+      .append(", misses=").append(misses)
+      .append(']').toString();
+  }
+}
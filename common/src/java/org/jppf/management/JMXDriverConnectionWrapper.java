@@ -116,6 +116,12 @@ public class JMXDriverConnectionWrapper extends JMXConnectionWrapper implements
     return (JPPFStatistics) invoke(MBEAN_NAME, "statistics");
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<String, Double> statisticsPercentiles(final String label) throws Exception {
+    return (Map<String, Double>) invoke(MBEAN_NAME, "statisticsPercentiles", new Object[] { label }, new String[] { String.class.getName() });
+  }
+
   @Override
   public String restartShutdown(final Long shutdownDelay, final Long restartDelay) throws Exception {
     return (String) invoke(MBEAN_NAME, "restartShutdown", new Object[] {shutdownDelay, restartDelay}, new String[] {Long.class.getName(), Long.class.getName()});
@@ -254,6 +254,15 @@ public class JMXNodeConnectionWrapper extends JMXConnectionWrapper implements JP
     return false;
   }
 
+  /**
+   * {@inheritDoc}
+   * @since 6.3
+   */
+  @Override
+  public DataProviderCacheInfo dataProviderCacheInfo() throws Exception {
+    return (DataProviderCacheInfo) invoke(JPPFNodeAdminMBean.MBEAN_NAME, "dataProviderCacheInfo");
+  }
+
   /**
    * A shortcut method for {@code getProxy(JPPFNodeMaintenanceMBean.MBEAN_NAME, JPPFNodeMaintenanceMBean.class)}.
    * @return a dynamic proxy implementing the {@link JPPFNodeMaintenanceMBean} interface.
@@ -43,6 +43,19 @@ public interface JPPFDriverAdminMBean extends JPPFAdminMBean {
   @MBeanDescription("get the server statistics")
   JPPFStatistics statistics() throws Exception;
 
+  /**
+   * Get the 50th, 90th, 99th and 99.9th percentiles of the values of the specified server statistics snapshot.
+   * Percentiles are only available for the timing snapshots, when the driver is configured with {@code jppf.statistics.histograms.enabled = true}.
+   * @param label the label of the snapshot, for instance {@link org.jppf.utils.stats.JPPFStatisticsHelper#TASK_QUEUE_TIME JPPFStatisticsHelper.TASK_QUEUE_TIME}.
+   * @return a mapping of the percentile names "p50", "p90", "p99" and "p999" to their value, or an empty map if the snapshot does not exist
+   * or does not record the distribution of its values.
+   * @throws Exception if any error occurs.
+   * @since 6.3
+   */
+  @MBeanDescription("get the percentiles of the values of a server statistics snapshot")
+  @MBeanElementType(type = Map.class, parameters = { "java.lang.String", "java.lang.Double" })
+  Map<String, Double> statisticsPercentiles(@MBeanParamName("label") String label) throws Exception;
+
   /**
    * Get the number of nodes attached to the driver.
    * Note that this method is equivalent to calling {@link #nbNodes(NodeSelector) nbNodes(null)}.
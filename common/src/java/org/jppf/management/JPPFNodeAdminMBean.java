@@ -183,4 +183,13 @@ public interface JPPFNodeAdminMBean extends JPPFAdminMBean {
    */
   @MBeanDescription("cancel a previous deferred shutdown or restart request, if any")
   boolean cancelPendingAction();
+
+  /**
+   * Get the size and hit/miss counts of the node's cache of data providers.
+   * @return a {@link DataProviderCacheInfo} instance.
+   * @throws Exception if any error occurs.
+   * @since 6.3
+   */
+  @MBeanDescription("get the size and hit/miss counts of the node's cache of data providers")
+  DataProviderCacheInfo dataProviderCacheInfo() throws Exception;
 }
@@ -25,6 +25,8 @@ import org.jppf.management.doc.*;
 
 /**
  * MBean interface for task-level monitoring on each node.
+ * <p>When the node configuration property {@code "jppf.node.task.notifications.batch.size"} is greater than 1, the notifications for executed tasks
+ * are grouped into {@link TaskExecutionBatchNotification}s, while the notifications sent by the tasks themselves are still sent individually.
  * @author Laurent Cohen
  */
 @MBeanDescription("monitoring of the tasks processing in a node")
@@ -0,0 +1,222 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.jppf.management;
+
+import java.util.*;
+
+import javax.management.*;
+
+/**
+ * Notification sent by the task monitor MBean of a node for a batch of executed tasks, when task notifications batching is enabled in the node.
+ * <p>The information on the tasks is held in columnar form, that is, in one array per field, where the information on the task at index {@code i}
+ * in the batch is found at index {@code i} of each array. The job ids and names are only stored once for each job.
+ * <p>Listeners that expect one {@link TaskExecutionNotification} per task can be wrapped in a {@link TaskExecutionBatchUnpacker}.
+ * @since 6.3
+ */
+public class TaskExecutionBatchNotification extends Notification {
+  /**
+   * Explicit serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+  /**
+   * The type of the batch notifications.
+   */
+  public static final String BATCH_TYPE = "task.monitor.batch";
+  /**
+   * The ids of the tasks.
+   */
+  private final String[] taskIds;
+  /**
+   * For each task, the index of its job in {@link #jobIds} and {@link #jobNames}.
+   */
+  private final int[] jobIndexes;
+  /**
+   * The distinct ids of the jobs of the tasks.
+   */
+  private final String[] jobIds;
+  /**
+   * The names of the jobs, in the same order as {@link #jobIds}.
+   */
+  private final String[] jobNames;
+  /**
+   * The positions of the tasks in their job.
+   */
+  private final int[] jobPositions;
+  /**
+   * The cpu time taken by each task.
+   */
+  private final long[] cpuTimes;
+  /**
+   * The wall clock time taken by each task.
+   */
+  private final long[] elapsedTimes;
+  /**
+   * The time at which the information on each task was created.
+   */
+  private final long[] timestamps;
+  /**
+   * The indexes of the tasks that had an exception.
+   */
+  private final BitSet errors;
+
+  /**
+   * Initialize this notification with the specified source, sequence number and tasks information.
+   * @param source the object name of the MBean that emits this notification.
+   * @param sequenceNumber the notification sequence number.
+   * @param infos the information on the tasks, must not be empty.
+   * @exclude
+   */
+  public TaskExecutionBatchNotification(final ObjectName source, final long sequenceNumber, final List<TaskInformation> infos) {
+    super(BATCH_TYPE, source, sequenceNumber, infos.get(infos.size() - 1).getTimestamp());
+    final int size = infos.size();
+    taskIds = new String[size];
+    jobIndexes = new int[size];
+    jobPositions = new int[size];
+    cpuTimes = new long[size];
+    elapsedTimes = new long[size];
+    timestamps = new long[size];
+    errors = new BitSet(size);
+    final Map<String, Integer> jobMap = new LinkedHashMap<>();
+    final List<String> names = new ArrayList<>();
+    for (int i=0; i<size; i++) {
+      final TaskInformation info = infos.get(i);
+      taskIds[i] = info.getId();
+      Integer jobIndex = jobMap.get(info.getJobId());
+      if (jobIndex == null) {
+        jobMap.put(info.getJobId(), jobIndex = names.size());
+        names.add(info.getJobName());
+      }
+      jobIndexes[i] = jobIndex;
+      jobPositions[i] = info.getJobPosition();
+      cpuTimes[i] = info.getCpuTime();
+      elapsedTimes[i] = info.getElapsedTime();
+      timestamps[i] = info.getTimestamp();
+      if (info.hasError()) errors.set(i);
+    }
+    jobIds = jobMap.keySet().toArray(new String[jobMap.size()]);
+    jobNames = names.toArray(new String[names.size()]);
+  }
+
+  /**
+   * @return the number of tasks in this batch.
+   */
+  public int size() {
+    return taskIds.length;
+  }
+
+  /**
+   * Get the ids of the tasks in this batch. The returned array is shared and should not be modified.
+   * @return an array of task ids.
+   */
+  public String[] getTaskIds() {
+    return taskIds;
+  }
+
+  /**
+   * Get the cpu time taken by each task in this batch. The returned array is shared and should not be modified.
+   * @return an array of cpu times in milliseconds.
+   */
+  public long[] getCpuTimes() {
+    return cpuTimes;
+  }
+
+  /**
+   * Get the wall clock time taken by each task in this batch. The returned array is shared and should not be modified.
+   * @return an array of elapsed times in milliseconds.
+   */
+  public long[] getElapsedTimes() {
+    return elapsedTimes;
+  }
+
+  /**
+   * Get the time at which the information on each task in this batch was created. The returned array is shared and should not be modified.
+   * @return an array of timestamps in milliseconds.
+   */
+  public long[] getTimestamps() {
+    return timestamps;
+  }
+
+  /**
+   * Get the position of each task in this batch in its job. The returned array is shared and should not be modified.
+   * @return an array of positions.
+   */
+  public int[] getJobPositions() {
+    return jobPositions;
+  }
+
+  /**
+   * Determine whether the task at the specified index had an exception.
+   * @param index the index of the task in this batch.
+   * @return {@code true} if the task had an exception, {@code false} otherwise.
+   */
+  public boolean hasError(final int index) {
+    return errors.get(index);
+  }
+
+  /**
+   * Get the id of the job of the task at the specified index.
+   * @param index the index of the task in this batch.
+   * @return the job id.
+   */
+  public String getJobId(final int index) {
+    return jobIds[jobIndexes[index]];
+  }
+
+  /**
+   * Get the name of the job of the task at the specified index.
+   * @param index the index of the task in this batch.
+   * @return the job name.
+   */
+  public String getJobName(final int index) {
+    return jobNames[jobIndexes[index]];
+  }
+
+  /**
+   * Get the information on the task at the specified index.
+   * @param index the index of the task in this batch.
+   * @return a new {@link TaskInformation} instance.
+   */
+  public TaskInformation getTaskInformation(final int index) {
+    return new TaskInformation(taskIds[index], getJobId(index), getJobName(index), cpuTimes[index], elapsedTimes[index], errors.get(index), jobPositions[index], timestamps[index]);
+  }
+
+  /**
+   * Convert this batch into one notification per task, as sent by the node when batching is disabled.
+   * @return a list of {@link TaskExecutionNotification}s, in the order in which the tasks were executed.
+   */
+  public List<TaskExecutionNotification> unpack() {
+    final List<TaskExecutionNotification> result = new ArrayList<>(size());
+    for (int i=0; i<size(); i++) result.add(new TaskExecutionNotification((ObjectName) getSource(), getSequenceNumber(), getTaskInformation(i), null, false));
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(getClass().getSimpleName()).append('[')
+      .append("source=").append(getSource())
+      .append(", type=").append(getType())
+      .append(", size=").append(size())
+      .append(", jobs=").append(jobIds.length)
+      .append(", errors=").append(errors.cardinality())
+      .append(", sequence=").append(getSequenceNumber())
+      .append(']').toString();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.jppf.management;
+
+import javax.management.*;
+
+import org.jppf.management.forwarding.JPPFNodeForwardingNotification;
+
+/**
+ * A notification listener which unpacks the {@link TaskExecutionBatchNotification}s sent by nodes into individual {@link TaskExecutionNotification}s
+ * and passes them on to a delegate listener, so that existing task monitoring listeners work whether task notifications batching is enabled or not.
+ * <p>Batches forwarded by a driver are unpacked as well, with each task notification wrapped in its own {@link JPPFNodeForwardingNotification}.
+ * All other notifications are passed on as is.
+ * @since 6.3
+ */
+public class TaskExecutionBatchUnpacker implements NotificationListener {
+  /**
+   * The listener which receives the unpacked notifications.
+   */
+  private final NotificationListener delegate;
+
+  /**
+   * Initialize this listener with the specified delegate.
+   * @param delegate the listener which receives the unpacked notifications.
+   */
+  public TaskExecutionBatchUnpacker(final NotificationListener delegate) {
+    if (delegate == null) throw new IllegalArgumentException("the delegate listener cannot be null");
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void handleNotification(final Notification notification, final Object handback) {
+    if (notification instanceof TaskExecutionBatchNotification) {
+      for (final TaskExecutionNotification notif: ((TaskExecutionBatchNotification) notification).unpack()) delegate.handleNotification(notif, handback);
+    } else if ((notification instanceof JPPFNodeForwardingNotification) && (((JPPFNodeForwardingNotification) notification).getNotification() instanceof TaskExecutionBatchNotification)) {
+      final JPPFNodeForwardingNotification forwarding = (JPPFNodeForwardingNotification) notification;
+      final TaskExecutionBatchNotification batch = (TaskExecutionBatchNotification) forwarding.getNotification();
+      for (final TaskExecutionNotification notif: batch.unpack())
+        delegate.handleNotification(new JPPFNodeForwardingNotification(notif, forwarding.getNodeUuid(), forwarding.getMBeanName()), handback);
+    } else delegate.handleNotification(notification, handback);
+  }
+
+  /**
+   * @return the listener which receives the unpacked notifications.
+   */
+  public NotificationListener getDelegate() {
+    return delegate;
+  }
+}
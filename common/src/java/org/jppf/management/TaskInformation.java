@@ -56,7 +56,7 @@ public class TaskInformation implements Serializable {
   /**
    * Timestamp for the creation of this event.
    */
-  private final long timestamp = System.currentTimeMillis();
+  private final long timestamp;
   /**
    * The position of the task in the job to which it belongs.
    * @since 5.0
@@ -75,6 +75,21 @@ public class TaskInformation implements Serializable {
    * @exclude
    */
   public TaskInformation(final String id, final String jobId, final String jobName, final long cpuTime, final long elapsedTime, final boolean error, final int jobPosition) {
+    this(id, jobId, jobName, cpuTime, elapsedTime, error, jobPosition, System.currentTimeMillis());
+  }
+
+  /**
+   * Initialize this event object with the specified task and timestamp.
+   * @param id the task id.
+   * @param jobId the id of the job this task belongs to.
+   * @param jobName the name of the job this task belongs to.
+   * @param cpuTime the cpu time taken by the task.
+   * @param elapsedTime the wall clock time taken by the task.
+   * @param error determines whether the task had an exception.
+   * @param jobPosition the position of the task in the job to which it belongs.
+   * @param timestamp the time at which the task information was created.
+   */
+  TaskInformation(final String id, final String jobId, final String jobName, final long cpuTime, final long elapsedTime, final boolean error, final int jobPosition, final long timestamp) {
     this.id = id;
     this.jobId = jobId;
     this.jobName = jobName;
@@ -82,6 +97,7 @@ public class TaskInformation implements Serializable {
     this.elapsedTime = elapsedTime;
     this.error = error;
     this.jobPosition = jobPosition;
+    this.timestamp = timestamp;
   }
 
   /**
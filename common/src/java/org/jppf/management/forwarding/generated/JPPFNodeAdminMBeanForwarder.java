@@ -20,6 +20,7 @@ package org.jppf.management.forwarding.generated;
 
 import java.util.Map;
 import org.jppf.classloader.DelegationModel;
+import org.jppf.management.DataProviderCacheInfo;
 import org.jppf.management.JMXDriverConnectionWrapper;
 import org.jppf.management.JPPFNodeAdminMBean;
 import org.jppf.management.JPPFNodeState;
@@ -117,6 +118,16 @@ public class JPPFNodeAdminMBeanForwarder extends AbstractMBeanForwarder {
     return invoke(selector, "pendingAction");
   }
 
+  /**
+   * Invoke the {@code dataProviderCacheInfo} operation for all selected nodes (get the size and hit/miss counts of the node's cache of data providers).
+   * @param selector a {@link NodeSelector} instance.
+   * @return a mapping of node uuids to {@link DataProviderCacheInfo} instances.
+   * @throws Exception if any error occurs.
+   */
+  public ResultsMap<String, DataProviderCacheInfo> dataProviderCacheInfo(final NodeSelector selector) throws Exception {
+    return invoke(selector, "dataProviderCacheInfo");
+  }
+
   /**
    * Invoke the {@code restart} operation for all selected nodes (restart the node, specifying whether to wait for executing tasks to complete).
    * @param selector a {@link NodeSelector} instance.
@@ -94,6 +94,10 @@ public abstract class AbstractNioContext implements NioContext {
    * Outbound traffic statistics snapshot.
    */
   protected JPPFSnapshot outSnapshot;
+  /**
+   * Statistics snapshot for the outbound traffic written without copy.
+   */
+  protected JPPFSnapshot zeroCopySnapshot;
   /**
    * The socket channel's interest ops.
    */
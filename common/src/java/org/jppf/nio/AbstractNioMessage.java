@@ -107,7 +107,7 @@ public abstract class AbstractNioMessage extends AbstractNioMessageBase {
     }
     if (currentLength > 0) {
       if (currentObject == null) {
-        final DataLocation location = IOHelper.createDataLocationMemorySensitive(currentLength);
+        final DataLocation location = ssl ? IOHelper.createDataLocationMemorySensitive(currentLength) : IOHelper.createNioDataLocation(currentLength);
         currentObject = ssl ? new SSLNioObject(location, sslHandler) : new PlainNioObject(channel.getSocketChannel(), location);
       }
       try {
@@ -162,7 +162,10 @@ public abstract class AbstractNioMessage extends AbstractNioMessageBase {
       throw e;
     }
     count += currentLength;
-    if (currentObject != null) updateCounts(currentObject.getChannelCount(), WRITE);
+    if (currentObject != null) {
+      updateCounts(currentObject.getChannelCount(), WRITE);
+      if (!ssl && ((PlainNioObject) currentObject).isZeroCopy()) zeroCopyWriteCount += currentObject.getChannelCount();
+    }
     position++;
     currentObject = null;
     currentLength = -1;
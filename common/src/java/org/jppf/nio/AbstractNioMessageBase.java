@@ -62,6 +62,10 @@ public abstract class AbstractNioMessageBase implements NioMessage {
    * Actual bytes sent to or received from the underlying channel.
    */
   protected long channelReadCount, channelWriteCount;
+  /**
+   * Bytes written to the underlying channel directly from the buffers or files holding the data, without intermediate copy.
+   */
+  protected long zeroCopyWriteCount;
   /**
    * The channel to read from or write to.
    */
@@ -109,6 +113,14 @@ public abstract class AbstractNioMessageBase implements NioMessage {
     return channelWriteCount;
   }
 
+  /**
+   * Get the number of bytes written to the underlying channel without intermediate copy.
+   * @return the number of bytes written without copy, always 0 for SSL channels.
+   */
+  public long getZeroCopyWriteCount() {
+    return zeroCopyWriteCount;
+  }
+
   /**
    * Get the data location objects abstracting the data to send or receive.
    * @return a <code>DataLocation</code> object.
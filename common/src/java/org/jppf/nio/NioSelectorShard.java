@@ -0,0 +1,139 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.nio;
+
+import java.nio.channels.*;
+import java.util.Set;
+
+import org.jppf.utils.ExceptionUtils;
+import org.slf4j.*;
+
+/**
+ * A selector thread which handles the reads and writes for a subset of the channels of a {@link StatelessNioServer}.
+ * <p>Each shard has its own selector and hands its selected keys to the server's {@link StatelessNioServer#go(Set) go()} method from its own thread,
+ * which processes them in that thread by default, without waiting for the other shards of the same server.
+ * @param <C> the type of connection context handled by the server.
+ * @exclude
+ */
+public class NioSelectorShard<C extends AbstractNioContext> extends Thread {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(NioSelectorShard.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * The server this shard belongs to.
+   */
+  private final StatelessNioServer<C> server;
+  /**
+   * The selector for the channels of this shard.
+   */
+  private final Selector selector;
+  /**
+   * Used to synchronize on the selector for blocking operations.
+   */
+  private final SelectorSynchronizer sync;
+
+  /**
+   * Initialize this shard.
+   * @param server the server this shard belongs to.
+   * @param index the index of this shard in the server.
+   * @throws Exception if the selector cannot be opened.
+   */
+  NioSelectorShard(final StatelessNioServer<C> server, final int index) throws Exception {
+    super(server.getName() + "-shard-" + index);
+    setDaemon(true);
+    this.server = server;
+    this.selector = Selector.open();
+    this.sync = new SelectorSynchronizerLock(selector);
+  }
+
+  @Override
+  public void run() {
+    if (debugEnabled) log.debug("starting {}", getName());
+    try {
+      final long selectTimeout = server.selectTimeout;
+      final boolean hasTimeout = selectTimeout > 0L;
+      int n = 0;
+      while (!server.isStopped() && !server.externalStopCondition()) {
+        sync.waitForZeroAndSetToMinusOne();
+        try {
+          n = hasTimeout ? selector.select(selectTimeout) : selector.select();
+        } finally {
+          sync.setToZeroIfNegative();
+        }
+        if (n > 0) server.go(selector.selectedKeys());
+      }
+    } catch (final ClosedSelectorException e) {
+      if (debugEnabled) log.debug("selector closed for {}", getName());
+    } catch (final Throwable t) {
+      log.error("error in selector loop for {} : {}", getName(), ExceptionUtils.getStackTrace(t));
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Register the specified channel with this shard's selector.
+   * @param channelHandler the context associated with the channel.
+   * @param channel the channel to register.
+   * @param ops the initial interest operations.
+   * @throws Exception if any error occurs.
+   */
+  void register(final NioChannelHandler channelHandler, final SocketChannel channel, final int ops) throws Exception {
+    sync.wakeUpAndSetOrIncrement();
+    try {
+      channelHandler.setSelectionKey(channel.register(selector, ops, channelHandler));
+    } finally {
+      sync.decrement();
+    }
+  }
+
+  /**
+   * Close this shard's selector.
+   */
+  void close() {
+    if (!selector.isOpen()) return;
+    sync.wakeUpAndSetOrIncrement();
+    try {
+      selector.close();
+    } catch (final Exception e) {
+      log.error(e.getMessage(), e);
+    } finally {
+      sync.decrement();
+    }
+  }
+
+  /**
+   * @return the selector for the channels of this shard.
+   */
+  Selector getSelector() {
+    return selector;
+  }
+
+  /**
+   * @return the object used to synchronize on the selector for blocking operations.
+   */
+  SelectorSynchronizer getSync() {
+    return sync;
+  }
+}
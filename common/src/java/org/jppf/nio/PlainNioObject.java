@@ -116,6 +116,15 @@ public class PlainNioObject extends AbstractNioObject {
     return count >= size;
   }
 
+  /**
+   * Determine whether the data is written to the channel directly from where it is stored, without intermediate copy.
+   * This is the case for data stored in a file or in direct buffers.
+   * @return <code>true</code> if the data is written without copy, <code>false</code> otherwise.
+   */
+  public boolean isZeroCopy() {
+    return (location instanceof FileDataLocation) || (location instanceof DirectBuffersLocation);
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder();
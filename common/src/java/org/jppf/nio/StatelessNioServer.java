@@ -20,9 +20,11 @@ package org.jppf.nio;
 
 import java.nio.channels.*;
 import java.util.*;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.slf4j.*;
 
 /**
@@ -35,6 +37,10 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
    * Logger for this class.
    */
   private static final Logger log = LoggerFactory.getLogger(StatelessNioServer.class);
+  /**
+   * Determines whether debug logging level is enabled.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
   /**
    * Determines whether trace logging level is enabled.
    */
@@ -51,6 +57,18 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
    * 
    */
   protected KeysetHandler<C> acceptHandler, readHandler, writeHandler;
+  /**
+   * The selector shards which handle the reads and writes of the channels, or {@code null} if all channels are handled by the main selector.
+   */
+  private List<NioSelectorShard<C>> shards;
+  /**
+   * Mapping of the shards' selectors to their synchronizers.
+   */
+  private Map<Selector, SelectorSynchronizer> shardSyncs;
+  /**
+   * Round-robin counter used to assign new channels to the shards.
+   */
+  private final AtomicInteger nextShard = new AtomicInteger(0);
 
   /**
    * @param identifier the channel identifier for channels handled by this server.
@@ -91,6 +109,62 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
     super.init();
     initNioHandlers();
     initReaderAndWriter();
+    initShards();
+  }
+
+  /**
+   * Create the selector shards, if sharding is supported by this server and the configured number of shards is greater than 1.
+   * @throws Exception if any error occurs.
+   */
+  private void initShards() throws Exception {
+    if ((shards != null) || !isSelectorShardingSupported()) return;
+    final TypedProperties config = (configuration != null) ? configuration : JPPFConfiguration.getProperties();
+    final int nbShards = getConfiguredSelectorShards(config);
+    if (nbShards <= 1) return;
+    log.info("{} will use {} selector shards", getName(), nbShards);
+    final List<NioSelectorShard<C>> list = new ArrayList<>(nbShards);
+    shardSyncs = new IdentityHashMap<>(nbShards);
+    for (int i=0; i<nbShards; i++) {
+      final NioSelectorShard<C> shard = new NioSelectorShard<>(this, i);
+      list.add(shard);
+      shardSyncs.put(shard.getSelector(), shard.getSync());
+    }
+    shards = Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Get the number of selector shards specified in the configuration for this server.
+   * @param config the configuration to read from.
+   * @return the number of shards, where a value less than or equal to 1 means all channels are handled by the main selector.
+   */
+  protected int getConfiguredSelectorShards(final TypedProperties config) {
+    final int nbShards = config.get(JPPFProperties.NIO_SERVER_SELECTOR_SHARDS, JPPFIdentifiers.serverName(identifier));
+    return (nbShards < 0) ? config.get(JPPFProperties.NIO_SELECTOR_SHARDS) : nbShards;
+  }
+
+  /**
+   * Determine whether this server can distribute its channels among multiple selector threads.
+   * Subclasses that support it should override this method to return {@code true}.
+   * @return {@code false} by default.
+   */
+  protected boolean isSelectorShardingSupported() {
+    return false;
+  }
+
+  /**
+   * Get the number of selector shards used by this server.
+   * @return the number of shards, or 0 if all channels are handled by the main selector.
+   */
+  public int getNbSelectorShards() {
+    return (shards == null) ? 0 : shards.size();
+  }
+
+  @Override
+  public synchronized void start() {
+    if (shards != null) {
+      for (final NioSelectorShard<C> shard: shards) shard.start();
+    }
+    super.start();
   }
 
   /**
@@ -135,11 +209,17 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
   }
 
   /**
-   * Process the keys selected by the selector for IO operations.
+   * Process the keys selected by the selector for IO operations. This method is called by the main selector thread, as well as by the threads
+   * of the selector shards, if any. The keys selected by a shard are processed in the shard's thread, while those selected by the main selector
+   * are handed off to the global NIO executor.
    * @param selectedKeys the set of keys that were selected by the latest <code>select()</code> invocation.
    * @throws Exception if an error is raised while processing the keys.
    */
   protected void go(final Set<SelectionKey> selectedKeys) throws Exception {
+    if (Thread.currentThread() instanceof NioSelectorShard) {
+      processSelectedKeys(selectedKeys);
+      return;
+    }
     final List<Future<?>> futures = new ArrayList<>();
     try {
       if (acceptHandler != null) futures.add(doOperation(selectedKeys, acceptHandler));
@@ -157,6 +237,39 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
     }
   }
 
+  /**
+   * Read from and write to the channels of the specified selected keys, in the current thread.
+   * @param selectedKeys the set of keys that were selected by the latest <code>select()</code> invocation.
+   */
+  protected void processSelectedKeys(final Set<SelectionKey> selectedKeys) {
+    try {
+      for (final SelectionKey key: selectedKeys) {
+        try {
+          if (key.attachment() instanceof CloseableContext) {
+            if (((CloseableContext) key.attachment()).isClosed()) continue;
+          }
+          if (!isKeyValid(key)) continue;
+          if (key.isReadable()) handleRead(key);
+          if (key.isValid() && key.isWritable()) handleWrite(key);
+        } catch (final Exception e) {
+          key.cancel();
+          if (debugEnabled) log.debug("error on {}", toString(key), e);
+          getSelectionExceptionExecutor().execute(() -> handleSelectionException(key, e));
+        }
+      }
+    } finally {
+      selectedKeys.clear();
+    }
+  }
+
+  /**
+   * Get the executor which handles the exceptions raised while processing the selected keys in the current thread.
+   * @return the global NIO executor by default.
+   */
+  protected Executor getSelectionExceptionExecutor() {
+    return NioHelper.getGlobalexecutor();
+  }
+
   /**
    * Perform an operation on all eligible channels.
    * @param selectedKeys set of selected keys from which to extract the eligible ones.
@@ -258,11 +371,12 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
     if (newOps != ops) {
       if (traceEnabled) log.trace(String.format("updating interestOps from %d to %d for %s", ops, newOps, key.attachment()));
       context.setInterestOps(newOps);
-      sync.wakeUpAndSetOrIncrement();
+      final SelectorSynchronizer keySync = getSynchronizer(key);
+      keySync.wakeUpAndSetOrIncrement();
       try {
         key.interestOps(newOps);
       } finally {
-        sync.decrement();
+        keySync.decrement();
       }
     }
   }
@@ -276,6 +390,11 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
   public void registerChannel(final NioChannelHandler channelHandler, final SocketChannel channel) throws Exception {
     final int ops = SelectionKey.OP_READ;
     channelHandler.setInterestOps(ops);
+    if (shards != null) {
+      final int index = (nextShard.getAndIncrement() & Integer.MAX_VALUE) % shards.size();
+      shards.get(index).register(channelHandler, channel, ops);
+      return;
+    }
     sync.wakeUpAndSetOrIncrement();
     try {
       channelHandler.setSelectionKey(channel.register(selector, ops, channelHandler));
@@ -284,6 +403,39 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
     }
   }
 
+  /**
+   * Get the synchronizer for the selector with which the specified key is registered.
+   * @param key the key for which to get a synchronizer.
+   * @return a {@link SelectorSynchronizer} instance.
+   */
+  private SelectorSynchronizer getSynchronizer(final SelectionKey key) {
+    if (shardSyncs == null) return sync;
+    final SelectorSynchronizer shardSync = shardSyncs.get(key.selector());
+    return (shardSync == null) ? sync : shardSync;
+  }
+
+  /**
+   * Get the key representing the registration of the specified channel with this server, whether with the main selector or with one of the selector shards.
+   * @param channel the channel for which to get the key.
+   * @return the selection key, or {@code null} if the channel is not registered with this server.
+   */
+  public SelectionKey keyFor(final SelectableChannel channel) {
+    SelectionKey key = channel.keyFor(selector);
+    if ((key == null) && (shards != null)) {
+      for (int i=0; (key == null) && (i<shards.size()); i++) key = channel.keyFor(shards.get(i).getSelector());
+    }
+    return key;
+  }
+
+  @Override
+  public void removeAllConnections() {
+    if (!isStopped()) return;
+    if (shards != null) {
+      for (final NioSelectorShard<C> shard: shards) shard.close();
+    }
+    super.removeAllConnections();
+  }
+
   /**
    * Set the interest ops of a specified selection key.
    * This method is proposed as a convenience, to encapsulate the inner locking mechanism.
@@ -335,6 +487,20 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
     } finally {
       sync.decrement();
     }
+    if (shards != null) {
+      for (final NioSelectorShard<C> shard: shards) {
+        shard.getSync().wakeUpAndSetOrIncrement();
+        try {
+          final Set<SelectionKey> shardKeys = shard.getSelector().keys();
+          if (keys == null) keys = new HashSet<>(shardKeys);
+          else keys.addAll(shardKeys);
+        } catch (final Exception e) {
+          log.error(e.getMessage(), e);
+        } finally {
+          shard.getSync().decrement();
+        }
+      }
+    }
     if (keys == null) return Collections.emptyMap();
     final Map<String, C> channels = new HashMap<>(keys.size());
     for (final SelectionKey key: keys) {
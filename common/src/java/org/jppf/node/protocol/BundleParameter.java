@@ -175,5 +175,33 @@ public enum BundleParameter {
   /**
    * Whether a job graph is already being handled by a driver.
    */
-  JOB_GRAPH_ALREADY_HANDLED
+  JOB_GRAPH_ALREADY_HANDLED,
+  /**
+   * Whether a bundle sent by a node holds the results of part of the tasks of a dispatched bundle, while the other tasks are still executing.
+   */
+  PARTIAL_RESULTS,
+  /**
+   * Positions of the tasks whose results are held in a bundle sent by a node, when they are only part of the tasks dispatched to the node.
+   */
+  RESULTS_POSITIONS,
+  /**
+   * Hash of the serialized content of the data provider of a job.
+   */
+  DATA_PROVIDER_HASH,
+  /**
+   * Whether the data provider was omitted from a bundle because the node already holds it in its cache.
+   */
+  DATA_PROVIDER_CACHED,
+  /**
+   * Whether a node could not find the data provider of a bundle in its cache, in which case the bundle was not executed.
+   */
+  DATA_PROVIDER_MISSING,
+  /**
+   * Number of bundles the server may send to a node in advance, in addition to its maximum number of concurrent jobs.
+   */
+  NODE_PREFETCH_DEPTH,
+  /**
+   * Maximum size in bytes of the serialized tasks the server may send to a node in advance.
+   */
+  NODE_PREFETCH_MAX_MEMORY
 }
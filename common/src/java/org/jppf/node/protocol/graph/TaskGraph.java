@@ -20,40 +20,76 @@ package org.jppf.node.protocol.graph;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.IntPredicate;
 
 import org.jppf.node.protocol.PositionalElement;
 import org.jppf.serialization.SerializationUtils;
-import org.jppf.utils.collections.*;
 
 /**
  * A graph of the tasks in a job, representing the "depends on" relationships between tasks.
  * Each task is represented by its position in the job as an {@code Integer} value.
  * <p>Dependency cycles are not allowed, making this graph effectively a Directed Acyclic Graph (DAG).
  * This allows, among other things to compute one or more topological orders for the tasks.
+ * <p>Internally, the nodes are identified by their index in the sorted array of task positions, and the dependencies and dependants
+ * of each node are stored in compressed sparse row form, that is, as slices of flat {@code int} arrays delimited by per-node offsets.
+ * The available nodes are kept in a heap ordered by the length of the longest path of dependants starting at each node, so that
+ * the tasks on the critical path of the graph are dispatched first.
  * @author Laurent Cohen
  * @exclude
  */
 public class TaskGraph implements Serializable {
   /**
-   * Mapping of nodes to their position.
+   * The positions of the nodes, in ascending order. The index of a position in this array is the index of the corresponding node.
    */
-  private transient Map<Integer, Node> nodesMap;
+  private transient int[] positions;
   /**
-   * Mapping of not done nodes to their position.
+   * Whether {@code positions[i] == i} for all nodes, in which case no lookup is needed to find the index of a position.
    */
-  private transient Map<Integer, Node> notDoneMap;
+  private transient boolean dense;
   /**
-   * Mapping of node positions to the positions of their dependants.
+   * Offsets of the dependencies of each node in {@link #dependencies}, with one extra element for the end of the last slice.
    */
-  private transient CollectionMap<Integer, Node> dependantsMap = new ArrayListHashMap<>();
+  private transient int[] dependencyOffsets;
   /**
-   * Mapping of node positions to the positions of their remaining unexecuted dependencies.
+   * Indexes of the dependencies of all the nodes.
    */
-  private transient CollectionMap<Integer, Integer> remainingDependenciesMap = new ArrayListHashMap<>();
+  private transient int[] dependencies;
   /**
-   * The set of non-executed tasks that no longer have pending dependencies.
+   * Offsets of the dependants of each node in {@link #dependants}, with one extra element for the end of the last slice.
    */
-  private transient Set<Integer> availableNodes = new HashSet<>();
+  private transient int[] dependantOffsets;
+  /**
+   * Indexes of the dependants of all the nodes.
+   */
+  private transient int[] dependants;
+  /**
+   * The number of dependencies of each node that are not done.
+   */
+  private transient int[] remaining;
+  /**
+   * The nodes that are done.
+   */
+  private transient BitSet done;
+  /**
+   * For each node, the number of nodes in the longest path of dependants starting at this node, including the node itself.
+   */
+  private transient int[] pathLength;
+  /**
+   * Binary heap of the indexes of the available nodes, that is, the non-executed nodes that no longer have pending dependencies.
+   */
+  private transient int[] heap;
+  /**
+   * The number of nodes in the heap.
+   */
+  private transient int heapSize;
+  /**
+   * The index in the heap of each node, or -1 if the node is not available.
+   */
+  private transient int[] heapIndex;
+  /**
+   * The number of nodes that have at least one dependant.
+   */
+  private transient int dependedOnCount;
   /**
    * The count of completed tasks.
    */
@@ -70,9 +106,7 @@ public class TaskGraph implements Serializable {
    * @param nodes the nodes that constitute the graph.
    */
   public TaskGraph(final Collection<Node> nodes) {
-    final Map<Integer, Node> map = new HashMap<>(nodes.size());
-    for (final Node node: nodes) map.put(node.getPosition(), node);
-    buildGraph(map);
+    buildGraph(nodes);
   }
 
   /**
@@ -80,79 +114,242 @@ public class TaskGraph implements Serializable {
    * @param nodes the nodes that constitute the graph.
    */
   public TaskGraph(final Map<Integer, Node> nodes) {
-    buildGraph(nodes);
+    buildGraph(nodes.values());
   }
 
   /**
    * Create this graph form the specified collection of nodes.
    * @param nodes the nodes that constitute the graph.
    */
-  private void buildGraph(final Map<Integer, Node> nodes) {
-    nodesMap = nodes;
-    notDoneMap = new HashMap<>(nodes.size());
-    for (final Map.Entry<Integer, Node> entry: nodesMap.entrySet()) {
-      final int pos = entry.getKey();
-      final Node node = entry.getValue();
-      if (!node.isDone()) notDoneMap.put(pos, node);
-      final List<Node> dependencies = node.getDependencies();
-      int remaining = 0;
-      for (final Node dep: dependencies) {
-        dependantsMap.putValue(dep.getPosition(), node);
-        if (!dep.isDone()) {
-          remainingDependenciesMap.putValue(pos, dep.getPosition());
-          remaining++;
-        }
+  private void buildGraph(final Collection<Node> nodes) {
+    final int nbNodes = nodes.size();
+    final int[] nodePositions = new int[nbNodes], depCounts = new int[nbNodes];
+    final BitSet doneNodes = new BitSet(nbNodes);
+    int nbEdges = 0, i = 0;
+    for (final Node node: nodes) nbEdges += node.getDependencies().size();
+    final int[] depPositions = new int[nbEdges];
+    nbEdges = 0;
+    for (final Node node: nodes) {
+      nodePositions[i] = node.getPosition();
+      if (node.isDone()) doneNodes.set(i);
+      final List<Node> deps = node.getDependencies();
+      depCounts[i++] = deps.size();
+      for (final Node dep: deps) depPositions[nbEdges++] = dep.getPosition();
+    }
+    buildGraph(nodePositions, doneNodes, depCounts, depPositions);
+  }
+
+  /**
+   * Create the compressed representation of this graph.
+   * @param nodePositions the positions of the nodes, in any order.
+   * @param doneNodes the indexes in {@code nodePositions} of the nodes that are done.
+   * @param depCounts the number of dependencies of each node, in the same order as {@code nodePositions}.
+   * @param depPositions the positions of the dependencies of all the nodes, in the same order as {@code nodePositions}.
+   */
+  private void buildGraph(final int[] nodePositions, final BitSet doneNodes, final int[] depCounts, final int[] depPositions) {
+    final int nbNodes = nodePositions.length;
+    final int[] inputOffsets = new int[nbNodes + 1];
+    for (int i=0; i<nbNodes; i++) inputOffsets[i + 1] = inputOffsets[i] + depCounts[i];
+    // order[k] is the index in the input arrays of the node at index k
+    final int[] order = new int[nbNodes];
+    boolean sorted = true;
+    for (int i=1; (i<nbNodes) && sorted; i++) sorted = nodePositions[i - 1] < nodePositions[i];
+    if (sorted) {
+      for (int i=0; i<nbNodes; i++) order[i] = i;
+    } else {
+      final long[] keys = new long[nbNodes];
+      for (int i=0; i<nbNodes; i++) keys[i] = ((long) nodePositions[i] << 32) | i;
+      Arrays.sort(keys);
+      for (int i=0; i<nbNodes; i++) order[i] = (int) keys[i];
+    }
+    positions = new int[nbNodes];
+    done = new BitSet(nbNodes);
+    dense = true;
+    for (int k=0; k<nbNodes; k++) {
+      positions[k] = nodePositions[order[k]];
+      if (positions[k] != k) dense = false;
+      if (doneNodes.get(order[k])) done.set(k);
+    }
+    doneCount = done.cardinality();
+    dependencyOffsets = new int[nbNodes + 1];
+    final int[] deps = new int[depPositions.length];
+    int nbEdges = 0;
+    for (int k=0; k<nbNodes; k++) {
+      final int i = order[k];
+      for (int j=inputOffsets[i]; j<inputOffsets[i + 1]; j++) {
+        final int dep = indexOf(depPositions[j]);
+        if (dep >= 0) deps[nbEdges++] = dep;
+      }
+      dependencyOffsets[k + 1] = nbEdges;
+    }
+    dependencies = (nbEdges == deps.length) ? deps : Arrays.copyOf(deps, nbEdges);
+    dependantOffsets = new int[nbNodes + 1];
+    for (int j=0; j<nbEdges; j++) dependantOffsets[dependencies[j] + 1]++;
+    for (int k=0; k<nbNodes; k++) {
+      if (dependantOffsets[k + 1] > 0) dependedOnCount++;
+      dependantOffsets[k + 1] += dependantOffsets[k];
+    }
+    dependants = new int[nbEdges];
+    final int[] fill = Arrays.copyOf(dependantOffsets, nbNodes);
+    remaining = new int[nbNodes];
+    for (int k=0; k<nbNodes; k++) {
+      for (int j=dependencyOffsets[k]; j<dependencyOffsets[k + 1]; j++) {
+        final int dep = dependencies[j];
+        dependants[fill[dep]++] = k;
+        if (!done.get(dep)) remaining[k]++;
+      }
+    }
+    computePathLengths();
+    heap = new int[nbNodes];
+    heapIndex = new int[nbNodes];
+    Arrays.fill(heapIndex, -1);
+    heapSize = 0;
+    for (int k=0; k<nbNodes; k++) {
+      if (!done.get(k) && (remaining[k] <= 0)) heapAdd(k);
+    }
+  }
+
+  /**
+   * Compute the length of the longest path of dependants starting at each node, by visiting the nodes in reverse topological order.
+   */
+  private void computePathLengths() {
+    final int nbNodes = positions.length;
+    pathLength = new int[nbNodes];
+    final int[] pendingDependants = new int[nbNodes], queue = new int[nbNodes];
+    int head = 0, tail = 0;
+    for (int k=0; k<nbNodes; k++) {
+      pathLength[k] = 1;
+      if ((pendingDependants[k] = dependantOffsets[k + 1] - dependantOffsets[k]) == 0) queue[tail++] = k;
+    }
+    while (head < tail) {
+      final int k = queue[head++];
+      for (int j=dependantOffsets[k]; j<dependantOffsets[k + 1]; j++) {
+        final int length = pathLength[dependants[j]] + 1;
+        if (length > pathLength[k]) pathLength[k] = length;
       }
-      if (!node.isDone()) {
-        if (remaining <= 0) availableNodes.add(pos);
+      for (int j=dependencyOffsets[k]; j<dependencyOffsets[k + 1]; j++) {
+        final int dep = dependencies[j];
+        if (--pendingDependants[dep] == 0) queue[tail++] = dep;
       }
-      else doneCount++;
     }
   }
 
+  /**
+   * Get the index of the node at the specified position.
+   * @param position the position of the node to lookup.
+   * @return the index of the node, or a negative value if there is no node at this position.
+   */
+  private int indexOf(final int position) {
+    if (dense) return ((position >= 0) && (position < positions.length)) ? position : -1;
+    return Arrays.binarySearch(positions, position);
+  }
+
   /**
    * Perform a depth-first search topological sort.
    * @param position the position of the node to lookup.
-   * @return the {@link Node} at the specified position, or {@link null} if there isn't one.
+   * @return a read-only view of the {@link Node} at the specified position, or {@link null} if there isn't one.
    */
   public Node nodeAt(final int position) {
-    return nodesMap.get(position);
+    final int index = indexOf(position);
+    return (index < 0) ? null : new NodeView(index);
   }
 
   /**
-   * Called when a task has completed or was cancelled.
+   * Called when a task has completed or was cancelled. Calling this method more than once for the same task has no effect.
    * @param position the position of hte task in the job.
    */
   public void nodeDone(final int position) {
-    final Node node = nodeAt(position);
-    if (node != null) {
-      doneCount++;
-      availableNodes.remove(position);
-      notDoneMap.remove(position);
-      node.setDone(true);
-      final Collection<Node> dependants = dependantsMap.getValues(position);
-      if (dependants != null) {
-        for (final Node dependant: dependants) {
-          final int dependantPosition = dependant.getPosition();
-          remainingDependenciesMap.removeValue(dependantPosition, position);
-          if (!remainingDependenciesMap.containsKey(dependantPosition)) availableNodes.add(dependantPosition);
-        }
-      }
+    final int index = indexOf(position);
+    if ((index < 0) || done.get(index)) return;
+    doneCount++;
+    done.set(index);
+    if (heapIndex[index] >= 0) heapRemove(index);
+    for (int j=dependantOffsets[index]; j<dependantOffsets[index + 1]; j++) {
+      final int dependant = dependants[j];
+      if ((--remaining[dependant] <= 0) && !done.get(dependant) && (heapIndex[dependant] < 0)) heapAdd(dependant);
     }
   }
 
   /**
-   * @return the set of non-executed tasks that no longer have pending dependencies.
+   * @return a read-only view of the set of non-executed tasks that no longer have pending dependencies.
    */
   public Set<Integer> getAvailableNodes() {
-    return availableNodes;
+    return new AbstractSet<Integer>() {
+      @Override
+      public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+          private int cursor;
+
+          @Override
+          public boolean hasNext() {
+            return cursor < heapSize;
+          }
+
+          @Override
+          public Integer next() {
+            if (cursor >= heapSize) throw new NoSuchElementException();
+            return positions[heap[cursor++]];
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return heapSize;
+      }
+
+      @Override
+      public boolean contains(final Object o) {
+        if (!(o instanceof Integer)) return false;
+        final int index = indexOf((Integer) o);
+        return (index >= 0) && (heapIndex[index] >= 0);
+      }
+    };
+  }
+
+  /**
+   * @return the number of non-executed tasks that no longer have pending dependencies.
+   */
+  public int getAvailableCount() {
+    return heapSize;
+  }
+
+  /**
+   * Get the positions of the available tasks that are on the longest remaining paths of the graph.
+   * The tasks are ordered by descending length of their longest path of dependants, then by ascending position.
+   * @param max the maximum number of positions to return.
+   * @param excluded determines which positions should not be returned, for instance because the tasks were already dispatched.
+   * @return an array of task positions, possibly empty.
+   */
+  public int[] nextAvailableNodes(final int max, final IntPredicate excluded) {
+    if ((max <= 0) || (heapSize <= 0)) return new int[0];
+    int[] result = new int[Math.min(max, heapSize)];
+    int count = 0;
+    // the frontier is a secondary heap of slots in the main heap, whose head is always the best slot not yet visited
+    int[] frontier = new int[Math.min(heapSize, 16)];
+    int frontierSize = 0;
+    frontier[frontierSize++] = 0;
+    while ((frontierSize > 0) && (count < result.length)) {
+      final int slot = frontier[0];
+      frontier[0] = frontier[--frontierSize];
+      siftDownSlots(frontier, frontierSize, 0);
+      final int position = positions[heap[slot]];
+      if ((excluded == null) || !excluded.test(position)) result[count++] = position;
+      for (int child=2*slot + 1; (child <= 2*slot + 2) && (child < heapSize); child++) {
+        if (frontierSize >= frontier.length) frontier = Arrays.copyOf(frontier, 2 * frontier.length);
+        frontier[frontierSize++] = child;
+        siftUpSlots(frontier, frontierSize - 1);
+      }
+    }
+    if (count < result.length) result = Arrays.copyOf(result, count);
+    return result;
   }
 
   /**
    * @return whether all task in the job graph are odne.
    */
   public boolean isDone() {
-    return doneCount >= nodesMap.size();
+    return doneCount >= positions.length;
   }
 
   /**
@@ -161,7 +358,8 @@ public class TaskGraph implements Serializable {
    * @return {@code true} if the task has other tasks that depend on it, {@code false} otherwise.
    */
   public boolean isDependendOn(final int position) {
-    return dependantsMap.getValues(position) != null;
+    final int index = indexOf(position);
+    return (index >= 0) && (dependantOffsets[index + 1] > dependantOffsets[index]);
   }
 
   /**
@@ -169,23 +367,19 @@ public class TaskGraph implements Serializable {
    * @see <a href="https://en.wikipedia.org/wiki/Topological_sorting">topological sorting</a> on Wikipedia.
    */
   public List<Integer> topologicalSortDFS() {
-    final LinkedList<Integer> result = new LinkedList<>();
-    final Map<Integer, Node> p = new HashMap<>(notDoneMap);
-    while (!p.isEmpty()) {
-      startVisitNotDone(new TaskNodeVisitor() {
-        @Override
-        public TaskNodeVisitResult visitTaskNode(final Node node) {
-          if (node.isDone()) return TaskNodeVisitResult.SKIP;
-          return TaskNodeVisitResult.CONTINUE;
-        }
-  
-        @Override
-        public void postVisitNode(final Node node) {
-          p.remove(node.getPosition());
-          result.addLast(node.getPosition());
-        }
-      });
-    }
+    final List<Integer> result = new ArrayList<>(positions.length - doneCount);
+    startVisitNotDone(new TaskNodeVisitor() {
+      @Override
+      public TaskNodeVisitResult visitTaskNode(final Node node) {
+        if (node.isDone()) return TaskNodeVisitResult.SKIP;
+        return TaskNodeVisitResult.CONTINUE;
+      }
+
+      @Override
+      public void postVisitNode(final Node node) {
+        result.add(node.getPosition());
+      }
+    });
     return result;
   }
 
@@ -194,7 +388,7 @@ public class TaskGraph implements Serializable {
    * @param visitor the visitor function to use.
    */
   public void startVisit(final TaskNodeVisitor visitor) {
-    startVisit(visitor, nodesMap, true);
+    startVisit(visitor, true);
   }
 
   /**
@@ -202,47 +396,156 @@ public class TaskGraph implements Serializable {
    * @param visitor the visitor function to use.
    */
   public void startVisitNotDone(final TaskNodeVisitor visitor) {
-    startVisit(visitor, notDoneMap, false);
+    startVisit(visitor, false);
   }
 
   /**
    * Start the visit of the graph.
    * @param visitor the visitor function to use.
-   * @param map the nodes to visit.
    * @param visitDoneNodes whether to visit the nodes that are done.
    */
-  private void startVisit(final TaskNodeVisitor visitor, final Map<Integer, Node> map, final boolean visitDoneNodes) {
-    final Set<Integer> visitedPositions = new HashSet<>();
-    for (final Map.Entry<Integer, Node> entry: map.entrySet()) {
-      final Node taskNode = entry.getValue();
-      if (taskNode.isDone() && !visitDoneNodes) continue; 
-      if (Visit(taskNode, visitor, visitDoneNodes, visitedPositions) == TaskNodeVisitResult.STOP) break;
+  private void startVisit(final TaskNodeVisitor visitor, final boolean visitDoneNodes) {
+    final BitSet visited = new BitSet(positions.length);
+    for (int k=0; k<positions.length; k++) {
+      if (done.get(k) && !visitDoneNodes) continue; 
+      if (Visit(k, visitor, visitDoneNodes, visited) == TaskNodeVisitResult.STOP) break;
     }
   }
 
   /**
    * Visit the specified task node.
-   * @param taskNode the node to visit.
+   * @param index the index of the node to visit.
    * @param visitor the visitor function to use.
    * @param visitDoneNodes whether to visit the nodes that are done.
-   * @param visitedPositions the set of already visited positions.
+   * @param visited the indexes of the already visited nodes.
    * @return the result of the node's visit as a {@link TaskNodeVisitResult} enum element.
    */
-  private TaskNodeVisitResult Visit(final Node taskNode, final TaskNodeVisitor visitor, final boolean visitDoneNodes, final Set<Integer> visitedPositions) {
-    if (visitedPositions.contains(taskNode.getPosition())) return TaskNodeVisitResult.CONTINUE;
+  private TaskNodeVisitResult Visit(final int index, final TaskNodeVisitor visitor, final boolean visitDoneNodes, final BitSet visited) {
+    if (visited.get(index)) return TaskNodeVisitResult.CONTINUE;
+    final Node taskNode = new NodeView(index);
     visitor.preVisitNode(taskNode);
-    visitedPositions.add(taskNode.getPosition());
+    visited.set(index);
     final TaskNodeVisitResult result = visitor.visitTaskNode(taskNode);
     if (result == TaskNodeVisitResult.STOP) return result;
     else if (result == TaskNodeVisitResult.SKIP) return TaskNodeVisitResult.CONTINUE;
-    for (final Node child: taskNode.getDependencies()) {
-      if (child.isDone() && !visitDoneNodes) continue; 
-      if (Visit(child, visitor, visitDoneNodes, visitedPositions) == TaskNodeVisitResult.STOP) return TaskNodeVisitResult.STOP;
+    for (int j=dependencyOffsets[index]; j<dependencyOffsets[index + 1]; j++) {
+      final int child = dependencies[j];
+      if (done.get(child) && !visitDoneNodes) continue; 
+      if (Visit(child, visitor, visitDoneNodes, visited) == TaskNodeVisitResult.STOP) return TaskNodeVisitResult.STOP;
     }
     visitor.postVisitNode(taskNode);
     return result;
   }
 
+  /**
+   * Determine whether the node at index {@code a} should be dispatched before the node at index {@code b}.
+   * @param a the index of the first node.
+   * @param b the index of the second node.
+   * @return {@code true} if the first node has a longer path of dependants, or the same length and a lower position.
+   */
+  private boolean isBefore(final int a, final int b) {
+    return (pathLength[a] > pathLength[b]) || ((pathLength[a] == pathLength[b]) && (a < b));
+  }
+
+  /**
+   * Add the specified node to the heap of available nodes.
+   * @param index the index of the node to add.
+   */
+  private void heapAdd(final int index) {
+    heap[heapSize] = index;
+    heapIndex[index] = heapSize;
+    siftUp(heapSize++);
+  }
+
+  /**
+   * Remove the specified node from the heap of available nodes.
+   * @param index the index of the node to remove.
+   */
+  private void heapRemove(final int index) {
+    final int slot = heapIndex[index];
+    heapIndex[index] = -1;
+    final int last = heap[--heapSize];
+    if (slot == heapSize) return;
+    heap[slot] = last;
+    heapIndex[last] = slot;
+    siftDown(slot);
+    if (heap[slot] == last) siftUp(slot);
+  }
+
+  /**
+   * Move the node at the specified slot of the heap up, until it is in a valid position.
+   * @param slot the slot of the node to move.
+   */
+  private void siftUp(final int slot) {
+    final int index = heap[slot];
+    int current = slot;
+    while (current > 0) {
+      final int parent = (current - 1) >>> 1;
+      if (!isBefore(index, heap[parent])) break;
+      heap[current] = heap[parent];
+      heapIndex[heap[current]] = current;
+      current = parent;
+    }
+    heap[current] = index;
+    heapIndex[index] = current;
+  }
+
+  /**
+   * Move the node at the specified slot of the heap down, until it is in a valid position.
+   * @param slot the slot of the node to move.
+   */
+  private void siftDown(final int slot) {
+    final int index = heap[slot];
+    int current = slot;
+    int child;
+    while ((child = 2*current + 1) < heapSize) {
+      if ((child + 1 < heapSize) && isBefore(heap[child + 1], heap[child])) child++;
+      if (!isBefore(heap[child], index)) break;
+      heap[current] = heap[child];
+      heapIndex[heap[current]] = current;
+      current = child;
+    }
+    heap[current] = index;
+    heapIndex[index] = current;
+  }
+
+  /**
+   * Move an element of a heap of slots of the main heap up, until it is in a valid position.
+   * @param slots the heap of slots.
+   * @param pos the position of the element to move.
+   */
+  private void siftUpSlots(final int[] slots, final int pos) {
+    final int slot = slots[pos];
+    int current = pos;
+    while (current > 0) {
+      final int parent = (current - 1) >>> 1;
+      if (!isBefore(heap[slot], heap[slots[parent]])) break;
+      slots[current] = slots[parent];
+      current = parent;
+    }
+    slots[current] = slot;
+  }
+
+  /**
+   * Move an element of a heap of slots of the main heap down, until it is in a valid position.
+   * @param slots the heap of slots.
+   * @param size the number of elements in the heap of slots.
+   * @param pos the position of the element to move.
+   */
+  private void siftDownSlots(final int[] slots, final int size, final int pos) {
+    if (pos >= size) return;
+    final int slot = slots[pos];
+    int current = pos;
+    int child;
+    while ((child = 2*current + 1) < size) {
+      if ((child + 1 < size) && isBefore(heap[slots[child + 1]], heap[slots[child]])) child++;
+      if (!isBefore(heap[slots[child]], heap[slot])) break;
+      slots[current] = slots[child];
+      current = child;
+    }
+    slots[current] = slot;
+  }
+
   /**
    * Save the state of this object to a stream (i.e.,serialize it).
    * @param out the output stream to which to write this object. 
@@ -269,14 +572,12 @@ public class TaskGraph implements Serializable {
    */
   public void serialize(final OutputStream out) throws IOException {
     final byte[] buf = new byte[8];
-    SerializationUtils.writeVarInt(out, nodesMap.size(), buf);
-    for (final Map.Entry<Integer, Node> entry: nodesMap.entrySet()) {
-      final Node node = entry.getValue();
-      SerializationUtils.writeVarInt(out, node.getPosition(), buf);
-      out.write(node.isDone() ? 1 : 0);
-      final List<Node> deps = node.getDependencies();
-      SerializationUtils.writeVarInt(out, deps.size(), buf);
-      for (final Node dep: deps) SerializationUtils.writeVarInt(out, dep.getPosition(), buf);
+    SerializationUtils.writeVarInt(out, positions.length, buf);
+    for (int k=0; k<positions.length; k++) {
+      SerializationUtils.writeVarInt(out, positions[k], buf);
+      out.write(done.get(k) ? 1 : 0);
+      SerializationUtils.writeVarInt(out, dependencyOffsets[k + 1] - dependencyOffsets[k], buf);
+      for (int j=dependencyOffsets[k]; j<dependencyOffsets[k + 1]; j++) SerializationUtils.writeVarInt(out, positions[dependencies[j]], buf);
     }
   }
 
@@ -289,41 +590,32 @@ public class TaskGraph implements Serializable {
   public void deserialize(final InputStream in) throws IOException, ClassNotFoundException {
     final byte[] buf = new byte[8];
     final int nbNodes = SerializationUtils.readVarInt(in, buf);
-    nodesMap = new HashMap<>(nbNodes);
-    final CollectionMap<Integer, Integer> dependenciesMap = new ArrayListHashMap<>();
+    final int[] nodePositions = new int[nbNodes], depCounts = new int[nbNodes];
+    final BitSet doneNodes = new BitSet(nbNodes);
+    int[] depPositions = new int[nbNodes];
+    int nbEdges = 0;
     for (int i=0; i<nbNodes; i++) {
-      final int pos = SerializationUtils.readVarInt(in, buf);
-      final boolean done = in.read() != 0;
-      final Node node = new Node(pos, done, null);
-      nodesMap.put(pos, node);
-      final int nbDeps = SerializationUtils.readVarInt(in, buf);
-      if (nbDeps > 0) {
-        final List<Integer> deps = new ArrayList<>(nbDeps);
-        for (int j=0; j<nbDeps; j++) deps.add(SerializationUtils.readVarInt(in, buf));
-        dependenciesMap.addValues(pos, deps);
-      }
-    }
-    for (Map.Entry<Integer, Collection<Integer>> entry: dependenciesMap.entrySet()) {
-      final Collection<Integer> depsPositions = entry.getValue();
-      final List<Node> deps = new ArrayList<>(depsPositions.size());
-      for (final int p: depsPositions) deps.add(nodesMap.get(p));
-      nodesMap.get(entry.getKey()).getDependencies().addAll(deps);
+      nodePositions[i] = SerializationUtils.readVarInt(in, buf);
+      if (in.read() != 0) doneNodes.set(i);
+      final int nbDeps = depCounts[i] = SerializationUtils.readVarInt(in, buf);
+      if (nbEdges + nbDeps > depPositions.length) depPositions = Arrays.copyOf(depPositions, Math.max(2 * depPositions.length, nbEdges + nbDeps));
+      for (int j=0; j<nbDeps; j++) depPositions[nbEdges++] = SerializationUtils.readVarInt(in, buf);
     }
-    dependenciesMap.clear();
-    if (remainingDependenciesMap == null) remainingDependenciesMap = new ArrayListHashMap<>();
-    if (dependantsMap == null) dependantsMap = new ArrayListHashMap<>();
-    if (availableNodes == null) availableNodes = new HashSet<>();
-    buildGraph(nodesMap);
+    buildGraph(nodePositions, doneNodes, depCounts, (nbEdges == depPositions.length) ? depPositions : Arrays.copyOf(depPositions, nbEdges));
   }
 
   @Override
   public String toString() {
+    int waiting = 0;
+    for (int k=0; k<remaining.length; k++) {
+      if (remaining[k] > 0) waiting++;
+    }
     return new StringBuilder(getClass().getSimpleName()).append('[')
-      .append("nodes=").append(nodesMap.size())
+      .append("nodes=").append(positions.length)
       .append(", doneCount=").append(doneCount)
-      .append(", nodesWithDependant=").append(dependantsMap.keySet().size())
-      .append(", nodesWithDependencies=").append(remainingDependenciesMap.keySet().size())
-      .append(", availableNodes=").append(availableNodes.size())
+      .append(", nodesWithDependant=").append(dependedOnCount)
+      .append(", nodesWithDependencies=").append(waiting)
+      .append(", availableNodes=").append(heapSize)
       .append(']').toString();
   }
 
@@ -334,6 +626,52 @@ public class TaskGraph implements Serializable {
     return doneCount;
   }
 
+  /**
+   * A read-only view of a node of this graph, whose state and dependencies are read from the compressed representation.
+   */
+  private final class NodeView extends Node {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * The index of the node.
+     */
+    private final int index;
+
+    /**
+     * Initialize this view.
+     * @param index the index of the node.
+     */
+    private NodeView(final int index) {
+      super(positions[index], false, null);
+      this.index = index;
+    }
+
+    @Override
+    public void addDependency(final Node dependency) {
+      throw new UnsupportedOperationException("the dependencies of a graph node cannot be modified");
+    }
+
+    @Override
+    public List<Node> getDependencies() {
+      final int start = dependencyOffsets[index], end = dependencyOffsets[index + 1];
+      final List<Node> result = new ArrayList<>(end - start);
+      for (int j=start; j<end; j++) result.add(new NodeView(dependencies[j]));
+      return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public boolean isDone() {
+      return done.get(index);
+    }
+
+    @Override
+    public void setDone(final boolean done) {
+      throw new UnsupportedOperationException("use TaskGraph.nodeDone() instead");
+    }
+  }
+
   /**
    * A node in the graph of the tasks in a job which represents a task and its dependants.
    * @exclude
@@ -403,8 +741,8 @@ public class TaskGraph implements Serializable {
     public String toString() {
       return new StringBuilder(getClass().getSimpleName()).append('[')
         .append("position=").append(position)
-        .append(", done=").append(done)
-        .append(", dependencies=").append(dependencies.size())
+        .append(", done=").append(isDone())
+        .append(", dependencies=").append(getDependencies().size())
         .append(']').toString();
     }
 
@@ -91,6 +91,10 @@ public abstract class AbstractDatabasePersistence<I> {
    * @exclude
    */
   protected final JPPFProperty<String> ddlProp;
+  /**
+   * The database dialect, used to lookup the SQL statements specific to a database product.
+   */
+  private volatile String dialect;
 
   /**
    * Intialize this persistence with a table name specified in the first string parameter.
@@ -193,6 +197,24 @@ public abstract class AbstractDatabasePersistence<I> {
     return sqlStatements.getString(key, null);
   }
 
+  /**
+   * Get the SQL statement for the specified key which is specific to the database product of the specified connection.
+   * The statement is looked up with the key {@code <key>.<dialect>}, where the dialect is the lower-case database product name stripped of non-alphanumeric
+   * characters, for instance "h2", "mysql" or "postgresql".
+   * @param connection the JDBC connection from which to determine the database product.
+   * @param key the key for the SQL statement to retrieve.
+   * @return a string containing an SQL statement, or {@code null} if there is none for the database product.
+   * @throws SQLException if the database product could not be determined.
+   * @exclude
+   */
+  protected String getDialectSQL(final Connection connection, final String key) throws SQLException {
+    if (dialect == null) {
+      dialect = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.US).replaceAll("[^a-z0-9]", "");
+      if (debugEnabled) log.debug("database dialect is '{}' for {}", dialect, this);
+    }
+    return getSQL(key + '.' + dialect);
+  }
+
   /**
    * Check whether the persistence table exists and create it if it doesn't.
    * @param tableName the name of the persistence table.
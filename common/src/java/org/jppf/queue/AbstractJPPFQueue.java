@@ -19,11 +19,10 @@
 package org.jppf.queue;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.*;
 
-import org.jppf.utils.collections.*;
-
 /**
  * Abstract superclass for all JPPFQueue implementations.
  * @param <T> the type of jobs that are queued.
@@ -50,17 +49,9 @@ public abstract class AbstractJPPFQueue<T, U, V> implements JPPFQueue<T, U, V> {
    */
   protected final List<QueueListener<T, U, V>> queueListeners = new ArrayList<>();
   /**
-   * Comparator for job priority.
-   */
-  private static final Comparator<Integer> PRIORITY_COMPARATOR = new DescendingIntegerComparator();
-  /**
-   * A map of task bundles, ordered by descending priority.
+   * Contains the ids of all queued jobs. Lookups in this map do not require holding the queue lock.
    */
-  protected final LinkedListSortedMap<Integer, T> priorityMap = new LinkedListSortedMap<>(PRIORITY_COMPARATOR);
-  /**
-   * Contains the ids of all queued jobs.
-   */
-  protected final Map<String, T> jobMap = new HashMap<>();
+  protected final Map<String, T> jobMap = new ConcurrentHashMap<>();
 
   /**
    * Add a listener to the list of listeners.
@@ -127,21 +118,8 @@ public abstract class AbstractJPPFQueue<T, U, V> implements JPPFQueue<T, U, V> {
    * Update the value of the max bundle size.
    */
   public void updateLatestMaxSize() {
-    if (!sizeMap.isEmpty()) latestMaxSize.set(sizeMap.lastKey());
-  }
-
-  @Override
-  public Iterator<T> iterator() {
-    return priorityMap.iterator(lock);
-  }
-
-  @Override
-  public boolean isEmpty() {
-    lock.lock();
-    try {
-      return priorityMap.isEmpty();
-    } finally {
-      lock.unlock();
+    synchronized(sizeMap) {
+      if (!sizeMap.isEmpty()) latestMaxSize.set(sizeMap.lastKey());
     }
   }
 
@@ -152,14 +130,7 @@ public abstract class AbstractJPPFQueue<T, U, V> implements JPPFQueue<T, U, V> {
    * @return the number of jobs currently in the queue.
    * @since 4.1
    */
-  public int getQueueSize() {
-    lock.lock();
-    try {
-      return priorityMap.size();
-    } finally {
-      lock.unlock();
-    }
-  }
+  public abstract int getQueueSize();
 
   /**
    * Increment the count of jobs that have the specified size.
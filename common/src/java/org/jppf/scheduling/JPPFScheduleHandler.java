@@ -21,14 +21,18 @@ package org.jppf.scheduling;
 import java.text.*;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.*;
 
 import org.jppf.utils.*;
 import org.jppf.utils.concurrent.JPPFThreadFactory;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.slf4j.*;
 
 /**
  * This class handles a timer.
+ * <p>Actions are scheduled either with a single-threaded {@link ScheduledExecutorService}, or with a {@link TimingWheel} when the
+ * {@link JPPFProperties#SCHEDULE_TIMING_WHEEL_ENABLED "jppf.schedule.timing.wheel.enabled"} property is {@code true}. The timing wheel is better
+ * suited to large numbers of short-lived schedules, such as task timeouts, at the cost of a resolution limited to its tick duration.
  * @author Laurent Cohen
  * @exclude
  */
@@ -42,9 +46,13 @@ public class JPPFScheduleHandler {
    */
   private static final boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
   /**
-   * The scheduled executor used for scheduling actions.
+   * The scheduled executor used for scheduling actions, or {@code null} if a timing wheel is used.
    */
   private ScheduledExecutorService executor;
+  /**
+   * The timing wheel used for scheduling actions, or {@code null} if a scheduled executor is used.
+   */
+  private TimingWheel wheel;
   /**
    * Count of the instances of this class, added as a suffix to the timer's name.
    */
@@ -52,7 +60,15 @@ public class JPPFScheduleHandler {
   /**
    * Mapping of timer tasks to a key.
    */
-  private Map<Object, ScheduledFuture<?>> futureMap = new Hashtable<>();
+  private final Map<Object, ScheduledAction> futureMap = new ConcurrentHashMap<>();
+  /**
+   * Number of scheduled actions that were neither run nor cancelled.
+   */
+  private final AtomicLong pendingCount = new AtomicLong(0L);
+  /**
+   * Number of scheduled actions that were run.
+   */
+  private final AtomicLong firedCount = new AtomicLong(0L);
   /**
    * The name given to this schedule handler's internal timer.
    */
@@ -74,8 +90,19 @@ public class JPPFScheduleHandler {
    * @param name the name given to this schedule handler.
    */
   public JPPFScheduleHandler(final String name) {
+    this(name, JPPFConfiguration.get(JPPFProperties.SCHEDULE_TIMING_WHEEL_ENABLED));
+  }
+
+  /**
+   * Initialize this schedule handler with the specified name.
+   * @param name the name given to this schedule handler.
+   * @param useTimingWheel whether to schedule the actions with a {@link TimingWheel} rather than a scheduled executor.
+   * @since 6.3
+   */
+  public JPPFScheduleHandler(final String name, final boolean useTimingWheel) {
     this.name = (name != null) ? name : "JPPFScheduleHandler timer - " + instanceCount.incrementAndGet();
-    createExecutor();
+    if (useTimingWheel) createTimingWheel();
+    else createExecutor();
   }
 
   /**
@@ -104,8 +131,12 @@ public class JPPFScheduleHandler {
       }
     }
     final long epoch = schedule.toLong(start);
-    final ScheduledFuture<?> future = executor.schedule(new ScheduledAction(key, action), epoch - start, TimeUnit.MILLISECONDS);
-    futureMap.put(key, future);
+    final ScheduledAction scheduledAction = new ScheduledAction(key, action);
+    pendingCount.incrementAndGet();
+    final Future<?> future = (wheel != null) ? wheel.schedule(scheduledAction, epoch - start, TimeUnit.MILLISECONDS) :
+      executor.schedule(scheduledAction, epoch - start, TimeUnit.MILLISECONDS);
+    scheduledAction.future = future;
+    futureMap.put(key, scheduledAction);
     if (debugEnabled) {
       synchronized(sdf) {
         log.debug(name + " : date=" + sdf.format(new Date(schedule.toLong(start))) + ", key=" + key + ", future=" + future);
@@ -137,9 +168,27 @@ public class JPPFScheduleHandler {
    */
   public void cancelAction(final Object key, final boolean mayInterruptIfRunning) {
     if (key == null) return;
-    final ScheduledFuture<?> future = futureMap.remove(key);
-    if (debugEnabled) log.debug(name + " : cancelling action for key=" + key + ", future=" + future);
-    if (future != null) future.cancel(mayInterruptIfRunning);
+    final ScheduledAction action = futureMap.remove(key);
+    if (debugEnabled) log.debug(name + " : cancelling action for key=" + key + ", future=" + ((action == null) ? null : action.future));
+    if (action != null) action.cancel(mayInterruptIfRunning);
+  }
+
+  /**
+   * Get the number of scheduled actions that were neither run nor cancelled.
+   * @return the number of pending actions.
+   * @since 6.3
+   */
+  public long getPendingCount() {
+    return pendingCount.get();
+  }
+
+  /**
+   * Get the number of scheduled actions that were run since the creation of this schedule handler.
+   * @return the number of fired actions.
+   * @since 6.3
+   */
+  public long getFiredCount() {
+    return firedCount.get();
   }
 
   /**
@@ -154,11 +203,14 @@ public class JPPFScheduleHandler {
    * @param shutdown flag indicating whether this schedule handler should be shutdown.
    */
   public void clear(final boolean shutdown) {
-    futureMap.forEach((key, future) -> {
-      if (future != null) future.cancel(true);
+    futureMap.forEach((key, action) -> {
+      if (action != null) action.cancel(true);
     });
     futureMap.clear();
-    if (shutdown) executor.shutdownNow();
+    if (shutdown) {
+      if (wheel != null) wheel.stop();
+      else executor.shutdownNow();
+    }
   }
 
   /**
@@ -170,7 +222,14 @@ public class JPPFScheduleHandler {
   }
 
   /**
-   * 
+   * Create the timing wheel used for task scheduling.
+   */
+  private void createTimingWheel() {
+    wheel = new TimingWheel(name, JPPFConfiguration.get(JPPFProperties.SCHEDULE_TIMING_WHEEL_TICK), JPPFConfiguration.get(JPPFProperties.SCHEDULE_TIMING_WHEEL_SLOTS));
+  }
+
+  /**
+   * Wraps a scheduled action, to keep track of the pending and fired counts.
    */
   private final class ScheduledAction implements Runnable {
     /**
@@ -181,6 +240,14 @@ public class JPPFScheduleHandler {
      * The action to run upon expiration.
      */
     private final Runnable action;
+    /**
+     * Whether the action was either run or cancelled.
+     */
+    private final AtomicBoolean done = new AtomicBoolean(false);
+    /**
+     * The future returned by the scheduler.
+     */
+    private volatile Future<?> future;
 
     /**
      * Initialize this scheduled action.
@@ -194,8 +261,21 @@ public class JPPFScheduleHandler {
 
     @Override
     public void run() {
-      futureMap.remove(key);
+      futureMap.remove(key, this);
+      if (!done.compareAndSet(false, true)) return;
+      pendingCount.decrementAndGet();
+      firedCount.incrementAndGet();
       action.run();
     }
+
+    /**
+     * Cancel this action.
+     * @param mayInterruptIfRunning whether the thread that runs the action should be interrupted if the action is being executed.
+     */
+    private void cancel(final boolean mayInterruptIfRunning) {
+      if (done.compareAndSet(false, true)) pendingCount.decrementAndGet();
+      final Future<?> f = future;
+      if (f != null) f.cancel(mayInterruptIfRunning);
+    }
   }
 }
@@ -0,0 +1,412 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.scheduling;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jppf.utils.*;
+import org.jppf.utils.concurrent.JPPFThreadFactory;
+import org.slf4j.*;
+
+/**
+ * A hashed timing wheel, which schedules actions with a resolution of one tick.
+ * <p>Scheduling and cancelling an action are O(1) and do not take any lock: the calling thread only enqueues the request.
+ * A single worker thread wakes up at each tick, moves the new timeouts into the slot of their deadline tick, unlinks the cancelled ones
+ * from their slot, and then runs the actions of all the timeouts that expired since the previous tick, in a single batch.
+ * <p>Actions are never run before their deadline, but may be run up to one tick after it. The worker thread parks when there is no pending timeout.
+ * @since 6.3
+ * @exclude
+ */
+public class TimingWheel {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+  /**
+   * Determines whether the debug level is enabled in the logging configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
+  /**
+   * State of a timeout that neither expired nor was cancelled.
+   */
+  private static final int PENDING = 0;
+  /**
+   * State of a cancelled timeout.
+   */
+  private static final int CANCELLED = 1;
+  /**
+   * State of an expired timeout.
+   */
+  private static final int EXPIRED = 2;
+  /**
+   * The slots of the wheel.
+   */
+  private final Slot[] slots;
+  /**
+   * Mask applied to a tick number to obtain the index of its slot.
+   */
+  private final int mask;
+  /**
+   * Duration of a tick in nanoseconds.
+   */
+  private final long tickNanos;
+  /**
+   * The time at which this wheel was created, from which ticks are counted.
+   */
+  private final long startNanos = System.nanoTime();
+  /**
+   * Timeouts scheduled since the previous tick.
+   */
+  private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+  /**
+   * Timeouts cancelled since the previous tick.
+   */
+  private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+  /**
+   * Number of timeouts that neither expired nor were cancelled.
+   */
+  private final AtomicLong pendingCount = new AtomicLong(0L);
+  /**
+   * Number of timeouts whose action was run.
+   */
+  private final AtomicLong firedCount = new AtomicLong(0L);
+  /**
+   * The last tick processed by the worker thread.
+   */
+  private long lastTick;
+  /**
+   * Whether this wheel was stopped.
+   */
+  private volatile boolean stopped;
+  /**
+   * The worker thread.
+   */
+  private final Thread worker;
+
+  /**
+   * Initialize this timing wheel and start its worker thread.
+   * @param name the name of the worker thread.
+   * @param tickMillis the duration of a tick in milliseconds.
+   * @param nbSlots the number of slots, rounded up to the next power of 2.
+   */
+  public TimingWheel(final String name, final long tickMillis, final int nbSlots) {
+    if (tickMillis <= 0L) throw new IllegalArgumentException("tick duration must be > 0 but is " + tickMillis);
+    if (nbSlots <= 0) throw new IllegalArgumentException("number of slots must be > 0 but is " + nbSlots);
+    int n = 1;
+    while (n < nbSlots) n <<= 1;
+    slots = new Slot[n];
+    for (int i=0; i<n; i++) slots[i] = new Slot();
+    mask = n - 1;
+    tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    worker = new JPPFThreadFactory(name).newThread(this::run);
+    worker.start();
+    if (debugEnabled) log.debug("created timing wheel {} with tick={} ms, nbSlots={}", name, tickMillis, n);
+  }
+
+  /**
+   * Schedule an action to run after the specified delay.
+   * @param action the action to run.
+   * @param delay the delay after which the action is run.
+   * @param unit the unit of the delay.
+   * @return a {@link Timeout} which can be used to cancel the action. It is already cancelled if this wheel was stopped concurrently.
+   * @throws RejectedExecutionException if this wheel is stopped.
+   */
+  public Timeout schedule(final Runnable action, final long delay, final TimeUnit unit) {
+    if (stopped) throw new RejectedExecutionException("timing wheel is stopped");
+    final long deadline = System.nanoTime() + Math.max(0L, unit.toNanos(delay)) - startNanos;
+    // rounded up, so the action is never run before its deadline
+    final Timeout timeout = new Timeout(action, (deadline + tickNanos - 1L) / tickNanos);
+    newTimeouts.offer(timeout);
+    final boolean first = pendingCount.incrementAndGet() == 1L;
+    // the worker may have cancelled the pending timeouts before this one was enqueued
+    if (stopped) timeout.cancel(false);
+    else if (first) LockSupport.unpark(worker);
+    return timeout;
+  }
+
+  /**
+   * @return the number of timeouts that neither expired nor were cancelled.
+   */
+  public long getPendingCount() {
+    return pendingCount.get();
+  }
+
+  /**
+   * @return the number of timeouts whose action was run.
+   */
+  public long getFiredCount() {
+    return firedCount.get();
+  }
+
+  /**
+   * Stop this timing wheel. The pending timeouts are cancelled by the worker thread, which releases the threads waiting for them
+   * with a {@link CancellationException}. This method does not wait for the worker thread to terminate.
+   */
+  public void stop() {
+    stopped = true;
+    LockSupport.unpark(worker);
+  }
+
+  /**
+   * The worker thread's loop.
+   */
+  private void run() {
+    lastTick = currentTick();
+    final List<Timeout> expired = new ArrayList<>();
+    while (!stopped) {
+      if (pendingCount.get() <= 0L) {
+        processCancelled();
+        LockSupport.park(this);
+        if (stopped) break;
+      } else {
+        final long wait = (lastTick + 1L) * tickNanos - (System.nanoTime() - startNanos);
+        if (wait > 0L) LockSupport.parkNanos(this, wait);
+      }
+      final long tick = currentTick();
+      if (tick <= lastTick) continue;
+      // after a long park, visiting each slot once is enough since timeouts hold their own deadline
+      final long from = Math.max(lastTick + 1L, tick - mask);
+      processCancelled();
+      processNew(from);
+      for (long t=from; t<=tick; t++) slots[(int) (t & mask)].expire(tick, expired);
+      lastTick = tick;
+      if (!expired.isEmpty()) {
+        for (final Timeout timeout: expired) fire(timeout);
+        expired.clear();
+      }
+    }
+    cancelPending();
+    if (debugEnabled) log.debug("timing wheel {} stopped", worker.getName());
+  }
+
+  /**
+   * Cancel all the timeouts that did not expire, once this wheel is stopped.
+   */
+  private void cancelPending() {
+    Timeout timeout;
+    while ((timeout = newTimeouts.poll()) != null) timeout.cancel(false);
+    for (final Slot slot: slots) {
+      while ((timeout = slot.head) != null) {
+        slot.remove(timeout);
+        timeout.cancel(false);
+      }
+    }
+    cancelledTimeouts.clear();
+  }
+
+  /**
+   * Unlink the cancelled timeouts from their slot.
+   */
+  private void processCancelled() {
+    Timeout timeout;
+    while ((timeout = cancelledTimeouts.poll()) != null) {
+      if (timeout.slot != null) timeout.slot.remove(timeout);
+    }
+  }
+
+  /**
+   * Add the new timeouts to the slot of their deadline tick.
+   * @param from the first tick to process in the current pass. Timeouts whose deadline is before it are added to its slot.
+   */
+  private void processNew(final long from) {
+    Timeout timeout;
+    while ((timeout = newTimeouts.poll()) != null) {
+      if (timeout.state.get() != PENDING) continue;
+      slots[(int) (Math.max(timeout.deadlineTick, from) & mask)].add(timeout);
+    }
+  }
+
+  /**
+   * Run the action of the specified expired timeout.
+   * @param timeout the timeout to fire.
+   */
+  private void fire(final Timeout timeout) {
+    firedCount.incrementAndGet();
+    try {
+      timeout.action.run();
+    } catch (final Throwable t) {
+      log.error("error running action of {} : {}", timeout, ExceptionUtils.getStackTrace(t));
+    } finally {
+      timeout.done();
+    }
+  }
+
+  /**
+   * @return the number of ticks elapsed since the creation of this wheel.
+   */
+  private long currentTick() {
+    return (System.nanoTime() - startNanos) / tickNanos;
+  }
+
+  /**
+   * A slot of the wheel, holding a doubly-linked list of timeouts. It is only accessed by the worker thread.
+   */
+  private final class Slot {
+    /**
+     * The first timeout in this slot.
+     */
+    private Timeout head;
+
+    /**
+     * Add a timeout to this slot.
+     * @param timeout the timeout to add.
+     */
+    private void add(final Timeout timeout) {
+      timeout.slot = this;
+      timeout.next = head;
+      if (head != null) head.prev = timeout;
+      head = timeout;
+    }
+
+    /**
+     * Remove a timeout from this slot.
+     * @param timeout the timeout to remove.
+     */
+    private void remove(final Timeout timeout) {
+      if (timeout.prev != null) timeout.prev.next = timeout.next;
+      else head = timeout.next;
+      if (timeout.next != null) timeout.next.prev = timeout.prev;
+      timeout.prev = timeout.next = null;
+      timeout.slot = null;
+    }
+
+    /**
+     * Remove the timeouts whose deadline is reached from this slot, and add those that were not cancelled to the specified list.
+     * @param tick the current tick.
+     * @param expired the list of timeouts to fire.
+     */
+    private void expire(final long tick, final List<Timeout> expired) {
+      Timeout timeout = head;
+      while (timeout != null) {
+        final Timeout next = timeout.next;
+        if (timeout.deadlineTick <= tick) {
+          remove(timeout);
+          if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+            pendingCount.decrementAndGet();
+            expired.add(timeout);
+          }
+        }
+        timeout = next;
+      }
+    }
+  }
+
+  /**
+   * A timeout scheduled in a {@link TimingWheel}.
+   */
+  public final class Timeout implements Future<Void> {
+    /**
+     * The action to run upon expiration.
+     */
+    private final Runnable action;
+    /**
+     * The tick at which this timeout expires.
+     */
+    private final long deadlineTick;
+    /**
+     * The state of this timeout.
+     */
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    /**
+     * Whether the action has run, or this timeout was cancelled.
+     */
+    private boolean done;
+    /**
+     * The slot this timeout belongs to, only accessed by the worker thread.
+     */
+    private Slot slot;
+    /**
+     * The previous timeout in the slot.
+     */
+    private Timeout prev;
+    /**
+     * The next timeout in the slot.
+     */
+    private Timeout next;
+
+    /**
+     * Initialize this timeout.
+     * @param action the action to run upon expiration.
+     * @param deadlineTick the tick at which this timeout expires.
+     */
+    private Timeout(final Runnable action, final long deadlineTick) {
+      this.action = action;
+      this.deadlineTick = deadlineTick;
+    }
+
+    /**
+     * Cancel this timeout, if it did not expire yet.
+     * @param mayInterruptIfRunning not used, since the action is run by the wheel's worker thread.
+     * @return {@code true} if this timeout was cancelled, {@code false} if it had already expired or been cancelled.
+     */
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+      if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+      pendingCount.decrementAndGet();
+      cancelledTimeouts.offer(this);
+      done();
+      return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return state.get() == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+      return done;
+    }
+
+    @Override
+    public synchronized Void get() throws InterruptedException, ExecutionException {
+      while (!done) wait();
+      if (isCancelled()) throw new CancellationException();
+      return null;
+    }
+
+    @Override
+    public synchronized Void get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      final long deadline = System.nanoTime() + unit.toNanos(timeout);
+      long remaining;
+      while (!done) {
+        if ((remaining = deadline - System.nanoTime()) <= 0L) throw new TimeoutException();
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+      if (isCancelled()) throw new CancellationException();
+      return null;
+    }
+
+    /**
+     * Mark this timeout as done and wake up the threads waiting for it.
+     */
+    private synchronized void done() {
+      done = true;
+      notifyAll();
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "[deadlineTick=" + deadlineTick + ", state=" + state.get() + ", action=" + action + ']';
+    }
+  }
+}
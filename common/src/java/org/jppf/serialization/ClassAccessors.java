@@ -0,0 +1,516 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.serialization;
+
+import java.io.*;
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+
+import org.jppf.utils.*;
+import org.slf4j.*;
+
+/**
+ * Holds the method handles used to access the serializable state of a class: its fields, along with its {@code writeObject()}
+ * and {@code readObject()} methods if it has any.
+ * <p>Instances of this class are cached process-wide, for each {@link Class} object, and thus for each class loader which defines a class
+ * of a given name. They are built lazily, the first time a class is serialized or deserialized, and are shared among all the serialization streams.
+ * Since the cache is a {@link ClassValue}, it does not prevent the classes, nor their class loader, from being garbage-collected.
+ * @exclude
+ */
+final class ClassAccessors {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(ClassAccessors.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
+  /**
+   * Used to create the method handles. Access checks are suppressed by making the fields and methods accessible beforehand.
+   */
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  /**
+   * The type of the method handles for the {@code writeObject()} methods.
+   */
+  private static final MethodType WRITE_OBJECT_TYPE = MethodType.methodType(void.class, Object.class, ObjectOutputStream.class);
+  /**
+   * The type of the method handles for the {@code readObject()} methods.
+   */
+  private static final MethodType READ_OBJECT_TYPE = MethodType.methodType(void.class, Object.class, ObjectInputStream.class);
+  /**
+   * The process-wide cache of accessors.
+   */
+  private static final ClassValue<ClassAccessors> CACHE = new ClassValue<ClassAccessors>() {
+    @Override
+    protected ClassAccessors computeValue(final Class<?> type) {
+      return new ClassAccessors(type);
+    }
+  };
+  /**
+   * The class whose state is accessed.
+   */
+  private final Class<?> clazz;
+  /**
+   * Mapping of field names to their accessor.
+   */
+  private final ConcurrentMap<String, FieldAccessor> fields = new ConcurrentHashMap<>();
+  /**
+   * The {@code writeObject()} method handle, or {@code null} if the class has no such method.
+   */
+  private MethodHandle writeObject;
+  /**
+   * The {@code readObject()} method handle, or {@code null} if the class has no such method.
+   */
+  private MethodHandle readObject;
+  /**
+   * Whether the {@code writeObject()} method was looked up.
+   */
+  private boolean writeObjectResolved;
+  /**
+   * Whether the {@code readObject()} method was looked up.
+   */
+  private boolean readObjectResolved;
+
+  /**
+   * Initialize the accessors for the specified class.
+   * @param clazz the class whose state is accessed.
+   */
+  private ClassAccessors(final Class<?> clazz) {
+    this.clazz = clazz;
+  }
+
+  /**
+   * Get the accessors for the specified class.
+   * @param clazz the class whose state is accessed.
+   * @return a {@link ClassAccessors} instance, created if needed.
+   */
+  static ClassAccessors forClass(final Class<?> clazz) {
+    return CACHE.get(clazz);
+  }
+
+  /**
+   * Get the accessor for the specified field declared by the class.
+   * @param field the field to access.
+   * @return a {@link FieldAccessor} instance.
+   */
+  FieldAccessor getFieldAccessor(final Field field) {
+    FieldAccessor accessor = fields.get(field.getName());
+    if (accessor == null) {
+      final FieldAccessor newAccessor = new FieldAccessor(field);
+      accessor = fields.putIfAbsent(field.getName(), newAccessor);
+      if (accessor == null) accessor = newAccessor;
+    }
+    return accessor;
+  }
+
+  /**
+   * Get a method handle for the {@code writeObject()} method of the class, adapted to the type {@code (Object, ObjectOutputStream)void}.
+   * @return a {@link MethodHandle}, or {@code null} if the class has no {@code writeObject()} method.
+   * @throws Exception if any error occurs.
+   */
+  synchronized MethodHandle getWriteObject() throws Exception {
+    if (!writeObjectResolved) {
+      writeObject = unreflect(SerializationReflectionHelper.getReadOrWriteObjectMethod(clazz, false), WRITE_OBJECT_TYPE);
+      writeObjectResolved = true;
+    }
+    return writeObject;
+  }
+
+  /**
+   * Get a method handle for the {@code readObject()} method of the class, adapted to the type {@code (Object, ObjectInputStream)void}.
+   * @return a {@link MethodHandle}, or {@code null} if the class has no {@code readObject()} method.
+   * @throws Exception if any error occurs.
+   */
+  synchronized MethodHandle getReadObject() throws Exception {
+    if (!readObjectResolved) {
+      readObject = unreflect(SerializationReflectionHelper.getReadOrWriteObjectMethod(clazz, true), READ_OBJECT_TYPE);
+      readObjectResolved = true;
+    }
+    return readObject;
+  }
+
+  /**
+   * Create a method handle for the specified method.
+   * @param method the method to unreflect, possibly {@code null}.
+   * @param type the type to which the method handle is adapted.
+   * @return a {@link MethodHandle}, or {@code null} if the method is {@code null}.
+   * @throws Exception if any error occurs.
+   */
+  private static MethodHandle unreflect(final Method method, final MethodType type) throws Exception {
+    if (method == null) return null;
+    method.setAccessible(true);
+    return LOOKUP.unreflect(method).asType(type);
+  }
+
+  /**
+   * Convert a throwable raised by a method handle invocation into an exception that can be rethrown.
+   * @param t the throwable to convert.
+   * @return the throwable itself if it is an exception, or an exception which wraps it otherwise.
+   * @throws Error if the throwable is an {@link Error}.
+   */
+  static Exception toException(final Throwable t) {
+    if (t instanceof Error) throw (Error) t;
+    return (t instanceof Exception) ? (Exception) t : new UndeclaredThrowableException(t);
+  }
+
+  /**
+   * Accessor for a single field, which reads and writes its value through method handles, without boxing the values of primitive fields.
+   * If a method handle cannot be created, for instance because of restrictions imposed by the JVM, the corresponding access falls back to reflection.
+   * The getter and setter fall back independently, so that a field which cannot be written through a method handle is still read through one.
+   */
+  static final class FieldAccessor {
+    /**
+     * The accessed field.
+     */
+    private final Field field;
+    /**
+     * Method handle of type {@code (Object)T} which reads the field value, where {@code T} is either a primitive type or {@code Object}.
+     */
+    private final MethodHandle getter;
+    /**
+     * Method handle of type {@code (Object, T)void} which writes the field value, where {@code T} is either a primitive type or {@code Object}.
+     */
+    private final MethodHandle setter;
+
+    /**
+     * Initialize this accessor for the specified field.
+     * @param field the field to access.
+     */
+    private FieldAccessor(final Field field) {
+      this.field = field;
+      MethodHandle get = null, set = null;
+      try {
+        field.setAccessible(true);
+      } catch (final RuntimeException e) {
+        if (debugEnabled) log.debug("could not make field {} accessible: {}", field, ExceptionUtils.getMessage(e));
+      }
+      final Class<?> type = field.getType().isPrimitive() ? field.getType() : Object.class;
+      try {
+        get = LOOKUP.unreflectGetter(field).asType(MethodType.methodType(type, Object.class));
+      } catch (final Exception e) {
+        if (debugEnabled) log.debug("could not create getter method handle for field {}, falling back to reflection: {}", field, ExceptionUtils.getMessage(e));
+      }
+      try {
+        set = LOOKUP.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, type));
+      } catch (final Exception e) {
+        if (debugEnabled) log.debug("could not create setter method handle for field {}, falling back to reflection: {}", field, ExceptionUtils.getMessage(e));
+      }
+      this.getter = get;
+      this.setter = set;
+    }
+
+    /**
+     * @return the accessed field.
+     */
+    Field getField() {
+      return field;
+    }
+
+    /**
+     * Get the value of a non-primitive field. The method handle is invoked with an exact type, thus this method cannot be used with primitive fields.
+     * @param obj the object holding the field.
+     * @return the field value.
+     * @throws Exception if any error occurs.
+     */
+    Object get(final Object obj) throws Exception {
+      if (getter == null) return field.get(obj);
+      try {
+        return getter.invokeExact(obj);
+      } catch (final Throwable t) {
+        throw toException(t);
+      }
+    }
+
+    /**
+     * Set the value of a non-primitive field. The method handle is invoked with an exact type, thus this method cannot be used with primitive fields.
+     * @param obj the object holding the field.
+     * @param value the value to set.
+     * @throws Exception if any error occurs.
+     */
+    void set(final Object obj, final Object value) throws Exception {
+      if (setter == null) field.set(obj, value);
+      else {
+        try {
+          setter.invokeExact(obj, value);
+        } catch (final Throwable t) {
+          throw toException(t);
+        }
+      }
+    }
+
+    /**
+     * Get the value of a {@code byte} field.
+     * @param obj the object holding the field.
+     * @return the field value.
+     * @throws Exception if any error occurs.
+     */
+    byte getByte(final Object obj) throws Exception {
+      if (getter == null) return field.getByte(obj);
+      try {
+        return (byte) getter.invokeExact(obj);
+      } catch (final Throwable t) {
+        throw toException(t);
+      }
+    }
+
+    /**
+     * Set the value of a {@code byte} field.
+     * @param obj the object holding the field.
+     * @param value the value to set.
+     * @throws Exception if any error occurs.
+     */
+    void setByte(final Object obj, final byte value) throws Exception {
+      if (setter == null) field.setByte(obj, value);
+      else {
+        try {
+          setter.invokeExact(obj, value);
+        } catch (final Throwable t) {
+          throw toException(t);
+        }
+      }
+    }
+
+    /**
+     * Get the value of a {@code short} field.
+     * @param obj the object holding the field.
+     * @return the field value.
+     * @throws Exception if any error occurs.
+     */
+    short getShort(final Object obj) throws Exception {
+      if (getter == null) return field.getShort(obj);
+      try {
+        return (short) getter.invokeExact(obj);
+      } catch (final Throwable t) {
+        throw toException(t);
+      }
+    }
+
+    /**
+     * Set the value of a {@code short} field.
+     * @param obj the object holding the field.
+     * @param value the value to set.
+     * @throws Exception if any error occurs.
+     */
+    void setShort(final Object obj, final short value) throws Exception {
+      if (setter == null) field.setShort(obj, value);
+      else {
+        try {
+          setter.invokeExact(obj, value);
+        } catch (final Throwable t) {
+          throw toException(t);
+        }
+      }
+    }
+
+    /**
+     * Get the value of a {@code int} field.
+     * @param obj the object holding the field.
+     * @return the field value.
+     * @throws Exception if any error occurs.
+     */
+    int getInt(final Object obj) throws Exception {
+      if (getter == null) return field.getInt(obj);
+      try {
+        return (int) getter.invokeExact(obj);
+      } catch (final Throwable t) {
+        throw toException(t);
+      }
+    }
+
+    /**
+     * Set the value of a {@code int} field.
+     * @param obj the object holding the field.
+     * @param value the value to set.
+     * @throws Exception if any error occurs.
+     */
+    void setInt(final Object obj, final int value) throws Exception {
+      if (setter == null) field.setInt(obj, value);
+      else {
+        try {
+          setter.invokeExact(obj, value);
+        } catch (final Throwable t) {
+          throw toException(t);
+        }
+      }
+    }
+
+    /**
+     * Get the value of a {@code long} field.
+     * @param obj the object holding the field.
+     * @return the field value.
+     * @throws Exception if any error occurs.
+     */
+    long getLong(final Object obj) throws Exception {
+      if (getter == null) return field.getLong(obj);
+      try {
+        return (long) getter.invokeExact(obj);
+      } catch (final Throwable t) {
+        throw toException(t);
+      }
+    }
+
+    /**
+     * Set the value of a {@code long} field.
+     * @param obj the object holding the field.
+     * @param value the value to set.
+     * @throws Exception if any error occurs.
+     */
+    void setLong(final Object obj, final long value) throws Exception {
+      if (setter == null) field.setLong(obj, value);
+      else {
+        try {
+          setter.invokeExact(obj, value);
+        } catch (final Throwable t) {
+          throw toException(t);
+        }
+      }
+    }
+
+    /**
+     * Get the value of a {@code float} field.
+     * @param obj the object holding the field.
+     * @return the field value.
+     * @throws Exception if any error occurs.
+     */
+    float getFloat(final Object obj) throws Exception {
+      if (getter == null) return field.getFloat(obj);
+      try {
+        return (float) getter.invokeExact(obj);
+      } catch (final Throwable t) {
+        throw toException(t);
+      }
+    }
+
+    /**
+     * Set the value of a {@code float} field.
+     * @param obj the object holding the field.
+     * @param value the value to set.
+     * @throws Exception if any error occurs.
+     */
+    void setFloat(final Object obj, final float value) throws Exception {
+      if (setter == null) field.setFloat(obj, value);
+      else {
+        try {
+          setter.invokeExact(obj, value);
+        } catch (final Throwable t) {
+          throw toException(t);
+        }
+      }
+    }
+
+    /**
+     * Get the value of a {@code double} field.
+     * @param obj the object holding the field.
+     * @return the field value.
+     * @throws Exception if any error occurs.
+     */
+    double getDouble(final Object obj) throws Exception {
+      if (getter == null) return field.getDouble(obj);
+      try {
+        return (double) getter.invokeExact(obj);
+      } catch (final Throwable t) {
+        throw toException(t);
+      }
+    }
+
+    /**
+     * Set the value of a {@code double} field.
+     * @param obj the object holding the field.
+     * @param value the value to set.
+     * @throws Exception if any error occurs.
+     */
+    void setDouble(final Object obj, final double value) throws Exception {
+      if (setter == null) field.setDouble(obj, value);
+      else {
+        try {
+          setter.invokeExact(obj, value);
+        } catch (final Throwable t) {
+          throw toException(t);
+        }
+      }
+    }
+
+    /**
+     * Get the value of a {@code char} field.
+     * @param obj the object holding the field.
+     * @return the field value.
+     * @throws Exception if any error occurs.
+     */
+    char getChar(final Object obj) throws Exception {
+      if (getter == null) return field.getChar(obj);
+      try {
+        return (char) getter.invokeExact(obj);
+      } catch (final Throwable t) {
+        throw toException(t);
+      }
+    }
+
+    /**
+     * Set the value of a {@code char} field.
+     * @param obj the object holding the field.
+     * @param value the value to set.
+     * @throws Exception if any error occurs.
+     */
+    void setChar(final Object obj, final char value) throws Exception {
+      if (setter == null) field.setChar(obj, value);
+      else {
+        try {
+          setter.invokeExact(obj, value);
+        } catch (final Throwable t) {
+          throw toException(t);
+        }
+      }
+    }
+
+    /**
+     * Get the value of a {@code boolean} field.
+     * @param obj the object holding the field.
+     * @return the field value.
+     * @throws Exception if any error occurs.
+     */
+    boolean getBoolean(final Object obj) throws Exception {
+      if (getter == null) return field.getBoolean(obj);
+      try {
+        return (boolean) getter.invokeExact(obj);
+      } catch (final Throwable t) {
+        throw toException(t);
+      }
+    }
+
+    /**
+     * Set the value of a {@code boolean} field.
+     * @param obj the object holding the field.
+     * @param value the value to set.
+     * @throws Exception if any error occurs.
+     */
+    void setBoolean(final Object obj, final boolean value) throws Exception {
+      if (setter == null) field.setBoolean(obj, value);
+      else {
+        try {
+          setter.invokeExact(obj, value);
+        } catch (final Throwable t) {
+          throw toException(t);
+        }
+      }
+    }
+  }
+}
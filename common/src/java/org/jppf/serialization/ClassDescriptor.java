@@ -19,7 +19,7 @@
 package org.jppf.serialization;
 
 import java.io.Externalizable;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
 
 /**
  * Instances of this class describe a Java class with all its non-transient fields
@@ -41,13 +41,13 @@ class ClassDescriptor {
    */
   boolean hasReadWriteObject;
   /**
-   * Is the described class externalizable.
+   * Handle for the {@code writeObject()} method, of type {@code (Object, ObjectOutputStream)void}.
    */
-  Method writeObjectMethod;
+  MethodHandle writeObjectMethod;
   /**
-   * Is the described class externalizable.
+   * Handle for the {@code readObject()} method, of type {@code (Object, ObjectInputStream)void}.
    */
-  Method readObjectMethod;
+  MethodHandle readObjectMethod;
   /**
    * Is the described class externalizable.
    */
@@ -116,7 +116,14 @@ class ClassDescriptor {
       //hasReadWriteObject = handleReadOrWriteObjectMethod(true) && handleReadOrWriteObjectMethod(false);
       hasReadWriteObject = handleReadOrWriteObjectMethod(serializing);
       array = clazz.isArray();
-      if (!array) fields = SerializationReflectionHelper.getPersistentDeclaredFields(clazz);
+      if (!array) {
+        // copy the shared field descriptors, since their type is specific to this class descriptor
+        final FieldDescriptor[] declared = SerializationReflectionHelper.getPersistentDeclaredFields(clazz);
+        if (declared.length > 0) {
+          fields = new FieldDescriptor[declared.length];
+          for (int i=0; i<declared.length; i++) fields[i] = new FieldDescriptor(declared[i]);
+        }
+      }
     }
     if (signature == null) signature = SerializationReflectionHelper.getSignatureFromType(clazz);
   }
@@ -128,10 +135,10 @@ class ClassDescriptor {
    * @throws Exception if any error occurs.
    */
   boolean handleReadOrWriteObjectMethod(final boolean serializing) throws Exception {
-    final Method m = SerializationReflectionHelper.getReadOrWriteObjectMethod(clazz, !serializing);
+    final ClassAccessors accessors = ClassAccessors.forClass(clazz);
+    final MethodHandle m = serializing ? accessors.getWriteObject() : accessors.getReadObject();
     final boolean found = (m != null);
     if (found) {
-      m.setAccessible(true);
       if (serializing) writeObjectMethod = m;
       else readObjectMethod = m;
     }
@@ -0,0 +1,91 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.serialization;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A process-wide cache of fully initialized class descriptors, shared by all the serialization or deserialization streams.
+ * <p>The descriptors are held in a {@link ClassValue}, which associates them with the {@link Class} object itself, thus with the class loader which defined it.
+ * This does not prevent the class loader from being garbage-collected: once a client class loader is discarded, the descriptors of its classes go with it.
+ * <p>A descriptor is only added to the cache once the graph of descriptors it references, for its fields, superclass and component type, is complete.
+ * @exclude
+ */
+final class ClassDescriptorCache {
+  /**
+   * The cache of descriptors used for serialization.
+   */
+  static final ClassDescriptorCache SERIALIZATION = new ClassDescriptorCache();
+  /**
+   * The cache of descriptors used for deserialization.
+   */
+  static final ClassDescriptorCache DESERIALIZATION = new ClassDescriptorCache();
+  /**
+   * Holds the cached descriptor for each class, if any.
+   */
+  private final ClassValue<AtomicReference<ClassDescriptor>> descriptors = new ClassValue<AtomicReference<ClassDescriptor>>() {
+    @Override
+    protected AtomicReference<ClassDescriptor> computeValue(final Class<?> type) {
+      return new AtomicReference<>();
+    }
+  };
+  /**
+   * Number of lookups which found a cached descriptor.
+   */
+  private final AtomicLong hits = new AtomicLong(0L);
+  /**
+   * Number of lookups which did not find a cached descriptor.
+   */
+  private final AtomicLong misses = new AtomicLong(0L);
+  /**
+   * Number of descriptors added to this cache.
+   */
+  private final AtomicLong additions = new AtomicLong(0L);
+
+  /**
+   * Get the cached descriptor for the specified class.
+   * @param clazz the class for which to get a descriptor.
+   * @return a {@link ClassDescriptor}, or {@code null} if there is none in the cache.
+   */
+  ClassDescriptor get(final Class<?> clazz) {
+    final ClassDescriptor cd = descriptors.get(clazz).get();
+    if (cd != null) hits.incrementAndGet();
+    else misses.incrementAndGet();
+    return cd;
+  }
+
+  /**
+   * Add the specified descriptors to this cache. Descriptors of classes that already have one in the cache are ignored.
+   * @param cds the descriptors to add.
+   */
+  void putAll(final Collection<ClassDescriptor> cds) {
+    for (final ClassDescriptor cd: cds) {
+      if (descriptors.get(cd.clazz).compareAndSet(null, cd)) additions.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return a snapshot of the statistics of this cache.
+   */
+  ClassDescriptorCacheStatistics getStatistics() {
+    return new ClassDescriptorCacheStatistics(hits.get(), misses.get(), additions.get());
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.serialization;
+
+import java.io.Serializable;
+
+/**
+ * A snapshot of the statistics of a process-wide cache of class descriptors used by the {@link DefaultJPPFSerialization default JPPF serialization}.
+ * @since 6.3
+ */
+public class ClassDescriptorCacheStatistics implements Serializable {
+  /**
+   * Explicit serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+  /**
+   * Number of lookups which found a cached descriptor.
+   */
+  private final long hits;
+  /**
+   * Number of lookups which did not find a cached descriptor.
+   */
+  private final long misses;
+  /**
+   * Number of descriptors added to the cache.
+   */
+  private final long additions;
+
+  /**
+   * Initialize these statistics.
+   * @param hits the number of lookups which found a cached descriptor.
+   * @param misses the number of lookups which did not find a cached descriptor.
+   * @param additions the number of descriptors added to the cache.
+   * @exclude
+   */
+  public ClassDescriptorCacheStatistics(final long hits, final long misses, final long additions) {
+    this.hits = hits;
+    this.misses = misses;
+    this.additions = additions;
+  }
+
+  /**
+   * @return the number of lookups which found a cached descriptor.
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of lookups which did not find a cached descriptor.
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Get the number of descriptors added to the cache since the JVM started. Descriptors are implicitly removed when the class loader
+   * of their class is garbage-collected, thus this is an upper bound of the number of descriptors currently in the cache.
+   * @return the number of descriptors added to the cache.
+   */
+  public long getAdditions() {
+    return additions;
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(getClass().getSimpleName()).append('[')
+      .append("hits=").append(hits)
+      .append(", misses=").append(misses)
+      .append(", additions=").append(additions)
+      .append(']').toString();
+  }
+}
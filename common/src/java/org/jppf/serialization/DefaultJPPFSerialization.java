@@ -84,6 +84,24 @@ public class DefaultJPPFSerialization implements JPPFSerialization {
     }
   }
 
+  /**
+   * Get the statistics of the process-wide cache of class descriptors used for serialization.
+   * @return a {@link ClassDescriptorCacheStatistics} instance.
+   * @since 6.3
+   */
+  public static ClassDescriptorCacheStatistics getSerializationCacheStatistics() {
+    return ClassDescriptorCache.SERIALIZATION.getStatistics();
+  }
+
+  /**
+   * Get the statistics of the process-wide cache of class descriptors used for deserialization.
+   * @return a {@link ClassDescriptorCacheStatistics} instance.
+   * @since 6.3
+   */
+  public static ClassDescriptorCacheStatistics getDeserializationCacheStatistics() {
+    return ClassDescriptorCache.DESERIALIZATION.getStatistics();
+  }
+
   /**
    * A fast dynamic pool of {@link Serializer} instances.
    */
@@ -96,6 +114,7 @@ public class DefaultJPPFSerialization implements JPPFSerialization {
     @Override
     public void put(final Serializer serializer) {
       serializer.caches.objectHandleMap.clear();
+      serializer.caches.classHandleMap.clear();
       super.put(serializer);
     }
   };
@@ -113,6 +132,7 @@ public class DefaultJPPFSerialization implements JPPFSerialization {
     @Override
     public void put(final Deserializer deserializer) {
       deserializer.caches.handleToObjectMap.clear();
+      deserializer.caches.classHandleToDescMap.clear();
       super.put(deserializer);
     }
   };
@@ -38,6 +38,18 @@ class DeserializationCaches {
    * Mapping of handles to corresponding objects.
    */
   final Map<Integer, Object> handleToObjectMap = new HashMap<>();
+  /**
+   * Mapping of class handles read from the stream to the corresponding class descriptors.
+   */
+  final Map<Integer, ClassDescriptor> classHandleToDescMap = new HashMap<>();
+  /**
+   * The descriptors created by the current top-level call to {@link #createDescriptor(Class, String)}, to add to the process-wide cache once complete.
+   */
+  private final List<ClassDescriptor> createdDescriptors = new ArrayList<>();
+  /**
+   * Nesting level of the calls to {@link #createDescriptor(Class, String)}.
+   */
+  private int creationDepth;
 
   /**
    * Default constructor.
@@ -58,7 +70,7 @@ class DeserializationCaches {
    */
   ClassDescriptor getDescriptor(final String handle, final ClassLoader cl) throws Exception {
     final Class<?> c = getClassFromHandle(handle, cl);
-    ClassDescriptor cd = classToDescMap.get(c);
+    ClassDescriptor cd = lookupDescriptor(c);
     if (cd == null) {
       cd = createDescriptor(c, handle);
     }
@@ -73,10 +85,32 @@ class DeserializationCaches {
    * @throws Exception if any error occurs.
    */
   ClassDescriptor createDescriptor(final Class<?> clazz, final String signature) throws Exception {
-    final ClassDescriptor cd = new ClassDescriptor();
-    cd.signature = (signature == null) ? SerializationReflectionHelper.getSignatureFromType(clazz) : signature;
-    cd.fillIn(clazz, false);
-    setupClassDescriptors(cd, clazz.getClassLoader());
+    creationDepth++;
+    boolean success = false;
+    try {
+      final ClassDescriptor cd = new ClassDescriptor();
+      cd.signature = (signature == null) ? SerializationReflectionHelper.getSignatureFromType(clazz) : signature;
+      cd.fillIn(clazz, false);
+      setupClassDescriptors(cd, clazz.getClassLoader());
+      createdDescriptors.add(cd);
+      success = true;
+      return cd;
+    } finally {
+      if (--creationDepth == 0) {
+        if (success) ClassDescriptorCache.DESERIALIZATION.putAll(createdDescriptors);
+        createdDescriptors.clear();
+      }
+    }
+  }
+
+  /**
+   * Lookup the descriptor for the specified class, first in this object's cache, then in the process-wide cache.
+   * @param clazz the class for which to get a descriptor.
+   * @return a {@link ClassDescriptor} instance, or {@code null} if there is none in either cache.
+   */
+  private ClassDescriptor lookupDescriptor(final Class<?> clazz) {
+    ClassDescriptor cd = classToDescMap.get(clazz);
+    if ((cd == null) && ((cd = ClassDescriptorCache.DESERIALIZATION.get(clazz)) != null)) classToDescMap.put(clazz, cd);
     return cd;
   }
 
@@ -133,9 +167,8 @@ class DeserializationCaches {
    * @throws Exception if any error occurs.
    */
   private ClassDescriptor descriptorFromClass(final Class<?> clazz) throws Exception {
-    ClassDescriptor cd = classToDescMap.get(clazz);
-    final String sig = SerializationReflectionHelper.getSignatureFromType(clazz);
-    if (cd == null) cd = createDescriptor(clazz, sig);
+    ClassDescriptor cd = lookupDescriptor(clazz);
+    if (cd == null) cd = createDescriptor(clazz, SerializationReflectionHelper.getSignatureFromType(clazz));
     return cd;
   }
 }
@@ -19,6 +19,7 @@
 package org.jppf.serialization;
 
 import java.io.*;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.*;
 import java.util.Deque;
 import java.util.concurrent.LinkedBlockingDeque;
@@ -109,22 +110,41 @@ class Deserializer {
       if (traceEnabled) log.trace("read string = {}", obj);
       return obj;
     }
-    readObject(handle);
+    readObject(handle, readClassDescriptor(type));
     final Object o = caches.handleToObjectMap.get(handle);
     if (traceEnabled) log.trace(String.format("read object %s, header=%d, handle=%d", o, header, handle));
     return o;
   }
 
+  /**
+   * Read the class of the next object in the stream, either as a signature or as a class handle.
+   * @param type the type of object header that was read.
+   * @return the descriptor of the object's class.
+   * @throws Exception if any error occurs.
+   */
+  private ClassDescriptor readClassDescriptor(final int type) throws Exception {
+    if (type == Serializer.OBJECT_HEADER) return caches.getDescriptor(readString(), classloader);
+    final int classHandle = SerializationUtils.readUnsignedVarInt(in);
+    ClassDescriptor cd = null;
+    if (type == Serializer.CLASS_DEFINITION_OBJECT_HEADER) {
+      cd = caches.getDescriptor(readString(), classloader);
+      caches.classHandleToDescMap.put(classHandle, cd);
+    } else if (type == Serializer.CLASS_HANDLE_OBJECT_HEADER) {
+      cd = caches.classHandleToDescMap.get(classHandle);
+      if (cd == null) throw new StreamCorruptedException("unknown class handle " + classHandle);
+    } else throw new StreamCorruptedException("invalid object header type " + type);
+    return cd;
+  }
+
   /**
    * Read the next object in the stream.
    * @param handle the handle of the object to read.
+   * @param cd the descriptor of the object's class.
    * @throws Exception if any error occurs.
    */
   @SuppressWarnings("unchecked")
-  private void readObject(final int handle) throws Exception {
+  private void readObject(final int handle, final ClassDescriptor cd) throws Exception {
     if (traceEnabled) log.trace("reading object with handle = {}", handle);
-    final String sig = readString();
-    final ClassDescriptor cd = caches.getDescriptor(sig, classloader);
     if (cd.array) readArray(handle, cd);
     else if (cd.enumType) {
       final String name = readString();
@@ -172,12 +192,14 @@ class Deserializer {
       /*final SerializationHandler handler = SerializationReflectionHelper.getSerializationHandler(desc.clazz);
       if (handler != null) handler.readDeclaredFields(this, desc, obj);
       else*/ if (desc.hasReadWriteObject) {
-        final Method m = desc.readObjectMethod;
+        final MethodHandle m = desc.readObjectMethod;
         if (traceEnabled) try { log.trace("invoking readObject() for object = {}, class = {}", StringUtils.toIdentityString(obj), desc); } catch(@SuppressWarnings("unused") final Exception e) {}
         try {
           tmpDesc = currentClassDescriptor;
           currentClassDescriptor = desc;
-          m.invoke(obj, in);
+          m.invokeExact(obj, in);
+        } catch (final Throwable t) {
+          throw ClassAccessors.toException(t);
         } finally {
           currentClassDescriptor = tmpDesc;
         }
@@ -199,28 +221,32 @@ class Deserializer {
     for (FieldDescriptor fd: cd.fields) {
       //if (traceEnabled) try { log.trace("reading field '{}' of object {}", fd, obj); } catch(@SuppressWarnings("unused") Exception e) {}
       final ClassDescriptor typeDesc = fd.type;
-      if (fd.field == null) fd.field = cd.clazz.getDeclaredField(fd.name);
-      final Field field = fd.field;
+      // the descriptor may be shared with other streams: read it once, and only publish immutable, equivalent values
+      ClassAccessors.FieldAccessor accessor = fd.accessor;
+      if (accessor == null) {
+        final Field field = (fd.field == null) ? cd.clazz.getDeclaredField(fd.name) : fd.field;
+        fd.accessor = accessor = ClassAccessors.forClass(cd.clazz).getFieldAccessor(field);
+      }
       if (typeDesc.primitive) {
         switch(typeDesc.signature.charAt(0)) {
-          case 'B': field.setByte(obj, (byte) in.read()); break;
-          case 'S': field.setShort(obj, in.readShort()); break;
-          case 'I': field.setInt(obj, readInt()); break;
-          case 'J': field.setLong(obj, readLong()); break;
-          case 'F': field.setFloat(obj, readFloat()); break;
-          case 'D': field.setDouble(obj, readDouble()); break;
-          case 'C': field.setChar(obj, in.readChar()); break;
-          case 'Z': field.setBoolean(obj, in.readBoolean()); break;
+          case 'B': accessor.setByte(obj, (byte) in.read()); break;
+          case 'S': accessor.setShort(obj, in.readShort()); break;
+          case 'I': accessor.setInt(obj, readInt()); break;
+          case 'J': accessor.setLong(obj, readLong()); break;
+          case 'F': accessor.setFloat(obj, readFloat()); break;
+          case 'D': accessor.setDouble(obj, readDouble()); break;
+          case 'C': accessor.setChar(obj, in.readChar()); break;
+          case 'Z': accessor.setBoolean(obj, in.readBoolean()); break;
         }
       } else if (typeDesc.enumType) {
         final String name = (String) readObject();
         if (traceEnabled) try { log.trace("reading enum[" + typeDesc.signature + "] : " + name); } catch(@SuppressWarnings("unused") final Exception e) {}
         @SuppressWarnings("rawtypes")
-        final Object val = (name == null) ? null : Enum.valueOf((Class<? extends Enum>) field.getType(), name);
-        field.set(obj, val);
+        final Object val = (name == null) ? null : Enum.valueOf((Class<? extends Enum>) accessor.getField().getType(), name);
+        accessor.set(obj, val);
       } else {
         final Object val = readObject();
-        field.set(obj, val);
+        accessor.set(obj, val);
       }
     }
   }
@@ -34,6 +34,10 @@ class FieldDescriptor {
    * The corresponding field object.
    */
   Field field;
+  /**
+   * Reads and writes the value of the field.
+   */
+  ClassAccessors.FieldAccessor accessor;
   /**
    * Descriptor for the type of this field.
    */
@@ -53,6 +57,17 @@ class FieldDescriptor {
   FieldDescriptor(final Field field) throws Exception {
     this.field = field;
     name = field.getName();
+    accessor = ClassAccessors.forClass(field.getDeclaringClass()).getFieldAccessor(field);
+  }
+
+  /**
+   * Initialize a field descriptor with the same field and accessor as the specified one, and no type.
+   * @param source the field descriptor to copy.
+   */
+  FieldDescriptor(final FieldDescriptor source) {
+    this.field = source.field;
+    this.name = source.name;
+    this.accessor = source.accessor;
   }
 
   @Override
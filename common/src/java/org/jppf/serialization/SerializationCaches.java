@@ -57,6 +57,10 @@ class SerializationCaches {
    * Mapping of objects to their handle.
    */
   final Map<Object, Integer> objectHandleMap = new IdentityHashMap<>(256);
+  /**
+   * Mapping of classes to the class handles written to the stream.
+   */
+  final Map<Class<?>, Integer> classHandleMap = new HashMap<>();
   /**
    * Counter for the class handles.
    */
@@ -109,7 +113,16 @@ class SerializationCaches {
    * @throws Exception if nay error occurs.
    */
   ClassDescriptor getClassDescriptor(final Class<?> clazz, final Map<Class<?>, ClassDescriptor> map) throws Exception {
-    return getClassDescriptorGeneric(clazz, classHandleCount, classToDescMap, map);
+    ClassDescriptor cd = classToDescMap.get(clazz);
+    if (cd == null) {
+      final Map<Class<?>, ClassDescriptor> created = createClassKeyMap();
+      cd = getClassDescriptorGeneric(clazz, classHandleCount, classToDescMap, created, ClassDescriptorCache.SERIALIZATION);
+      if (!created.isEmpty()) {
+        ClassDescriptorCache.SERIALIZATION.putAll(created.values());
+        if (map != null) map.putAll(created);
+      }
+    }
+    return cd;
   }
 
   /**
@@ -135,8 +148,24 @@ class SerializationCaches {
    */
   static ClassDescriptor getClassDescriptorGeneric(final Class<?> clazz, final AtomicInteger counter,
       final Map<Class<?>, ClassDescriptor> map, final Map<Class<?>, ClassDescriptor> map2) throws Exception {
+    return getClassDescriptorGeneric(clazz, counter, map, map2, null);
+  }
+
+  /**
+   * Get the descriptor for the specified class, and create it if it is neither in the specified map nor in the specified process-wide cache.
+   * @param clazz the class for which to get a descriptor.
+   * @param counter the handle as an auto-incrementing counter.
+   * @param map the map that contains the handle to class descriptor associations.
+   * @param map2 a temporary association map which receives the created descriptors.
+   * @param cache the process-wide cache of descriptors, may be {@code null}.
+   * @return a {@link ClassDescriptor} object.
+   * @throws Exception if nay error occurs.
+   */
+  private static ClassDescriptor getClassDescriptorGeneric(final Class<?> clazz, final AtomicInteger counter,
+      final Map<Class<?>, ClassDescriptor> map, final Map<Class<?>, ClassDescriptor> map2, final ClassDescriptorCache cache) throws Exception {
     ClassDescriptor cd = map.get(clazz);
-    if (cd == null) cd = addClassGeneric(clazz, counter, map, map2);
+    if ((cd == null) && (cache != null) && ((cd = cache.get(clazz)) != null)) map.put(clazz, cd);
+    if (cd == null) cd = addClassGeneric(clazz, counter, map, map2, cache);
     return cd;
   }
 
@@ -146,19 +175,20 @@ class SerializationCaches {
    * @param counter the handle as an auto-incrementing counter.
    * @param map the map that contains the handle to class descriptor associations.
    * @param map2 a temporary association map.
+   * @param cache the process-wide cache of descriptors, may be {@code null}.
    * @return the {@link ClassDescriptor} object that was created.
    * @throws Exception if any error occurs.
    */
-  static ClassDescriptor addClassGeneric(final Class<?> clazz, final AtomicInteger counter,
-      final Map<Class<?>, ClassDescriptor> map, final Map<Class<?>, ClassDescriptor> map2) throws Exception {
+  private static ClassDescriptor addClassGeneric(final Class<?> clazz, final AtomicInteger counter,
+      final Map<Class<?>, ClassDescriptor> map, final Map<Class<?>, ClassDescriptor> map2, final ClassDescriptorCache cache) throws Exception {
     final ClassDescriptor cd = new ClassDescriptor(clazz);
     //if (traceEnabled) try { log.trace("created " + cd); } catch(Exception e) {}
     map.put(clazz, cd);
     if (map2 != null) map2.put(clazz, cd);
-    for (final FieldDescriptor fd: cd.fields) fd.type = getClassDescriptorGeneric(fd.field.getType(), counter, map, map2);
+    for (final FieldDescriptor fd: cd.fields) fd.type = getClassDescriptorGeneric(fd.field.getType(), counter, map, map2, cache);
     final Class<?> tmpClazz = clazz.getSuperclass();
-    if ((tmpClazz != null) && (tmpClazz != Object.class)) cd.superClass = getClassDescriptorGeneric(tmpClazz, counter, map, map2);
-    if (clazz.isArray()) cd.componentType = getClassDescriptorGeneric(clazz.getComponentType(), counter, map, map2);
+    if ((tmpClazz != null) && (tmpClazz != Object.class)) cd.superClass = getClassDescriptorGeneric(tmpClazz, counter, map, map2, cache);
+    if (clazz.isArray()) cd.componentType = getClassDescriptorGeneric(clazz.getComponentType(), counter, map, map2, cache);
     return cd;
   }
 }
@@ -302,6 +302,27 @@ public final class SerializationUtils {
     return n + 1;
   }
 
+  /**
+   * Serialize a non-negative int value as a sequence of 7-bit groups, least significant group first, where the high bit of each byte
+   * indicates whether more bytes follow. Values up to 127 take a single byte.
+   * @param os the stream to write to.
+   * @param value the int value to serialize.
+   * @param data the array of bytes into which to serialize the value.
+   * @return the number of bytes written to the buffer.
+   * @throws IOException if an error occurs while writing the data.
+   */
+  public static int writeUnsignedVarInt(final OutputStream os, final int value, final byte[] data) throws IOException {
+    int n = 0;
+    int v = value;
+    while ((v & ~0x7F) != 0) {
+      data[n++] = (byte) ((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    data[n++] = (byte) v;
+    os.write(data, 0, n);
+    return n;
+  }
+
   /**
    * Serialize a long value into an array of bytes.
    * @param os the stream to write to.
@@ -353,6 +374,23 @@ public final class SerializationUtils {
     return result;
   }
 
+  /**
+   * Deserialize an int value written with {@link #writeUnsignedVarInt(OutputStream, int, byte[])} from a stream.
+   * @param is the stream to read from.
+   * @return the int value read from the stream.
+   * @throws IOException if an error occurs while reading the data.
+   */
+  public static int readUnsignedVarInt(final InputStream is) throws IOException {
+    int result = 0;
+    for (int shift=0; shift<32; shift+=7) {
+      final int b = is.read();
+      if (b < 0) throw new EOFException("end of stream while reading a variable-length int");
+      result |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return result;
+    }
+    throw new StreamCorruptedException("variable-length int is longer than 5 bytes");
+  }
+
   /**
    * Deserialize a long value from a stream.
    * @param is the stream to read from.
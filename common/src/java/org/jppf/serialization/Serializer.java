@@ -19,12 +19,14 @@
 package org.jppf.serialization;
 
 import java.io.*;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.jppf.utils.StringUtils;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.slf4j.*;
 
 /**
@@ -65,6 +67,19 @@ class Serializer {
    * Special treatment when an object to serialize is a class.
    */
   static final byte STRING_HEADER = 5;
+  /**
+   * Header written before a serialized object whose class is written for the first time, along with a new class handle.
+   */
+  static final byte CLASS_DEFINITION_OBJECT_HEADER = 6;
+  /**
+   * Header written before a serialized object whose class is referenced by a class handle.
+   */
+  static final byte CLASS_HANDLE_OBJECT_HEADER = 7;
+  /**
+   * Whether to write the class of each object only once per serialized graph, and refer to it with a handle afterwards.
+   * The deserializer handles both forms, regardless of its own configuration.
+   */
+  private final boolean useClassHandles = JPPFConfiguration.get(JPPFProperties.SERIALIZATION_CLASS_HANDLES);
   /**
    * 
    */
@@ -137,8 +152,7 @@ class Serializer {
     final ClassDescriptor cd = caches.getClassDescriptor(obj.getClass(), cdMap);
     currentObject = obj;
     currentClassDescriptor = cd;
-    writeHeaderAndHandle(OBJECT_HEADER, handle);
-    writeString(cd.signature);
+    writeClassAndHandle(cd, handle);
     //if (traceEnabled) try { log.trace("writing object " + obj + ", handle=" + handle + ", class=" + obj.getClass() + ", cd=" + cd); } catch(Exception e) {}
     if (cd.array) writeArray(obj, cd);
     else if (cd.enumType) writeString(((Enum<?>) obj).name());
@@ -181,12 +195,14 @@ class Serializer {
       /*final SerializationHandler handler = SerializationReflectionHelper.getSerializationHandler(desc.clazz);
       if (handler != null) handler.writeDeclaredFields(this, desc, obj);
       else*/ if (desc.hasReadWriteObject) {
-        final Method m = desc.writeObjectMethod;
+        final MethodHandle m = desc.writeObjectMethod;
         //if (traceEnabled) try { log.trace("invoking writeObject() for class=" + desc + " on object " + obj.hashCode()); } catch(Exception e) { log.trace(e.getMessage(), e); }
         try {
           tmpDesc = currentClassDescriptor;
           currentClassDescriptor = desc;
-          m.invoke(obj, out);
+          m.invokeExact(obj, out);
+        } catch (final Throwable t) {
+          throw ClassAccessors.toException(t);
         } finally {
           currentClassDescriptor = tmpDesc;
         }
@@ -205,21 +221,23 @@ class Serializer {
   void writeDeclaredFields(final Object obj, final ClassDescriptor cd) throws Exception {
     for (FieldDescriptor fd: cd.fields) {
       //if (traceEnabled) try { log.trace("writing field '" + fd.name + "' of object " + obj); } catch(Exception e) {}
-      final Object val = fd.field.get(obj);
+      final ClassAccessors.FieldAccessor accessor = fd.accessor;
       if (fd.type.primitive) {
         switch(fd.type.signature.charAt(0)) {
-          case 'B': out.write(((Byte) val).intValue()); break;
-          case 'S': out.writeShort((Short) val); break;
-          case 'I': writeInt((Integer) val); break;
-          case 'J': writeLong((Long) val); break;
-          case 'F': writeFloat((Float) val); break;
-          case 'D': writeDouble((Double) val); break;
-          case 'C': out.writeChar((Character) val); break;
-          case 'Z': out.writeBoolean((Boolean) val); break;
+          case 'B': out.write(accessor.getByte(obj)); break;
+          case 'S': out.writeShort(accessor.getShort(obj)); break;
+          case 'I': writeInt(accessor.getInt(obj)); break;
+          case 'J': writeLong(accessor.getLong(obj)); break;
+          case 'F': writeFloat(accessor.getFloat(obj)); break;
+          case 'D': writeDouble(accessor.getDouble(obj)); break;
+          case 'C': out.writeChar(accessor.getChar(obj)); break;
+          case 'Z': out.writeBoolean(accessor.getBoolean(obj)); break;
         }
+      } else {
+        final Object val = accessor.get(obj);
+        if (fd.type.enumType) writeObject(val == null ? null : ((Enum<?>) val).name());
+        else writeObject(val);
       }
-      else if (fd.type.enumType) writeObject(val == null ? null : ((Enum<?>) val).name());
-      else writeObject(val);
     }
   }
 
@@ -377,6 +395,31 @@ class Serializer {
     }
   }
 
+  /**
+   * Write the header and handle of an object, followed by its class, either as a signature or as a class handle.
+   * @param cd the descriptor of the object's class.
+   * @param handle the object's handle.
+   * @throws Exception if any error occurs.
+   */
+  private void writeClassAndHandle(final ClassDescriptor cd, final int handle) throws Exception {
+    if (!useClassHandles) {
+      writeHeaderAndHandle(OBJECT_HEADER, handle);
+      writeString(cd.signature);
+      return;
+    }
+    Integer classHandle = caches.classHandleMap.get(cd.clazz);
+    if (classHandle == null) {
+      classHandle = caches.classHandleMap.size() + 1;
+      caches.classHandleMap.put(cd.clazz, classHandle);
+      writeHeaderAndHandle(CLASS_DEFINITION_OBJECT_HEADER, handle);
+      SerializationUtils.writeUnsignedVarInt(out, classHandle, buf);
+      writeString(cd.signature);
+    } else {
+      writeHeaderAndHandle(CLASS_HANDLE_OBJECT_HEADER, handle);
+      SerializationUtils.writeUnsignedVarInt(out, classHandle, buf);
+    }
+  }
+
   /**
    * Write the header byte and handle of the next serialized entity to the underlying stream.
    * @param header the header byte to write.
@@ -25,7 +25,7 @@ import javax.management.Notification;
 
 import org.jppf.JPPFError;
 import org.jppf.job.JobNotification;
-import org.jppf.management.TaskExecutionNotification;
+import org.jppf.management.*;
 import org.jppf.management.forwarding.JPPFNodeForwardingNotification;
 import org.jppf.utils.*;
 import org.slf4j.*;
@@ -89,7 +89,7 @@ public class XstreamSerialization implements JPPFSerialization {
       final Method registerConverter = ReflectionHelper.findMethod(xstreamClass.getName(), "registerConverter", "com.thoughtworks.xstream.converters.Converter");
       final Constructor<?> converterConst = ReflectionHelper.findConstructor("com.thoughtworks.xstream.converters.reflection.ReflectionConverter",
         "com.thoughtworks.xstream.mapper.Mapper", "com.thoughtworks.xstream.converters.reflection.ReflectionProvider", Class.class.getName());
-      final Class<?>[] classesToregister = { TaskExecutionNotification.class, Notification.class, JobNotification.class, JPPFNodeForwardingNotification.class };
+      final Class<?>[] classesToregister = { TaskExecutionNotification.class, TaskExecutionBatchNotification.class, Notification.class, JobNotification.class, JPPFNodeForwardingNotification.class };
       for (final Class<?> clazz: classesToregister) {
         final Object converter = converterConst.newInstance(getMapper.invoke(o), concreteProvider, clazz);
         registerConverter.invoke(o, converter);
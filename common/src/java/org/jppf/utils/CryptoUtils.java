@@ -18,8 +18,10 @@
 
 package org.jppf.utils;
 
+import java.io.InputStream;
 import java.security.MessageDigest;
 
+import org.jppf.io.IO;
 import org.slf4j.*;
 
 /**
@@ -53,4 +55,26 @@ public class CryptoUtils {
     }
     return hash;
   }
+
+  /**
+   * Compute a hash string from the content of a stream. The stream is read until its end, but it is not closed.
+   * @param source the stream from which to compute a hash.
+   * @param algorithm the name of the hash algorithm to use, e.g. "SHA-256".
+   * @return the computed hash, or null if any of the arguments is null, if the hash algorithm is unknown or if the stream could not be read.
+   */
+  public static String computeHash(final InputStream source, final String algorithm) {
+    String hash = null;
+    if ((source != null) && (algorithm != null)) {
+      try {
+        final MessageDigest digest = MessageDigest.getInstance(algorithm);
+        final byte[] buf = new byte[IO.TEMP_BUFFER_SIZE];
+        int n;
+        while ((n = source.read(buf)) > 0) digest.update(buf, 0, n);
+        hash = StringUtils.toHexString(digest.digest());
+      } catch (final Exception e) {
+        log.error("error computing {} hash for stream {} : {}", algorithm, source, ExceptionUtils.getStackTrace(e));
+      }
+    }
+    return hash;
+  }
 }
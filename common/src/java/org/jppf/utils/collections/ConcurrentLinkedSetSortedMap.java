@@ -0,0 +1,174 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.utils.collections;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe sorted map whose values are insertion-ordered sets of a given component type.
+ * <p>The keys are held in a concurrent skip list, and each set has its own lock, so that operations on values mapped to different keys
+ * do not contend with each other. Operations on a single key are atomic, while {@link #allValues()} is only weakly consistent:
+ * a value moved from one key to another during the call may be seen under both keys or under none.
+ * @param <K> the type of keys in the map.
+ * @param <V> the type of values in the sets mapped to the keys.
+ * @exclude
+ */
+public class ConcurrentLinkedSetSortedMap<K, V> {
+  /**
+   * The sets of values, sorted by key.
+   */
+  private final ConcurrentSkipListMap<K, ValueSet<V>> map;
+  /**
+   * The total number of values in this map.
+   */
+  private final AtomicInteger size = new AtomicInteger(0);
+
+  /**
+   * Initialize this map with the specified comparator.
+   * @param comparator comparator used to sort the keys.
+   */
+  public ConcurrentLinkedSetSortedMap(final Comparator<K> comparator) {
+    map = new ConcurrentSkipListMap<>(comparator);
+  }
+
+  /**
+   * Add a value at the end of the set mapped to the specified key, if it is not already there.
+   * @param key the key to look up.
+   * @param value the value to add.
+   * @return {@code true} if the value was added, {@code false} if it was already mapped to the key.
+   */
+  public boolean putValue(final K key, final V value) {
+    while (true) {
+      ValueSet<V> set = map.get(key);
+      if (set == null) {
+        final ValueSet<V> newSet = new ValueSet<>();
+        set = map.putIfAbsent(key, newSet);
+        if (set == null) set = newSet;
+      }
+      synchronized(set) {
+        // the set was emptied and unmapped concurrently, retry with a new one
+        if (set.removed) continue;
+        if (!set.values.add(value)) return false;
+        size.incrementAndGet();
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Remove a value from the set mapped to the specified key. The key is unmapped if its set becomes empty.
+   * @param key the key to look up.
+   * @param value the value to remove.
+   * @return {@code true} if the value was removed, {@code false} if it was not mapped to the key.
+   */
+  public boolean removeValue(final K key, final V value) {
+    final ValueSet<V> set = map.get(key);
+    if (set == null) return false;
+    synchronized(set) {
+      if (!set.values.remove(value)) return false;
+      size.decrementAndGet();
+      if (set.values.isEmpty()) {
+        set.removed = true;
+        map.remove(key, set);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Move the specified value to the end of the set mapped to the specified key, if it is in this set.
+   * @param key the key to look up.
+   * @param value the value to move.
+   */
+  public void moveToEnd(final K key, final V value) {
+    final ValueSet<V> set = map.get(key);
+    if (set == null) return;
+    synchronized(set) {
+      if (set.values.remove(value)) set.values.add(value);
+    }
+  }
+
+  /**
+   * Get all the values in this map, in the order of their keys, then in the order of the sets.
+   * @return a new list of values, independent from this map.
+   */
+  public List<V> allValues() {
+    final List<V> result = new ArrayList<>(size.get());
+    for (final ValueSet<V> set: map.values()) {
+      synchronized(set) {
+        result.addAll(set.values);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the total number of values in this map.
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * @return {@code true} if this map has no value, {@code false} otherwise.
+   */
+  public boolean isEmpty() {
+    return size.get() <= 0;
+  }
+
+  /**
+   * Remove all the values from this map.
+   */
+  public void clear() {
+    for (final Map.Entry<K, ValueSet<V>> entry: map.entrySet()) {
+      final ValueSet<V> set = entry.getValue();
+      synchronized(set) {
+        size.addAndGet(-set.values.size());
+        set.values.clear();
+        set.removed = true;
+        map.remove(entry.getKey(), set);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append('[');
+    sb.append("nbKeys=").append(map.size());
+    sb.append(", size=").append(size.get());
+    return sb.append(']').toString();
+  }
+
+  /**
+   * An insertion-ordered set of values, which serves as its own lock.
+   * @param <V> the type of values in the set.
+   */
+  private static final class ValueSet<V> {
+    /**
+     * The values in this set.
+     */
+    private final Set<V> values = new LinkedHashSet<>();
+    /**
+     * Whether this set was unmapped from its key after it became empty.
+     */
+    private boolean removed;
+  }
+}
@@ -47,6 +47,8 @@ public class JPPFProperties {
   public static final JPPFProperty<Long> ADMIN_REFRESH_INTERVAL_HEALTH = new LongProperty("jppf.admin.refresh.interval.health", 3000L); 
   /** Interval between updates of the server statistics. */
   public static final JPPFProperty<Long> ADMIN_REFRESH_INTERVAL_STATS = new LongProperty("jppf.admin.refresh.interval.stats", 1000L);
+  /** Whether the timing statistics of the driver and client record the distribution of their values, to provide percentiles of the latencies. */
+  public static final JPPFProperty<Boolean> STATISTICS_HISTOGRAMS_ENABLED = new BooleanProperty("jppf.statistics.histograms.enabled", false);
   /** Interval between updates of the topology views. */
   public static final JPPFProperty<Long> ADMIN_REFRESH_INTERVAL_TOPOLOGY = new LongProperty("jppf.admin.refresh.interval.topology", 1000L);
   /** Wether to refresh the node's system info as well (to use for node filtering on the client side). */
@@ -123,6 +125,12 @@ public class JPPFProperties {
   public static final JPPFProperty<String> JMX_REMOTE_PROTOCOL = new StringProperty("jppf.jmxremote.protocol", JMXHelper.JPPF_JMX_PROTOCOL).setPossibleValues(JMXHelper.remoteProtocols());
   /** Timeout in milliseconds for JMX requests. */
   public static final JPPFProperty<Long> JMX_REMOTE_REQUEST_TIMEOUT = new LongProperty("jppf.jmxremote.request.timeout", Long.MAX_VALUE, 0L, Long.MAX_VALUE, "jppf.jmx.request.timeout");
+  /** Number of threads delivering the JMX notifications received by all the connections of a JMX remote NIO server. */
+  public static final JPPFProperty<Integer> JMX_REMOTE_NOTIFICATION_THREADS = new IntProperty("jppf.jmxremote.notification.threads", 8, 1, 1024);
+  /** Maximum number of received JMX notifications waiting to be delivered for each JMX connection, beyond which task execution notifications are dropped. */
+  public static final JPPFProperty<Integer> JMX_REMOTE_NOTIFICATION_QUEUE_SIZE = new IntProperty("jppf.jmxremote.notification.queue.size", 10_000, 1, Integer.MAX_VALUE);
+  /** Interval in millis at which high-rate JMX notifications are delivered in batches, 0 to disable coalescing. */
+  public static final JPPFProperty<Long> JMX_REMOTE_NOTIFICATION_COALESCING_PERIOD = new LongProperty("jppf.jmxremote.notification.coalescing.period", 0L, 0L, Long.MAX_VALUE);
   /** JVM options for the node or server process. */
   public static final JPPFProperty<String> JVM_OPTIONS = new StringProperty("jppf.jvm.options", null);
   /** Temporary buffer pool size for reading lengths as ints (size 4). */
@@ -378,6 +386,14 @@ public class JPPFProperties {
   public static final JPPFProperty<String> UI_SPLASH_MESSAGE_COLOR = new StringProperty("jppf.ui.splash.message.color", "64, 64, 128");
   /** @exclude . */
   public static final JPPFProperty<Long> NIO_SELECT_TIMEOUT = new LongProperty("jppf.nio.select.timeout", 1000L);
+  /** Default number of selector threads among which the channels of a driver NIO server are distributed. A value of 0 or 1 means a single selector thread per server. */
+  public static final JPPFProperty<Integer> NIO_SELECTOR_SHARDS = new IntProperty("jppf.nio.selector.shards", 0, 0, 1024);
+  /** Number of selector threads for a specific NIO server, overriding the value of "jppf.nio.selector.shards". A negative value means the default is used. */
+  public static final JPPFProperty<Integer> NIO_SERVER_SELECTOR_SHARDS = new IntProperty("jppf.nio.<server_name>.selector.shards", -1, -1, 1024);
+  /** Whether the driver NIO servers read the serialized objects of job messages into pooled direct buffers, instead of heap byte arrays. */
+  public static final JPPFProperty<Boolean> NIO_DIRECT_BUFFERS_ENABLED = new BooleanProperty("jppf.nio.direct.buffers.enabled", false);
+  /** Maximum size in MB of the pool of direct buffers used by NIO messages. Beyond this size, heap memory is used. */
+  public static final JPPFProperty<Long> NIO_DIRECT_BUFFERS_MAX_MEMORY = new LongProperty("jppf.nio.direct.buffers.max.memory", 256L, 1L, Long.MAX_VALUE);
   /** Ratio of available heap over the size of an object to deserialize, below which disk overflow is triggered. */
   public static final JPPFProperty<Double> DISK_OVERFLOW_THRESHOLD = new DoubleProperty("jppf.disk.overflow.threshold", 2d);
   /** Whether to call System.gc() and recompute the avalaible heap size before triggering disk overflow. */
@@ -390,20 +406,46 @@ public class JPPFProperties {
   public static final JPPFProperty<String> NOTIFICATION_OFFLOAD_MEMORY_THRESHOLD = new StringProperty("jppf.notification.offload.memory.threshold", "" + (long) (0.8d * Runtime.getRuntime().maxMemory()) + "b" );
   /** Determines the frequency at which the JVM's cpu load is recomputed, in ms. */
   public static final JPPFProperty<Long> CPU_LOAD_COMPUTATION_INTERVAL = new LongProperty("jppf.cpu.load.computation.interval", 1000L);
-  /** Type of thread pool to use in the node: either 'default' or 'org.jppf.server.node.fj.ThreadManagerForkJoin'. */
+  /** Type of thread pool to use in the node: either 'default', 'virtual' or the fully qualified name of a thread manager class, such as 'org.jppf.execute.ThreadManagerForkJoin'. */
   public static final JPPFProperty<String> THREAD_MANAGER_CLASS = new StringProperty("jppf.thread.manager.class", "default");
+  /** Maximum number of tasks executed concurrently by a node whose thread manager is 'virtual', regardless of the number of processing threads. */
+  public static final JPPFProperty<Integer> PROCESSING_VIRTUAL_THREADS_MAX = new IntProperty("jppf.processing.virtual.threads.max", 256, 1, Integer.MAX_VALUE);
+  /** Set by the node at startup: whether its tasks are executed in virtual threads. Can be used in execution policies. */
+  public static final JPPFProperty<Boolean> PROCESSING_VIRTUAL_THREADS = new BooleanProperty("jppf.processing.virtual.threads", false);
+  /** Whether to schedule job start and expiration, and task timeouts, with a hashed timing wheel instead of a scheduled executor. */
+  public static final JPPFProperty<Boolean> SCHEDULE_TIMING_WHEEL_ENABLED = new BooleanProperty("jppf.schedule.timing.wheel.enabled", false);
+  /** Duration in milliseconds of a tick of the scheduling timing wheel, which determines its resolution. */
+  public static final JPPFProperty<Long> SCHEDULE_TIMING_WHEEL_TICK = new LongProperty("jppf.schedule.timing.wheel.tick", 10L, 1L, 60_000L);
+  /** Number of slots of the scheduling timing wheel, rounded up to the next power of 2. */
+  public static final JPPFProperty<Integer> SCHEDULE_TIMING_WHEEL_SLOTS = new IntProperty("jppf.schedule.timing.wheel.slots", 512, 16, 1 << 20);
   /** Internal use. The class of node to instantiate upon node startup. For instance Java and Android nodes use a different class. */
   public static final JPPFProperty<String> NODE_CLASS = new StringProperty("jppf.node.class", "org.jppf.server.node.remote.JPPFRemoteNode");
   /** Maximum number of jobs that can be handled concurrently by a node. */
   public static final JPPFProperty<Integer> NODE_MAX_JOBS = new IntProperty("jppf.node.max.jobs", Integer.MAX_VALUE, 1, Integer.MAX_VALUE);
+  /** Number of bundles the server may send to a node in advance, in addition to the maximum number of concurrent jobs. 0 disables prefetching. */
+  public static final JPPFProperty<Integer> NODE_PREFETCH_DEPTH = new IntProperty("jppf.node.prefetch.depth", 0, 0, 1024);
+  /** Maximum size in megabytes of the serialized tasks the server sends to a node in advance. */
+  public static final JPPFProperty<Long> NODE_PREFETCH_MAX_MEMORY = new LongProperty("jppf.node.prefetch.max.memory", 64L, 1L, Long.MAX_VALUE / (1024L * 1024L));
   /** How often the node throttling mechanism will check, expressed as an interval in milliseconds. */
   public static final JPPFProperty<Long> NODE_THROTTLING_CHECK_PERIOD = new LongProperty("jppf.node.throttling.check.period", 2000L, 1L, Long.MAX_VALUE);
+  /** Number of completed tasks after which a node sends their results, while the other tasks of the same bundle are still executing. 0 means all results are sent when the whole bundle completes. */
+  public static final JPPFProperty<Integer> NODE_RESULTS_BATCH_SIZE = new IntProperty("jppf.node.results.batch.size", 0, 0, Integer.MAX_VALUE);
+  /** Maximum time in milliseconds a node holds the results of completed tasks before sending them, when results batching is enabled. 0 means no time limit. */
+  public static final JPPFProperty<Long> NODE_RESULTS_BATCH_TIME = new LongProperty("jppf.node.results.batch.time", 0L, 0L, Long.MAX_VALUE);
+  /** Maximum number of executed tasks a node groups into a single task monitor notification. 1 means one notification per task. */
+  public static final JPPFProperty<Integer> NODE_TASK_NOTIFICATIONS_BATCH_SIZE = new IntProperty("jppf.node.task.notifications.batch.size", 1, 1, Integer.MAX_VALUE);
+  /** Maximum time in milliseconds a node holds the information on executed tasks before sending it, when task notifications batching is enabled. */
+  public static final JPPFProperty<Long> NODE_TASK_NOTIFICATIONS_BATCH_TIME = new LongProperty("jppf.node.task.notifications.batch.time", 100L, 1L, Long.MAX_VALUE);
+  /** Maximum number of deserialized data providers a node keeps for each client class loader, so they are not sent again for each bundle of the same job. 0 disables the cache. */
+  public static final JPPFProperty<Integer> NODE_DATA_PROVIDER_CACHE_SIZE = new IntProperty("jppf.node.data.provider.cache.size", 0, 0, Integer.MAX_VALUE);
   /** Default script language for scripted property values. */
   public static final JPPFProperty<String> SCRIPT_DEFAULT_LANGUAGE = new StringProperty("jppf.script.default.language", "javascript");
   /** Fully qualified name of a class implementing {@link org.jppf.node.connection.DriverConnectionStrategy DriverConnectionStrategy}. */
   public static final JPPFProperty<String> SERVER_CONNECTION_STRATEGY = new StringProperty("jppf.server.connection.strategy", null);
   /** @exclude . */
   public static final JPPFProperty<String> SERIALIZATION_EXCEPTION_HOOK = new StringProperty("jppf.serialization.exception.hook", null);
+  /** Whether the default JPPF serialization writes the class of each object only once per serialized graph, then refers to it with a handle. */
+  public static final JPPFProperty<Boolean> SERIALIZATION_CLASS_HANDLES = new BooleanProperty("jppf.serialization.class.handles", false);
   /** Full path to the Java executable. */
   public static final JPPFProperty<String> JAVA_PATH = new StringProperty("jppf.java.path", null);
   /** Path to the temporary config overrides properties file. */
@@ -426,10 +468,22 @@ public class JPPFProperties {
   public static final JPPFProperty<Boolean> SEQUENTIAL_SERIALiZATION = new BooleanProperty("jppf.sequential.serialization", false, "jppf.sequential.deserialization");
   /** Whether bias towards local node for scheduling is enabled in the driver. */
   public static final JPPFProperty<Boolean> LOCAL_NODE_BIAS = new BooleanProperty("jppf.local.node.bias", true);
+  /** Whether the driver caches execution policy results and indexes the idle nodes eligible for each job, instead of evaluating all idle nodes at each dispatch. */
+  public static final JPPFProperty<Boolean> NODE_MATCHING_INDEX_ENABLED = new BooleanProperty("jppf.node.matching.index.enabled", true);
   /** Location of the file that contains the DDL statements to create the database table for the databse job persistence. */
   public static final JPPFProperty<String> JOB_PERSISTENCE_DDL_LOCATION = new StringProperty("jppf.job.persistence.ddl.location", "org/jppf/job/persistence/impl/job_persistence.sql");
+  /** Maximum number of job elements stored with a single JDBC batch by the database job persistence. */
+  public static final JPPFProperty<Integer> JOB_PERSISTENCE_BATCH_SIZE = new IntProperty("jppf.job.persistence.batch.size", 100, 1, Integer.MAX_VALUE);
   /** Percentage of used heap above which async job persistence switches to sequential mode, until the used heap decreases below the threshold. */
   public static final JPPFProperty<Double> JOB_PERSISTENCE_MEMORY_THRESHOLD = new DoubleProperty("jppf.job.persistence.memory.threshold", 70d);
+  /** Whether the driver stores the jobs and their results in the background, in a per-job ordered write-behind pipeline, instead of in the threads that queue jobs and receive results. */
+  public static final JPPFProperty<Boolean> JOB_PERSISTENCE_WRITE_BEHIND = new BooleanProperty("jppf.job.persistence.write_behind", true);
+  /** Number of threads that perform the job persistence operations of the write-behind pipeline. */
+  public static final JPPFProperty<Integer> JOB_PERSISTENCE_WRITE_BEHIND_THREADS = new IntProperty("jppf.job.persistence.write_behind.threads", Math.min(4, Runtime.getRuntime().availableProcessors()), 1, 1024);
+  /** Maximum number of job elements pending in the write-behind pipeline, above which job submissions are blocked until enough elements are stored. */
+  public static final JPPFProperty<Integer> JOB_PERSISTENCE_WRITE_BEHIND_MAX_PENDING = new IntProperty("jppf.job.persistence.write_behind.max_pending", 50_000, 1, Integer.MAX_VALUE);
+  /** Whether the results of a persistent job are sent back to the client only after they are stored by the write-behind pipeline. */
+  public static final JPPFProperty<Boolean> JOB_PERSISTENCE_WRITE_BEHIND_DURABLE_RESULTS = new BooleanProperty("jppf.job.persistence.write_behind.durable_results", true);
   /** Location of the file that contains the DDL statements to create the database table for the laod-balancers persistence. */
   public static final JPPFProperty<String> LOAD_BALANCING_PERSISTENCE_DDL_LOCATION = new StringProperty("jppf.load.balancing.persistence.ddl.location", "org/jppf/load/balancer/persistence/load_balancer_persistence.sql");
   /** Enable / disable a pluggable view. */
@@ -454,6 +508,14 @@ public class JPPFProperties {
   public static final JPPFProperty<Integer> JMX_NOTIF_QUEUE_SIZE = new IntProperty("jppf.jmx.notifications.queue.size", JMXHelper.DEFAULT_MAX_NOTIFICATIONS_QUEUE_SIZE);
   /** Whether the client should print connection events to stdout. */
   public static final JPPFProperty<Boolean> CLIENT_SYSOUT_ENABLED = new BooleanProperty("jppf.client.sysout.enabled", true);
+  /** Number of threads that serialize the tasks sent by the client in parallel. With 1 thread, the tasks are serialized one at a time while they are sent. */
+  public static final JPPFProperty<Integer> CLIENT_SERIALIZATION_THREADS = new IntProperty("jppf.client.serialization.threads", Runtime.getRuntime().availableProcessors(), 1, 1024);
+  /** Maximum number of serialized tasks waiting to be sent to a driver connection, above which the serialization of the next tasks is deferred. */
+  public static final JPPFProperty<Integer> CLIENT_SERIALIZATION_MAX_PENDING = new IntProperty("jppf.client.serialization.max_pending", 256, 1, Integer.MAX_VALUE);
+  /** Whether the job channels of the client connections are handled by a shared pool of selector threads, rather than by dedicated sender and receiver threads. */
+  public static final JPPFProperty<Boolean> CLIENT_NIO_ENABLED = new BooleanProperty("jppf.client.nio.enabled", false);
+  /** Number of selector threads which read and write the job channels of all the driver connections of the client, when "jppf.client.nio.enabled" is true. */
+  public static final JPPFProperty<Integer> CLIENT_NIO_THREADS = new IntProperty("jppf.client.nio.threads", 1, 1, 1024);
   /** The list of all predefined properties. */
   private static List<JPPFProperty<?>> properties;
 
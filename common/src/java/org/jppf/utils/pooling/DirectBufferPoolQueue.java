@@ -28,9 +28,44 @@ import org.jppf.io.IO;
  * @exclude
  */
 public class DirectBufferPoolQueue extends AbstractObjectPoolQueue<ByteBuffer> {
+  /**
+   * The capacity of the buffers created by this pool.
+   */
+  private final int bufferSize;
+
+  /**
+   * Initialize this pool with buffers of {@link IO#TEMP_BUFFER_SIZE} bytes.
+   */
+  public DirectBufferPoolQueue() {
+    this(IO.TEMP_BUFFER_SIZE);
+  }
+
+  /**
+   * Initialize this pool with buffers of the specified capacity.
+   * @param bufferSize the capacity of the buffers created by this pool.
+   */
+  public DirectBufferPoolQueue(final int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
   @Override
   protected ByteBuffer create() {
-    return ByteBuffer.allocateDirect(IO.TEMP_BUFFER_SIZE);
+    return ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  /**
+   * Get a buffer from the pool, without creating a new one if the pool is empty.
+   * @return a {@link ByteBuffer} instance, or {@code null} if the pool is empty.
+   */
+  public ByteBuffer poll() {
+    return queue.poll();
+  }
+
+  /**
+   * @return the capacity of the buffers created by this pool.
+   */
+  public int getBufferSize() {
+    return bufferSize;
   }
 
   @Override
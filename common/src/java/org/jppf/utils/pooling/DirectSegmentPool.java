@@ -0,0 +1,222 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.utils.pooling;
+
+import java.lang.ref.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
+
+/**
+ * A pool of direct byte buffer segments of a few fixed size classes, used to hold the data of NIO messages outside of the heap.
+ * <p>Segments are handed out as an array of buffers whose capacities sum up to at least the requested size, and are bound to an owner object.
+ * They are returned to the pool when {@link #release(ByteBuffer[])} is called, for instance when the data location which holds them is closed,
+ * or otherwise once the owner has been garbage-collected.
+ * <p>The total memory allocated by the pool, including the segments currently in use, is bounded. When this bound is reached,
+ * {@link #provide(int, Object)} returns {@code null} and the caller is expected to fall back to heap-based storage.
+ * @exclude
+ */
+public final class DirectSegmentPool {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(DirectSegmentPool.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
+  /**
+   * The capacities of the segments, in ascending order. Data larger than the largest size is split in multiple segments.
+   */
+  private static final int[] SEGMENT_SIZES = { 1024, 4 * 1024, 16 * 1024, 64 * 1024 };
+  /**
+   * The default pool, sized after the configuration.
+   */
+  private static final DirectSegmentPool INSTANCE = new DirectSegmentPool(JPPFConfiguration.get(JPPFProperties.NIO_DIRECT_BUFFERS_MAX_MEMORY) * 1024L * 1024L);
+  /**
+   * One pool of free segments per size class.
+   */
+  private final DirectBufferPoolQueue[] queues = new DirectBufferPoolQueue[SEGMENT_SIZES.length];
+  /**
+   * The maximum number of bytes this pool can allocate.
+   */
+  private final long maxMemory;
+  /**
+   * The number of bytes currently allocated by this pool, including free segments.
+   */
+  private final AtomicLong allocated = new AtomicLong(0L);
+  /**
+   * Receives the references to the owners of segments that were garbage-collected.
+   */
+  private final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<>();
+  /**
+   * Mapping of the segments in use to the references to their owner, which are kept reachable until they are enqueued or the segments are released.
+   * Arrays do not override {@code equals()} and {@code hashCode()}, hence the segments are looked up by identity.
+   */
+  private final Map<ByteBuffer[], SegmentsReference> references = new ConcurrentHashMap<>();
+
+  /**
+   * Initialize this pool with the specified maximum memory.
+   * @param maxMemory the maximum number of bytes this pool can allocate.
+   */
+  public DirectSegmentPool(final long maxMemory) {
+    this.maxMemory = maxMemory;
+    for (int i=0; i<SEGMENT_SIZES.length; i++) queues[i] = new DirectBufferPoolQueue(SEGMENT_SIZES[i]);
+  }
+
+  /**
+   * @return the default pool.
+   */
+  public static DirectSegmentPool getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Get segments whose total capacity can hold the specified number of bytes.
+   * The segments are returned to this pool when they are {@link #release(ByteBuffer[]) released}, or when the specified owner is garbage-collected.
+   * @param size the number of bytes to hold.
+   * @param owner the object whose lifecycle determines when the segments are returned to the pool.
+   * @return an array of cleared buffers, or {@code null} if the maximum memory of this pool would be exceeded.
+   */
+  public ByteBuffer[] provide(final int size, final Object owner) {
+    if (size > maxMemory) return null;
+    recycle();
+    final int largest = SEGMENT_SIZES[SEGMENT_SIZES.length - 1];
+    final int nbFull = size / largest, remainder = size % largest;
+    final ByteBuffer[] segments = new ByteBuffer[nbFull + ((remainder > 0) ? 1 : 0)];
+    for (int i=0; i<segments.length; i++) {
+      final int index = (i < nbFull) ? SEGMENT_SIZES.length - 1 : sizeClassFor(remainder);
+      if ((segments[i] = get(index)) == null) {
+        if (debugEnabled) log.debug("could not provide {} bytes, allocated={}, maxMemory={}", size, allocated.get(), maxMemory);
+        for (int j=0; j<i; j++) releaseSegment(segments[j]);
+        return null;
+      }
+    }
+    references.put(segments, new SegmentsReference(owner, segments, referenceQueue));
+    return segments;
+  }
+
+  /**
+   * Return the specified segments to this pool, without waiting for their owner to be garbage-collected.
+   * The segments must no longer be used after this method is called. Releasing segments which were already returned to the pool has no effect.
+   * @param segments the segments to release, as provided by {@link #provide(int, Object)}.
+   */
+  public void release(final ByteBuffer[] segments) {
+    final SegmentsReference ref = references.remove(segments);
+    if (ref == null) return;
+    ref.clear();
+    for (final ByteBuffer segment: segments) releaseSegment(segment);
+  }
+
+  /**
+   * @return the number of bytes currently allocated by this pool, including free segments.
+   */
+  public long getAllocatedMemory() {
+    return allocated.get();
+  }
+
+  /**
+   * @return the maximum number of bytes this pool can allocate.
+   */
+  public long getMaxMemory() {
+    return maxMemory;
+  }
+
+  /**
+   * Get a free segment from the specified size class, or allocate a new one if there is enough memory left.
+   * @param index the index of the size class.
+   * @return a cleared buffer, or {@code null} if the maximum memory would be exceeded.
+   */
+  private ByteBuffer get(final int index) {
+    final ByteBuffer buffer = queues[index].poll();
+    if (buffer != null) return buffer;
+    final int capacity = SEGMENT_SIZES[index];
+    long current;
+    do {
+      current = allocated.get();
+      if (current + capacity > maxMemory) return null;
+    } while (!allocated.compareAndSet(current, current + capacity));
+    try {
+      return queues[index].create();
+    } catch (final OutOfMemoryError e) {
+      allocated.addAndGet(-capacity);
+      if (debugEnabled) log.debug("could not allocate direct buffer of {} bytes: {}", capacity, ExceptionUtils.getMessage(e));
+      return null;
+    }
+  }
+
+  /**
+   * Return the segments of all the garbage-collected owners to the pool.
+   */
+  private void recycle() {
+    Reference<?> ref;
+    while ((ref = referenceQueue.poll()) != null) {
+      final SegmentsReference segmentsRef = (SegmentsReference) ref;
+      // the segments may have been released explicitly in the meantime
+      if (references.remove(segmentsRef.segments) == null) continue;
+      for (final ByteBuffer segment: segmentsRef.segments) releaseSegment(segment);
+    }
+  }
+
+  /**
+   * Return a segment to the pool of its size class.
+   * @param segment the segment to return.
+   */
+  private void releaseSegment(final ByteBuffer segment) {
+    queues[sizeClassFor(segment.capacity())].put(segment);
+  }
+
+  /**
+   * Get the index of the smallest size class that can hold the specified number of bytes.
+   * @param size the number of bytes to hold, at most equal to the largest size class.
+   * @return the index of a size class.
+   */
+  private static int sizeClassFor(final int size) {
+    for (int i=0; i<SEGMENT_SIZES.length - 1; i++) {
+      if (size <= SEGMENT_SIZES[i]) return i;
+    }
+    return SEGMENT_SIZES.length - 1;
+  }
+
+  /**
+   * A phantom reference to the owner of an array of segments, which holds on to the segments themselves.
+   */
+  private static final class SegmentsReference extends PhantomReference<Object> {
+    /**
+     * The segments to return to the pool once the owner is garbage-collected.
+     */
+    private final ByteBuffer[] segments;
+
+    /**
+     * Initialize this reference.
+     * @param owner the owner of the segments.
+     * @param segments the segments to return to the pool once the owner is garbage-collected.
+     * @param queue the queue with which this reference is registered.
+     */
+    private SegmentsReference(final Object owner, final ByteBuffer[] segments, final ReferenceQueue<Object> queue) {
+      super(owner, queue);
+      this.segments = segments;
+    }
+  }
+}
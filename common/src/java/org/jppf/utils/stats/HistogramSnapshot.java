@@ -0,0 +1,385 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.utils.stats;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A non-cumulative snapshot which, in addition to the total, latest, min, max and average values, records the distribution of the values in a histogram,
+ * from which the percentiles of the values can be computed.
+ * <p>The histogram has log-linear buckets: each power of two is divided into 16 buckets of equal width, for a relative error of the percentiles
+ * below 3.2%, in a range of values from about 0.001 to 2<sup>40</sup>. Values below this range are counted in a single bucket, values above it
+ * are counted in the last bucket.
+ * <p>Updates are lock-free and the counters are striped, so that concurrent updates from multiple threads do not contend with each other.
+ * As a consequence, the values read while the snapshot is being updated are only weakly consistent with each other.
+ * <p>The percentiles are only computed when they are read, with a single traversal of the histogram for any number of percentiles.
+ * The latest result is cached until the snapshot is updated again.
+ */
+public class HistogramSnapshot implements JPPFSnapshot {
+  /**
+   * Explicit serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+  /**
+   * Number of bits of the mantissa of a value which determine its bucket within a power of two.
+   */
+  private static final int SUB_BUCKET_BITS = 4;
+  /**
+   * Number of buckets for each power of two.
+   */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  /**
+   * Exponent of the smallest power of two covered by the histogram.
+   */
+  private static final int MIN_EXPONENT = -10;
+  /**
+   * Exponent of the power of two above the largest value covered by the histogram.
+   */
+  private static final int MAX_EXPONENT = 40;
+  /**
+   * Smallest value covered by the histogram. Smaller values are counted in the first bucket.
+   */
+  private static final double MIN_VALUE = Math.scalb(1d, MIN_EXPONENT);
+  /**
+   * Largest value covered by the histogram, exclusive. Larger values are counted in the last bucket.
+   */
+  private static final double MAX_VALUE = Math.scalb(1d, MAX_EXPONENT);
+  /**
+   * Total number of buckets, including the one for the values below the histogram's range.
+   */
+  static final int NB_BUCKETS = 1 + (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS;
+  /**
+   * Label for this snapshot.
+   */
+  private final String label;
+  /**
+   * The creation time of this snapshot, as the result of calling {@code System.nanoTime()}.
+   */
+  private final transient long creationNanos;
+  /**
+   * The last update time of this snapshot, as the result of calling {@code System.nanoTime() - creationTimeNanos}.
+   */
+  private volatile long updateNanos;
+  /**
+   * The total cumulated values.
+   */
+  private final DoubleAdder total = new DoubleAdder();
+  /**
+   * Count of values added to this snapshot.
+   */
+  private final LongAdder valueCount = new LongAdder();
+  /**
+   * The most recent value.
+   */
+  private volatile double latest;
+  /**
+   * The bits of the minimum value, as returned by {@link Double#doubleToLongBits(double)}.
+   */
+  private final AtomicLong minBits = new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+  /**
+   * The bits of the maximum value, as returned by {@link Double#doubleToLongBits(double)}.
+   */
+  private final AtomicLong maxBits = new AtomicLong(Double.doubleToLongBits(0d));
+  /**
+   * The count of values in each bucket, lazily created when a bucket receives its first value.
+   */
+  private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(NB_BUCKETS);
+  /**
+   * The latest computed percentiles, valid as long as this snapshot is not updated.
+   */
+  private transient volatile PercentilesCache percentilesCache;
+
+  /**
+   * Initialize this snapshot with a specified title.
+   * @param label the title for this snapshot.
+   * @exclude
+   */
+  public HistogramSnapshot(final String label) {
+    this.label = label;
+    this.creationNanos = System.nanoTime();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>As for a {@link NonCumulativeSnapshot}, the average of the accumulated values becomes the latest value, and is recorded {@code count} times in the histogram.
+   * @exclude
+   */
+  @Override
+  public void addValues(final double accumulatedValues, final long count) {
+    updateNanos = System.nanoTime() - creationNanos;
+    total.add(accumulatedValues);
+    if (count > 0L) {
+      final double value = (count == 1L) ? accumulatedValues : accumulatedValues / count;
+      latest = value;
+      updateMin(value);
+      updateMax(value);
+      getBucket(bucketIndex(value)).add(count);
+      valueCount.add(count);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * @exclude
+   */
+  @Override
+  public JPPFSnapshot copy() {
+    final HistogramSnapshot copy = new HistogramSnapshot(label);
+    copy.updateNanos = updateNanos;
+    copy.total.add(total.sum());
+    copy.valueCount.add(valueCount.sum());
+    copy.latest = latest;
+    copy.minBits.set(minBits.get());
+    copy.maxBits.set(maxBits.get());
+    for (int i=0; i<NB_BUCKETS; i++) {
+      final LongAdder bucket = buckets.get(i);
+      if (bucket != null) copy.getBucket(i).add(bucket.sum());
+    }
+    return copy;
+  }
+
+  /**
+   * {@inheritDoc}
+   * @exclude
+   */
+  @Override
+  public void reset() {
+    updateNanos = System.nanoTime() - creationNanos;
+    total.reset();
+    valueCount.reset();
+    latest = 0d;
+    minBits.set(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+    maxBits.set(Double.doubleToLongBits(0d));
+    for (int i=0; i<NB_BUCKETS; i++) {
+      final LongAdder bucket = buckets.get(i);
+      if (bucket != null) bucket.reset();
+    }
+  }
+
+  @Override
+  public double getTotal() {
+    return total.sum();
+  }
+
+  @Override
+  public double getLatest() {
+    return latest;
+  }
+
+  @Override
+  public double getMin() {
+    final double min = Double.longBitsToDouble(minBits.get());
+    return (Double.compare(min, Double.POSITIVE_INFINITY) == 0) ? latest : min;
+  }
+
+  @Override
+  public double getMax() {
+    return Double.longBitsToDouble(maxBits.get());
+  }
+
+  @Override
+  public double getAvg() {
+    final long count = valueCount.sum();
+    return (count == 0L) ? 0d : total.sum() / count;
+  }
+
+  @Override
+  public String getLabel() {
+    return label;
+  }
+
+  @Override
+  public long getValueCount() {
+    return valueCount.sum();
+  }
+
+  @Override
+  public long getLastUpdateNanos() {
+    return updateNanos;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>The returned value is the middle of the histogram bucket in which the percentile falls, bounded by the observed min and max values.
+   * The 100th percentile is the exact max value.
+   */
+  @Override
+  public double getPercentile(final double percentile) {
+    return getPercentiles(percentile)[0];
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>Each returned value is the middle of the histogram bucket in which the percentile falls, bounded by the observed min and max values.
+   * The 100th percentile is the exact max value.
+   */
+  @Override
+  public double[] getPercentiles(final double...percentiles) {
+    final long nanos = updateNanos;
+    final PercentilesCache cache = percentilesCache;
+    if ((cache != null) && (cache.updateNanos == nanos) && Arrays.equals(cache.percentiles, percentiles)) return cache.values.clone();
+    final double[] values = computePercentiles(percentiles);
+    percentilesCache = new PercentilesCache(nanos, percentiles.clone(), values.clone());
+    return values;
+  }
+
+  /**
+   * Compute the specified percentiles in a single traversal of the histogram.
+   * @param percentiles the percentages of values, in the range [0, 100].
+   * @return the values of the percentiles, in the same order as the percentages.
+   */
+  private double[] computePercentiles(final double[] percentiles) {
+    final double[] values = new double[percentiles.length];
+    long n = 0L;
+    for (int i=0; i<NB_BUCKETS; i++) {
+      final LongAdder bucket = buckets.get(i);
+      if (bucket != null) n += bucket.sum();
+    }
+    if (n <= 0L) return values;
+    final double min = getMin(), max = getMax();
+    // process the percentiles by ascending rank, so the histogram is only traversed once
+    final long[] ranks = new long[percentiles.length];
+    final Integer[] order = new Integer[percentiles.length];
+    for (int i=0; i<percentiles.length; i++) {
+      final double p = Math.min(100d, Math.max(0d, percentiles[i]));
+      ranks[i] = Math.max(1L, (long) Math.ceil(p * n / 100d));
+      order[i] = i;
+    }
+    Arrays.sort(order, (o1, o2) -> Long.compare(ranks[o1], ranks[o2]));
+    int next = 0;
+    long cumulated = 0L;
+    for (int i=0; (i<NB_BUCKETS) && (next < order.length); i++) {
+      final LongAdder bucket = buckets.get(i);
+      if (bucket == null) continue;
+      cumulated += bucket.sum();
+      while ((next < order.length) && (ranks[order[next]] < n) && (cumulated >= ranks[order[next]])) {
+        values[order[next++]] = Math.min(max, Math.max(min, bucketMiddle(i)));
+      }
+    }
+    // the remaining percentiles are either the 100th or beyond the values counted while traversing the histogram
+    while (next < order.length) values[order[next++]] = max;
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(JPPFStatisticsHelper.getLocalizedLabel(this)).append(": type=").append(getClass().getSimpleName());
+    sb.append(": total=").append(getTotal());
+    sb.append(", latest=").append(getLatest());
+    sb.append(", min=").append(getMin());
+    sb.append(", max=").append(getMax());
+    sb.append(", avg=").append(getAvg());
+    sb.append(", valueCount=").append(getValueCount());
+    final double[] percentiles = getPercentiles(JPPFStatisticsHelper.PERCENTILES);
+    for (int i=0; i<percentiles.length; i++) sb.append(", ").append(JPPFStatisticsHelper.PERCENTILE_NAMES[i]).append('=').append(percentiles[i]);
+    return sb.toString();
+  }
+
+  /**
+   * Get the counter for the specified bucket, creating it if needed.
+   * @param index the index of the bucket.
+   * @return a {@link LongAdder} instance.
+   */
+  private LongAdder getBucket(final int index) {
+    final LongAdder bucket = buckets.get(index);
+    if (bucket != null) return bucket;
+    buckets.compareAndSet(index, null, new LongAdder());
+    return buckets.get(index);
+  }
+
+  /**
+   * Atomically update the minimum value if the specified value is smaller.
+   * @param value the candidate value.
+   */
+  private void updateMin(final double value) {
+    long current;
+    while (value < Double.longBitsToDouble(current = minBits.get())) {
+      if (minBits.compareAndSet(current, Double.doubleToLongBits(value))) break;
+    }
+  }
+
+  /**
+   * Atomically update the maximum value if the specified value is greater.
+   * @param value the candidate value.
+   */
+  private void updateMax(final double value) {
+    long current;
+    while (value > Double.longBitsToDouble(current = maxBits.get())) {
+      if (maxBits.compareAndSet(current, Double.doubleToLongBits(value))) break;
+    }
+  }
+
+  /**
+   * Compute the index of the bucket in which the specified value is counted.
+   * @param value the value to count.
+   * @return the index of a bucket.
+   */
+  static int bucketIndex(final double value) {
+    if (!(value >= MIN_VALUE)) return 0;
+    if (value >= MAX_VALUE) return NB_BUCKETS - 1;
+    final long bits = Double.doubleToRawLongBits(value);
+    final int exponent = (int) ((bits >>> 52) & 0x7ffL) - 1023;
+    final int subBucket = (int) ((bits >>> (52 - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Compute the value in the middle of the specified bucket.
+   * @param index the index of the bucket.
+   * @return the middle value of the bucket.
+   */
+  static double bucketMiddle(final int index) {
+    if (index <= 0) return MIN_VALUE / 2d;
+    final int exponent = MIN_EXPONENT + (index - 1) / SUB_BUCKETS;
+    final int subBucket = (index - 1) % SUB_BUCKETS;
+    return Math.scalb(1d + (subBucket + 0.5d) / SUB_BUCKETS, exponent);
+  }
+
+  /**
+   * The result of the latest computation of percentiles.
+   */
+  private static final class PercentilesCache {
+    /**
+     * The last update time of the snapshot when the percentiles were computed.
+     */
+    private final long updateNanos;
+    /**
+     * The requested percentages of values.
+     */
+    private final double[] percentiles;
+    /**
+     * The computed values of the percentiles.
+     */
+    private final double[] values;
+
+    /**
+     * Initialize this cache.
+     * @param updateNanos the last update time of the snapshot when the percentiles were computed.
+     * @param percentiles the requested percentages of values.
+     * @param values the computed values of the percentiles.
+     */
+    private PercentilesCache(final long updateNanos, final double[] percentiles, final double[] values) {
+      this.updateNanos = updateNanos;
+      this.percentiles = percentiles;
+      this.values = values;
+    }
+  }
+}
@@ -96,6 +96,27 @@ public interface JPPFSnapshot extends Serializable {
    */
   long getLastUpdateNanos();
 
+  /**
+   * Get the value below which the specified percentage of the observed values fall, for instance {@code getPercentile(99.9d)} for the 99.9th percentile.
+   * Only {@link HistogramSnapshot histogram snapshots} record the distribution of their values; other snapshots return {@code Double.NaN}.
+   * @param percentile the percentage of values, in the range [0, 100].
+   * @return the value of the percentile as a double.
+   */
+  default double getPercentile(final double percentile) {
+    return Double.NaN;
+  }
+
+  /**
+   * Get the values of the specified percentiles. This is more efficient than calling {@link #getPercentile(double)} for each percentile.
+   * @param percentiles the percentages of values, each in the range [0, 100].
+   * @return the values of the percentiles, in the same order as the percentages.
+   */
+  default double[] getPercentiles(final double...percentiles) {
+    final double[] values = new double[percentiles.length];
+    for (int i=0; i<percentiles.length; i++) values[i] = getPercentile(percentiles[i]);
+    return values;
+  }
+
   /**
    * Base class for filters including or excluding snpashots based on a provided set of labels.
    * @exclude
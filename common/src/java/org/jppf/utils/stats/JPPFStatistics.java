@@ -118,6 +118,21 @@ public class JPPFStatistics implements Serializable, Iterable<JPPFSnapshot> {
     return snapshot;
   }
 
+  /**
+   * Create a histogram snapshot with the specified label if it doesn't exist.
+   * If a snapshot with this label already exists, it is returned.
+   * @param label the label of the snapshot to create.
+   * @return a {@link JPPFSnapshot} instance representing the newly created snapshot or the existing one.
+   * @exclude
+   */
+  public JPPFSnapshot createHistogramSnapshot(final String label) {
+    final JPPFSnapshot newSnapshot = new HistogramSnapshot(label);
+    final JPPFSnapshot oldSnapshot = snapshots.putIfAbsent(label, newSnapshot);
+    final JPPFSnapshot snapshot = oldSnapshot == null ? newSnapshot : oldSnapshot;
+    if (!listeners.isEmpty()) fireEvent(snapshot, EventType.ADDED);
+    return snapshot;
+  }
+
   /**
    * Create an array of snapshots with the specified labels, if it doesn't exist.
    * If one of the snapshots already exists, it is returned.
@@ -156,6 +171,19 @@ public class JPPFStatistics implements Serializable, Iterable<JPPFSnapshot> {
     return snapshots;
   }
 
+  /**
+   * Create an array of histogram snapshots with the specified labels, if they don't exist.
+   * If any of the snapshots already exists, it is returned.
+   * @param labels the label of the snapshot to create.
+   * @return an array of {@link JPPFSnapshot} instances representing the newly created or existing snapshots, in the same order as the input labels.
+   * @exclude
+   */
+  public JPPFSnapshot[] createHistogramSnapshots(final String...labels) {
+    final JPPFSnapshot[] snapshots = new JPPFSnapshot[labels.length];
+    for (int i=0; i<labels.length; i++) snapshots[i] = createHistogramSnapshot(labels[i]);
+    return snapshots;
+  }
+
   /**
    * Remove the snapshot with the specified label.
    * If a snapshot with this label already exists, it is returned.
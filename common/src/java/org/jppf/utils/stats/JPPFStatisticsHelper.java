@@ -21,6 +21,7 @@ package org.jppf.utils.stats;
 import java.util.*;
 
 import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
 
 
 /**
@@ -157,6 +158,44 @@ public final class JPPFStatisticsHelper {
    * Bytes sent to unidentified remote peers.
    */
   public static final String UNKNOWN_OUT_TRAFFIC = "unknwon.traffic.out";
+  /**
+   * Bytes of task data and results relayed to nodes and clients directly from the buffers or files they were received into, without intermediate copy.
+   */
+  public static final String ZERO_COPY_TRAFFIC = "zero.copy.traffic.out";
+  /**
+   * Number of job elements pending in the job persistence write-behind pipeline.
+   */
+  public static final String PERSISTENCE_QUEUE_COUNT = "persistence.queue.count";
+  /**
+   * Time between the submission of job persistence operations to the write-behind pipeline and their completion.
+   */
+  public static final String PERSISTENCE_TIME = "persistence.time";
+  /**
+   * Time to serialize each task sent by a client.
+   */
+  public static final String CLIENT_TASK_SERIALIZATION_TIME = "client.task.serialization.time";
+  /**
+   * Bytes of serialized tasks sent by a client.
+   */
+  public static final String CLIENT_TASK_SERIALIZATION_BYTES = "client.task.serialization.bytes";
+  /**
+   * Throughput of the serialization of the tasks sent by a client, in MB/s, measured for each set of tasks sent to a driver.
+   * It is based on the time spent serializing the tasks, excluding the time spent writing them to the connection.
+   */
+  public static final String CLIENT_TASK_SERIALIZATION_THROUGHPUT = "client.task.serialization.throughput";
+  /**
+   * The percentiles provided by the histogram snapshots, in the same order as {@link #PERCENTILE_NAMES}.
+   */
+  public static final double[] PERCENTILES = { 50d, 90d, 99d, 99.9d };
+  /**
+   * The names of the percentiles provided by the histogram snapshots, in the same order as {@link #PERCENTILES}.
+   */
+  public static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+  /**
+   * The timing snapshots of a server which can record the distribution of their values.
+   */
+  private static final String[] SERVER_TIMING_SNAPSHOTS = { EXECUTION, NODE_EXECUTION, TRANSPORT_TIME, TASK_QUEUE_TIME, JOB_TIME, JOB_DISPATCH_TIME,
+    NODE_CLASS_REQUESTS_TIME, CLIENT_CLASS_REQUESTS_TIME, PERSISTENCE_TIME };
 
   /**
    * Determine wether the specified snapshot is a single value snapshot.
@@ -185,6 +224,15 @@ public final class JPPFStatisticsHelper {
     return snapshot instanceof NonCumulativeSnapshot;
   }
 
+  /**
+   * Determine wether the specified snapshot is a histogram snapshot.
+   * @param snapshot the snapshot to evaluate.
+   * @return {@code true} if the snapshot is a histogram snapshot, {@code false} otherwise.
+   */
+  public static boolean isHistogram(final JPPFSnapshot snapshot) {
+    return snapshot instanceof HistogramSnapshot;
+  }
+
   /**
    * Get the localized translation of the label of the specified snapshot in the current locale.
    * @param snapshot the snapshot whose label to translate.
@@ -211,6 +259,17 @@ public final class JPPFStatisticsHelper {
    * @param snapshot the snapshot to update from.
    */
   public static void toProperties(final TypedProperties statsProperties, final JPPFSnapshot snapshot) {
+    toProperties(statsProperties, snapshot, true);
+  }
+
+  /**
+   * Add or update the values of the specified snapshot as properties in the specified set of properties.
+   * @param statsProperties the set of properties to update.
+   * @param snapshot the snapshot to update from.
+   * @param includePercentiles whether to also update the percentiles of a histogram snapshot, which requires a traversal of its histogram.
+   * @exclude
+   */
+  public static void toProperties(final TypedProperties statsProperties, final JPPFSnapshot snapshot, final boolean includePercentiles) {
     final String label = snapshot.getLabel() + '.';
     statsProperties.setDouble(label + "total", snapshot.getTotal());
     if (snapshot.getClass() != SingleValueSnapshot.class) {
@@ -220,22 +279,71 @@ public final class JPPFStatisticsHelper {
       statsProperties.setDouble(label + "avg", snapshot.getAvg());
       statsProperties.setDouble(label + "count", snapshot.getValueCount());
     }
+    if (includePercentiles && isHistogram(snapshot)) percentilesToProperties(statsProperties, snapshot);
   }
 
   /**
-   * Create a statistics object initialized with all the required server snapshots.
+   * Update the percentiles of all the histogram snapshots of the specified statistics in the specified set of properties.
+   * @param statsProperties the set of properties to update.
+   * @param statistics the statistics to update from.
+   * @exclude
+   */
+  public static void percentilesToProperties(final TypedProperties statsProperties, final JPPFStatistics statistics) {
+    for (final JPPFSnapshot snapshot: statistics) {
+      if (isHistogram(snapshot)) percentilesToProperties(statsProperties, snapshot);
+    }
+  }
+
+  /**
+   * Update the percentiles of the specified histogram snapshot in the specified set of properties.
+   * @param statsProperties the set of properties to update.
+   * @param snapshot the snapshot to update from.
+   */
+  private static void percentilesToProperties(final TypedProperties statsProperties, final JPPFSnapshot snapshot) {
+    final String label = snapshot.getLabel() + '.';
+    final double[] percentiles = snapshot.getPercentiles(PERCENTILES);
+    for (int i=0; i<percentiles.length; i++) statsProperties.setDouble(label + PERCENTILE_NAMES[i], percentiles[i]);
+  }
+
+  /**
+   * Create a statistics object initialized with all the required server snapshots, based on the global configuration.
    * @return a {@link JPPFStatistics} instance.
    * @exclude
    */
   public static JPPFStatistics createServerStatistics() {
+    return createServerStatistics(JPPFConfiguration.getProperties());
+  }
+
+  /**
+   * Create a statistics object initialized with all the required server snapshots.
+   * @param config the configuration which determines whether the timing snapshots record the distribution of their values.
+   * @return a {@link JPPFStatistics} instance.
+   * @exclude
+   */
+  public static JPPFStatistics createServerStatistics(final TypedProperties config) {
     final JPPFStatistics statistics = new JPPFStatistics();
     new ServiceFinder().findProviders(JPPFFilteredStatisticsListener.class)
       .forEach(listener -> statistics.addListener(listener, listener.getFilter()));
-    statistics.createSnapshots(false, EXECUTION, NODE_EXECUTION, TRANSPORT_TIME, TASK_QUEUE_TIME, JOB_TIME, JOB_TASKS, JOB_DISPATCH_TIME, JOB_DISPATCH_TASKS, DISPATCH_PER_JOB_COUNT, TASK_DISPATCH,
-        NODE_CLASS_REQUESTS_TIME, CLIENT_CLASS_REQUESTS_TIME);
-    statistics.createSnapshots(true, TASK_QUEUE_COUNT, JOB_COUNT, JOB_DISPATCH_COUNT, NODES, IDLE_NODES, CLIENTS);
+    if (config.get(JPPFProperties.STATISTICS_HISTOGRAMS_ENABLED)) statistics.createHistogramSnapshots(SERVER_TIMING_SNAPSHOTS);
+    else statistics.createSnapshots(false, SERVER_TIMING_SNAPSHOTS);
+    statistics.createSnapshots(false, JOB_TASKS, JOB_DISPATCH_TASKS, DISPATCH_PER_JOB_COUNT, TASK_DISPATCH);
+    statistics.createSnapshots(true, TASK_QUEUE_COUNT, JOB_COUNT, JOB_DISPATCH_COUNT, NODES, IDLE_NODES, CLIENTS, PERSISTENCE_QUEUE_COUNT);
     statistics.createSingleValueSnapshots(TASK_QUEUE_TOTAL, JOB_TOTAL, JOB_DISPATCH_TOTAL, NODE_IN_TRAFFIC, NODE_OUT_TRAFFIC, CLIENT_IN_TRAFFIC, CLIENT_OUT_TRAFFIC,
-        PEER_IN_TRAFFIC, PEER_OUT_TRAFFIC, JMX_IN_TRAFFIC, JMX_OUT_TRAFFIC, UNKNOWN_IN_TRAFFIC, UNKNOWN_OUT_TRAFFIC);
+        PEER_IN_TRAFFIC, PEER_OUT_TRAFFIC, JMX_IN_TRAFFIC, JMX_OUT_TRAFFIC, UNKNOWN_IN_TRAFFIC, UNKNOWN_OUT_TRAFFIC, ZERO_COPY_TRAFFIC);
+    return statistics;
+  }
+
+  /**
+   * Create a statistics object initialized with all the required client snapshots.
+   * @return a {@link JPPFStatistics} instance.
+   * @exclude
+   */
+  public static JPPFStatistics createClientStatistics() {
+    final JPPFStatistics statistics = new JPPFStatistics();
+    if (JPPFConfiguration.get(JPPFProperties.STATISTICS_HISTOGRAMS_ENABLED)) statistics.createHistogramSnapshot(CLIENT_TASK_SERIALIZATION_TIME);
+    else statistics.createSnapshot(false, CLIENT_TASK_SERIALIZATION_TIME);
+    statistics.createSnapshot(false, CLIENT_TASK_SERIALIZATION_THROUGHPUT);
+    statistics.createSingleValueSnapshots(CLIENT_TASK_SERIALIZATION_BYTES);
     return statistics;
   }
 }
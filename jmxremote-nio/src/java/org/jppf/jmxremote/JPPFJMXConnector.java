@@ -36,7 +36,7 @@ import org.jppf.comm.socket.*;
 import org.jppf.jmx.*;
 import org.jppf.jmxremote.message.*;
 import org.jppf.jmxremote.nio.*;
-import org.jppf.jmxremote.notification.ClientListenerInfo;
+import org.jppf.jmxremote.notification.*;
 import org.jppf.utils.*;
 import org.slf4j.*;
 
@@ -256,7 +256,13 @@ public class JPPFJMXConnector implements JMXConnector {
         if (info != null) infos.add(info);
       }
     }
-    for  (final ClientListenerInfo info: infos) info.getListener().handleNotification(jmxNotification.getNotification(), info.getHandback());
+    final Notification notification = jmxNotification.getNotification();
+    for  (final ClientListenerInfo info: infos) {
+      final NotificationListener listener = info.getListener();
+      if ((notification instanceof NotificationBatch) && !(listener instanceof NotificationBatchListener)) {
+        for (final Notification notif: ((NotificationBatch) notification).getNotifications()) listener.handleNotification(notif, info.getHandback());
+      } else listener.handleNotification(notification, info.getHandback());
+    }
   }
 
   /**
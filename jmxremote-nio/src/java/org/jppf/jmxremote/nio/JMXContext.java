@@ -195,7 +195,7 @@ public class JMXContext extends AbstractNioContext {
    */
   @Override
   public SelectionKey getSelectionKey() {
-    if (selectionKey == null) selectionKey = socketChannel.keyFor(server.getSelector());
+    if (selectionKey == null) selectionKey = server.keyFor(socketChannel);
     return selectionKey;
   }
 
@@ -31,13 +31,12 @@ import org.jppf.jmx.JMXHelper;
 import org.jppf.jmxremote.JMXAuthorizationChecker;
 import org.jppf.jmxremote.message.*;
 import org.jppf.nio.*;
-import org.jppf.utils.*;
-import org.jppf.utils.concurrent.*;
+import org.jppf.utils.ExceptionUtils;
 import org.slf4j.*;
 
 /**
- * Reads from the channel until no more data is available. Each fully read message is handed off
- * to a global thread pool for deserialization and processing.
+ * Reads from the channel until no more data is available. Each fully read request or response is handed off
+ * to a global thread pool for deserialization and processing, while notifications are handed off to the {@link NotificationDispatcher} of the server.
  * @author Laurent Cohen
  */
 class JMXMessageReader {
@@ -49,15 +48,6 @@ class JMXMessageReader {
    * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
    */
   private static final boolean debugEnabled = log.isDebugEnabled();
-  /**
-   * Handles the JMX notifications in a separate thread.
-   */
-  private static QueueHandler<Pair<JMXContext, JMXMessage>> queueHandler = QueueHandler.<Pair<JMXContext, JMXMessage>>builder()
-    .named("JMXNotificationsHandler")
-    .handlingElementsAs(pair -> handleMessage(pair.first(), pair.second()))
-    .usingSingleDequuerThread()
-    .build();
-
   /**
    * Read from the channel until no more data is available (i.e. socket receive buffer is empty).
    * @param context the JMX context that reads the data.
@@ -92,7 +82,10 @@ class JMXMessageReader {
         if (debugEnabled) log.debug("read message from {}", context);
         context.setReadMessage(null);
         final JMXMessage msg = context.deserializeMessage(nioMessage);
-        if (msg instanceof JMXNotification) queueHandler.put(new Pair<>(context, msg));
+        if (msg instanceof JMXNotification) {
+          final ChannelsPair pair = context.getChannels();
+          if (!pair.isClosed() && !pair.isClosing()) context.getServer().getNotificationDispatcher().dispatch(pair, (JMXNotification) msg, notif -> handleMessage(context, notif));
+        }
         else executor.execute(() -> handleMessage(context, msg));
       } else if (context.readByteCount <= 0L) break;
     }
@@ -96,6 +96,10 @@ public final class JMXNioServer extends StatelessNioServer<JMXContext> implement
    * The maximum number of notifications waiiting to be sent in a JMX connection.
    */
   private final SynchronizedInteger peakPeakPendingMessages = new SynchronizedInteger(0);
+  /**
+   * Delivers the notifications received by the connections of this server.
+   */
+  private final NotificationDispatcher notificationDispatcher;
 
   /**
    * @throws Exception if any error occurs.
@@ -103,6 +107,7 @@ public final class JMXNioServer extends StatelessNioServer<JMXContext> implement
   JMXNioServer() throws Exception {
     super(JPPFIdentifiers.serverName(JPPFIdentifiers.JMX_REMOTE_CHANNEL) + "-" + instanceCount.incrementAndGet(), JPPFIdentifiers.JMX_REMOTE_CHANNEL, false, null);
     serverNotificationHandler = new ServerNotificationHandler(this);
+    notificationDispatcher = new NotificationDispatcher(getName());
     this.selectTimeout = NioConstants.DEFAULT_SELECT_TIMEOUT;
     registerMBean();
     final AcceptorNioServer acceptor = (AcceptorNioServer) NioHelper.getServer(JPPFIdentifiers.ACCEPTOR_CHANNEL);
@@ -281,6 +286,7 @@ public final class JMXNioServer extends StatelessNioServer<JMXContext> implement
     } catch (final Exception e) {
       if (ex == null) ex = e;
     } finally {
+      notificationDispatcher.connectionClosed(pair);
       if (pair.isServerSide()) { 
         synchronized(mapsLock) {
           channelsByConnectionID.remove(connectionID);
@@ -299,6 +305,12 @@ public final class JMXNioServer extends StatelessNioServer<JMXContext> implement
     }
   }
 
+  @Override
+  public void end() {
+    super.end();
+    notificationDispatcher.close();
+  }
+
   @Override
   public void removeAllConnections() {
     if (!isStopped()) return;
@@ -399,6 +411,14 @@ public final class JMXNioServer extends StatelessNioServer<JMXContext> implement
     return serverNotificationHandler;
   }
 
+  /**
+   * Get the object that delivers the notifications received by the connections of this server.
+   * @return a {@link NotificationDispatcher} instance.
+   */
+  NotificationDispatcher getNotificationDispatcher() {
+    return notificationDispatcher;
+  }
+
   @Override
   public String stats() {
     final StringBuilder sb = new StringBuilder();
@@ -408,6 +428,10 @@ public final class JMXNioServer extends StatelessNioServer<JMXContext> implement
       sb.append("connectionsByServerPort:");
       for (final Map.Entry<Integer, Collection<String>> entry: connectionsByServerPort.entrySet()) sb.append("\n  ").append(entry.getKey()).append(" --> ").append(entry.getValue().size());
     }
+    sb.append("\ndeliveredNotifications = ").append(notificationDispatcher.getDeliveredCount());
+    sb.append("\ndroppedNotifications = ").append(notificationDispatcher.getDroppedCount());
+    sb.append("\ncoalescedNotifications = ").append(notificationDispatcher.getCoalescedCount());
+    sb.append("\nnotificationBatches = ").append(notificationDispatcher.getBatchCount());
     return sb.toString();
   }
 
@@ -428,11 +452,36 @@ public final class JMXNioServer extends StatelessNioServer<JMXContext> implement
     acceptHandler = null;
   }
 
+  @Override
+  protected boolean isSelectorShardingSupported() {
+    return true;
+  }
+
   @Override
   public int getPeakPendingMessages() {
     return peakPeakPendingMessages.get();
   }
 
+  @Override
+  public long getDeliveredNotifications() {
+    return notificationDispatcher.getDeliveredCount();
+  }
+
+  @Override
+  public long getDroppedNotifications() {
+    return notificationDispatcher.getDroppedCount();
+  }
+
+  @Override
+  public long getCoalescedNotifications() {
+    return notificationDispatcher.getCoalescedCount();
+  }
+
+  @Override
+  public long getNotificationBatches() {
+    return notificationDispatcher.getBatchCount();
+  }
+
   /**
    * Update the peak notifications count.
    * @param value the value to update with.
@@ -41,4 +41,28 @@ public interface JMXNioServerMBean extends Serializable {
    * @return the peak queue size as an int.
    */
   int getPeakPendingMessages();
+
+  /**
+   * Get the number of received notifications delivered individually to the listeners of all the connections.
+   * @return the number of delivered notifications as a long.
+   */
+  long getDeliveredNotifications();
+
+  /**
+   * Get the number of received notifications that were dropped because too many notifications were pending for their connection.
+   * @return the number of dropped notifications as a long.
+   */
+  long getDroppedNotifications();
+
+  /**
+   * Get the number of received notifications that were grouped into batches, when notifications coalescing is enabled.
+   * @return the number of coalesced notifications as a long.
+   */
+  long getCoalescedNotifications();
+
+  /**
+   * Get the number of batch notifications delivered to the listeners of all the connections.
+   * @return the number of batches as a long.
+   */
+  long getNotificationBatches();
 }
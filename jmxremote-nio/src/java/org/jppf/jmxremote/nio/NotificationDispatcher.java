@@ -0,0 +1,420 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jppf.jmxremote.nio;
+
+import static org.jppf.utils.configuration.JPPFProperties.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.management.Notification;
+
+import org.jppf.job.*;
+import org.jppf.jmxremote.message.JMXNotification;
+import org.jppf.jmxremote.notification.*;
+import org.jppf.management.TaskExecutionNotification;
+import org.jppf.management.forwarding.JPPFNodeForwardingNotification;
+import org.jppf.utils.*;
+import org.jppf.utils.concurrent.*;
+import org.slf4j.*;
+
+/**
+ * Delivers the JMX notifications received by the connections of a {@link JMXNioServer} to their listeners.
+ * <p>Each connection has its own lane, with a bounded queue of pending notifications, which are delivered in the order they were received.
+ * The lanes share a pool of worker threads, where each lane is processed by at most one thread at a time, so that a slow listener only
+ * delays the notifications of its own connection. As a consequence, the listeners of distinct connections may be invoked concurrently,
+ * whereas the notifications of a given connection are always delivered sequentially.
+ * <p>Task execution notifications received while the queue of a lane is full are dropped. All other notifications, in particular the job
+ * lifecycle notifications, are always queued, even beyond the capacity of the lane.
+ * <p>When coalescing is enabled, task execution notifications and job updated notifications are grouped into periodic {@link NotificationBatch}
+ * notifications, with only the latest job updated notification kept for each job. Batches are unpacked by the connector before they reach
+ * the listeners, except for those which implement {@link NotificationBatchListener}.
+ * @exclude
+ */
+public final class NotificationDispatcher {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * Maximum number of notifications a lane delivers before yielding its worker thread to the other lanes.
+   */
+  private static final int MAX_DELIVERIES_PER_RUN = 64;
+  /**
+   * The pool of threads shared by all the lanes.
+   */
+  private final ExecutorService executor;
+  /**
+   * Triggers the periodic delivery of the coalesced notifications, or {@code null} if coalescing is disabled.
+   */
+  private final ScheduledExecutorService flushExecutor;
+  /**
+   * The maximum number of pending notifications in a lane.
+   */
+  private final int queueCapacity;
+  /**
+   * The interval in millis at which coalesced notifications are delivered.
+   */
+  private final long coalescingPeriod;
+  /**
+   * Mapping of connections to their lane.
+   */
+  private final Map<Object, Lane> lanes = new ConcurrentHashMap<>();
+  /**
+   * Number of notifications delivered to the listeners, excluding those delivered as part of a batch.
+   */
+  private final AtomicLong deliveredCount = new AtomicLong(0L);
+  /**
+   * Number of notifications dropped because the queue of their lane was full.
+   */
+  private final AtomicLong droppedCount = new AtomicLong(0L);
+  /**
+   * Number of notifications grouped into a batch or superseded by a more recent job updated notification.
+   */
+  private final AtomicLong coalescedCount = new AtomicLong(0L);
+  /**
+   * Number of batch notifications delivered to the listeners.
+   */
+  private final AtomicLong batchCount = new AtomicLong(0L);
+
+  /**
+   * Initialize this dispatcher from the configuration.
+   * @param name the name of the server that uses this dispatcher, used as prefix for the threads names.
+   */
+  NotificationDispatcher(final String name) {
+    this(name, JPPFConfiguration.get(JMX_REMOTE_NOTIFICATION_THREADS), JPPFConfiguration.get(JMX_REMOTE_NOTIFICATION_QUEUE_SIZE),
+      JPPFConfiguration.get(JMX_REMOTE_NOTIFICATION_COALESCING_PERIOD));
+  }
+
+  /**
+   * Initialize this dispatcher with the specified parameters.
+   * @param name the name of the server that uses this dispatcher, used as prefix for the threads names.
+   * @param nbThreads the number of threads delivering the notifications.
+   * @param queueCapacity the maximum number of pending notifications in a lane.
+   * @param coalescingPeriod the interval in millis at which coalesced notifications are delivered, 0 to disable coalescing.
+   */
+  public NotificationDispatcher(final String name, final int nbThreads, final int queueCapacity, final long coalescingPeriod) {
+    this.executor = ConcurrentUtils.newFixedExecutor(nbThreads, name + "-Notifications");
+    this.queueCapacity = queueCapacity;
+    this.coalescingPeriod = coalescingPeriod;
+    this.flushExecutor = (coalescingPeriod > 0L) ? Executors.newSingleThreadScheduledExecutor(new JPPFThreadFactory(name + "-NotificationsFlush")) : null;
+    if (debugEnabled) log.debug("initialized with nbThreads={}, queueCapacity={}, coalescingPeriod={}", nbThreads, queueCapacity, coalescingPeriod);
+  }
+
+  /**
+   * Queue the specified notification for delivery in the lane of the connection that received it.
+   * @param connection the connection that received the notification.
+   * @param notification the notification to deliver.
+   * @param handler delivers the notifications of the connection to their listeners. Only the handler specified when the lane of the connection is created is used.
+   */
+  public void dispatch(final Object connection, final JMXNotification notification, final Consumer<JMXNotification> handler) {
+    Lane lane = lanes.get(connection);
+    if (lane == null) {
+      lane = new Lane(connection, handler);
+      final Lane other = lanes.putIfAbsent(connection, lane);
+      if (other != null) lane = other;
+    }
+    lane.submit(notification);
+  }
+
+  /**
+   * Discard the lane of the specified connection, along with its pending notifications.
+   * @param connection the connection that was closed.
+   */
+  public void connectionClosed(final Object connection) {
+    final Lane lane = lanes.remove(connection);
+    if (lane != null) lane.close();
+  }
+
+  /**
+   * Close this dispatcher and discard all pending notifications.
+   */
+  public void close() {
+    for (final Lane lane: lanes.values()) lane.close();
+    lanes.clear();
+    executor.shutdownNow();
+    if (flushExecutor != null) flushExecutor.shutdownNow();
+  }
+
+  /**
+   * @return the number of notifications delivered to the listeners, excluding those delivered as part of a batch.
+   */
+  public long getDeliveredCount() {
+    return deliveredCount.get();
+  }
+
+  /**
+   * @return the number of notifications dropped because the queue of their connection was full.
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * @return the number of notifications grouped into a batch or superseded by a more recent job updated notification.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  /**
+   * @return the number of batch notifications delivered to the listeners.
+   */
+  public long getBatchCount() {
+    return batchCount.get();
+  }
+
+  /**
+   * Determine whether the specified notification can be grouped with others into a batch.
+   * @param notification the notification to check.
+   * @return {@code true} for task execution notifications, possibly forwarded from a node, and job updated notifications, {@code false} otherwise.
+   */
+  private static boolean isCoalescable(final Notification notification) {
+    final Notification notif = (notification instanceof JPPFNodeForwardingNotification) ? ((JPPFNodeForwardingNotification) notification).getNotification() : notification;
+    return (notif instanceof TaskExecutionNotification) || isJobUpdate(notif);
+  }
+
+  /**
+   * Determine whether the specified notification can be dropped when the queue of its lane is full.
+   * @param notification the notification to check.
+   * @return {@code true} for task execution notifications, possibly forwarded from a node, {@code false} otherwise.
+   */
+  private static boolean isDroppable(final Notification notification) {
+    final Notification notif = (notification instanceof JPPFNodeForwardingNotification) ? ((JPPFNodeForwardingNotification) notification).getNotification() : notification;
+    return notif instanceof TaskExecutionNotification;
+  }
+
+  /**
+   * Determine whether the specified notification is a job updated notification.
+   * @param notification the notification to check.
+   * @return {@code true} if the notification is a job updated notification, {@code false} otherwise.
+   */
+  private static boolean isJobUpdate(final Notification notification) {
+    return (notification instanceof JobNotification) && (((JobNotification) notification).getEventType() == JobEventType.JOB_UPDATED);
+  }
+
+  /**
+   * Submit the specified lane for processing by the pool of threads.
+   * @param lane the lane to process.
+   */
+  private void execute(final Lane lane) {
+    try {
+      executor.execute(lane);
+    } catch (final RejectedExecutionException e) {
+      if (debugEnabled) log.debug("could not deliver notifications for {} : {}", lane.connection, ExceptionUtils.getMessage(e));
+    }
+  }
+
+  /**
+   * The ordered queue of pending notifications for a connection.
+   */
+  private final class Lane implements Runnable {
+    /**
+     * The connection that received the notifications.
+     */
+    private final Object connection;
+    /**
+     * Delivers the notifications to their listeners.
+     */
+    private final Consumer<JMXNotification> handler;
+    /**
+     * The notifications waiting to be delivered.
+     */
+    private final Deque<JMXNotification> queue = new ArrayDeque<>();
+    /**
+     * The batches being built, mapped to the listener IDs of their notifications.
+     */
+    private final Map<List<Integer>, Batch> batches = new LinkedHashMap<>();
+    /**
+     * The number of notifications in the batches being built.
+     */
+    private int batchedCount;
+    /**
+     * Whether this lane is currently submitted to, or processed by, the pool of threads.
+     */
+    private boolean scheduled;
+    /**
+     * Whether the delivery of the batches being built is scheduled.
+     */
+    private boolean flushScheduled;
+    /**
+     * Whether the connection was closed.
+     */
+    private boolean closed;
+
+    /**
+     * Initialize this lane.
+     * @param connection the connection that receives the notifications.
+     * @param handler delivers the notifications to their listeners.
+     */
+    private Lane(final Object connection, final Consumer<JMXNotification> handler) {
+      this.connection = connection;
+      this.handler = handler;
+    }
+
+    /**
+     * Add the specified notification to this lane.
+     * @param notification the notification to add.
+     */
+    private void submit(final JMXNotification notification) {
+      final Notification notif = notification.getNotification();
+      final boolean coalescable = (flushExecutor != null) && isCoalescable(notif);
+      boolean schedule = false, scheduleFlush = false;
+      synchronized(this) {
+        if (closed) return;
+        if ((queue.size() + batchedCount >= queueCapacity) && isDroppable(notif)) {
+          droppedCount.incrementAndGet();
+          if (debugEnabled) log.debug("dropping notification {} for {}", notification, connection);
+          return;
+        }
+        if (coalescable) {
+          addToBatch(notification);
+          coalescedCount.incrementAndGet();
+          if (!flushScheduled) scheduleFlush = flushScheduled = true;
+        } else {
+          // keep the notifications in the order they were received
+          moveBatchesToQueue();
+          queue.offer(notification);
+          if (!scheduled) schedule = scheduled = true;
+        }
+      }
+      if (scheduleFlush) scheduleFlush();
+      if (schedule) execute(this);
+    }
+
+    /**
+     * Add the specified notification to the batch for its listeners.
+     * @param notification the notification to add.
+     */
+    private void addToBatch(final JMXNotification notification) {
+      final List<Integer> key = Arrays.asList(notification.getListenerIDs());
+      Batch batch = batches.get(key);
+      if (batch == null) batches.put(key, batch = new Batch());
+      batch.messageID = notification.getMessageID();
+      final Notification notif = notification.getNotification();
+      if (isJobUpdate(notif)) {
+        if (batch.jobUpdates == null) batch.jobUpdates = new HashMap<>();
+        final String jobUuid = ((JobNotification) notif).getJobInformation().getJobUuid();
+        final Integer index = batch.jobUpdates.get(jobUuid);
+        if (index != null) {
+          batch.notifications.set(index, notif);
+          return;
+        }
+        batch.jobUpdates.put(jobUuid, batch.notifications.size());
+      }
+      batch.notifications.add(notif);
+      batchedCount++;
+    }
+
+    /**
+     * Move the batches being built to the queue of pending notifications. This method must be called while holding the lock on this lane.
+     */
+    private void moveBatchesToQueue() {
+      if (batches.isEmpty()) return;
+      for (final Map.Entry<List<Integer>, Batch> entry: batches.entrySet()) {
+        final Batch batch = entry.getValue();
+        final List<Integer> ids = entry.getKey();
+        queue.offer(new JMXNotification(batch.messageID, new NotificationBatch(batch.notifications), ids.toArray(new Integer[ids.size()])));
+      }
+      batches.clear();
+      batchedCount = 0;
+    }
+
+    /**
+     * Schedule the delivery of the batches being built at the end of the coalescing period.
+     */
+    private void scheduleFlush() {
+      try {
+        flushExecutor.schedule(this::flush, coalescingPeriod, TimeUnit.MILLISECONDS);
+      } catch (final RejectedExecutionException e) {
+        if (debugEnabled) log.debug("could not schedule the delivery of notifications for {} : {}", connection, ExceptionUtils.getMessage(e));
+      }
+    }
+
+    /**
+     * Queue the batches being built for delivery.
+     */
+    private void flush() {
+      boolean schedule = false;
+      synchronized(this) {
+        flushScheduled = false;
+        if (closed) return;
+        moveBatchesToQueue();
+        if (!queue.isEmpty() && !scheduled) schedule = scheduled = true;
+      }
+      if (schedule) execute(this);
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (int i=0; i<MAX_DELIVERIES_PER_RUN; i++) {
+          final JMXNotification notification;
+          synchronized(this) {
+            if ((notification = queue.poll()) == null) break;
+          }
+          if (notification.getNotification() instanceof NotificationBatch) batchCount.incrementAndGet();
+          else deliveredCount.incrementAndGet();
+          handler.accept(notification);
+        }
+      } finally {
+        final boolean reschedule;
+        synchronized(this) {
+          reschedule = !closed && !queue.isEmpty();
+          if (!reschedule) scheduled = false;
+        }
+        // yield to the other lanes if there are more notifications to deliver
+        if (reschedule) execute(this);
+      }
+    }
+
+    /**
+     * Discard the pending notifications and stop accepting new ones.
+     */
+    private synchronized void close() {
+      closed = true;
+      queue.clear();
+      batches.clear();
+      batchedCount = 0;
+    }
+  }
+
+  /**
+   * A batch of notifications being built for the same listeners.
+   */
+  private static final class Batch {
+    /**
+     * The grouped notifications.
+     */
+    private final List<Notification> notifications = new ArrayList<>();
+    /**
+     * Mapping of job uuids to the index of their latest job updated notification.
+     */
+    private Map<String, Integer> jobUpdates;
+    /**
+     * The message ID of the latest notification added to this batch.
+     */
+    private long messageID;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.jmxremote.notification;
+
+import java.util.*;
+
+import javax.management.Notification;
+
+/**
+ * A notification which groups high-rate notifications received by a JMX connection during a coalescing period.
+ * <p>Batches are only produced when coalescing is enabled with the {@code "jppf.jmxremote.notification.coalescing.period"} configuration property.
+ * The grouped notifications are in the order in which they were received, except for job updated notifications, of which only the latest one
+ * for each job is kept.
+ * <p>Batches are delivered as a whole only to the listeners which implement {@link NotificationBatchListener}. All other listeners receive
+ * the grouped notifications one at a time, as if coalescing was disabled.
+ * @since 6.3
+ */
+public class NotificationBatch extends Notification {
+  /**
+   * Explicit serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+  /**
+   * The type of all batch notifications.
+   */
+  public static final String BATCH_TYPE = "jppf.jmxremote.notification.batch";
+  /**
+   * The grouped notifications.
+   */
+  private final List<Notification> notifications;
+
+  /**
+   * Initialize this batch with the specified notifications.
+   * @param notifications the notifications to group, must not be empty.
+   */
+  public NotificationBatch(final List<Notification> notifications) {
+    super(BATCH_TYPE, notifications.get(0).getSource(), notifications.get(0).getSequenceNumber());
+    this.notifications = Collections.unmodifiableList(notifications);
+  }
+
+  /**
+   * Get the grouped notifications.
+   * @return an unmodifiable list of notifications.
+   */
+  public List<Notification> getNotifications() {
+    return notifications;
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(getClass().getSimpleName()).append('[')
+      .append("source=").append(getSource())
+      .append(", size=").append(notifications.size())
+      .append(']').toString();
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.jmxremote.notification;
+
+import javax.management.NotificationListener;
+
+/**
+ * A notification listener which receives the {@link NotificationBatch} notifications as a whole.
+ * <p>Listeners which do not implement this interface receive the notifications grouped in a batch one at a time, in the order of the batch.
+ * @since 6.3
+ */
+public interface NotificationBatchListener extends NotificationListener {
+}
@@ -34,9 +34,15 @@ import org.slf4j.*;
 /**
  * This class is a custom class loader serving the purpose of dynamically loading the JPPF classes and the client
  * application classes, to avoid costly redeployment system-wide.
+ * <p>This class loader is parallel capable: class loading is synchronized on a per-class name lock rather than on the class loader itself,
+ * such that concurrent lookups of distinct classes by the node's processing threads do not wait for each other. Concurrent remote lookups are
+ * then sent together to the server in the same batch by the {@link ClassLoaderRequestHandler}.
  * @author Laurent Cohen
  */
 public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLifeCycle {
+  static {
+    registerAsParallelCapable();
+  }
   /**
    * Logger for this class.
    */
@@ -46,17 +52,17 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    */
   private static boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
   /**
-   * Determines the class loading delegation model to use.
+   * Determines the class loading delegation model to use. Read without locking upon each class lookup.
    */
-  private static DelegationModel delegationModel = initDelegationModel();
+  private static volatile DelegationModel delegationModel = initDelegationModel();
   /**
    * System classloader for URL_FIRST delegation model.
    */
-  private ClassLoader systemClassLoader = null;
+  private volatile ClassLoader systemClassLoader = null;
   /**
    * Determines whether system classloader was initialized.
    */
-  private boolean systemClassLoaderInitialized = false;
+  private volatile boolean systemClassLoaderInitialized = false;
 
   /**
    * Initialize this class loader with a parent class loader.
@@ -87,12 +93,17 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * @throws ClassNotFoundException if the class could not be found
    * @exclude
    */
-  public synchronized Class<?> loadJPPFClass(final String name) throws ClassNotFoundException {
+  public Class<?> loadJPPFClass(final String name) throws ClassNotFoundException {
     if (debugEnabled) log.debug(build("looking up resource [", name, "]"));
     Class<?> c = findLoadedClass(name);
     if (c == null) {
       if (debugEnabled) log.debug(build("resource [", name, "] not already loaded"));
-      c = isRemoteClassLoadingDisabled() ? Class.forName(name, true, this) : findClass(name, false);
+      if (isRemoteClassLoadingDisabled()) c = Class.forName(name, true, this);
+      else {
+        synchronized (getClassLoadingLock(name)) {
+          c = findClass(name, false);
+        }
+      }
     }
     if (debugEnabled) log.debug(build("definition for resource [", name, "] : ", c));
     if ((c != null) && debugEnabled) log.debug("class '" + name + "' loaded by " + c.getClassLoader());
@@ -120,10 +131,22 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * @see java.lang.ClassLoader#findClass(java.lang.String)
    * @exclude
    */
-  protected synchronized Class<?> findClass(final String name, final boolean lookupClasspath) throws ClassNotFoundException {
-    Class<?> c = null;
+  protected Class<?> findClass(final String name, final boolean lookupClasspath) throws ClassNotFoundException {
     if (notFoundCache.has(name)) throw new ClassNotFoundException(build("Could not load class '", name, "'"));
-    c = findLoadedClass(name);
+    synchronized (getClassLoadingLock(name)) {
+      return findClassLocked(name, lookupClasspath);
+    }
+  }
+
+  /**
+   * Find a class in this class loader's classpath, or remotely. The caller must hold the class loading lock for the class name.
+   * @param name binary name of the resource to find.
+   * @param lookupClasspath specifies whether the class should be looked up in the URL classpath as well.
+   * @return a defined <code>Class</code> instance.
+   * @throws ClassNotFoundException if the class could not be loaded.
+   */
+  private Class<?> findClassLocked(final String name, final boolean lookupClasspath) throws ClassNotFoundException {
+    Class<?> c = findLoadedClass(name);
     if (c != null) return c;
     if (lookupClasspath) {
       c = findClassInURLClasspath(name, false);
@@ -139,8 +162,13 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
     final int i = name.lastIndexOf('.');
     if (i >= 0) {
       final String pkgName = name.substring(0, i);
-      final Package pkg = getPackage(pkgName);
-      if (pkg == null) definePackage(pkgName, null, null, null, null, null, null, null);
+      if (getPackage(pkgName) == null) {
+        try {
+          definePackage(pkgName, null, null, null, null, null, null, null);
+        } catch (@SuppressWarnings("unused") final IllegalArgumentException e) {
+          // the package was defined concurrently while loading another class
+        }
+      }
     }
     if (debugEnabled) log.debug(build("looking up definition for resource [", name, "]"));
     byte[] b = null;
@@ -324,7 +352,7 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * @exclude
    */
   @Override
-  protected synchronized Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+  protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
     final DelegationModel model = getDelegationModel();
     switch(model) {
       case URL_FIRST: return loadClassLocalFirst(name, resolve);
@@ -341,6 +369,20 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * @throws ClassNotFoundException if the class could not be found.
    */
   private Class<?> loadClassLocalFirst(final String name, final boolean resolve) throws ClassNotFoundException {
+    synchronized (getClassLoadingLock(name)) {
+      return loadClassLocalFirstLocked(name, resolve);
+    }
+  }
+
+  /**
+   * Load the class with the specified binary name, searching in the local (to the JVM) URL classpath first.
+   * The caller must hold the class loading lock for the class name.
+   * @param name the binary name of the class.
+   * @param resolve if true then resolve the class.
+   * @return the resulting Class object.
+   * @throws ClassNotFoundException if the class could not be found.
+   */
+  private Class<?> loadClassLocalFirstLocked(final String name, final boolean resolve) throws ClassNotFoundException {
     Class<?> c = findLoadedClass(name);
     if(c == null) {
       final ClassLoader cl = initSystemClassLoader();
@@ -381,12 +423,12 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    */
   private ClassLoader initSystemClassLoader() {
     if(!systemClassLoaderInitialized) {
-      systemClassLoaderInitialized = true;
       try {
         systemClassLoader = getSystemClassLoader();
       } catch (final Exception e) {
         if (debugEnabled) log.debug(e.getMessage(), e);
       }
+      systemClassLoaderInitialized = true;
     }
     return systemClassLoader;
   }
@@ -398,7 +440,7 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * @return a <code>Class</code> instance, or null if the class could not be found in the URL classpath.
    * @exclude
    */
-  private synchronized Class<?> findClassInURLClasspath(final String name, final boolean recursive){
+  private Class<?> findClassInURLClasspath(final String name, final boolean recursive){
     if (debugEnabled) log.debug("looking up resource [{}] in the URL classpath for {}", name, this);
     Class<?> c = findLoadedClass(name);
     if (c == null) {
@@ -406,9 +448,14 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
         c = ((AbstractJPPFClassLoader) getParent()).findClassInURLClasspath(name, recursive);
       }
       if (c == null) {
-        try {
-          c = super.findClass(name);
-        } catch(@SuppressWarnings("unused") final ClassNotFoundException ignore) {
+        synchronized (getClassLoadingLock(name)) {
+          c = findLoadedClass(name);
+          if (c == null) {
+            try {
+              c = super.findClass(name);
+            } catch(@SuppressWarnings("unused") final ClassNotFoundException ignore) {
+            }
+          }
         }
       }
     }
@@ -420,7 +467,7 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * Determine the class loading delegation model currently in use.
    * @return an int value representing the model, either {@link DelegationModel#PARENT_FIRST PARENT_FIRST} or {@link DelegationModel#URL_FIRST URL_FIRST}.
    */
-  public static synchronized DelegationModel getDelegationModel() {
+  public static DelegationModel getDelegationModel() {
     return delegationModel;
   }
 
@@ -429,7 +476,7 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * @param model an int value, either {@link DelegationModel#PARENT_FIRST PARENT_FIRST} or {@link DelegationModel#URL_FIRST URL_FIRST}.
    * If any other value is specified then calling this method has no effect.
    */
-  public static synchronized void setDelegationModel(final DelegationModel model) {
+  public static void setDelegationModel(final DelegationModel model) {
     if (model != null) AbstractJPPFClassLoader.delegationModel = model;
   }
 
@@ -437,7 +484,7 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * Initialize the delegation model from the JPPF configuration.
    * @return the delegation model indicator as computed from the configuration.
    */
-  private static synchronized DelegationModel initDelegationModel() {
+  private static DelegationModel initDelegationModel() {
     final String s = JPPFConfiguration.get(JPPFProperties.CLASSLOADER_DELEGATION);
     final DelegationModel model = "url".equalsIgnoreCase(s) ? DelegationModel.URL_FIRST : DelegationModel.PARENT_FIRST;
     if (debugEnabled) log.debug("Using {} class loader delegation model", model);
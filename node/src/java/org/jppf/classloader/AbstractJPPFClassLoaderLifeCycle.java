@@ -40,6 +40,9 @@ import org.slf4j.*;
  * @author Laurent Cohen
  */
 public abstract class AbstractJPPFClassLoaderLifeCycle extends URLClassLoader {
+  static {
+    registerAsParallelCapable();
+  }
   /**
    * Logger for this class.
    */
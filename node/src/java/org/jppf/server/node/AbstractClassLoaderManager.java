@@ -196,7 +196,10 @@ public abstract class AbstractClassLoaderManager<N extends JPPFNode> {
    */
   protected void clearContainer(final JPPFContainer container) {
     final AbstractJPPFClassLoader loader = container.getClassLoader();
-    if (loader != null) loader.close();
+    if (loader != null) {
+      node.getDataProviderCache().remove(loader);
+      loader.close();
+    }
   }
 
   /**
@@ -108,6 +108,10 @@ public abstract class AbstractCommonNode extends AbstractNode {
    * Manager for the MBean defined through the service provider interface.
    */
   JPPFMBeanProviderManager<?> providerManager;
+  /**
+   * The cache of deserialized data providers.
+   */
+  private final DataProviderCache dataProviderCache;
 
   /**
    * Initialize this node.
@@ -117,6 +121,7 @@ public abstract class AbstractCommonNode extends AbstractNode {
   public AbstractCommonNode(final String uuid, final TypedProperties configuration) {
     super(uuid, configuration);
     serializationExecutor = Executors.newFixedThreadPool(ThreadManager.computePoolSize(configuration, JPPFProperties.PROCESSING_THREADS), new JPPFThreadFactory("NodeSerializer"));
+    dataProviderCache = new DataProviderCache(configuration.get(JPPFProperties.NODE_DATA_PROVIDER_CACHE_SIZE));
   }
 
   /**
@@ -435,6 +440,14 @@ public abstract class AbstractCommonNode extends AbstractNode {
     return serializationExecutor;
   }
 
+  /**
+   * @return the cache of deserialized data providers.
+   * @exclude
+   */
+  public DataProviderCache getDataProviderCache() {
+    return dataProviderCache;
+  }
+
   /**
    * @return the reconnection notification.
    * @exclude
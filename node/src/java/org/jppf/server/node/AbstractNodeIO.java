@@ -18,7 +18,7 @@
 
 package org.jppf.server.node;
 
-import static org.jppf.node.protocol.BundleParameter.NODE_EXCEPTION_PARAM;
+import static org.jppf.node.protocol.BundleParameter.*;
 
 import java.io.InvalidClassException;
 import java.util.*;
@@ -67,7 +67,8 @@ public abstract class AbstractNodeIO<N extends AbstractCommonNode> implements No
       final TaskBundle currentBundle = (TaskBundle) result[0];
       final List<Task<?>> taskList = new ArrayList<>(result.length - 2);
       if (!currentBundle.isHandshake() && (currentBundle.getParameter(NODE_EXCEPTION_PARAM) == null)) {
-        final DataProvider dataProvider = (DataProvider) result[1];
+        final DataProvider dataProvider = resolveDataProvider(currentBundle, (DataProvider) result[1]);
+        if (currentBundle.getParameter(DATA_PROVIDER_MISSING, false)) return new BundleWithTasks(currentBundle, taskList);
         final int taskCount = currentBundle.getTaskCount();
         for (int i=0; i<taskCount; i++) {
           final Task<?> task = (Task<?>) result[2 + i];
@@ -103,6 +104,20 @@ public abstract class AbstractNodeIO<N extends AbstractCommonNode> implements No
     }
   }
 
+  /**
+   * Get the data provider for the specified bundle, either as received from the server or from the node's cache of data providers.
+   * @param bundle the bundle for which to get the data provider.
+   * @param received the data provider received from the server, possibly {@code null}.
+   * @return the data provider to use for the tasks in the bundle.
+   * @throws Exception if any error occurs.
+   * @see DataProviderCache#resolve(ClassLoader, TaskBundle, DataProvider)
+   */
+  private DataProvider resolveDataProvider(final TaskBundle bundle, final DataProvider received) throws Exception {
+    if (bundle.getParameter(DATA_PROVIDER_HASH, null) == null) return received;
+    final ClassLoader cl = node.getContainer(bundle.getUuidPath().getList()).getClassLoader();
+    return node.getDataProviderCache().resolve(cl, bundle, received);
+  }
+
   @Override
   public void writeResults(final TaskBundle bundle, final List<Task<?>> tasks) throws Exception {
     try {
@@ -178,7 +193,7 @@ public abstract class AbstractNodeIO<N extends AbstractCommonNode> implements No
    * @since 4.2
    */
   protected void postSendResults(final TaskBundle bundle) throws Exception {
-    if (!node.isOffline() && !bundle.isNotification()) {
+    if (!node.isOffline() && !bundle.isNotification() && !bundle.getParameter(BundleParameter.PARTIAL_RESULTS, false)) {
       if (debugEnabled) log.debug("resetting remoteClassLoadingDisabled to false");
       final JPPFContainer cont = node.getContainer(bundle.getUuidPath().getList());
       cont.getClassLoader().setRemoteClassLoadingDisabled(false);
@@ -199,7 +214,7 @@ public abstract class AbstractNodeIO<N extends AbstractCommonNode> implements No
    * @param tasks the list of tasks after they have been executed.
    */
   protected void finalizeBundleData(final TaskBundle bundle, final List<Task<?>> tasks) {
-    if (bundle.isNotification()) return;
+    if (bundle.isNotification() || bundle.getParameter(BundleParameter.PARTIAL_RESULTS, false)) return;
     final long elapsed = System.nanoTime() - bundle.getNodeExecutionTime();
     bundle.setNodeExecutionTime(elapsed);
     final Set<Integer> resubmitSet = new HashSet<>();
@@ -218,5 +233,10 @@ public abstract class AbstractNodeIO<N extends AbstractCommonNode> implements No
       if (debugEnabled) log.debug("sending node max jobs = {}", maxJobs);
       bundle.setParameter(BundleParameter.NODE_MAX_JOBS, maxJobs);
     }
+    final int prefetchDepth = node.getConfiguration().get(JPPFProperties.NODE_PREFETCH_DEPTH);
+    if (!node.isOffline() && (prefetchDepth > 0)) {
+      bundle.setParameter(BundleParameter.NODE_PREFETCH_DEPTH, prefetchDepth);
+      bundle.setParameter(BundleParameter.NODE_PREFETCH_MAX_MEMORY, node.getConfiguration().get(JPPFProperties.NODE_PREFETCH_MAX_MEMORY) * 1024L * 1024L);
+    }
   }
 }
@@ -81,6 +81,10 @@ public class AsyncNodeExecutionManager extends AbstractAsyncExecutionManager {
       else log.warn(msg);
     }
     jobEntry.accumulatedElapsed.set(0L);
+    if ((resultsBatchSize > 0) && !node.isOffline()) {
+      jobEntry.resultsBatch = new ArrayList<>();
+      jobEntry.sentPositions = new HashSet<>();
+    }
     final LifeCycleEventHandler handler = node.getLifeCycleEventHandler();
     if (handler != null) handler.fireJobStarting(bundle, taskClassLoader instanceof AbstractJPPFClassLoader ? (AbstractJPPFClassLoader) taskClassLoader : null,
       taskList, jobEntry.dataProvider);
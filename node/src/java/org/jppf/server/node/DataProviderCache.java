@@ -0,0 +1,174 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.server.node;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jppf.management.DataProviderCacheInfo;
+import org.jppf.node.protocol.*;
+import org.jppf.utils.LoggingUtils;
+import org.slf4j.*;
+
+/**
+ * A cache of deserialized data providers, keyed by the hash of their serialized form computed by the server.
+ * <p>Data providers are kept in a separate LRU map for each client class loader, since a data provider's classes are only meaningful
+ * within the class loader that deserialized it. Since the cached data providers hold strong references to their class loader, the corresponding map
+ * must be explicitly discarded with {@link #remove(ClassLoader)} when the class loader is no longer used by the node.
+ * @exclude
+ */
+public class DataProviderCache {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(DataProviderCache.class);
+  /**
+   * Determines whether the debug level is enabled in the logging configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
+  /**
+   * The maximum number of data providers kept for each class loader.
+   */
+  private final int maxSize;
+  /**
+   * Mapping of class loaders to their cached data providers.
+   */
+  private final Map<ClassLoader, Map<String, DataProvider>> cache = new HashMap<>();
+  /**
+   * Number of cache hits.
+   */
+  private final AtomicLong hits = new AtomicLong(0L);
+  /**
+   * Number of cache misses.
+   */
+  private final AtomicLong misses = new AtomicLong(0L);
+
+  /**
+   * Initialize this cache with the specified maximum size.
+   * @param maxSize the maximum number of data providers kept for each class loader, 0 to disable the cache.
+   */
+  public DataProviderCache(final int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Get the data provider with the specified hash.
+   * @param cl the class loader which deserialized the data provider.
+   * @param hash the hash of the data provider's serialized form.
+   * @return the cached data provider, or {@code null} if it could not be found.
+   */
+  public DataProvider get(final ClassLoader cl, final String hash) {
+    DataProvider dataProvider = null;
+    synchronized(cache) {
+      final Map<String, DataProvider> map = cache.get(cl);
+      if (map != null) dataProvider = map.get(hash);
+    }
+    if (dataProvider != null) hits.incrementAndGet();
+    else {
+      misses.incrementAndGet();
+      if (debugEnabled) log.debug("data provider with hash {} not found for class loader {}", hash, cl);
+    }
+    return dataProvider;
+  }
+
+  /**
+   * Put the specified data provider in this cache, evicting the least recently used one for the same class loader if needed.
+   * @param cl the class loader which deserialized the data provider.
+   * @param hash the hash of the data provider's serialized form.
+   * @param dataProvider the data provider to cache.
+   */
+  public void put(final ClassLoader cl, final String hash, final DataProvider dataProvider) {
+    if ((maxSize <= 0) || (dataProvider == null)) return;
+    synchronized(cache) {
+      Map<String, DataProvider> map = cache.get(cl);
+      if (map == null) {
+        map = new LinkedHashMap<String, DataProvider>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<String, DataProvider> eldest) {
+            return size() > maxSize;
+          }
+        };
+        cache.put(cl, map);
+      }
+      map.put(hash, dataProvider);
+    }
+  }
+
+  /**
+   * Get the data provider for the specified bundle, either as received from the server or from this cache.
+   * If the server expects the data provider to be cached but it can't be found, the bundle is flagged with {@link BundleParameter#DATA_PROVIDER_MISSING}
+   * and its task count is reset to 0, so that it is sent back to the server without being executed.
+   * @param cl the class loader which deserialized the data provider.
+   * @param bundle the bundle for which to get the data provider.
+   * @param received the data provider received from the server, possibly {@code null}.
+   * @return the data provider to use for the tasks in the bundle, or {@code null} if it is missing.
+   */
+  public DataProvider resolve(final ClassLoader cl, final TaskBundle bundle, final DataProvider received) {
+    final String hash = bundle.getParameter(BundleParameter.DATA_PROVIDER_HASH, null);
+    if (hash == null) return received;
+    if (!bundle.getParameter(BundleParameter.DATA_PROVIDER_CACHED, false)) {
+      put(cl, hash, received);
+      return received;
+    }
+    final DataProvider dataProvider = get(cl, hash);
+    if (dataProvider == null) {
+      if (debugEnabled) log.debug("data provider not found in cache for {}, returning it to the server", bundle);
+      bundle.setParameter(BundleParameter.DATA_PROVIDER_MISSING, true);
+      bundle.setTaskCount(0);
+    }
+    return dataProvider;
+  }
+
+  /**
+   * Discard all the data providers deserialized by the specified class loader.
+   * @param cl the class loader for which to discard the data providers.
+   */
+  public void remove(final ClassLoader cl) {
+    final Map<String, DataProvider> map;
+    synchronized(cache) {
+      map = cache.remove(cl);
+    }
+    if (debugEnabled && (map != null)) log.debug("discarded {} data providers for class loader {}", map.size(), cl);
+  }
+
+  /**
+   * @return the maximum number of data providers kept for each class loader.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Get a snapshot of the state of this cache.
+   * @return a {@link DataProviderCacheInfo} instance.
+   */
+  public DataProviderCacheInfo getInfo() {
+    int size = 0, nbClassLoaders = 0;
+    synchronized(cache) {
+      for (final Map<String, DataProvider> map: cache.values()) {
+        size += map.size();
+        nbClassLoaders++;
+      }
+    }
+    return new DataProviderCacheInfo(maxSize, size, nbClassLoaders, hits.get(), misses.get());
+  }
+}
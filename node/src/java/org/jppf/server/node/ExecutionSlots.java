@@ -0,0 +1,88 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.node;
+
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+import org.jppf.utils.concurrent.ThreadSynchronization;
+
+/**
+ * Bounds the number of bundles a node executes concurrently, when bundles are prefetched ahead of their execution.
+ * Each slot is identified by the key of the bundle it is reserved for, so releasing a slot more than once has no effect.
+ * @exclude
+ */
+public class ExecutionSlots extends ThreadSynchronization {
+  /**
+   * The maximum number of slots reserved at any given time.
+   */
+  private final int maxSlots;
+  /**
+   * The keys of the bundles holding a slot.
+   */
+  private final Set<String> reserved = new HashSet<>();
+
+  /**
+   * Initialize with the specified number of slots.
+   * @param maxSlots the maximum number of slots reserved at any given time.
+   */
+  public ExecutionSlots(final int maxSlots) {
+    this.maxSlots = maxSlots;
+  }
+
+  /**
+   * Wait until a slot is available, then reserve it for the specified key.
+   * @param key the key of the bundle to reserve a slot for.
+   * @param cancelled checked while waiting, to stop waiting when the bundle is cancelled.
+   * @return {@code true} if a slot was reserved, {@code false} if the bundle was cancelled while waiting or if this object was closed.
+   */
+  public synchronized boolean acquire(final String key, final BooleanSupplier cancelled) {
+    while ((reserved.size() >= maxSlots) && !isStopped()) {
+      if (cancelled.getAsBoolean()) return false;
+      goToSleep(100L);
+    }
+    return !isStopped() && reserved.add(key);
+  }
+
+  /**
+   * Release the slot reserved for the specified key, if any.
+   * @param key the key of the bundle whose slot to release.
+   * @return {@code true} if a slot was released, {@code false} if no slot was reserved for the key.
+   */
+  public synchronized boolean release(final String key) {
+    if (!reserved.remove(key)) return false;
+    wakeUp();
+    return true;
+  }
+
+  /**
+   * @return the number of slots currently reserved.
+   */
+  public synchronized int getReservedSlots() {
+    return reserved.size();
+  }
+
+  /**
+   * Close this object and wake up the threads waiting for a slot.
+   */
+  public synchronized void close() {
+    setStopped(true);
+    wakeUp();
+  }
+}
@@ -216,8 +216,19 @@ public abstract class JPPFNode extends AbstractCommonNode implements ClassLoader
     if (debugEnabled) log.debug("received bundle");
     final TaskBundle bundle = pair.getBundle();
     if (debugEnabled) log.debug(!bundle.isHandshake() ? "received a bundle with " + pair.getTasks().size()  + " tasks" : "received a handshake bundle");
-    if (!bundle.isHandshake()) {
-      executionManager.execute(pair);
+    if (bundle.getParameter(BundleParameter.DATA_PROVIDER_MISSING, false)) {
+      // the tasks are not executed, the server will send them again along with their data provider
+      executionManager.removePendingJobEntry(bundle);
+      getJobWriter().put(pair);
+    } else if (!bundle.isHandshake()) {
+      boolean started = false;
+      try {
+        executionManager.execute(pair);
+        started = (pair.getTasks() != null) && !pair.getTasks().isEmpty();
+      } finally {
+        // the execution manager does not call bundleExecuted() for a bundle it did not start
+        if (!started) jobReader.bundleExecuted(bundle);
+      }
     } else {
       checkInitialBundle(bundle);
       getJobWriter().put(pair);
@@ -267,9 +278,15 @@ public abstract class JPPFNode extends AbstractCommonNode implements ClassLoader
    */
   void processResults(final BundleWithTasks bundleWithTasks) throws Exception {
     checkStopped();
-    currentBundle = null;
     final TaskBundle bundle = bundleWithTasks.getBundle();
     final List<Task<?>> taskList = bundleWithTasks.getTasks();
+    if (bundle.getParameter(BundleParameter.PARTIAL_RESULTS, false)) {
+      if (debugEnabled) log.debug("processing {} partial results for job '{}'", taskList.size(), bundle.getName());
+      nodeIO.writeResults(bundle, taskList);
+      if (!isJmxEnabled()) setExecutedTaskCount(getExecutedTaskCount() + taskList.size());
+      return;
+    }
+    currentBundle = null;
     if (debugEnabled) log.debug("processing " + (taskList == null ? 0 : taskList.size()) + " task results for job '" + bundle.getName() + '\'');
     if (executionManager.checkConfigChanged() || bundle.isHandshake() || isOffline()) {
       if (debugEnabled) log.debug("detected configuration change or initial bundle request, sending new system information to the server, config=\n{}", configuration);
@@ -403,6 +420,18 @@ public abstract class JPPFNode extends AbstractCommonNode implements ClassLoader
       }
     } catch (final Exception e) {
       log.error(e.getMessage(), e);
+    } finally {
+      if (jobReader != null) jobReader.bundleExecuted(bundle);
+    }
+  }
+
+  @Override
+  public void tasksExecuted(final TaskBundle bundle, final List<Task<?>> tasks) {
+    try {
+      if (debugEnabled) log.debug("sending partial results of {} tasks of job {}", tasks.size(), bundle);
+      getJobWriter().put(new BundleWithTasks(bundle, tasks));
+    } catch (final Exception e) {
+      log.error(e.getMessage(), e);
     }
   }
 
@@ -20,14 +20,29 @@ package org.jppf.server.node;
 
 import java.util.concurrent.*;
 
-import org.jppf.node.protocol.BundleWithTasks;
+import org.jppf.node.protocol.*;
+import org.jppf.utils.LoggingUtils;
 import org.jppf.utils.concurrent.ThreadSynchronization;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
 
 /**
  * Read the jobs from the network connection and make them available in a queue.
+ * <p>The jobs are read and deserialized as soon as they arrive, so that when prefetching is enabled with {@link JPPFProperties#NODE_PREFETCH_DEPTH},
+ * the bundles sent in advance by the server are ready to execute when a slot becomes available. In this case, the queue is bounded by the prefetch depth
+ * and {@link #nextJob()} does not hand out more than {@link JPPFProperties#NODE_MAX_JOBS} bundles to execute concurrently.
+ * A prefetched bundle which is cancelled before it starts is handed out immediately, so that it is returned to the server without waiting for a slot.
  * @exclude
  */
 class JobReader extends ThreadSynchronization implements Runnable {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(JobReader.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
   /**
    * Bundle set in the JobReader or JobWriter queue when an exception occurs.
    */
@@ -39,11 +54,15 @@ class JobReader extends ThreadSynchronization implements Runnable {
   /**
    * The queue of received jobs.
    */
-  private BlockingQueue<BundleWithTasks> queue = new LinkedBlockingQueue<>();
+  private final BlockingQueue<BundleWithTasks> queue;
   /**
    * Captures the last exception caught suring an I/O operation.
    */
   private Exception lastException; 
+  /**
+   * The slots of the bundles handed out for execution and not yet completed when prefetching is enabled, or {@code null} if prefetching is disabled.
+   */
+  private final ExecutionSlots slots;
 
   /**
    * 
@@ -51,13 +70,27 @@ class JobReader extends ThreadSynchronization implements Runnable {
    */
   JobReader(final JPPFNode node) {
     this.node = node;
+    final int prefetchDepth = node.getConfiguration().get(JPPFProperties.NODE_PREFETCH_DEPTH);
+    if (prefetchDepth > 0) {
+      final int maxExecuting = node.getConfiguration().get(JPPFProperties.NODE_MAX_JOBS);
+      slots = new ExecutionSlots(maxExecuting);
+      queue = new LinkedBlockingQueue<>(prefetchDepth);
+      if (debugEnabled) log.debug("prefetching enabled with depth = {}, max executing bundles = {}", prefetchDepth, maxExecuting);
+    } else {
+      slots = null;
+      queue = new LinkedBlockingQueue<>();
+    }
   }
 
   @Override
   public void run() {
     while (!isStopped() && !node.isStopped() && !node.hasPendingAction()) {
       try {
-        queue.offer(node.getNodeIO().readJob());
+        final BundleWithTasks job = node.getNodeIO().readJob();
+        // blocks while the prefetched bundles fill the queue
+        while (!queue.offer(job, 100L, TimeUnit.MILLISECONDS)) {
+          if (isStopped()) return;
+        }
       } catch (final Exception e) {
         lastException = e;
         setStopped(true);
@@ -82,14 +115,49 @@ class JobReader extends ThreadSynchronization implements Runnable {
       lastException = null;
       throw e;
     }
+    if ((slots != null) && isExecutable(result.getBundle())) {
+      // no slot is reserved if the bundle is cancelled while waiting, or if this job reader is closed
+      final TaskBundle bundle = result.getBundle();
+      final boolean reserved = slots.acquire(bundleKey(bundle), () -> node.getExecutionManager().isPendingJobCancelled(bundle));
+      if (debugEnabled) log.debug("{} bundles executing, slot reserved = {} for {}", slots.getReservedSlots(), reserved, bundle);
+    }
     return result;
   }
 
+  /**
+   * Called when the execution of a bundle has completed, or will not take place, to release its execution slot.
+   * Calling this method for a bundle which holds no slot has no effect.
+   * @param bundle the bundle whose execution completed.
+   */
+  void bundleExecuted(final TaskBundle bundle) {
+    if (slots != null) slots.release(bundleKey(bundle));
+  }
+
+  /**
+   * Determine whether the specified bundle holds tasks to execute.
+   * @param bundle the bundle to check.
+   * @return {@code true} if the bundle is to be executed, {@code false} otherwise.
+   */
+  private static boolean isExecutable(final TaskBundle bundle) {
+    return (bundle != null) && !bundle.isHandshake() && !bundle.getParameter(BundleParameter.DATA_PROVIDER_MISSING, false);
+  }
+
+  /**
+   * Compute a key which identifies the specified bundle.
+   * @param bundle the bundle to identify.
+   * @return a unique key for the bundle.
+   */
+  private static String bundleKey(final TaskBundle bundle) {
+    return bundle.getUuid() + bundle.getBundleId();
+  }
+
   /**
    * Close this job reader.
    */
   void close() {
     setStopped(true);
     queue.clear();
+    if (slots != null) slots.close();
+    wakeUp();
   }
 }
@@ -172,6 +172,17 @@ public class JPPFDriverAdmin implements JPPFDriverAdminMBean {
     }
   }
 
+  @Override
+  public Map<String, Double> statisticsPercentiles(final String label) throws Exception {
+    final Map<String, Double> map = new LinkedHashMap<>();
+    final JPPFSnapshot snapshot = driver.getStatistics().getSnapshot(label);
+    if (isHistogram(snapshot)) {
+      final double[] percentiles = snapshot.getPercentiles(PERCENTILES);
+      for (int i=0; i<percentiles.length; i++) map.put(PERCENTILE_NAMES[i], percentiles[i]);
+    }
+    return map;
+  }
+
   @Override
   public String changeLoadBalancerSettings(final String algorithm, final Map<Object, Object> parameters) throws Exception {
     try {
@@ -236,9 +247,9 @@ public class JPPFDriverAdmin implements JPPFDriverAdminMBean {
   public void resetStatistics() throws Exception {
     if (debugEnabled) log.debug("statistics reset requested");
     final JPPFStatistics stats = driver.getStatistics();
-    final JPPFSnapshot.LabelExcludingFilter filter = new JPPFSnapshot.LabelExcludingFilter(NODES, IDLE_NODES, CLIENTS, JOB_COUNT, TASK_QUEUE_COUNT);
+    final JPPFSnapshot.LabelExcludingFilter filter = new JPPFSnapshot.LabelExcludingFilter(NODES, IDLE_NODES, CLIENTS, JOB_COUNT, TASK_QUEUE_COUNT, PERSISTENCE_QUEUE_COUNT);
     stats.reset(filter);
-    for (final String s: new String[] {JOB_COUNT, TASK_QUEUE_COUNT}) {
+    for (final String s: new String[] {JOB_COUNT, TASK_QUEUE_COUNT, PERSISTENCE_QUEUE_COUNT}) {
       final JPPFSnapshot snapshot = stats.getSnapshot(s);
       if (snapshot instanceof AbstractJPPFSnapshot) ((AbstractJPPFSnapshot) snapshot).assignLatestToMax();
     }
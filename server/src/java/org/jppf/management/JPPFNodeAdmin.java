@@ -316,6 +316,11 @@ public class JPPFNodeAdmin implements JPPFNodeAdminMBean {
     return b;
   }
 
+  @Override
+  public DataProviderCacheInfo dataProviderCacheInfo() throws Exception {
+    return node.getDataProviderCache().getInfo();
+  }
+
   /**
    * Get the current state of the node
    * @return a {@link JPPFNodeState} instance.
@@ -18,13 +18,17 @@
 
 package org.jppf.management;
 
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.management.*;
 
 import org.jppf.node.Node;
 import org.jppf.node.event.*;
-import org.jppf.utils.concurrent.QueueHandler;
+import org.jppf.utils.*;
+import org.jppf.utils.concurrent.*;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.slf4j.*;
 
 /**
@@ -77,7 +81,26 @@ public class JPPFNodeTaskMonitor extends NotificationBroadcasterSupport implemen
    * 
    */
   final QueueHandler<NotificationSender> notificationHandler;
-  
+  /**
+   * Maximum number of executed tasks grouped into a single notification.
+   */
+  private final int batchSize;
+  /**
+   * Maximum time in millis the information on executed tasks is held before sending it.
+   */
+  private final long batchTime;
+  /**
+   * Triggers the sending of batches that were not filled within the batch time, or {@code null} if batching is disabled.
+   */
+  private final ScheduledExecutorService batchTimer;
+  /**
+   * The information on the executed tasks not yet sent, when batching is enabled.
+   */
+  private List<TaskInformation> batch;
+  /**
+   * Used to synchronize access to the current batch.
+   */
+  private final Object batchLock = new Object();
 
   /**
    * Default constructor.
@@ -96,6 +119,17 @@ public class JPPFNodeTaskMonitor extends NotificationBroadcasterSupport implemen
       .handlingElementsAs(sender -> sender.run())
       .usingSingleDequuerThread()
       .build();
+    final TypedProperties config = ((node != null) && (node.getConfiguration() != null)) ? node.getConfiguration() : JPPFConfiguration.getProperties();
+    this.batchSize = config.get(JPPFProperties.NODE_TASK_NOTIFICATIONS_BATCH_SIZE);
+    this.batchTime = config.get(JPPFProperties.NODE_TASK_NOTIFICATIONS_BATCH_TIME);
+    if (batchSize > 1) {
+      final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new JPPFThreadFactory("NodeTaskMonitorBatch"));
+      // let the timer thread terminate while no task is executed
+      timer.setKeepAliveTime(Math.max(batchTime, 1000L), TimeUnit.MILLISECONDS);
+      timer.allowCoreThreadTimeOut(true);
+      this.batchTimer = timer;
+    } else this.batchTimer = null;
+    if (debugEnabled) log.debug("task notifications batchSize={}, batchTime={}", batchSize, batchTime);
   }
 
   @Override
@@ -108,12 +142,55 @@ public class JPPFNodeTaskMonitor extends NotificationBroadcasterSupport implemen
       totalCpuTime += info.getCpuTime();
       totalElapsedTime += info.getElapsedTime();
     }
-    notificationHandler.offer(new NotificationSender(info, null, false));
+    if (batchTimer == null) notificationHandler.offer(new NotificationSender(info, null, false));
+    else addToBatch(info);
   }
 
   @Override
   public void taskNotification(final TaskExecutionEvent event) {
-    if (event.isSendViaJmx()) notificationHandler.offer(new NotificationSender(event.getTaskInformation(), event.getUserObject(), true));
+    if (event.isSendViaJmx()) {
+      // send the executed tasks first, to preserve the order of the notifications
+      if (batchTimer != null) flushBatch(null);
+      notificationHandler.offer(new NotificationSender(event.getTaskInformation(), event.getUserObject(), true));
+    }
+  }
+
+  /**
+   * Add the specified task information to the current batch, and send the batch if it is full.
+   * @param info the information on an executed task.
+   */
+  private void addToBatch(final TaskInformation info) {
+    List<TaskInformation> full = null;
+    synchronized(batchLock) {
+      if (batch == null) {
+        final List<TaskInformation> newBatch = batch = new ArrayList<>(Math.min(batchSize, 1024));
+        try {
+          batchTimer.schedule(() -> flushBatch(newBatch), batchTime, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+          if (debugEnabled) log.debug("could not schedule the sending of task notifications: {}", e.toString());
+        }
+      }
+      batch.add(info);
+      if (batch.size() >= batchSize) {
+        full = batch;
+        batch = null;
+      }
+    }
+    if (full != null) notificationHandler.offer(new NotificationSender(full));
+  }
+
+  /**
+   * Send the current batch, if any.
+   * @param expected if not {@code null}, the batch is only sent if it is the same as this one.
+   */
+  private void flushBatch(final List<TaskInformation> expected) {
+    final List<TaskInformation> toSend;
+    synchronized(batchLock) {
+      if ((batch == null) || ((expected != null) && (batch != expected))) return;
+      toSend = batch;
+      batch = null;
+    }
+    notificationHandler.offer(new NotificationSender(toSend));
   }
 
   /**
@@ -186,6 +263,10 @@ public class JPPFNodeTaskMonitor extends NotificationBroadcasterSupport implemen
      * Determines whether this is a user-defined notification sent from a task.
      */
     private final boolean userNotification;
+    /**
+     * The information on a batch of executed tasks, or {@code null} if this is a single task notification.
+     */
+    private final List<TaskInformation> batch;
 
     /**
      * 
@@ -197,10 +278,27 @@ public class JPPFNodeTaskMonitor extends NotificationBroadcasterSupport implemen
       this.info = info;
       this.userObject = userObject;
       this.userNotification = userNotification;
+      this.batch = null;
+    }
+
+    /**
+     * Initialize this sender with a batch of executed tasks.
+     * @param batch the information on the executed tasks.
+     */
+    public NotificationSender(final List<TaskInformation> batch) {
+      this.info = null;
+      this.userObject = null;
+      this.userNotification = false;
+      this.batch = batch;
     }
 
     @Override
     public void run() {
+      if (batch != null) {
+        if (debugEnabled) log.debug("sending task notification for a batch of {} tasks", batch.size());
+        sendNotification(new TaskExecutionBatchNotification(OBJECT_NAME, sequence.incrementAndGet(), batch));
+        return;
+      }
       if (debugEnabled) log.debug("sending task notification with userObject={}, info={}", userObject, info);
       sendNotification(new TaskExecutionNotification(OBJECT_NAME, sequence.incrementAndGet(), info, userObject, userNotification));
     }
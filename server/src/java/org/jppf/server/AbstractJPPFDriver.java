@@ -136,6 +136,10 @@ abstract class AbstractJPPFDriver {
    * System ibnformation for this driver.
    */
   JPPFSystemInformation systemInformation;
+  /**
+   * Keeps the statistics in the system information up to date.
+   */
+  final StatsSystemInformationUpdater statsUpdater;
   /**
    * MBean handling changes in number of nodes/processing threads.
    */
@@ -158,9 +162,10 @@ abstract class AbstractJPPFDriver {
     new OutputRedirectHook().initializing(configuration);
     VersionUtils.logVersionInformation("driver", uuid);
     SystemUtils.printPidAndUuid("driver", uuid);
-    statistics = createServerStatistics();
+    statistics = createServerStatistics(configuration);
     systemInformation = new JPPFSystemInformation(configuration, uuid, false, true, statistics);
-    statistics.addListener(new StatsSystemInformationUpdater(systemInformation));
+    statsUpdater = new StatsSystemInformationUpdater(systemInformation);
+    statistics.addListener(statsUpdater);
     jppfDebugEnabled = configuration.get(JPPFProperties.DEBUG_ENABLED);
   }
 
@@ -388,6 +388,7 @@ public class DriverInitializer {
           final TypedProperties oldConfig = node.getSystemInformation().getJppf();
           oldConfig.clear();
           oldConfig.putAll(nodeConfig);
+          node.nodeInfoUpdated();
           if (node.getBundler() instanceof ChannelAwareness) ((ChannelAwareness) node.getBundler()).setChannelConfiguration(node.getSystemInformation());
         }
       };
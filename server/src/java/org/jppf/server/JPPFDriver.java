@@ -209,9 +209,11 @@ public class JPPFDriver extends AbstractJPPFDriver {
 
   /**
    * Get the system ibnformation for this driver.
+   * The percentiles of the statistics are computed each time this method is called.
    * @return a {@link JPPFSystemInformation} instance.
    */
   public JPPFSystemInformation getSystemInformation() {
+    statsUpdater.updatePercentiles(statistics);
     return systemInformation;
   }
 
@@ -283,6 +285,8 @@ public class JPPFDriver extends AbstractJPPFDriver {
     if (asyncNodeNioServer != null) asyncNodeNioServer.shutdown();
     if (debugEnabled) log.debug("closing client job server");
     if (asyncClientNioServer != null) asyncClientNioServer.shutdown();
+    if (debugEnabled) log.debug("closing job persistence");
+    taskQueue.getPersistenceHandler().close();
     if (debugEnabled) log.debug("closing global executor");
     if (startedfromMain) NioHelper.shutdown(true);
     if (debugEnabled) log.debug("closing broadcaster");
@@ -24,6 +24,8 @@ import org.jppf.utils.stats.*;
 
 /**
  * This statistics listener updates the server's {@link JPPFSystemInformation} whenever the server statistics change.
+ * <p>The percentiles of the histogram snapshots are not updated here, since computing them at each update would be too costly.
+ * They are updated when the system information is requested, with {@link #updatePercentiles(JPPFStatistics)}.
  * @author Laurent Cohen
  */
 class StatsSystemInformationUpdater implements JPPFStatisticsListener {
@@ -64,7 +66,17 @@ class StatsSystemInformationUpdater implements JPPFStatisticsListener {
    */
   private void update(final JPPFSnapshot snapshot) {
     synchronized(statsProperties) {
-      JPPFStatisticsHelper.toProperties(statsProperties, snapshot);
+      JPPFStatisticsHelper.toProperties(statsProperties, snapshot, false);
+    }
+  }
+
+  /**
+   * Update the system info with the percentiles of the histogram snapshots in the specified statistics.
+   * @param statistics the statistics to update from.
+   */
+  void updatePercentiles(final JPPFStatistics statistics) {
+    synchronized(statsProperties) {
+      JPPFStatisticsHelper.percentilesToProperties(statsProperties, statistics);
     }
   }
 }
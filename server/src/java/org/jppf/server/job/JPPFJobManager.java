@@ -142,11 +142,11 @@ public class JPPFJobManager implements ServerJobChangeListener, JobNotificationE
       jobMap.removeValue(jobUuid, new ChannelJobPair(channel, serverJob));
     }
     if (!isBroadcastDispatch(serverJob)) {
-      submitEvent(JobEventType.JOB_RETURNED, bundle, channel);
+      submitEventWhenPersisted(serverJob.getUuid(), JobEventType.JOB_RETURNED, bundle, null, channel);
       fireJobTasksEvent(channel, nodeBundle, false);
     } else {
       final ServerJobBroadcast broadcast = (ServerJobBroadcast) serverJob;
-      submitEvent(JobEventType.JOB_RETURNED, broadcast.getParentJob(), channel);
+      submitEventWhenPersisted(serverJob.getUuid(), JobEventType.JOB_RETURNED, null, broadcast.getParentJob(), channel);
     }
     final JPPFStatistics stats = driver.getStatistics();
     stats.addValue(JPPFStatisticsHelper.JOB_DISPATCH_COUNT, -1);
@@ -187,7 +187,7 @@ public class JPPFJobManager implements ServerJobChangeListener, JobNotificationE
       final NodeReservationHandler handler = driver.getAsyncNodeNioServer().getNodeReservationHandler();
       handler.removeJobReservations(serverJob.getUuid());
     }
-    if (!isBroadcastDispatch(serverJob)) submitEvent(JobEventType.JOB_ENDED, serverJob, null);
+    if (!isBroadcastDispatch(serverJob)) submitEventWhenPersisted(jobUuid, JobEventType.JOB_ENDED, null, serverJob, null);
     final JPPFStatistics stats = driver.getStatistics();
     stats.addValue(JPPFStatisticsHelper.JOB_COUNT, -1);
     stats.addValue(JPPFStatisticsHelper.JOB_TIME, time);
@@ -233,6 +233,30 @@ public class JPPFJobManager implements ServerJobChangeListener, JobNotificationE
     }
   }
 
+  /**
+   * Submit an event to the event queue once the persistence operations pending for the specified job are done,
+   * so that the event is not emitted before the results it reports are stored. The event is created immediately, with the current state of the job.
+   * @param jobUuid the uuid of the job whose persistence operations to wait for.
+   * @param eventType the type of event to generate.
+   * @param bundle the task bundle data, if {@code job} is {@code null}.
+   * @param job the job data, if {@code bundle} is {@code null}.
+   * @param channel the id of the job source of the event.
+   */
+  private void submitEventWhenPersisted(final String jobUuid, final JobEventType eventType, final TaskBundle bundle, final ServerJob job, final ExecutorChannel<?> channel) {
+    try {
+      final JobNotification event = newJobNotification(this, eventType, bundle, job, channel);
+      driver.getQueue().getPersistenceHandler().whenPersisted(jobUuid).whenComplete((result, error) -> {
+        try {
+          eventQueue.put(event);
+        } catch (final Exception e) {
+          log.error(e.getMessage(), e);
+        }
+      });
+    } catch (final Exception e) {
+      log.error(e.getMessage(), e);
+    }
+  }
+
   /**
    * Create a job notification with the specified parameters.
    * @param jobManager the job manager that submits the events.
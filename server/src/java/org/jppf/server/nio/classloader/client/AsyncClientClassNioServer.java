@@ -86,6 +86,11 @@ public final class AsyncClientClassNioServer extends StatelessNioServer<AsyncCli
     messageWriter = new AsyncClientClassMessageWriter(this);
   }
 
+  @Override
+  protected boolean isSelectorShardingSupported() {
+    return true;
+  }
+
   @Override
   protected void handleSelectionException(final SelectionKey key, final Exception e) {
     final AsyncClientClassContext context = (AsyncClientClassContext) key.attachment();
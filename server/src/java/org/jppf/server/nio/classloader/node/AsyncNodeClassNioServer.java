@@ -84,6 +84,11 @@ public final class AsyncNodeClassNioServer extends StatelessNioServer<AsyncNodeC
     messageWriter = new AsyncNodeClassMessageWriter(this);
   }
 
+  @Override
+  protected boolean isSelectorShardingSupported() {
+    return true;
+  }
+
   @Override
   protected void handleSelectionException(final SelectionKey key, final Exception e) {
     final AsyncNodeClassContext context = (AsyncNodeClassContext) key.attachment();
@@ -289,10 +289,13 @@ public class AsyncClientContext extends AbstractNioContext {
     if (message != null) {
       if (inSnapshot == null) inSnapshot = driver.getStatistics().getSnapshot(peer ? PEER_IN_TRAFFIC : CLIENT_IN_TRAFFIC);
       if (outSnapshot == null) outSnapshot = driver.getStatistics().getSnapshot(peer ? PEER_OUT_TRAFFIC : CLIENT_OUT_TRAFFIC);
+      if (zeroCopySnapshot == null) zeroCopySnapshot = driver.getStatistics().getSnapshot(ZERO_COPY_TRAFFIC);
       double value = message.getChannelReadCount();
       if (value > 0d) inSnapshot.addValues(value, 1L);
       value = message.getChannelWriteCount();
       if (value > 0d) outSnapshot.addValues(value, 1L);
+      value = message.getZeroCopyWriteCount();
+      if (value > 0d) zeroCopySnapshot.addValues(value, 1L);
     }
   }
 
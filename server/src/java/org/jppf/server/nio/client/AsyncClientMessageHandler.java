@@ -106,7 +106,13 @@ public class AsyncClientMessageHandler {
     }
     else if (debugEnabled) log.debug("sending job results with originalId={}, bundle={} for {}", bundle.getOriginalBundleId(), bundle, context);
     final ClientMessage message = context.serializeBundle(bundle);
-    context.offerMessageToSend(bundle, message);
+    driver.getQueue().getPersistenceHandler().afterResultsStored(bundle.getUuid(), () -> {
+      try {
+        context.offerMessageToSend(bundle, message);
+      } catch (final Exception e) {
+        log.error("error sending job results for {} : {}", bundle, ExceptionUtils.getStackTrace(e));
+      }
+    });
   }
 
   /**
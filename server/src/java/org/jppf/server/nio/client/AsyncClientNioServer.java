@@ -78,6 +78,11 @@ public final class AsyncClientNioServer extends StatelessNioServer<AsyncClientCo
     messageWriter = new AsyncClientMessageWriter(this);
   }
 
+  @Override
+  protected boolean isSelectorShardingSupported() {
+    return true;
+  }
+
   @Override
   protected void go(final Set<SelectionKey> selectedKeys) throws Exception {
     if (traceEnabled) {
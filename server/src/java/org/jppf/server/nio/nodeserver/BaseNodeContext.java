@@ -20,7 +20,7 @@ package org.jppf.server.nio.nodeserver;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.*;
 
 import org.jppf.execute.*;
 import org.jppf.load.balancer.*;
@@ -29,7 +29,7 @@ import org.jppf.load.balancer.spi.JPPFBundlerFactory;
 import org.jppf.management.*;
 import org.jppf.nio.AbstractNioContext;
 import org.jppf.server.JPPFDriver;
-import org.jppf.server.nio.nodeserver.async.AsyncNodeNioServer;
+import org.jppf.server.nio.nodeserver.async.*;
 import org.jppf.server.protocol.ServerTaskBundleNode;
 import org.jppf.utils.*;
 import org.slf4j.*;
@@ -54,6 +54,10 @@ public abstract class BaseNodeContext extends AbstractNioContext implements  Exe
    * Represents the node system information.
    */
   private JPPFSystemInformation systemInfo;
+  /**
+   * Incremented each time the node system information is set or updated in place.
+   */
+  private final AtomicLong nodeInfoVersion = new AtomicLong(0L);
   /**
    * Represents the management information.
    */
@@ -187,6 +191,24 @@ public abstract class BaseNodeContext extends AbstractNioContext implements  Exe
     this.systemInfo = systemInfo;
     systemInfo.getJppf().setProperty("jppf.channel.local", String.valueOf(isLocal()));
     if (managementInfo != null) managementInfo.setSystemInfo(systemInfo);
+    nodeInfoUpdated();
+  }
+
+  /**
+   * Called when the node system information is updated in place, so that the results of execution policies evaluated against it are discarded
+   * and the job scheduler considers the node again for the jobs that rejected it.
+   */
+  public void nodeInfoUpdated() {
+    nodeInfoVersion.incrementAndGet();
+    final AsyncJobScheduler scheduler = (server == null) ? null : server.getJobScheduler();
+    if (scheduler != null) scheduler.nodeInfoUpdated(this);
+  }
+
+  /**
+   * @return a number which changes each time the node system information is set or updated in place.
+   */
+  public long getNodeInfoVersion() {
+    return nodeInfoVersion.get();
   }
 
   @Override
@@ -266,6 +288,14 @@ public abstract class BaseNodeContext extends AbstractNioContext implements  Exe
     return executionStatus;
   }
 
+  /**
+   * Determine whether another bundle can be dispatched to the node.
+   * @return {@code true} if the node can receive another bundle, {@code false} otherwise.
+   */
+  public boolean hasDispatchCapacity() {
+    return getCurrentNbJobs() < getMaxJobs();
+  }
+
   /**
    * Set the execution status for the node.
    * @param newStatus the execution status to set.
@@ -319,6 +319,7 @@ public class NodeReservationHandler {
           // if node is not restarted, synchronize server version of the node's config
           if (!restart) {
             node.getSystemInformation().getJppf().putAll(config);
+            node.nodeInfoUpdated();
             transitionReservation(node);
           }
           jmx.updateConfiguration(config, restart);
@@ -109,6 +109,10 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
    * 
    */
   final JobDependenciesHandler dependencyHandler; 
+  /**
+   * Index of the idle nodes eligible for each job, or {@code null} if indexing is disabled. Must be accessed while holding the lock on {@link #idleChannels}.
+   */
+  final NodeMatchingIndex matchingIndex;
 
   /**
    * Initialize this task queue checker with the specified node server.
@@ -129,6 +133,7 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
     this.peerLoadBalanceThreshold = server.getDriver().getInitializer().getPeerConnectionPoolHandler().getLoadBalanceThreshold();
     this.localNodeBiasEnabled = server.getDriver().getConfiguration().get(JPPFProperties.LOCAL_NODE_BIAS);
     this.selectionHelper = new NodeSelectionHelper(server.getDriver());
+    this.matchingIndex = server.getDriver().getConfiguration().get(JPPFProperties.NODE_MATCHING_INDEX_ENABLED) ? new NodeMatchingIndex() : null;
   }
 
   /**
@@ -177,6 +182,7 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
         final boolean added;
         synchronized(idleChannels) {
           added = idleChannels.add(channel);
+          if (added && (matchingIndex != null)) matchingIndex.nodeIdle(channel);
         }
         channel.getIdle().set(true);
         if (added) {
@@ -190,6 +196,23 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
     });
   }
 
+  /**
+   * Called when the system information of a node is set or updated in place, so that an idle node rejected by the execution policy of some jobs
+   * is considered again for these jobs. This is done asynchronously, since the caller may hold the node's monitor.
+   * @param channel the node whose system information was updated.
+   */
+  public void nodeInfoUpdated(final BaseNodeContext channel) {
+    if (matchingIndex == null) return;
+    channelsExecutor.execute(() -> {
+      final boolean idle;
+      synchronized(idleChannels) {
+        idle = idleChannels.contains(channel);
+        if (idle) matchingIndex.nodeInfoUpdated(channel);
+      }
+      if (idle) wakeUp();
+    });
+  }
+
   /**
    * Remove a channel from the list of idle channels.
    * @param channel the channel to remove from the list.
@@ -200,6 +223,7 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
     final boolean removed;
     synchronized(idleChannels) {
       removed = idleChannels.remove(channel);
+      if (removed && (matchingIndex != null)) matchingIndex.nodeBusy(channel);
     }
     channel.getIdle().set(false);
     if (removed) {
@@ -235,6 +259,7 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
   void clearIdleChannels() {
     synchronized (idleChannels) {
       idleChannels.clear();
+      if (matchingIndex != null) matchingIndex.clear();
     }
   }
 
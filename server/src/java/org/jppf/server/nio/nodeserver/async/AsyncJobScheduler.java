@@ -91,6 +91,7 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
         if (idleChannels.isEmpty()) return false;
         final List<ServerJob> allJobs = queue.getAllJobsFromPriorityMap();
         if (debugEnabled) log.debug("there are {} idle channels and {} jobs in the queue", idleChannels.size(), allJobs.size());
+        if (matchingIndex != null) matchingIndex.retainJobs(allJobs);
         try {
           final Iterator<ServerJob> jobIterator = allJobs.iterator();
           while ((channel == null) && jobIterator.hasNext() && !idleChannels.isEmpty()) {
@@ -110,7 +111,7 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
                   continue;
                 }
               }
-              if (channel.getCurrentNbJobs() >= channel.getMaxJobs()) removeIdleChannel(channel);
+              if (!channel.hasDispatchCapacity()) removeIdleChannel(channel);
               if (!channel.isEnabled()) {
                 if (debugEnabled) log.debug("channel is disabled [}", channel);
                 channel = null;
@@ -217,6 +218,7 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
       if (preferedChannels.isEmpty()) return null;
       nodeIterator = preferedChannels.iterator();
     }
+    else if (matchingIndex != null) nodeIterator = matchingIndex.getCandidates(job, idleChannels).iterator();
     else nodeIterator = idleChannels.iterator();
     while (nodeIterator.hasNext()) {
       final AsyncNodeContext channel = (AsyncNodeContext) nodeIterator.next();
@@ -234,7 +236,7 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
           if (debugEnabled) log.debug("this driver has {} nodes and the threshold is {}", server.nodeConnectionHandler.getConnectedNodes(), peerLoadBalanceThreshold);
           continue;
         }
-        if (channel.getCurrentNbJobs() >= channel.getMaxJobs()) {
+        if (!channel.hasDispatchCapacity()) {
           if (debugEnabled) log.debug("[currentNbJobs = {}] >= maxJobs = {}] for {}", channel.getCurrentNbJobs(), channel.getMaxJobs(), channel);
           continue;
         }
@@ -367,6 +369,11 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
   private boolean checkExecutionPolicy(final BaseNodeContext channel, final ServerJob job, final ExecutionPolicy policy, final JPPFSystemInformation info, final int nbJobChannels) {
     if (policy == null) return true;
     if (debugEnabled) log.debug("job has an execution policy: {}\n{}", job, policy.toString().trim());
+      final Boolean cached = (matchingIndex == null) ? null : matchingIndex.getCachedResult(job, channel);
+      if (cached != null) {
+        if (debugEnabled) log.debug("cached rule execution is *{}* for job [name={}, uuid={}] on channel {}", cached, job.getName(), job.getUuid(), channel);
+        return cached;
+      }
       boolean b = false;
       try {
         preparePolicy(policy, job, stats, nbJobChannels);
@@ -375,6 +382,7 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
         log.error("An error occurred while running the execution policy to determine node participation.", ex);
       }
       if (debugEnabled) log.debug("rule execution is *{}* for job [name={}, uuid={}] on channel {}", b, job.getName(), job.getUuid(), channel);
+      if (matchingIndex != null) matchingIndex.putResult(job, channel, b);
       return b;
   }
 
@@ -29,7 +29,7 @@ import org.jppf.execute.ExecutorStatus;
 import org.jppf.io.*;
 import org.jppf.job.JobReturnReason;
 import org.jppf.load.balancer.*;
-import org.jppf.management.JMXConnectionWrapper;
+import org.jppf.management.*;
 import org.jppf.node.protocol.*;
 import org.jppf.node.protocol.graph.*;
 import org.jppf.server.nio.AbstractTaskBundleMessage;
@@ -37,6 +37,7 @@ import org.jppf.server.nio.nodeserver.*;
 import org.jppf.server.protocol.*;
 import org.jppf.utils.ExceptionUtils;
 import org.jppf.utils.collections.*;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.jppf.utils.concurrent.*;
 import org.jppf.utils.stats.*;
 import org.slf4j.*;
@@ -78,6 +79,20 @@ public class AsyncNodeContext extends BaseNodeContext {
    * The maximum number of concurrent jobs for this channel.
    */
   private final AtomicInteger maxJobs = new AtomicInteger(0);
+  /**
+   * The number of bundles which can be sent to the node in advance, in addition to the maximum number of concurrent jobs.
+   */
+  private volatile int prefetchDepth;
+  /**
+   * The maximum size in bytes of the tasks sent to the node in advance.
+   */
+  private volatile long prefetchMaxMemory = Long.MAX_VALUE;
+  /**
+   * The bundles sent to the node and not yet returned, in dispatch order, mapped to the size of their tasks when prefetching is enabled.
+   * Since the node executes the bundles in the order it receives them, those beyond the first {@link #getMaxJobs() maxJobs} are the ones it holds
+   * without executing them. Guarded by the lock on {@link #jobToBundlesIds}.
+   */
+  private final Map<ServerTaskBundleNode, Long> dispatchedBundles = new LinkedHashMap<>();
   /**
    * Whether the job is accepting new jobs.
    */
@@ -86,6 +101,10 @@ public class AsyncNodeContext extends BaseNodeContext {
    * Whether an exception was already handled for this node..
    */
   private AtomicBoolean exceptionHandled = new AtomicBoolean(false);
+  /**
+   * Keeps track of the data providers cached by the node.
+   */
+  private final NodeDataProviderTracker dataProviderTracker = new NodeDataProviderTracker();
 
   /**
    * @param server the server that handles this context.
@@ -136,12 +155,13 @@ public class AsyncNodeContext extends BaseNodeContext {
           tmpBundle.resubmit();
           for (final ServerTask task: tmpBundle.getTaskList()) {
             results.add(task.getInitialTask());
-            task.resubmit();
+            if (!tmpBundle.isReturned(task.getPosition())) task.resubmit();
           }
         } else {
           int count = 0;
           for (final ServerTask task: tmpBundle.getTaskList()) {
             results.add(task.getInitialTask());
+            if (tmpBundle.isReturned(task.getPosition())) continue;
             final int max = tmpBundle.getJob().getSLA().getMaxTaskResubmits();
             if (task.incResubmitCount() <= max) {
               task.resubmit();
@@ -186,8 +206,9 @@ public class AsyncNodeContext extends BaseNodeContext {
         taskBundle.setParameter(BundleParameter.JOB_TASK_GRAPH_INFO, graphInfo);
       }
     }
+    final DataLocation dataProvider = resolveDataProvider(bundle);
     message.addLocation(IOHelper.serializeData(taskBundle, server.getDriver().getSerializer()));
-    message.addLocation(bundle.getDataProvider());
+    message.addLocation(dataProvider);
     for (ServerTask task: bundle.getTaskList()) message.addLocation(task.getInitialTask());
     if (graphInfo != null) {
       for (final PositionalElement<?> elt: graphInfo.getDependencies()) {
@@ -200,6 +221,44 @@ public class AsyncNodeContext extends BaseNodeContext {
     return message;
   }
 
+  /**
+   * Determine whether the data provider of the specified bundle must be sent to the node, or whether the node already has it in its cache.
+   * In the latter case, a serialized {@code null} is sent in its place.
+   * @param bundle the bundle to process.
+   * @return the data location to send as the data provider.
+   * @throws Exception if any error occurs.
+   */
+  private DataLocation resolveDataProvider(final ServerTaskBundleNode bundle) throws Exception {
+    final TaskBundle taskBundle = bundle.getJob();
+    taskBundle.removeParameter(BundleParameter.DATA_PROVIDER_HASH);
+    taskBundle.removeParameter(BundleParameter.DATA_PROVIDER_CACHED);
+    final int maxSize = getDataProviderCacheSize();
+    // broadcast jobs are never cached, since they cannot be resubmitted if the node reports a cache miss
+    if ((maxSize <= 0) || taskBundle.isHandshake() || isPeer() || isOffline() || taskBundle.getSLA().isBroadcastJob()) return bundle.getDataProvider();
+    final String hash = bundle.getServerJob().getDataProviderHash();
+    if (hash == null) return bundle.getDataProvider();
+    taskBundle.setParameter(BundleParameter.DATA_PROVIDER_HASH, hash);
+    if (!dataProviderTracker.checkCached(taskBundle.getUuidPath().getFirst(), hash, maxSize)) return bundle.getDataProvider();
+    if (debugEnabled) log.debug("data provider with hash {} is already cached by {}", hash, this);
+    taskBundle.setParameter(BundleParameter.DATA_PROVIDER_CACHED, true);
+    return IOHelper.serializeData(null, server.getDriver().getSerializer());
+  }
+
+  /**
+   * @return the maximum number of data providers the node keeps for each client application, or 0 if the node doesn't cache them.
+   */
+  private int getDataProviderCacheSize() {
+    final JPPFSystemInformation info = getSystemInformation();
+    return (info == null) ? 0 : info.getJppf().get(JPPFProperties.NODE_DATA_PROVIDER_CACHE_SIZE);
+  }
+
+  /**
+   * @return the object which keeps track of the data providers cached by the node.
+   */
+  NodeDataProviderTracker getDataProviderTracker() {
+    return dataProviderTracker;
+  }
+
   /**
    * Deserialize a task bundle from the message read into this buffer.
    * @param message the message to process.
@@ -210,6 +269,8 @@ public class AsyncNodeContext extends BaseNodeContext {
     final List<DataLocation> locations = message.getLocations();
     if (message.getBundle() == null) message.setBundle((TaskBundle) IOHelper.unwrappedData(locations.get(0)));
     final TaskBundle bundle = message.getBundle();
+    // the header is no longer needed once deserialized, only the task results are forwarded
+    if (!locations.isEmpty()) IOHelper.release(locations.get(0));
     final List<DataLocation> tasks = new ArrayList<>();
     if (locations.size() > 1) {
       for (int i=1; i<locations.size(); i++) tasks.add(locations.get(i));
@@ -263,6 +324,8 @@ public class AsyncNodeContext extends BaseNodeContext {
   public void addJobEntry(final ServerTaskBundleNode bundle) {
     final String uuid = bundle.getJob().getUuid();
     synchronized(jobToBundlesIds) {
+      dispatchedBundles.put(bundle, (prefetchDepth > 0) ? getDataSize(bundle) : 0L);
+      if (debugEnabled && (prefetchDepth > 0) && (entryMap.size() >= getMaxJobs())) log.debug("prefetching {}, prefetched bundles = {}", bundle, entryMap.size() + 1 - getMaxJobs());
       jobToBundlesIds.putValue(uuid, bundle.getId());
       entryMap.put(uuid + bundle.getId(), bundle);
     }
@@ -288,8 +351,24 @@ public class AsyncNodeContext extends BaseNodeContext {
     if (debugEnabled) log.debug("removing job entry for uuid={}, bundleId={}", uuid, bundleId);
     synchronized(jobToBundlesIds) {
       jobToBundlesIds.removeValue(uuid, bundleId);
-      return entryMap.remove(uuid + bundleId);
+      final ServerTaskBundleNode bundle = entryMap.remove(uuid + bundleId);
+      if (bundle != null) dispatchedBundles.remove(bundle);
+      return bundle;
+    }
+  }
+
+  /**
+   * Compute the size of the serialized tasks in the specified bundle.
+   * @param bundle the bundle to check.
+   * @return the size in bytes.
+   */
+  private static long getDataSize(final ServerTaskBundleNode bundle) {
+    long size = 0L;
+    for (final ServerTask task: bundle.getTaskList()) {
+      final DataLocation location = task.getInitialTask();
+      if (location != null) size += location.getSize();
     }
+    return size;
   }
 
   /**
@@ -300,10 +379,13 @@ public class AsyncNodeContext extends BaseNodeContext {
     if (message != null) {
       if (inSnapshot == null) inSnapshot = driver.getStatistics().getSnapshot(peer ? PEER_IN_TRAFFIC : NODE_IN_TRAFFIC);
       if (outSnapshot == null) outSnapshot = driver.getStatistics().getSnapshot(peer ? PEER_OUT_TRAFFIC : NODE_OUT_TRAFFIC);
+      if (zeroCopySnapshot == null) zeroCopySnapshot = driver.getStatistics().getSnapshot(ZERO_COPY_TRAFFIC);
       double value = message.getChannelReadCount();
       if (value > 0d) inSnapshot.addValues(value, 1L);
       value = message.getChannelWriteCount();
       if (value > 0d) outSnapshot.addValues(value, 1L);
+      value = message.getZeroCopyWriteCount();
+      if (value > 0d) zeroCopySnapshot.addValues(value, 1L);
     }
   }
 
@@ -389,6 +471,7 @@ public class AsyncNodeContext extends BaseNodeContext {
     synchronized(jobToBundlesIds) {
       jobToBundlesIds.clear();
       entryMap.clear();
+      dispatchedBundles.clear();
     }
     sendQueue.clear();
   }
@@ -409,7 +492,7 @@ public class AsyncNodeContext extends BaseNodeContext {
   public Future<?> submit(final ServerTaskBundleNode nodeBundle) throws Exception {
     addJobEntry(nodeBundle);
     if (debugEnabled) log.debug("submitting {} to {}", nodeBundle, this);
-    if (getCurrentNbJobs() >= getMaxJobs()) setExecutionStatus(ExecutorStatus.EXECUTING);
+    if (!hasDispatchCapacity()) setExecutionStatus(ExecutorStatus.EXECUTING);
     nodeBundle.setOffline(isOffline());
     nodeBundle.setChannel(this);
     nodeBundle.getJob().setExecutionStartTime(System.nanoTime());
@@ -476,6 +559,38 @@ public class AsyncNodeContext extends BaseNodeContext {
     this.maxJobs.set(maxJobs);
   }
 
+  /**
+   * Set the limits for the bundles sent to the node in advance, while it is already executing its maximum number of concurrent jobs.
+   * @param prefetchDepth the maximum number of bundles sent in advance, 0 to disable prefetching.
+   * @param prefetchMaxMemory the maximum size in bytes of the tasks sent in advance.
+   */
+  public void setPrefetchLimits(final int prefetchDepth, final long prefetchMaxMemory) {
+    this.prefetchMaxMemory = prefetchMaxMemory;
+    this.prefetchDepth = prefetchDepth;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>When prefetching is enabled, a bundle can be sent to a node which is already executing its maximum number of concurrent jobs,
+   * as long as the number and total size of the bundles that the node holds without executing them are below the prefetch limits.
+   * Since the size of the next bundle is not known in advance, the size limit may be exceeded by at most one bundle.
+   */
+  @Override
+  public boolean hasDispatchCapacity() {
+    synchronized(jobToBundlesIds) {
+      final int maxJobs = getMaxJobs();
+      final int nbPrefetched = dispatchedBundles.size() - maxJobs;
+      if (nbPrefetched < 0) return true;
+      if (nbPrefetched >= prefetchDepth) return false;
+      long prefetchedSize = 0L;
+      int i = 0;
+      for (final long size: dispatchedBundles.values()) {
+        if (i++ >= maxJobs) prefetchedSize += size;
+      }
+      return prefetchedSize < prefetchMaxMemory;
+    }
+  }
+
   /**
    * Get the number of dispatches to the node for the specified job.
    * @param jobUuid the uuid of the job to check.
@@ -26,6 +26,7 @@ import java.nio.channels.SocketChannel;
 import java.util.*;
 
 import org.jppf.execute.ExecutorStatus;
+import org.jppf.io.DataLocation;
 import org.jppf.job.JobReturnReason;
 import org.jppf.load.balancer.*;
 import org.jppf.load.balancer.spi.JPPFBundlerFactory;
@@ -197,9 +198,52 @@ public class AsyncNodeMessageHandler {
   public void resultsReceived(final AsyncNodeContext context, final AbstractTaskBundleMessage message)  throws Exception {
     if (debugEnabled) log.debug("node {} received {}", context, message);
     final NodeBundleResults received = context.deserializeBundle(message);
+    final TaskBundle bundle = received.bundle();
+    final int[] positions = bundle.getParameter(RESULTS_POSITIONS, null);
+    if (positions != null) {
+      final ServerTaskBundleNode nodeBundle = context.getJobEntry(bundle.getUuid(), bundle.getBundleId());
+      if ((nodeBundle != null) && nodeBundle.deferResults(nodeBundle.getTaskCount() - positions.length, () -> processDeferred(received, context))) return;
+    }
     process(received, context);
   }
 
+  /**
+   * Called when the results of some of the tasks of a job are received from a node, while the node is still executing the other tasks.
+   * @param context the channel that received the results.
+   * @param message the received partial results.
+   * @throws Exception if any error occurs.
+   */
+  public void partialResultsReceived(final AsyncNodeContext context, final AbstractTaskBundleMessage message)  throws Exception {
+    final NodeBundleResults received = context.deserializeBundle(message);
+    final TaskBundle bundle = received.bundle();
+    final ServerTaskBundleNode nodeBundle = context.getJobEntry(bundle.getUuid(), bundle.getBundleId());
+    if (nodeBundle == null) {
+      if (debugEnabled) log.debug("no dispatched bundle found for partial results {} from node {}", bundle, context);
+      return;
+    }
+    final int[] positions = bundle.getParameter(RESULTS_POSITIONS);
+    if (debugEnabled) log.debug("received {} partial results from node {} for {}", positions.length, context, nodeBundle);
+    try {
+      nodeBundle.partialResultsReceived(positions, received.data());
+    } finally {
+      final Runnable deferred = nodeBundle.partialResultsProcessed(positions.length);
+      if (deferred != null) deferred.run();
+    }
+  }
+
+  /**
+   * Process the final results of a bundle whose processing was deferred until all its partial results were processed.
+   * @param received holds the received bundle along with the tasks.
+   * @param context the channel from which the bundle was read.
+   */
+  private void processDeferred(final NodeBundleResults received, final AsyncNodeContext context) {
+    try {
+      process(received, context);
+    } catch (final Exception e) {
+      log.error("error processing the results of {} from node {}", received.bundle(), context, e);
+    }
+  }
+
   /**
    * Resolve the host name for the specified channel.
    * @param context the channel from which to get the host information.
@@ -313,7 +357,7 @@ public class AsyncNodeMessageHandler {
       if (requeue) nodeBundle.resubmit();
     }
     if (!context.isOffline()) updateMaxJobs(context, bundle);
-    if (context.getCurrentNbJobs() < context.getMaxJobs()) {
+    if (context.hasDispatchCapacity()) {
       if (debugEnabled) log.debug("updating execution status to ACTIVE for {}", context);
       context.setExecutionStatus(ExecutorStatus.ACTIVE);
     }
@@ -342,6 +386,9 @@ public class AsyncNodeMessageHandler {
         if (debugEnabled) log.debug("node bundle was not cancelled: {}", nodeBundle);
         job.cancelDispatch(nodeBundle);
       }
+    } else if (newBundle.getParameter(DATA_PROVIDER_MISSING, false)) {
+      if (debugEnabled) log.debug("node {} did not find the data provider in its cache, requeueing {}", context, nodeBundle);
+      dataProviderMissing(context.getDataProviderTracker(), nodeBundle);
     } else {
       if (debugEnabled) log.debug("received bundle with {} tasks, taskCount={}: {}", received.second().size(), newBundle.getTaskCount(), received.bundle());
       if (nodeBundle.getJobReturnReason() == null) nodeBundle.setJobReturnReason(JobReturnReason.RESULTS_RECEIVED);
@@ -367,7 +414,7 @@ public class AsyncNodeMessageHandler {
       } else if (debugEnabled) log.debug("bundle has expired: {}", nodeBundle);
       if (debugEnabled) log.debug("nodeBundle={}", nodeBundle);
       bundler = updateBundlerAndStats(context, bundler, nodeBundle, newBundle);
-      nodeBundle.resultsReceived(received.data());
+      nodeBundle.resultsReceived(alignResults(nodeBundle, newBundle, received.data()));
       if (debugEnabled) log.debug("updated stats for {}", context);
     }
     final JPPFSystemInformation systemInfo = newBundle.getParameter(SYSTEM_INFO_PARAM);
@@ -378,6 +425,37 @@ public class AsyncNodeMessageHandler {
     return newBundle.isRequeue();
   }
 
+  /**
+   * Requeue the tasks of a bundle which the node returned without executing them, because it did not find their data provider in its cache.
+   * The data provider is then sent along with the tasks when they are dispatched again.
+   * @param tracker keeps track of the data providers cached by the node.
+   * @param nodeBundle the bundle that was dispatched to the node.
+   */
+  static void dataProviderMissing(final NodeDataProviderTracker tracker, final ServerTaskBundleNode nodeBundle) {
+    tracker.remove(nodeBundle.getJob().getUuidPath().getFirst(), nodeBundle.getJob().getParameter(DATA_PROVIDER_HASH));
+    nodeBundle.resubmit();
+    final List<DataLocation> results = new ArrayList<>(nodeBundle.getTaskCount());
+    for (final ServerTask task: nodeBundle.getTaskList()) results.add(task.getInitialTask());
+    nodeBundle.resultsReceived(results);
+  }
+
+  /**
+   * Align the received results with the tasks of the dispatched bundle, when some of them were previously received as partial results.
+   * @param nodeBundle the bundle that was dispatched to the node.
+   * @param header the header of the bundle received from the node.
+   * @param results the received results.
+   * @return a list with one element per task of the dispatched bundle, with {@code null} elements for the tasks whose results were already received.
+   */
+  private static List<DataLocation> alignResults(final ServerTaskBundleNode nodeBundle, final TaskBundle header, final List<DataLocation> results) {
+    final int[] positions = header.getParameter(RESULTS_POSITIONS, null);
+    if (positions == null) return results;
+    final Map<Integer, DataLocation> map = new HashMap<>(positions.length);
+    for (int i=0; i<positions.length; i++) map.put(positions[i], results.get(i));
+    final List<DataLocation> aligned = new ArrayList<>(nodeBundle.getTaskCount());
+    for (final ServerTask task: nodeBundle.getTaskList()) aligned.add(map.get(task.getPosition()));
+    return aligned;
+  }
+
   /**
    * Called when a node sends a notification or alert.
    * @param context the channel that sent the notification.
@@ -407,11 +485,11 @@ public class AsyncNodeMessageHandler {
     final Bundler<?> bundler = (currentBundler == null) ? context.checkBundler(context.getServer().getBundlerFactory(), context.getServer().getJPPFContext()) : currentBundler;
     if (bundler instanceof BundlerEx) {
       final long accumulatedTime = newBundle.getParameter(NODE_BUNDLE_ELAPSED_PARAM, -1L);
-      BundlerHelper.updateBundler((BundlerEx<?>) bundler, newBundle.getTaskCount(), elapsed, accumulatedTime, elapsed - newBundle.getNodeExecutionTime());
-    } else BundlerHelper.updateBundler(bundler, newBundle.getTaskCount(), elapsed);
+      BundlerHelper.updateBundler((BundlerEx<?>) bundler, nodeBundle.getTaskCount(), elapsed, accumulatedTime, elapsed - newBundle.getNodeExecutionTime());
+    } else BundlerHelper.updateBundler(bundler, nodeBundle.getTaskCount(), elapsed);
     if (debugEnabled) log.debug("updated bundler for {}", context);
     context.getServer().getBundlerHandler().storeBundler(context.getNodeIdentifier(), bundler, context.getBundlerAlgorithm());
-    updateStats(newBundle.getTaskCount(), elapsed / 1_000_000L, newBundle.getNodeExecutionTime() / 1_000_000L);
+    updateStats(nodeBundle.getTaskCount(), elapsed / 1_000_000L, newBundle.getNodeExecutionTime() / 1_000_000L);
     return bundler;
   }
 
@@ -440,6 +518,8 @@ public class AsyncNodeMessageHandler {
     final int maxJobs = (newMaxJobs == null) ? driver.getConfiguration().get(JPPFProperties.NODE_MAX_JOBS) : newMaxJobs;
     if (debugEnabled) log.debug("n={}, newMaxJobs={}, computed maxJobs={}, context={}", n, newMaxJobs, maxJobs, context);
     if (maxJobs > 0) context.setMaxJobs(maxJobs);
+    final Integer prefetchDepth = bundle.getParameter(NODE_PREFETCH_DEPTH);
+    if (prefetchDepth != null) context.setPrefetchLimits(prefetchDepth, bundle.getParameter(NODE_PREFETCH_MAX_MEMORY, Long.MAX_VALUE));
   }
 
   /**
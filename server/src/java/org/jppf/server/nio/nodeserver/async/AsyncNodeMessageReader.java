@@ -18,7 +18,7 @@
 
 package org.jppf.server.nio.nodeserver.async;
 
-import static org.jppf.node.protocol.BundleParameter.NODE_OFFLINE_OPEN_REQUEST;
+import static org.jppf.node.protocol.BundleParameter.*;
 
 import java.util.concurrent.*;
 
@@ -78,6 +78,8 @@ public class AsyncNodeMessageReader extends NioMessageReader<AsyncNodeContext> {
       handler.handshakeReceived(context, msg);
     } else if (header.isNotification()) {
       handler.notificationReceived(context, (NotificationBundle) header);
+    } else if (header.getParameter(PARTIAL_RESULTS, false)) {
+      handler.partialResultsReceived(context, msg);
     } else {
       handler.resultsReceived(context, msg);
     }
@@ -167,6 +167,11 @@ public final class AsyncNodeNioServer extends StatelessNioServer<AsyncNodeContex
     messageWriter = new AsyncNodeMessageWriter(this);
   }
 
+  @Override
+  protected boolean isSelectorShardingSupported() {
+    return true;
+  }
+
   @Override
   protected void handleSelectionException(final SelectionKey key, final Exception e) {
     final AsyncNodeContext context = (AsyncNodeContext) key.attachment();
@@ -0,0 +1,67 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.server.nio.nodeserver.async;
+
+import java.util.*;
+
+/**
+ * Keeps track of the data providers held in the cache of a single node, so that the server only sends a data provider
+ * when the node doesn't already have it.
+ * <p>This is a mirror of the node's LRU caches, one per client application: since the bundles are sent to the node in the same order
+ * in which they are submitted to this tracker, both sides perform the same sequence of accesses and evictions. If they ever diverge,
+ * for instance because the node discarded a client class loader, the node reports the missing data provider and the server
+ * removes the corresponding entry with {@link #remove(String, String)} before sending the bundle again.
+ */
+final class NodeDataProviderTracker {
+  /**
+   * Mapping of client application uuids to the hashes of the data providers cached by the node, in LRU order.
+   */
+  private final Map<String, LinkedHashSet<String>> hashes = new HashMap<>();
+
+  /**
+   * Determine whether the node already holds the specified data provider and record it as the most recently used one.
+   * @param appUuid the uuid of the client application that submitted the job.
+   * @param hash the hash of the data provider.
+   * @param maxSize the maximum number of data providers the node keeps for each client application.
+   * @return {@code true} if the node has the data provider in its cache, {@code false} if it must be sent along with the tasks.
+   */
+  synchronized boolean checkCached(final String appUuid, final String hash, final int maxSize) {
+    LinkedHashSet<String> set = hashes.get(appUuid);
+    if (set == null) hashes.put(appUuid, set = new LinkedHashSet<>());
+    final boolean cached = set.remove(hash);
+    set.add(hash);
+    final Iterator<String> it = set.iterator();
+    while (set.size() > maxSize) {
+      it.next();
+      it.remove();
+    }
+    return cached;
+  }
+
+  /**
+   * Record that the node no longer holds the specified data provider.
+   * @param appUuid the uuid of the client application that submitted the job.
+   * @param hash the hash of the data provider.
+   */
+  synchronized void remove(final String appUuid, final String hash) {
+    final Set<String> set = hashes.get(appUuid);
+    if (set != null) set.remove(hash);
+  }
+}
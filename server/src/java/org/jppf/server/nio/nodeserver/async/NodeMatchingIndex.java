@@ -0,0 +1,253 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.nio.nodeserver.async;
+
+import java.util.*;
+
+import org.jppf.node.policy.*;
+import org.jppf.node.protocol.JobSLA;
+import org.jppf.server.nio.nodeserver.BaseNodeContext;
+import org.jppf.server.protocol.*;
+import org.jppf.utils.LoggingUtils;
+import org.slf4j.*;
+
+/**
+ * An index of the idle nodes eligible for each job in the queue, along with a cache of the execution policy evaluation results.
+ * <p>A cached (policy, node) result remains valid as long as neither the job's header, including its SLA and execution policy, nor the node's system information
+ * are replaced or updated in place, as tracked by {@link AbstractServerJob#getHeaderVersion()} and {@link BaseNodeContext#getNodeInfoVersion()}.
+ * A per-job set of candidate nodes is kept current as nodes become idle or busy, so that the job scheduler only visits the nodes that are not already
+ * known to be rejected by the job's execution policy.
+ * <p>Execution policies that may depend on the evaluation context, such as scripted policies, user-defined policies or {@link NodesMatching} policies,
+ * are never cached and are evaluated at each dispatch attempt, as before.
+ * <p>This class is not thread-safe: all its methods must be called while holding the lock on the set of idle channels of the job scheduler.
+ */
+final class NodeMatchingIndex {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(NodeMatchingIndex.class);
+  /**
+   * Determines whether DEBUG logging level is enabled.
+   */
+  private static final boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
+  /**
+   * Mapping of job uuids to their matching information.
+   */
+  private final Map<String, JobEntry> jobEntries = new HashMap<>();
+
+  /**
+   * Get the idle nodes that are not known to be rejected by the specified job's execution policy.
+   * The cost of this method is proportional to the number of candidate nodes, since rejected nodes are re-admitted by {@link #nodeIdle(BaseNodeContext)}
+   * and {@link #nodeInfoUpdated(BaseNodeContext)} rather than here.
+   * @param job the job for which to get the candidate nodes.
+   * @param idleChannels the current set of idle nodes.
+   * @return a new list of candidate nodes, possibly empty.
+   */
+  List<BaseNodeContext> getCandidates(final ServerJob job, final Set<BaseNodeContext> idleChannels) {
+    // copied, since the candidates rejected while the caller iterates are removed by putResult()
+    return new ArrayList<>(getEntry(job, idleChannels).candidates);
+  }
+
+  /**
+   * Get the cached result of the evaluation of the specified job's execution policy against the specified node.
+   * @param job the job whose execution policy was evaluated.
+   * @param channel the node against which the policy was evaluated.
+   * @return the cached result, or {@code null} if there is no valid cached result.
+   */
+  Boolean getCachedResult(final ServerJob job, final BaseNodeContext channel) {
+    final JobEntry entry = jobEntries.get(job.getUuid());
+    if ((entry == null) || !entry.cacheable || !entry.isValidFor(job)) return null;
+    final MatchResult result = entry.results.get(channel);
+    return ((result != null) && (result.nodeInfoVersion == channel.getNodeInfoVersion())) ? result.matches : null;
+  }
+
+  /**
+   * Record the result of the evaluation of the specified job's execution policy against the specified node.
+   * If the node is rejected, it is also removed from the job's candidates until either its system information or the job's SLA changes.
+   * @param job the job whose execution policy was evaluated.
+   * @param channel the node against which the policy was evaluated.
+   * @param matches the result of the evaluation.
+   */
+  void putResult(final ServerJob job, final BaseNodeContext channel, final boolean matches) {
+    final JobEntry entry = jobEntries.get(job.getUuid());
+    if ((entry == null) || !entry.cacheable || !entry.isValidFor(job)) return;
+    entry.results.put(channel, new MatchResult(channel.getNodeInfoVersion(), matches));
+    if (!matches) entry.candidates.remove(channel);
+  }
+
+  /**
+   * Called when a node becomes idle. The node is added to the candidates of all the jobs that do not already reject it.
+   * @param channel the node that became idle.
+   */
+  void nodeIdle(final BaseNodeContext channel) {
+    final long version = channel.getNodeInfoVersion();
+    for (final JobEntry entry: jobEntries.values()) {
+      final MatchResult result = entry.results.get(channel);
+      if ((result != null) && (result.nodeInfoVersion == version) && !result.matches) continue;
+      entry.candidates.add(channel);
+    }
+  }
+
+  /**
+   * Called when the system information of an idle node is set or updated in place. The node is added back to the candidates of the jobs
+   * that rejected a previous version of its system information.
+   * @param channel the idle node whose system information was updated.
+   */
+  void nodeInfoUpdated(final BaseNodeContext channel) {
+    nodeIdle(channel);
+  }
+
+  /**
+   * Called when a node is no longer idle. The node is removed from the candidates of all the jobs.
+   * @param channel the node that is no longer idle.
+   */
+  void nodeBusy(final BaseNodeContext channel) {
+    for (final JobEntry entry: jobEntries.values()) entry.candidates.remove(channel);
+  }
+
+  /**
+   * Discard the matching information for the jobs that are no longer in the specified list.
+   * @param jobs the list of jobs currently in the queue.
+   */
+  void retainJobs(final List<ServerJob> jobs) {
+    if (jobEntries.isEmpty()) return;
+    final Set<String> uuids = new HashSet<>(jobs.size());
+    for (final ServerJob job: jobs) uuids.add(job.getUuid());
+    jobEntries.keySet().retainAll(uuids);
+  }
+
+  /**
+   * Discard all the matching information.
+   */
+  void clear() {
+    jobEntries.clear();
+  }
+
+  /**
+   * Get the matching information for the specified job, creating or resetting it if needed.
+   * @param job the job for which to get the matching information.
+   * @param idleChannels the current set of idle nodes, used to initialize the job's candidates.
+   * @return a {@link JobEntry} instance.
+   */
+  private JobEntry getEntry(final ServerJob job, final Set<BaseNodeContext> idleChannels) {
+    JobEntry entry = jobEntries.get(job.getUuid());
+    if ((entry == null) || !entry.isValidFor(job)) {
+      if (debugEnabled) log.debug("{} matching information for {}", (entry == null) ? "creating" : "resetting", job);
+      entry = new JobEntry(job, idleChannels);
+      jobEntries.put(job.getUuid(), entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Determine whether the evaluation of the specified policy only depends on the node's system information and can therefore be cached.
+   * @param policy the policy to check.
+   * @return {@code true} if the results of the policy evaluation can be cached, {@code false} otherwise.
+   */
+  static boolean isCacheable(final ExecutionPolicy policy) {
+    if (policy == null) return true;
+    if ((policy instanceof ScriptedPolicy) || (policy instanceof NodesMatching)) return false;
+    // user-defined policies may use the evaluation context
+    if (!policy.getClass().getName().startsWith(ExecutionPolicy.class.getPackage().getName() + '.')) return false;
+    final ExecutionPolicy[] children = policy.getChildren();
+    if (children != null) {
+      for (final ExecutionPolicy child: children) {
+        if (!isCacheable(child)) return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The matching information for a job.
+   */
+  private static final class JobEntry {
+    /**
+     * The SLA for which this entry was created.
+     */
+    private final JobSLA sla;
+    /**
+     * The execution policy for which this entry was created.
+     */
+    private final ExecutionPolicy policy;
+    /**
+     * The version of the job header for which this entry was created.
+     */
+    private final long headerVersion;
+    /**
+     * Whether the results of the policy evaluation can be cached.
+     */
+    private final boolean cacheable;
+    /**
+     * The cached policy evaluation results.
+     */
+    private final Map<BaseNodeContext, MatchResult> results = new HashMap<>();
+    /**
+     * The idle nodes not known to be rejected by the execution policy.
+     */
+    private final Set<BaseNodeContext> candidates;
+
+    /**
+     * Initialize this entry.
+     * @param job the job for which this entry is created.
+     * @param idleChannels the current set of idle nodes.
+     */
+    private JobEntry(final ServerJob job, final Set<BaseNodeContext> idleChannels) {
+      this.headerVersion = job.getHeaderVersion();
+      this.sla = job.getSLA();
+      this.policy = sla.getExecutionPolicy();
+      this.cacheable = isCacheable(policy);
+      this.candidates = new LinkedHashSet<>(idleChannels);
+    }
+
+    /**
+     * Determine whether this entry is still valid for the specified job.
+     * @param job the job to check.
+     * @return {@code true} if the job's header, SLA and execution policy haven't changed, {@code false} otherwise.
+     */
+    private boolean isValidFor(final ServerJob job) {
+      final JobSLA jobSla = job.getSLA();
+      return (jobSla == sla) && (jobSla.getExecutionPolicy() == policy) && (job.getHeaderVersion() == headerVersion);
+    }
+  }
+
+  /**
+   * The result of an execution policy evaluation against a node.
+   */
+  private static final class MatchResult {
+    /**
+     * The version of the node system information against which the policy was evaluated.
+     */
+    private final long nodeInfoVersion;
+    /**
+     * The result of the evaluation.
+     */
+    private final boolean matches;
+
+    /**
+     * Initialize this result.
+     * @param nodeInfoVersion the version of the node system information against which the policy was evaluated.
+     * @param matches the result of the evaluation.
+     */
+    private MatchResult(final long nodeInfoVersion, final boolean matches) {
+      this.nodeInfoVersion = nodeInfoVersion;
+      this.matches = matches;
+    }
+  }
+}
@@ -151,6 +151,7 @@ public class AsyncLocalNodeIO extends AbstractNodeIO<JPPFLocalNode> {
       if (debugEnabled) log.debug("wrote full results");
       final AsyncNodeMessageHandler handler = channel.getServer().getMessageHandler();
       if (bundle.isHandshake()) handler.handshakeReceived(channel, message);
+      else if (bundle.getParameter(PARTIAL_RESULTS, false)) handler.partialResultsReceived(channel, message);
       else handler.resultsReceived(channel, message);
     }
   }
@@ -70,7 +70,7 @@ class AsyncPeerResourceProvider extends AbstractPeerConnectionHandler {
       socketClient.setChannel(null);
       socketChannel.configureBlocking(false);
       server.accept(null, socketChannel, null, secure, true);
-      final SelectionKey key = socketChannel.keyFor(server.getSelector());
+      final SelectionKey key = server.keyFor(socketChannel);
       context = (AsyncClientClassContext) key.attachment();
       context.setPeer(true);
       context.setConnectionUuid(connectionUuid);
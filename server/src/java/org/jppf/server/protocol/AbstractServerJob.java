@@ -92,6 +92,10 @@ public abstract class AbstractServerJob implements JPPFDistributedJob {
    * Used for synchronized access to job.
    */
   protected final Lock lock;
+  /**
+   * Incremented each time the job header, including its SLA, is replaced or updated in place.
+   */
+  private final AtomicLong headerVersion = new AtomicLong(0L);
   /**
    * Condition signalled when this job is removed from the queue.
    */
@@ -203,6 +207,14 @@ public abstract class AbstractServerJob implements JPPFDistributedJob {
    */
   public void setSLA(final JobSLA sla) {
     job.setSLA(sla);
+    headerVersion.incrementAndGet();
+  }
+
+  /**
+   * @return a number which changes each time the job header, including its SLA, is replaced or updated in place.
+   */
+  public long getHeaderVersion() {
+    return headerVersion.get();
   }
 
   /**
@@ -438,7 +450,10 @@ public abstract class AbstractServerJob implements JPPFDistributedJob {
    * @param headerUpdated whether the job header(a {@link org.jppf.node.protocol.TaskBundle TaskBundle} instance) has been updated.
    */
   public void fireJobUpdated(final boolean headerUpdated) {
-    if (headerUpdated) updateJobDataLocation();
+    if (headerUpdated) {
+      headerVersion.incrementAndGet();
+      updateJobDataLocation();
+    }
     if (notificationEmitter != null) notificationEmitter.jobUpdated(this, headerUpdated);
   }
 
@@ -18,6 +18,7 @@
 
 package org.jppf.server.protocol;
 
+import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
@@ -25,7 +26,7 @@ import java.util.concurrent.locks.Lock;
 import org.jppf.io.DataLocation;
 import org.jppf.node.protocol.*;
 import org.jppf.server.submission.SubmissionStatus;
-import org.jppf.utils.LoggingUtils;
+import org.jppf.utils.*;
 import org.slf4j.*;
 
 /**
@@ -43,6 +44,10 @@ public class AbstractServerJobBase extends AbstractServerJob {
    * Determines whether debug-level logging is enabled.
    */
   private static final boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
+  /**
+   * Data providers smaller than this size, in bytes, are always sent along with the tasks and never cached by the nodes.
+   */
+  private static final int MIN_CACHED_DATA_PROVIDER_SIZE = 1024;
   /**
    * The list of the tasks.
    */
@@ -75,6 +80,14 @@ public class AbstractServerJobBase extends AbstractServerJob {
    * The list of the tasks.
    */
   protected final Map<Integer, ServerTask> dependendedOnTasks = new TreeMap<>();
+  /**
+   * The hash of the data provider's serialized form, lazily computed.
+   */
+  private String dataProviderHash;
+  /**
+   * Whether the hash of the data provider was already computed.
+   */
+  private boolean dataProviderHashComputed;
 
   /**
    * Initialized client job with task bundle and list of tasks to execute.
@@ -110,6 +123,26 @@ public class AbstractServerJobBase extends AbstractServerJob {
     return dataProvider;
   }
 
+  /**
+   * Get the SHA-256 hash of the serialized data provider, which identifies it in the nodes' data provider caches.
+   * The hash is computed at the first invocation of this method.
+   * @return the hash as an hexadecimal string, or {@code null} if the data provider is too small to be worth caching or if the hash could not be computed.
+   */
+  public synchronized String getDataProviderHash() {
+    if (!dataProviderHashComputed) {
+      dataProviderHashComputed = true;
+      if ((dataProvider != null) && (dataProvider.getSize() >= MIN_CACHED_DATA_PROVIDER_SIZE)) {
+        try (final InputStream is = dataProvider.getInputStream()) {
+          dataProviderHash = CryptoUtils.computeHash(is, "SHA-256");
+        } catch (final Exception e) {
+          log.error("error computing the data provider hash for {} : {}", this, ExceptionUtils.getMessage(e));
+        }
+        if (debugEnabled) log.debug("data provider hash for {} is {}", this, dataProviderHash);
+      }
+    }
+    return dataProviderHash;
+  }
+
   @Override
   public int getTaskCount() {
     lock.lock();
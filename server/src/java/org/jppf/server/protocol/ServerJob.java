@@ -98,20 +98,14 @@ public class ServerJob extends AbstractServerJobBase {
           }
           if (debugEnabled) log.debug("requested tasks={}, found tasks={}", nbTasks, list.size());
         } else {
-          final Set<Integer> availablePos = taskGraph.getAvailableNodes();
-          final int effectiveNbTasks = Math.min(nbTasks, availablePos.size());
-          final Iterator<Integer> it = availablePos.iterator();
-          list = new ArrayList<>(effectiveNbTasks);
-          int count = 0;
-          while (it.hasNext() && (count < nbTasks)) {
-            final int pos = it.next();
-            if (!dispatchedTasks.contains(pos)) {
-              dispatchedTasks.add(pos);
-              count++;
-              list.add(tasks.get(pos));
-            }
+          // available tasks on the longest remaining paths of the graph are dispatched first
+          final int[] availablePos = taskGraph.nextAvailableNodes(nbTasks, dispatchedTasks::contains);
+          list = new ArrayList<>(availablePos.length);
+          for (final int pos: availablePos) {
+            dispatchedTasks.add(pos);
+            list.add(tasks.get(pos));
           }
-          if (debugEnabled) log.debug("count={}, nbTasks={}, effectiveNbTasks={}, dispatchedTasks={} for {}", count, nbTasks, effectiveNbTasks, dispatchedTasks.size(), this);
+          if (debugEnabled) log.debug("count={}, nbTasks={}, availableNodes={}, dispatchedTasks={} for {}", list.size(), nbTasks, taskGraph.getAvailableCount(), dispatchedTasks.size(), this);
         }
         if (list.isEmpty() && !getJob().isHandshake()) throw new IllegalStateException("list of tasks to dispatch is empty");
         final TaskBundle newTaskBundle;
@@ -152,6 +146,7 @@ public class ServerJob extends AbstractServerJobBase {
     if (debugEnabled) log.debug("received {} results from {}", (results == null ? "null" : results.size()), bundle);
     if ((results != null) && results.isEmpty()) return;
     final CollectionMap<ServerTaskBundleClient, ServerTask> map = new SetIdentityMap<>();
+    final Set<ServerTaskBundleClient> returned = Collections.newSetFromMap(new IdentityHashMap<>());
     final List<ServerTask> bundleTasks;
     final boolean b;
     lock.lock();
@@ -159,13 +154,19 @@ public class ServerJob extends AbstractServerJobBase {
       bundleTasks = (bundle == null) ? new ArrayList<>(tasks.values()) : bundle.getTaskList();
       b = isJobExpired() || isCancelled() || (bundle.isExpired() && bundle.isOffline());
       if (b) {
-        for (final ServerTask task : bundleTasks) map.putValue(task.getBundle(), task);
+        for (final ServerTask task : bundleTasks) {
+          if ((bundle != null) && bundle.isReturned(task.getPosition())) returned.add(task.getBundle());
+          else map.putValue(task.getBundle(), task);
+        }
       } else if (results != null) {
         int nbResubmits = 0, maxPos = 0, minPos = Integer.MAX_VALUE;
         for (int i=0; i<bundleTasks.size(); i++) {
           final ServerTask task = bundleTasks.get(i);
           final int pos = task.getPosition();
-          if (task.getState() == TaskState.RESUBMIT) {
+          if (bundle.isReturned(pos) || (results.get(i) == null)) {
+            // the result was already received as a partial result
+            returned.add(task.getBundle());
+          } else if (task.getState() == TaskState.RESUBMIT) {
             if (traceEnabled) log.trace("task to resubmit: {}", task);
             task.setState(TaskState.PENDING);
             task.setReturnedFromNode(false);
@@ -190,7 +191,42 @@ public class ServerJob extends AbstractServerJobBase {
       lock.unlock();
     }
     if (debugEnabled && (taskGraph != null)) log.debug("taskGraph = {}, sentTasks = {}", taskGraph, dispatchedTasks);
-    postResultsReceived(map, bundle, null);
+    postResultsReceived(map, returned, bundle, null);
+  }
+
+  /**
+   * Called to notify that the results of some of the tasks in a dispatched bundle were received, while the node is still executing the other tasks.
+   * @param bundle the dispatched bundle.
+   * @param positions the positions of the tasks whose results were received.
+   * @param results the results, in the same order as the positions.
+   */
+  public void partialResultsReceived(final ServerTaskBundleNode bundle, final int[] positions, final List<DataLocation> results) {
+    if (debugEnabled) log.debug("received {} partial results from {}", positions.length, bundle);
+    final CollectionMap<ServerTaskBundleClient, ServerTask> map = new SetIdentityMap<>();
+    lock.lock();
+    try {
+      if (isJobExpired() || isCancelled()) return;
+      for (int i=0; i<positions.length; i++) {
+        final int pos = positions[i];
+        final ServerTask task = bundle.getTaskAt(pos);
+        if ((task == null) || !bundle.setReturned(pos)) continue;
+        task.setReturnedFromNode(true);
+        if (task.getState() != TaskState.PENDING) continue;
+        if (taskGraph != null) {
+          dispatchedTasks.remove(pos);
+          taskGraph.nodeDone(pos);
+        }
+        task.resultReceived(results.get(i));
+        map.putValue(task.getBundle(), task);
+      }
+    } finally {
+      lock.unlock();
+    }
+    map.forEach((clientBundle, tasks) -> {
+      // the results must be submitted to the persistence before they can be sent to the client
+      ((JPPFJobManager) notificationEmitter).jobResultsReceived(bundle.getChannel(), this, tasks);
+      clientBundle.resultReceived(tasks);
+    });
   }
 
   /**
@@ -202,12 +238,14 @@ public class ServerJob extends AbstractServerJobBase {
     if (bundle == null) throw new IllegalArgumentException("bundle is null");
     if (debugEnabled) log.debug("*** received exception '{}' from {}", ExceptionUtils.getMessage(throwable), bundle);
     final CollectionMap<ServerTaskBundleClient, ServerTask> map = new SetIdentityMap<>();
+    final Set<ServerTaskBundleClient> returned = Collections.newSetFromMap(new IdentityHashMap<>());
     lock.lock();
     try {
       int nbResubmits = 0, maxPos = 0, minPos = Integer.MAX_VALUE;
       for (final ServerTask task : bundle.getTaskList()) {
         final int pos = task.getPosition();
-        if (task.getState() == TaskState.RESUBMIT) {
+        if (bundle.isReturned(pos)) returned.add(task.getBundle());
+        else if (task.getState() == TaskState.RESUBMIT) {
           if (traceEnabled) log.trace("task to resubmit: {}", task);
           task.setState(TaskState.PENDING);
           task.setReturnedFromNode(false);
@@ -229,21 +267,23 @@ public class ServerJob extends AbstractServerJobBase {
       lock.unlock();
     }
     if (debugEnabled && (taskGraph != null)) log.debug("taskGraph = {}, sentTasks = {}", taskGraph, dispatchedTasks);
-    postResultsReceived(map, bundle, throwable);
+    postResultsReceived(map, returned, bundle, throwable);
   }
 
   /**
    * 
    * @param map .
+   * @param returned the client bundles with tasks whose results were received earlier as partial results.
    * @param bundle .
    * @param throwable .
    */
-  private void postResultsReceived(final CollectionMap<ServerTaskBundleClient, ServerTask> map, final ServerTaskBundleNode bundle, final Throwable throwable) {
+  private void postResultsReceived(final CollectionMap<ServerTaskBundleClient, ServerTask> map, final Set<ServerTaskBundleClient> returned,
+    final ServerTaskBundleNode bundle, final Throwable throwable) {
     if (debugEnabled) log.debug("client bundle map has {} keys: {}", map.keySet().size(), map.keySet());
     map.forEach((clientBundle, tasks) -> {
+      ((JPPFJobManager) notificationEmitter).jobResultsReceived(bundle.getChannel(), this, tasks);
       if (throwable == null) clientBundle.resultReceived(tasks);
       else clientBundle.resultReceived(tasks, throwable);
-      ((JPPFJobManager) notificationEmitter).jobResultsReceived(bundle.getChannel(), this, tasks);
       if (debugEnabled) log.debug("received results for {}", clientBundle);
     });
     taskCompleted(bundle, throwable);
@@ -252,6 +292,9 @@ public class ServerJob extends AbstractServerJobBase {
         if (debugEnabled) log.debug("checking bundleEnded() for {}", clientBundle);
         if (clientBundle.getPendingTasksCount() <= 0) clientBundle.bundleEnded();
       });
+      for (final ServerTaskBundleClient clientBundle: returned) {
+        if (!map.containsKey(clientBundle) && (clientBundle.getPendingTasksCount() <= 0)) clientBundle.bundleEnded();
+      }
     }
   }
 
@@ -447,7 +490,7 @@ public class ServerJob extends AbstractServerJobBase {
   public boolean hasAvailableGraphNode() {
     synchronized (tasks) {
       if (taskGraph == null) return false;
-      return taskGraph.getAvailableNodes().size() - dispatchedTasks.size() > 0;
+      return taskGraph.getAvailableCount() - dispatchedTasks.size() > 0;
     }
   }
 
@@ -456,7 +499,7 @@ public class ServerJob extends AbstractServerJobBase {
    */
   public int getAvailableGraphNodeCount() {
     synchronized (tasks) {
-      return (taskGraph != null) ? taskGraph.getAvailableNodes().size() - dispatchedTasks.size() : -1;
+      return (taskGraph != null) ? taskGraph.getAvailableCount() - dispatchedTasks.size() : -1;
     }
   }
 }
@@ -112,6 +112,26 @@ public class ServerTaskBundleNode {
    * Info on the dependenencies of the tasks in this bundle.
    */
   private TaskGraphInfo graphInfo;
+  /**
+   * Positions of the tasks whose results were received as partial results, while the node was still executing the other tasks.
+   */
+  private Set<Integer> returnedPositions;
+  /**
+   * Mapping of job positions to the tasks in this bundle, lazily created upon receiving partial results.
+   */
+  private Map<Integer, ServerTask> tasksByPosition;
+  /**
+   * Number of task results received and processed as partial results.
+   */
+  private int partialResultsCount;
+  /**
+   * The processing of the final results, when they were received before all the partial results were processed.
+   */
+  private Runnable deferredResults;
+  /**
+   * Number of partial results to process before the deferred final results can be processed.
+   */
+  private int expectedPartialResults;
 
   /**
    * Initialize this task bundle and set its build number.
@@ -210,6 +230,75 @@ public class ServerTaskBundleNode {
     this.channel = null;
   }
 
+  /**
+   * Called to notify that the results of some of the tasks were received, while the node is still executing the other tasks.
+   * @param positions the positions of the tasks whose results were received.
+   * @param results the results, in the same order as the positions.
+   */
+  public void partialResultsReceived(final int[] positions, final List<DataLocation> results) {
+    job.partialResultsReceived(this, positions, results);
+  }
+
+  /**
+   * Defer the processing of the final results of this bundle until the specified number of partial results have been processed.
+   * This is needed because the messages from a node may be processed concurrently, and thus in a different order than they were sent.
+   * @param expected the total number of task results the node sent as partial results.
+   * @param processing the processing of the final results.
+   * @return {@code true} if the processing was deferred, {@code false} if all the partial results were already processed.
+   */
+  public synchronized boolean deferResults(final int expected, final Runnable processing) {
+    if (partialResultsCount >= expected) return false;
+    if (debugEnabled) log.debug("deferring final results, expecting {} partial results, got {} for {}", expected, partialResultsCount, this);
+    expectedPartialResults = expected;
+    deferredResults = processing;
+    return true;
+  }
+
+  /**
+   * Called when partial results were processed.
+   * @param count the number of task results that were processed.
+   * @return the deferred processing of the final results if it can now be performed, or {@code null} otherwise.
+   */
+  public synchronized Runnable partialResultsProcessed(final int count) {
+    partialResultsCount += count;
+    if ((deferredResults == null) || (partialResultsCount < expectedPartialResults)) return null;
+    final Runnable processing = deferredResults;
+    deferredResults = null;
+    return processing;
+  }
+
+  /**
+   * Record that the result of the task at the specified position was received as a partial result.
+   * @param position the position of the task.
+   * @return {@code true} if the position was not already recorded, {@code false} otherwise.
+   */
+  synchronized boolean setReturned(final int position) {
+    if (returnedPositions == null) returnedPositions = new HashSet<>();
+    return returnedPositions.add(position);
+  }
+
+  /**
+   * Determine whether the result of the task at the specified position was received as a partial result.
+   * @param position the position of the task.
+   * @return {@code true} if the result was already received, {@code false} otherwise.
+   */
+  public synchronized boolean isReturned(final int position) {
+    return (returnedPositions != null) && returnedPositions.contains(position);
+  }
+
+  /**
+   * Get the task at the specified job position.
+   * @param position the position of the task.
+   * @return a {@link ServerTask}, or {@code null} if this bundle has no task at this position.
+   */
+  synchronized ServerTask getTaskAt(final int position) {
+    if (tasksByPosition == null) {
+      tasksByPosition = new HashMap<>(taskList.size());
+      for (final ServerTask task: taskList) tasksByPosition.put(task.getPosition(), task);
+    }
+    return tasksByPosition.get(position);
+  }
+
   /**
    * Called to notify that throwable eventually raised while receiving the results.
    * @param throwable the throwable that was raised while receiving the results.
@@ -240,7 +329,9 @@ public class ServerTaskBundleNode {
     if (getJob().getSLA().isBroadcastJob()) return; // broadcast jobs cannot be resubmitted.
     synchronized (this) {
       requeued = true;
-      for (final ServerTask task: taskList) task.resubmit();
+      for (final ServerTask task: taskList) {
+        if (!isReturned(task.getPosition())) task.resubmit();
+      }
     }
   }
 
@@ -252,6 +343,7 @@ public class ServerTaskBundleNode {
     final int max = job.getSLA().getMaxDispatchExpirations();
     synchronized (this) {
       for (final ServerTask task: taskList) {
+        if (isReturned(task.getPosition())) continue;
         if (task.incExpirationCount() > max) task.cancel();
         else task.resubmit();
       }
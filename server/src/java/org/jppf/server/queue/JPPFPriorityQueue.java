@@ -18,14 +18,13 @@
 
 package org.jppf.server.queue;
 
-import static org.jppf.utils.collections.CollectionUtils.formatSizeMapInfo;
-
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.*;
 import java.util.concurrent.locks.*;
 
 import org.jppf.execute.*;
 import org.jppf.job.*;
+import org.jppf.job.persistence.PersistenceInfo;
 import org.jppf.node.protocol.*;
 import org.jppf.queue.*;
 import org.jppf.server.JPPFDriver;
@@ -34,12 +33,21 @@ import org.jppf.server.nio.nodeserver.BaseNodeContext;
 import org.jppf.server.protocol.*;
 import org.jppf.server.submission.SubmissionStatus;
 import org.jppf.utils.*;
-import org.jppf.utils.collections.LinkedListSortedMap;
+import org.jppf.utils.collections.*;
 import org.jppf.utils.stats.JPPFStatisticsHelper;
 import org.slf4j.*;
 
 /**
  * A JPPF queue whose elements are ordered by decreasing priority.
+ * <p>Jobs with the same priority are served in a round-robin fashion: a job from which only part of the tasks are dispatched is moved
+ * to the end of the jobs with the same priority.
+ * <p>The operations on a job, such as adding client bundles, dispatching tasks to a node or removing the job, are serialized by
+ * a lock which is selected from a fixed set of locks, based on the job uuid. Operations on distinct jobs mostly do not contend with each other,
+ * since the jobs are held in concurrent structures: a job lookup map and a sorted map of per-priority sets.
+ * The queue lock inherited from {@link AbstractJPPFQueue} is the job lock of all broadcast jobs.
+ * <p>To avoid deadlocks, the locks are always acquired in the same order: the queue lock first, then the per-job lock, then the job's own lock.
+ * In particular, the queue lock is never acquired while holding a per-job lock, and a per-job lock is never acquired while holding another one:
+ * operations which may end or remove other jobs, such as job cancellation, are performed after releasing the per-job lock.
  * @author Laurent Cohen
  * @author Martin JANDA
  */
@@ -52,6 +60,10 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * Determines whether the debug level is enabled in the logging configuration, without the cost of a method call.
    */
   private static final boolean debugEnabled = LoggingUtils.isDebugEnabled(log);
+  /**
+   * The number of locks used to serialize the operations on each job. Must be a power of 2.
+   */
+  private static final int NB_JOB_LOCKS = 64;
   /**
    * The driver.
    */
@@ -77,9 +89,17 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    */
   final PersistenceHandler persistenceHandler;
   /**
-   * 
+   * Conditions on which the threads adding bundles to an ended job await its removal, mapped to the job uuids.
+   */
+  private final Map<String, Condition> jobRemovalConditions = new ConcurrentHashMap<>();
+  /**
+   * The queued jobs, ordered by descending priority.
    */
-  private final Map<String, Condition> jobRemovalConditions = new HashMap<>();
+  private final ConcurrentLinkedSetSortedMap<Integer, ServerJob> priorityLevels = new ConcurrentLinkedSetSortedMap<>(new DescendingIntegerComparator());
+  /**
+   * The locks used to serialize the operations on each job.
+   */
+  private final Lock[] jobLocks = new Lock[NB_JOB_LOCKS];
   /**
    * The job dependency graph handler.
    */
@@ -96,6 +116,26 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
     broadcastManager = new BroadcastManager(this);
     persistenceHandler = new PersistenceHandler(this);
     dependenciesHandler = new JobDependenciesHandler(this);
+    for (int i=0; i<NB_JOB_LOCKS; i++) jobLocks[i] = new ReentrantLock();
+  }
+
+  /**
+   * Get the lock which serializes the operations on the job with the specified uuid.
+   * @param jobUuid the uuid of the job.
+   * @return a {@link Lock} shared with the other jobs whose uuid has the same hash.
+   */
+  Lock getJobLock(final String jobUuid) {
+    final int h = jobUuid.hashCode();
+    return jobLocks[(h ^ (h >>> 16)) & (NB_JOB_LOCKS - 1)];
+  }
+
+  /**
+   * Get the lock which serializes the operations on the specified job.
+   * @param job the job for which to get the lock.
+   * @return the queue lock if the job is a broadcast job, otherwise the lock selected from the job uuid.
+   */
+  private Lock getJobLock(final ServerJob job) {
+    return job.getSLA().isBroadcastJob() ? lock : getJobLock(job.getUuid());
   }
 
   @Override
@@ -106,7 +146,14 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
     final String jobUuid = clientBundle.getUuid();
     ServerJob serverJob = null;
     boolean cancel = false;
-    lock.lock();
+    final TaskBundle header = clientBundle.getJob();
+    final boolean toPersist = !sla.isBroadcastJob() && !header.getParameter(BundleParameter.FROM_PERSISTENCE, false) && !header.getParameter(BundleParameter.ALREADY_PERSISTED, false);
+    // serialize the tasks before they can be dispatched, and outside of the queue lock
+    final List<PersistenceInfo> taskInfos = toPersist ? persistenceHandler.serializeTasks(clientBundle) : null;
+    final List<String> toCancel = new ArrayList<>();
+    // broadcast jobs share the queue lock
+    final Lock jobLock = sla.isBroadcastJob() ? lock : getJobLock(jobUuid);
+    jobLock.lock();
     try {
       if (sla.isBroadcastJob()) {
         if (debugEnabled) log.debug("before processing broadcast job {}", clientBundle.getJob());
@@ -136,34 +183,36 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
           }
         }
         if (added) {
-          if (!newJob) priorityMap.removeValue(sla.getPriority(), serverJob);
-          else cancel = (serverJob.getSLA().getDependencySpec().getId() != null) && dependenciesHandler.jobQueued(serverJob);
+          if (!newJob) priorityLevels.removeValue(sla.getPriority(), serverJob);
+          else cancel = (serverJob.getSLA().getDependencySpec().getId() != null) && dependenciesHandler.jobQueued(serverJob, toCancel);
         } else return serverJob;
         if (!sla.isBroadcastJob() || serverJob.getBroadcastUUID() != null) {
-          priorityMap.putValue(sla.getPriority(), serverJob);
+          priorityLevels.putValue(sla.getPriority(), serverJob);
           incrementSizeCount(getSize(serverJob));
         }
         updateLatestMaxSize();
         if (!newJob) driver.getStatistics().addValue(JPPFStatisticsHelper.JOB_TASKS, clientBundle.getTaskCount());
-        final TaskBundle header = clientBundle.getJob();
-        if (!header.getParameter(BundleParameter.FROM_PERSISTENCE, false) && !header.getParameter(BundleParameter.ALREADY_PERSISTED, false)) {
+        if (toPersist) {
           header.setParameter(BundleParameter.ALREADY_PERSISTED, true);
-          persistenceHandler.storeJob(serverJob, clientBundle, !newJob);
+          persistenceHandler.storeJob(serverJob, clientBundle, taskInfos, !newJob);
         }
         if (!cancel) fireBundleAdded(new QueueEvent<>(this, serverJob, false));
       }
-      if (debugEnabled) log.debug("Maps size information: {}", formatSizeMapInfo("priorityMap", priorityMap));
+      if (debugEnabled) log.debug("priority map: {}", priorityLevels);
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
     driver.getStatistics().addValue(JPPFStatisticsHelper.TASK_QUEUE_TOTAL, clientBundle.getTaskCount());
     driver.getStatistics().addValue(JPPFStatisticsHelper.TASK_QUEUE_COUNT, clientBundle.getTaskCount());
+    if (!toCancel.isEmpty()) dependenciesHandler.cancelNodes(toCancel);
     if (cancel) serverJob.cancel(driver, true);
+    if (taskInfos != null) persistenceHandler.awaitCapacity();
     return serverJob;
   }
 
   /**
    * Wait for the specified job to be removed from this queue.
+   * This method must be called while holding the lock for the job.
    * @param serverJob the job to remove.
    */
   void awaitJobRemoved(final ServerJob serverJob) {
@@ -174,7 +223,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
       ServerJob job = null;
       while (((job = jobMap.get(uuid)) != null) && job.hasCompleted()) {
         if (cond == null) {
-          cond = lock.newCondition();
+          cond = getJobLock(uuid).newCondition();
           jobRemovalConditions.put(uuid, cond);
         }
         cond.await();
@@ -211,22 +260,24 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * @param job the job to requeue.
    */
   void requeue(final ServerJob job) {
-    lock.lock();
+    final Lock jobLock = getJobLock(job);
+    jobLock.lock();
     try {
       if (!jobMap.containsKey(job.getUuid())) throw new IllegalStateException("Job " + job + " not managed");
       if (debugEnabled) log.debug("requeuing job {}", job);
-      priorityMap.putValue(job.getSLA().getPriority(), job);
+      priorityLevels.putValue(job.getSLA().getPriority(), job);
       incrementSizeCount(getSize(job));
       fireBundleAdded(new QueueEvent<>(this, job, true));
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
   }
 
   @Override
   public ServerTaskBundleNode nextBundle(final ServerJob serverJob, final int nbTasks, final ExecutorChannel<ServerTaskBundleNode> channel) {
     final ServerTaskBundleNode result;
-    lock.lock();
+    final Lock jobLock = getJobLock(serverJob);
+    jobLock.lock();
     try {
       final int taskCount = serverJob.getTaskCount();
       if (debugEnabled) log.debug("requesting bundle with {} tasks, next bundle has {} tasks", nbTasks, taskCount);
@@ -245,12 +296,12 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
         result = serverJob.createNodeDispatch(effectiveNbTasks);
         incrementSizeCount(size);
         // to ensure that other jobs with same priority are also processed without waiting
-        priorityMap.moveToEndOfList(serverJob.getSLA().getPriority(), serverJob);
+        priorityLevels.moveToEnd(serverJob.getSLA().getPriority(), serverJob);
       }
       updateLatestMaxSize();
-      if (debugEnabled) log.debug("Maps size information: {}", formatSizeMapInfo("priorityMap", priorityMap));
+      if (debugEnabled) log.debug("priority map: {}", priorityLevels);
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
     if (debugEnabled) log.debug("found {} tasks in the job, result={}", result.getTaskCount(), result);
     driver.getStatistics().addValue(JPPFStatisticsHelper.TASK_QUEUE_COUNT, -result.getTaskCount());
@@ -271,7 +322,8 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    */
   public ServerJob removeBundle(final ServerJob serverJob, final boolean removeFromJobMap) {
     if (serverJob == null) throw new IllegalArgumentException("serverJob is null");
-    lock.lock();
+    final Lock jobLock = getJobLock(serverJob);
+    jobLock.lock();
     try {
       if (removeFromJobMap) {
         final String uuid = serverJob.getUuid();
@@ -284,7 +336,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
         if (cond != null) cond.signalAll();
       }
       if (debugEnabled) log.debug("removing job from queue, jobName= {}, removeFromJobMap={}", serverJob.getName(), removeFromJobMap);
-      if (priorityMap.removeValue(serverJob.getSLA().getPriority(), serverJob)) {
+      if (priorityLevels.removeValue(serverJob.getSLA().getPriority(), serverJob)) {
         for (final ServerTaskBundleClient clientBundle : serverJob.getCompletionBundles()) {
           if (debugEnabled) log.debug("adding completion bundle for job={} : {}", serverJob.getName(), clientBundle);
           addBundle(clientBundle);
@@ -292,43 +344,44 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
       }
       fireBundleRemoved(new QueueEvent<>(this, serverJob, false));
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
     return serverJob;
   }
 
   @Override
   public void updatePriority(final String jobUuid, final int newPriority) {
-    lock.lock();
+    ServerJob job = jobMap.get(jobUuid);
+    if (job == null) return;
+    final Lock jobLock = getJobLock(job);
+    jobLock.lock();
     try {
-      final ServerJob job = jobMap.get(jobUuid);
-      if (job == null) return;
+      if ((job = jobMap.get(jobUuid)) == null) return;
       final int oldPriority = job.getSLA().getPriority();
       if (oldPriority != newPriority) {
         job.getSLA().setPriority(newPriority);
-        priorityMap.removeValue(oldPriority, job);
-        priorityMap.putValue(newPriority, job);
+        if (priorityLevels.removeValue(oldPriority, job)) priorityLevels.putValue(newPriority, job);
         job.fireJobUpdated(true);
       }
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
   }
 
   @Override
   public boolean cancelJob(final String jobId) {
-    lock.lock();
+    ServerJob job = jobMap.get(jobId);
+    if (job == null) return false;
+    final Lock jobLock = getJobLock(job);
+    jobLock.lock();
     try {
-      final ServerJob job = jobMap.get(jobId);
-      boolean res = job != null;
-      if (res) {
-        decrementSizeCount(getSize(job));
-        res &= job.cancel(driver, false);
-      }
-      return res;
+      if ((job = jobMap.get(jobId)) == null) return false;
+      decrementSizeCount(getSize(job));
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
+    // the cancellation may end and remove dependent jobs, which requires their own per-job lock
+    return job.cancel(driver, false);
   }
 
   /**
@@ -341,8 +394,10 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
       synchronized(queueListeners) {
         queueListeners.clear();
       }
-      priorityMap.clear();
-      sizeMap.clear();
+      priorityLevels.clear();
+      synchronized(sizeMap) {
+        sizeMap.clear();
+      }
     } finally {
       lock.unlock();
     }
@@ -354,12 +409,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * @return a <code>ServerJob</code> instance.
    */
   public ServerJob getJob(final String jobId) {
-    lock.lock();
-    try {
-      return jobMap.get(jobId);
-    } finally {
-      lock.unlock();
-    }
+    return jobMap.get(jobId);
   }
 
   /**
@@ -368,15 +418,10 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * @return a <code>ServerJob</code> instance.
    */
   public ServerJob getJobFromPriorityMap(final String jobId) {
-    lock.lock();
-    try {
-      for (ServerJob job: priorityMap) {
-        if (job.getUuid().equals(jobId)) return job;
-      }
-      return null;
-    } finally {
-      lock.unlock();
+    for (final ServerJob job: priorityLevels.allValues()) {
+      if (job.getUuid().equals(jobId)) return job;
     }
+    return null;
   }
 
   /**
@@ -385,12 +430,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    */
   @Override
   public Set<String> getAllJobIds() {
-    lock.lock();
-    try {
-      return new HashSet<>(jobMap.keySet());
-    } finally {
-      lock.unlock();
-    }
+    return new HashSet<>(jobMap.keySet());
   }
 
   /**
@@ -398,12 +438,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * @return a list of {@link ServerJob} instances.
    */
   public List<ServerJob> getAllJobs() {
-    lock.lock();
-    try {
-      return new ArrayList<>(jobMap.values());
-    } finally {
-      lock.unlock();
-    }
+    return new ArrayList<>(jobMap.values());
   }
 
   /**
@@ -411,14 +446,9 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * @return a set of ids as strings.
    */
   public Set<String> getAllJobIdsFromPriorityMap() {
-    lock.lock();
-    try {
-      final Set<String> set = new HashSet<>();
-      for (ServerJob job: priorityMap.allValues()) set.add(job.getUuid());
-      return set;
-    } finally {
-      lock.unlock();
-    }
+    final Set<String> set = new HashSet<>();
+    for (final ServerJob job: priorityLevels.allValues()) set.add(job.getUuid());
+    return set;
   }
 
   /**
@@ -427,12 +457,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * and can be modified without affecting this queue.
    */
   public List<ServerJob> getAllJobsFromPriorityMap() {
-    lock.lock();
-    try {
-      return priorityMap.allValues();
-    } finally {
-      lock.unlock();
-    }
+    return priorityLevels.allValues();
   }
 
   @Override
@@ -456,6 +481,21 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
     return getJob(jobUuid);
   }
 
+  @Override
+  public Iterator<ServerJob> iterator() {
+    return Collections.unmodifiableList(priorityLevels.allValues()).iterator();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return priorityLevels.isEmpty();
+  }
+
+  @Override
+  public int getQueueSize() {
+    return priorityLevels.size();
+  }
+
   @Override
   protected int getSize(final ServerJob job) {
     return job.getJob().getDriverQueueTaskCount();
@@ -469,10 +509,10 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
   }
 
   /**
-   * @return the priority map.
+   * @return the queued jobs, ordered by descending priority.
    */
-  LinkedListSortedMap<Integer, ServerJob> getPriorityMap() {
-    return priorityMap;
+  ConcurrentLinkedSetSortedMap<Integer, ServerJob> getPriorityMap() {
+    return priorityLevels;
   }
 
   /**
@@ -500,13 +540,8 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
   public List<ServerJob> selectJobs(final JobSelector selector) {
     if ((selector == null) || (selector instanceof AllJobsSelector)) return getAllJobs();
     final List<ServerJob> list = new ArrayList<>();
-    lock.lock();
-    try {
-      for (final ServerJob job: jobMap.values()) {
-        if (selector.accepts(job)) list.add(job);
-      }
-    } finally {
-      lock.unlock();
+    for (final ServerJob job: jobMap.values()) {
+      if (selector.accepts(job)) list.add(job);
     }
     return list;
   }
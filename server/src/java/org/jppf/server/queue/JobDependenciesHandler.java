@@ -59,9 +59,11 @@ public class JobDependenciesHandler {
   /**
    * Called when a job with dependencies arrives in the client or server queue.
    * @param job the job to processs.
+   * @param toCancel a list to which the dependency ids of the jobs to cancel are added, when a dependency cycle is detected.
+   * The caller is expected to cancel them with {@link #cancelNodes(List)}, after releasing the lock on the job.
    * @return {@code true} if the job should be cancelled, {@code false} otherwise.
    */
-  public boolean jobQueued(final ServerJob job) {
+  public boolean jobQueued(final ServerJob job, final List<String> toCancel) {
     final JobDependencySpec spec = job.getSLA().getDependencySpec();
     if (spec.getId() != null) {
       try {
@@ -72,11 +74,10 @@ public class JobDependenciesHandler {
         final JobDependencyNode node = graph.getNode(spec.getId());
         log.error("detected dependency cycle when queuing {}, spec = {}", job, spec, e);
         if (node != null) node.setGraphRoot(true);
-        List<String> toCancel = e.getIdPath();
-        if (toCancel == null) toCancel = Collections.singletonList(spec.getId());
-        else toCancel.add(spec.getId());
+        final List<String> idPath = e.getIdPath();
+        if (idPath != null) toCancel.addAll(idPath);
+        toCancel.add(spec.getId());
         if (debugEnabled) log.debug("cycle id path: {}", toCancel);
-        cancelNodes(toCancel);
       }
     }
     return true;
@@ -88,15 +89,18 @@ public class JobDependenciesHandler {
    */
   public void jobEnded(final ServerJob job) {
     if (debugEnabled) log.debug("processor: '{}' has ended", job.getName());
-    // Retrieve the jobs whose only remaining dependency is the current job and resume them
-    final List<JobDependencyNode> toResume = graph.jobEnded(job.getUuid());
-    if (debugEnabled && (toResume != null)) {
-      for (final JobDependencyNode jobNode: toResume) log.debug("resuming '{}'", jobNode.getId());
+    // jobs may end concurrently, the graph must be updated atomically for each of them
+    synchronized(graph) {
+      // Retrieve the jobs whose only remaining dependency is the current job and resume them
+      final List<JobDependencyNode> toResume = graph.jobEnded(job.getUuid());
+      if (debugEnabled && (toResume != null)) {
+        for (final JobDependencyNode jobNode: toResume) log.debug("resuming '{}'", jobNode.getId());
+      }
+      JobDependencyNode node = graph.getNodeByJobUuid(job.getUuid());
+      if (node == null) node = graph.getNode(job.getSLA().getDependencySpec().getId());
+      if (debugEnabled) log.debug("node ended: {}", node);
+      if ((node != null) && node.isGraphRoot()) graph.removeNode(node);
     }
-    JobDependencyNode node = graph.getNodeByJobUuid(job.getUuid());
-    if (node == null) node = graph.getNode(job.getSLA().getDependencySpec().getId());
-    if (debugEnabled) log.debug("node ended: {}", node);
-    if ((node != null) && node.isGraphRoot()) graph.removeNode(node);
   }
 
   /**
@@ -160,7 +164,7 @@ public class JobDependenciesHandler {
    * Cancel the nodes with the sepcified ids.
    * @param nodeIds the ids of nodes whose corresponding jobs to cancel.
    */
-  private void cancelNodes(final List<String> nodeIds) {
+  void cancelNodes(final List<String> nodeIds) {
     if (debugEnabled) log.debug("cancelling nodes {}", nodeIds);
     final List<String> toCancel = new ArrayList<>();
     synchronized(graph) {
@@ -20,12 +20,14 @@ package org.jppf.server.queue;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import org.jppf.io.*;
 import org.jppf.job.persistence.*;
 import org.jppf.node.protocol.*;
 import org.jppf.server.protocol.*;
 import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.jppf.utils.streams.*;
 import org.slf4j.*;
 
@@ -50,6 +52,14 @@ public class PersistenceHandler {
    * The jobs queue.
    */
   private final JPPFPriorityQueue queue;
+  /**
+   * The write-behind pipeline which performs the persistence operations, or {@code null} if they are performed synchronously.
+   */
+  private final PersistencePipeline pipeline;
+  /**
+   * Whether the results of persistent jobs are sent to the client only after they are stored.
+   */
+  private final boolean durableResults;
  
   /**
    * Initialize this persistence handler.
@@ -57,36 +67,69 @@ public class PersistenceHandler {
    */
   public PersistenceHandler(final JPPFPriorityQueue queue) {
     this.queue = queue;
-    persistence = JobPersistenceFactory.newInstance(queue.driver.getConfiguration()).getPersistence();
+    final TypedProperties config = queue.driver.getConfiguration();
+    persistence = JobPersistenceFactory.newInstance(config).getPersistence();
+    if ((persistence != null) && config.get(JPPFProperties.JOB_PERSISTENCE_WRITE_BEHIND)) {
+      pipeline = new PersistencePipeline(persistence, queue.driver.getStatistics(),
+        config.get(JPPFProperties.JOB_PERSISTENCE_WRITE_BEHIND_THREADS), config.get(JPPFProperties.JOB_PERSISTENCE_WRITE_BEHIND_MAX_PENDING));
+      durableResults = config.get(JPPFProperties.JOB_PERSISTENCE_WRITE_BEHIND_DURABLE_RESULTS);
+    } else {
+      pipeline = null;
+      durableResults = false;
+    }
+  }
+
+  /**
+   * Serialize the tasks of the specified client bundle, if its job is to be persisted.
+   * This method is intended to be called before the bundle is added to the queue, so that the tasks cannot be dispatched and modified in the meantime.
+   * @param clientBundle contains the tasks to serialize.
+   * @return a list of persistence information objects for the tasks, or {@code null} if the job is not to be persisted.
+   */
+  List<PersistenceInfo> serializeTasks(final ServerTaskBundleClient clientBundle) {
+    final TaskBundle header = clientBundle.getJob();
+    if (!isPersistenceReady() || !header.getSLA().getPersistenceSpec().isPersistent() || header.getParameter(BundleParameter.ALREADY_PERSISTED_P2P, false)) return null;
+    final long start = System.nanoTime();
+    try {
+      final List<ServerTask> taskList = clientBundle.getTaskList();
+      final List<PersistenceInfo> infos = new ArrayList<>(taskList.size() + 2);
+      for (final ServerTask task: taskList) {
+        final DataLocation dl = IOHelper.serializeData(task);
+        infos.add(new PersistenceInfoImpl(header.getUuid(), header, PersistenceObjectType.TASK, task.getPosition(), dl));
+      }
+      if (debugEnabled) log.debug(String.format("took %,d ms to serialize %d tasks of job %s", (System.nanoTime() - start) / 1_000_000L, infos.size(), header.getName()));
+      return infos;
+    } catch (final Exception e) {
+      log.error(e.getMessage(), e);
+      return null;
+    }
   }
 
   /**
    * Store the specified job upon initial queuing.
    * @param job the job to store.
    * @param clientBundle contains the tasks to store.
+   * @param taskInfos the tasks serialized with {@link #serializeTasks(ServerTaskBundleClient)}.
    * @param tasksOnly whether to ony store the tasks and not the header and data provider.
    */
-  void storeJob(final ServerJob job, final ServerTaskBundleClient clientBundle, final boolean tasksOnly) {
-    if (!isPersistent(job)) return;
+  void storeJob(final ServerJob job, final ServerTaskBundleClient clientBundle, final List<PersistenceInfo> taskInfos, final boolean tasksOnly) {
+    if ((taskInfos == null) || !isPersistent(job)) return;
     final long start = System.nanoTime();
     try {
       if (debugEnabled) log.debug("persisting {} job {}", tasksOnly ? "existing" : "new", job);
-      final List<ServerTask> taskList = clientBundle.getTaskList();
-      final List<PersistenceInfo> infos = new ArrayList<>(taskList.size() + (tasksOnly ? 0 : 2));
-      if (!tasksOnly) {
+      final List<PersistenceInfo> infos;
+      if (tasksOnly) infos = taskInfos;
+      else {
+        infos = new ArrayList<>(taskInfos.size() + 2);
         infos.add(new PersistenceInfoImpl(job.getUuid(), job.getJob(), PersistenceObjectType.JOB_HEADER, -1, IOHelper.serializeData(job.getJob())));
         infos.add(new PersistenceInfoImpl(job.getUuid(), job.getJob(), PersistenceObjectType.DATA_PROVIDER, -1, clientBundle.getDataProvider()));
+        infos.addAll(taskInfos);
       }
-      for (final ServerTask task: taskList) {
-        final DataLocation dl = IOHelper.serializeData(task);
-        infos.add(new PersistenceInfoImpl(job.getUuid(), job.getJob(), PersistenceObjectType.TASK, task.getPosition(), dl));
-      }
-      persistence.store(infos);
+      store(job.getUuid(), infos);
     } catch (final Exception e) {
       log.error(e.getMessage(), e);
     }
     final long elapsed = (System.nanoTime() - start) / 1_000_000L;
-    if (debugEnabled) log.debug(String.format("took %,d ms to store job %s", elapsed, job.getName()));
+    if (debugEnabled) log.debug(String.format("took %,d ms to %s job %s", elapsed, (pipeline == null) ? "store" : "submit", job.getName()));
   }
 
   /**
@@ -99,7 +142,7 @@ public class PersistenceHandler {
       if (debugEnabled) log.debug("updating header for job {}", job);
       //job.getJob().setParameter(BundleParameter.ALREADY_PERSISTED, true);
       final DataLocation data = IOHelper.serializeData(job.getJob());
-      persistence.store(Arrays.asList((PersistenceInfo) new PersistenceInfoImpl(job.getUuid(), job.getJob(), PersistenceObjectType.JOB_HEADER, -1, data)));
+      store(job.getUuid(), Arrays.asList((PersistenceInfo) new PersistenceInfoImpl(job.getUuid(), job.getJob(), PersistenceObjectType.JOB_HEADER, -1, data)));
     } catch (final Exception e) {
       log.error(e.getMessage(), e);
     }
@@ -118,7 +161,7 @@ public class PersistenceHandler {
       for (final ServerTask task: tasks) {
         infos.add(new PersistenceInfoImpl(job.getUuid(), job.getJob(), PersistenceObjectType.TASK_RESULT, task.getPosition(), task.getResult()));
       }
-      persistence.store(infos);
+      store(job.getUuid(), infos);
     } catch (final Exception e) {
       log.error(e.getMessage(), e);
     }
@@ -139,6 +182,10 @@ public class PersistenceHandler {
   public void deleteJob(final String jobUuid) {
     if (!isPersistenceReady()) return;
     if (debugEnabled) log.debug("removing job {} from persistence store", jobUuid);
+    if (pipeline != null) {
+      pipeline.delete(jobUuid);
+      return;
+    }
     try {
       persistence.deleteJob(jobUuid);
     } catch (final JobPersistenceException e) {
@@ -146,6 +193,64 @@ public class PersistenceHandler {
     }
   }
 
+  /**
+   * Store the specified job elements, either directly or through the write-behind pipeline.
+   * @param jobUuid the uuid of the job to which the elements belong.
+   * @param infos the job elements to store.
+   * @throws JobPersistenceException if any error occurs while storing the elements synchronously.
+   */
+  private void store(final String jobUuid, final List<PersistenceInfo> infos) throws JobPersistenceException {
+    if (pipeline != null) pipeline.store(jobUuid, infos);
+    else persistence.store(infos);
+  }
+
+  /**
+   * Block the current thread while the write-behind pipeline has too many pending job elements.
+   * This method must not be called while holding the queue lock.
+   */
+  void awaitCapacity() {
+    if (pipeline != null) pipeline.awaitCapacity();
+  }
+
+  /**
+   * Perform the specified action once the persistence operations currently pending for the specified job are done,
+   * if the results of persistent jobs must be stored before they are sent to the client. Otherwise the action is performed immediately.
+   * @param jobUuid the uuid of the job.
+   * @param action the action to perform.
+   */
+  public void afterResultsStored(final String jobUuid, final Runnable action) {
+    if (!durableResults) action.run();
+    else pipeline.whenPersisted(jobUuid).whenComplete((result, error) -> {
+      if (error != null) log.warn("sending results of job uuid={} although they could not all be stored: {}", jobUuid, ExceptionUtils.getMessage(error));
+      action.run();
+    });
+  }
+
+  /**
+   * Get a future which completes once the persistence operations currently pending for the specified job are done.
+   * @param jobUuid the uuid of the job.
+   * @return a {@link CompletableFuture} completed exceptionally with the first error raised by these operations, if any,
+   * or already complete if the operations are performed synchronously.
+   */
+  public CompletableFuture<Void> whenPersisted(final String jobUuid) {
+    return (pipeline == null) ? CompletableFuture.completedFuture(null) : pipeline.whenPersisted(jobUuid);
+  }
+
+  /**
+   * Wait until the persistence operations currently pending for the specified job are done, so that they are visible to subsequent reads.
+   * @param jobUuid the uuid of the job.
+   */
+  private void flush(final String jobUuid) {
+    if (pipeline != null) pipeline.flush(jobUuid);
+  }
+
+  /**
+   * Perform the pending persistence operations, waiting for a bounded time, and stop accepting new ones.
+   */
+  public void close() {
+    if (pipeline != null) pipeline.close();
+  }
+
   /**
    * Load the job with the specified uuid from the persistence store.
    * @param jobUuid uuid of the job to load.
@@ -185,14 +290,18 @@ public class PersistenceHandler {
         infos.add(new PersistenceInfoImpl(jobUuid, header, PersistenceObjectType.TASK, pos, null));
       }
       final List<InputStream> streams = persistence.load(infos);
-      final DataLocation dataProvider = load(streams.get(0)); 
-      final List<ServerTask> pendingTasks = new ArrayList<>(taskPositions.length - resultPositions.length);
-      for (i=1; i<streams.size(); i++) {
-        final DataLocation taskData = load(streams.get(i));
-        final ServerTask task = (ServerTask) IOHelper.unwrappedData(taskData);
-        pendingTasks.add(task);
+      try {
+        final DataLocation dataProvider = load(streams.get(0)); 
+        final List<ServerTask> pendingTasks = new ArrayList<>(taskPositions.length - resultPositions.length);
+        for (i=1; i<streams.size(); i++) {
+          final DataLocation taskData = load(streams.get(i));
+          final ServerTask task = (ServerTask) IOHelper.unwrappedData(taskData);
+          pendingTasks.add(task);
+        }
+        return new ServerTaskBundleClient(pendingTasks, header, dataProvider);
+      } finally {
+        close(streams);
       }
-      return new ServerTaskBundleClient(pendingTasks, header, dataProvider);
     } catch (final Exception e) {
       log.error(e.getMessage(), e);
     }
@@ -239,11 +348,16 @@ public class PersistenceHandler {
    */
   public List<DataLocation> load(final Collection<PersistenceInfo> infos) throws Exception {
     final long start = System.nanoTime();
+    if (!infos.isEmpty()) flush(infos.iterator().next().getJobUuid());
     List<DataLocation> result = null;
     final List<InputStream> list = persistence.load(infos);
     if ((list != null) && !list.isEmpty()) {
-      result = new ArrayList<>(infos.size());
-      for (InputStream is: list) result.add(load(is));
+      try {
+        result = new ArrayList<>(infos.size());
+        for (InputStream is: list) result.add(load(is));
+      } finally {
+        close(list);
+      }
     }
     final long elapsed = (System.nanoTime() - start) / 1_000_000L;
     if (debugEnabled) log.debug("took {} ms to load {} job elements", elapsed, infos.size());
@@ -264,6 +378,20 @@ public class PersistenceHandler {
     }
   }
 
+  /**
+   * Close the specified streams, so that any resource they share is released even if they were not all read.
+   * @param streams the streams to close.
+   */
+  private static void close(final List<InputStream> streams) {
+    for (final InputStream is: streams) {
+      try {
+        if (is != null) is.close();
+      } catch (final Exception e) {
+        if (debugEnabled) log.debug(e.getMessage(), e);
+      }
+    }
+  }
+
   /**
    * Load and deserialize the header of the job with the sdpecified uuid.
    * @param jobUuid the uuid of the job whose header to load.
@@ -284,6 +412,7 @@ public class PersistenceHandler {
   public DataLocation loadToDisk(final PersistenceInfo info) throws Exception {
     final File dir = FileUtils.getJPPFTempDir();
     final File file = File.createTempFile(info.getType().name(), ".tmp", dir);
+    flush(info.getJobUuid());
     final List<InputStream> list = persistence.load(Arrays.asList(info));
     if ((list == null) || list.isEmpty()) return null;
     try (final InputStream is = list.get(0); BufferedOutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
@@ -309,7 +438,9 @@ public class PersistenceHandler {
    * @throws JobPersistenceException if any error occurs while accessing the persistence store.
    */
   public boolean isJobPersisted(final String uuid) throws JobPersistenceException {
-    return isPersistenceReady() && persistence.isJobPersisted(uuid);
+    if (!isPersistenceReady()) return false;
+    flush(uuid);
+    return persistence.isJobPersisted(uuid);
   }
 
   /**
@@ -338,6 +469,7 @@ public class PersistenceHandler {
   public int[][] getPersistedJobPositions(final String uuid) throws Exception {
     if (!isPersistenceReady()) return null;
     if (debugEnabled) log.debug("requesting positions for uuid={}", uuid);
+    flush(uuid);
     int[] taskPositions = persistence.getTaskPositions(uuid);
     if (taskPositions == null) taskPositions = new int[0];
     else Arrays.sort(taskPositions);
@@ -353,6 +485,8 @@ public class PersistenceHandler {
    * @throws JobPersistenceException if any error occurs while searching for persisted jobs.
    */
   public List<String> getPersistedJobUuids() throws JobPersistenceException {
-    return isPersistenceReady() ? persistence.getPersistedJobUuids() : new ArrayList<>();
+    if (!isPersistenceReady()) return new ArrayList<>();
+    if (pipeline != null) pipeline.flush();
+    return persistence.getPersistedJobUuids();
   }
 }
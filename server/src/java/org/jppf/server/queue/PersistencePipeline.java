@@ -0,0 +1,483 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.queue;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+import org.jppf.job.persistence.*;
+import org.jppf.utils.*;
+import org.jppf.utils.concurrent.JPPFThreadFactory;
+import org.jppf.utils.stats.*;
+import org.slf4j.*;
+
+/**
+ * An ordered write-behind pipeline for the job persistence operations of the driver.
+ * <p>The operations are queued per job and performed by a pool of threads. The operations of a job are performed in submission order, by at most one thread
+ * at a time, whereas the operations of distinct jobs are performed concurrently. Consecutive store operations of the same job are merged into a single call
+ * to {@link JobPersistence#store(Collection)}, and a thread performs a single batch of operations for a job before moving on to another job.
+ * <p>The number of job elements pending storage is bounded: when the bound is exceeded, {@link #awaitCapacity()} blocks the threads that receive
+ * new jobs until enough elements are stored.
+ * <p>{@link #whenPersisted(String)} provides a future which completes once the operations pending for a job are performed,
+ * so that the actions which depend on them, such as sending the results to the client or emitting job notifications, are not performed before.
+ * @exclude
+ */
+public class PersistencePipeline {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(PersistencePipeline.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * How long to wait for the pending operations to complete when this pipeline is closed, in milliseconds.
+   */
+  private static final long CLOSE_TIMEOUT = 30_000L;
+  /**
+   * The persistence service.
+   */
+  private final JobPersistence persistence;
+  /**
+   * The driver statistics, updated with the number of pending job elements and the operations latency.
+   */
+  private final JPPFStatistics stats;
+  /**
+   * Performs the persistence operations.
+   */
+  private final ExecutorService executor;
+  /**
+   * Mapping of job uuids to their pending operations. Used as a monitor to synchronize the submission of the operations and the batching.
+   */
+  private final Map<String, JobOperations> jobs = new HashMap<>();
+  /**
+   * Mapping of job uuids to the first error raised by their operations, for the jobs whose queue drained before the error was reported by a barrier.
+   * Accessed while synchronized on {@link #jobs}.
+   */
+  private final Map<String, Throwable> failures = new HashMap<>();
+  /**
+   * Maximum number of pending job elements before {@link #awaitCapacity()} blocks.
+   */
+  private final int maxPending;
+  /**
+   * Used to synchronize the updates of the count of pending job elements.
+   */
+  private final Lock capacityLock = new ReentrantLock();
+  /**
+   * Signalled when pending job elements are stored.
+   */
+  private final Condition notFull = capacityLock.newCondition();
+  /**
+   * Number of pending job elements.
+   */
+  private long pending;
+  /**
+   * Whether this pipeline is closed.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Initialize this pipeline.
+   * @param persistence the persistence service.
+   * @param stats the driver statistics.
+   * @param nbThreads the number of threads that perform the persistence operations.
+   * @param maxPending maximum number of pending job elements before {@link #awaitCapacity()} blocks.
+   */
+  public PersistencePipeline(final JobPersistence persistence, final JPPFStatistics stats, final int nbThreads, final int maxPending) {
+    this.persistence = persistence;
+    this.stats = stats;
+    this.maxPending = maxPending;
+    this.executor = Executors.newFixedThreadPool(nbThreads, new JPPFThreadFactory("PersistencePipeline", false, true));
+    if (debugEnabled) log.debug("initialized with nbThreads={}, maxPending={}", nbThreads, maxPending);
+  }
+
+  /**
+   * Submit the storage of the specified job elements.
+   * @param jobUuid the uuid of the job to which the elements belong.
+   * @param infos the job elements to store.
+   */
+  public void store(final String jobUuid, final List<PersistenceInfo> infos) {
+    if (!infos.isEmpty()) submit(jobUuid, new Operation(OperationType.STORE, infos, null));
+  }
+
+  /**
+   * Submit the deletion of the specified job.
+   * @param jobUuid the uuid of the job to delete.
+   */
+  public void delete(final String jobUuid) {
+    submit(jobUuid, new Operation(OperationType.DELETE, null, null));
+  }
+
+  /**
+   * Get a future which completes once all the operations currently pending for the specified job have been performed.
+   * The future is completed exceptionally with the first error raised by the operations of the job since the previous future, if any, even when these operations
+   * are no longer pending. It is also completed exceptionally if this pipeline is closed while operations are still pending for the job.
+   * Otherwise, it is already complete if there is no pending operation for the job.
+   * @param jobUuid the uuid of the job.
+   * @return a {@link CompletableFuture} whose dependent actions are performed either by a thread of this pipeline or by the current thread.
+   */
+  public CompletableFuture<Void> whenPersisted(final String jobUuid) {
+    final boolean hasPending;
+    final Throwable failure;
+    synchronized(jobs) {
+      hasPending = jobs.containsKey(jobUuid);
+      failure = hasPending ? null : failures.remove(jobUuid);
+    }
+    if (failure != null) return failedFuture(failure);
+    if (!hasPending) return CompletableFuture.completedFuture(null);
+    if (closed) return failedFuture(new JobPersistenceException("the persistence pipeline is closed with operations still pending for job uuid=" + jobUuid));
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    submit(jobUuid, new Operation(OperationType.BARRIER, null, future));
+    return future;
+  }
+
+  /**
+   * Perform the specified action once all the operations currently pending for the specified job have been performed, whether they succeeded or not.
+   * The action is performed immediately in the current thread if there is no pending operation for the job.
+   * @param jobUuid the uuid of the job.
+   * @param action the action to perform.
+   */
+  public void afterPending(final String jobUuid, final Runnable action) {
+    whenPersisted(jobUuid).whenComplete((result, error) -> action.run());
+  }
+
+  /**
+   * Wait until all the operations currently pending for the specified job have been performed.
+   * @param jobUuid the uuid of the job.
+   */
+  public void flush(final String jobUuid) {
+    final CountDownLatch latch = new CountDownLatch(1);
+    afterPending(jobUuid, latch::countDown);
+    await(latch);
+  }
+
+  /**
+   * Wait until all the operations currently pending for all jobs have been performed.
+   */
+  public void flush() {
+    final List<String> uuids;
+    synchronized(jobs) {
+      uuids = new ArrayList<>(jobs.keySet());
+    }
+    if (uuids.isEmpty()) return;
+    final CountDownLatch latch = new CountDownLatch(uuids.size());
+    for (final String uuid: uuids) afterPending(uuid, latch::countDown);
+    await(latch);
+  }
+
+  /**
+   * Block the current thread while the number of pending job elements exceeds the maximum, and this pipeline is not closed.
+   */
+  public void awaitCapacity() {
+    capacityLock.lock();
+    try {
+      while ((pending > maxPending) && !closed) {
+        if (debugEnabled) log.debug("waiting for {} pending job elements to go below {}", pending, maxPending);
+        notFull.await(100L, TimeUnit.MILLISECONDS);
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      if (debugEnabled) log.debug("interrupted while waiting for capacity: {}", ExceptionUtils.getMessage(e));
+    } finally {
+      capacityLock.unlock();
+    }
+  }
+
+  /**
+   * Close this pipeline, after waiting for the pending operations to complete, for a bounded time.
+   */
+  public void close() {
+    if (closed) return;
+    closed = true;
+    if (debugEnabled) log.debug("closing with {} pending job elements", getPending());
+    capacityLock.lock();
+    try {
+      notFull.signalAll();
+    } finally {
+      capacityLock.unlock();
+    }
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) log.warn("{} job elements were not persisted before the timeout expired", getPending());
+    } catch (final InterruptedException e) {
+      log.warn("interrupted while waiting for pending job elements to be persisted: {}", ExceptionUtils.getMessage(e));
+    }
+  }
+
+  /**
+   * @return the number of job elements pending storage.
+   */
+  public long getPending() {
+    capacityLock.lock();
+    try {
+      return pending;
+    } finally {
+      capacityLock.unlock();
+    }
+  }
+
+  /**
+   * Add an operation to the queue of the specified job, and schedule the processing of the job's operations if needed.
+   * @param jobUuid the uuid of the job.
+   * @param operation the operation to submit.
+   */
+  private void submit(final String jobUuid, final Operation operation) {
+    updatePending(operation.size());
+    final JobOperations ops;
+    synchronized(jobs) {
+      JobOperations jobOps = jobs.get(jobUuid);
+      if (jobOps == null) {
+        jobOps = new JobOperations(jobUuid);
+        // an error not yet reported is carried over to the next barrier
+        jobOps.failure = failures.remove(jobUuid);
+        jobs.put(jobUuid, jobOps);
+      }
+      jobOps.queue.add(operation);
+      if (jobOps.scheduled) return;
+      jobOps.scheduled = true;
+      if (schedule(jobOps)) return;
+      ops = jobOps;
+    }
+    process(ops);
+  }
+
+  /**
+   * Schedule the processing of the specified job's next batch of operations.
+   * @param ops the job's pending operations.
+   * @return {@code true} if the processing was scheduled, {@code false} if this pipeline is closed and the processing must be done in the current thread.
+   */
+  private boolean schedule(final JobOperations ops) {
+    if (closed) return false;
+    try {
+      executor.execute(() -> process(ops));
+      return true;
+    } catch (@SuppressWarnings("unused") final RejectedExecutionException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Perform the next batch of operations of a job, then reschedule the job so that the other jobs get their turn.
+   * Once this pipeline is closed, all the remaining operations of the job are performed in the current thread instead.
+   * @param ops the job's pending operations.
+   */
+  private void process(final JobOperations ops) {
+    while (true) {
+      final List<Operation> batch = new ArrayList<>();
+      synchronized(jobs) {
+        final Operation first = ops.queue.poll();
+        if (first == null) {
+          ops.scheduled = false;
+          jobs.remove(ops.uuid);
+          // keep the error until a future reports it
+          if (ops.failure != null) failures.put(ops.uuid, ops.failure);
+          return;
+        }
+        batch.add(first);
+        if (first.type == OperationType.STORE) {
+          while ((ops.queue.peek() != null) && (ops.queue.peek().type == OperationType.STORE)) batch.add(ops.queue.poll());
+        }
+      }
+      perform(ops, batch);
+      final long now = System.nanoTime();
+      int size = 0;
+      for (final Operation operation: batch) {
+        size += operation.size();
+        stats.addValue(JPPFStatisticsHelper.PERSISTENCE_TIME, (now - operation.submitTime) / 1_000_000d);
+      }
+      updatePending(-size);
+      // the job's entry is kept until its queue is found empty, so that barriers submitted in the meantime are ordered after this batch
+      if (schedule(ops)) return;
+    }
+  }
+
+  /**
+   * Perform a batch of operations of the same type for a job.
+   * The first error raised by a store or delete is kept until the next barrier, whose future it completes exceptionally.
+   * @param ops the job's pending operations.
+   * @param batch the operations to perform.
+   */
+  private void perform(final JobOperations ops, final List<Operation> batch) {
+    final String jobUuid = ops.uuid;
+    final Operation first = batch.get(0);
+    try {
+      switch(first.type) {
+        case STORE:
+          final List<PersistenceInfo> infos;
+          if (batch.size() == 1) infos = first.infos;
+          else {
+            int size = 0;
+            for (final Operation operation: batch) size += operation.size();
+            infos = new ArrayList<>(size);
+            for (final Operation operation: batch) infos.addAll(operation.infos);
+          }
+          if (debugEnabled) log.debug("storing {} job elements from {} operations for job uuid={}", infos.size(), batch.size(), jobUuid);
+          persistence.store(infos);
+          break;
+
+        case DELETE:
+          if (debugEnabled) log.debug("deleting job uuid={}", jobUuid);
+          persistence.deleteJob(jobUuid);
+          break;
+
+        case BARRIER:
+          final Throwable failure = ops.failure;
+          ops.failure = null;
+          if (failure == null) first.future.complete(null);
+          else first.future.completeExceptionally(failure);
+          break;
+      }
+    } catch (final Throwable t) {
+      log.error("error performing {} for job uuid={} : {}", first.type, jobUuid, ExceptionUtils.getStackTrace(t));
+      if ((first.type != OperationType.BARRIER) && (ops.failure == null)) ops.failure = t;
+    }
+  }
+
+  /**
+   * Update the number of pending job elements and signal the threads waiting for capacity.
+   * @param delta the number of elements to add, or remove if negative.
+   */
+  private void updatePending(final int delta) {
+    if (delta == 0) return;
+    capacityLock.lock();
+    try {
+      pending += delta;
+      if ((delta < 0) && (pending <= maxPending)) notFull.signalAll();
+    } finally {
+      capacityLock.unlock();
+    }
+    stats.addValue(JPPFStatisticsHelper.PERSISTENCE_QUEUE_COUNT, delta);
+  }
+
+  /**
+   * Create a future completed exceptionally with the specified error.
+   * @param error the error that completes the future.
+   * @return a {@link CompletableFuture} instance.
+   */
+  private static CompletableFuture<Void> failedFuture(final Throwable error) {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    future.completeExceptionally(error);
+    return future;
+  }
+
+  /**
+   * Wait for the specified latch, giving up if this pipeline is closed.
+   * @param latch the latch to wait for.
+   */
+  private void await(final CountDownLatch latch) {
+    try {
+      while (!latch.await(100L, TimeUnit.MILLISECONDS) && !closed);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      if (debugEnabled) log.debug("interrupted while waiting for pending operations: {}", ExceptionUtils.getMessage(e));
+    }
+  }
+
+  /**
+   * The types of persistence operations.
+   */
+  private enum OperationType {
+    /**
+     * Store job elements.
+     */
+    STORE,
+    /**
+     * Delete a job.
+     */
+    DELETE,
+    /**
+     * Complete a future after the previously submitted operations.
+     */
+    BARRIER
+  }
+
+  /**
+   * A persistence operation for a job.
+   */
+  private static final class Operation {
+    /**
+     * The type of operation.
+     */
+    private final OperationType type;
+    /**
+     * The job elements to store, if any.
+     */
+    private final List<PersistenceInfo> infos;
+    /**
+     * The future to complete, if any.
+     */
+    private final CompletableFuture<Void> future;
+    /**
+     * The time at which this operation was submitted, in nanoseconds.
+     */
+    private final long submitTime = System.nanoTime();
+
+    /**
+     * Initialize this operation.
+     * @param type the type of operation.
+     * @param infos the job elements to store, if any.
+     * @param future the future to complete, if any.
+     */
+    private Operation(final OperationType type, final List<PersistenceInfo> infos, final CompletableFuture<Void> future) {
+      this.type = type;
+      this.infos = infos;
+      this.future = future;
+    }
+
+    /**
+     * @return the number of job elements in this operation.
+     */
+    private int size() {
+      return (infos == null) ? 0 : infos.size();
+    }
+  }
+
+  /**
+   * The pending operations of a job.
+   */
+  private static final class JobOperations {
+    /**
+     * The uuid of the job.
+     */
+    private final String uuid;
+    /**
+     * The operations, in submission order.
+     */
+    private final Queue<Operation> queue = new ArrayDeque<>();
+    /**
+     * Whether the processing of the operations is scheduled or in progress.
+     */
+    private boolean scheduled;
+    /**
+     * The first error raised by an operation since the last barrier. Only accessed by the thread processing the operations, or while synchronized on {@link PersistencePipeline#jobs}
+     * before the processing is scheduled.
+     */
+    private Throwable failure;
+
+    /**
+     * Initialize these operations.
+     * @param uuid the uuid of the job.
+     */
+    private JobOperations(final String uuid) {
+      this.uuid = uuid;
+    }
+  }
+}
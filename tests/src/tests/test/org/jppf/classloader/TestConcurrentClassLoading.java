@@ -0,0 +1,103 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.classloader;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.classloader.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the concurrent loading of classes by an {@link AbstractJPPFClassLoader}.
+ */
+public class TestConcurrentClassLoading extends BaseTest {
+  /**
+   * The classes to load.
+   */
+  private static final Class<?>[] CLASSES = { Loaded1.class, Loaded2.class, Loaded3.class, Loaded4.class, Loaded5.class };
+
+  /**
+   * Test that many threads loading the same classes at the same time all get the same class definitions, while the delegation model is being changed.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 15000)
+  public void testConcurrentLoading() throws Exception {
+    final int nbThreads = 16;
+    final DelegationModel initialModel = AbstractJPPFClassLoader.getDelegationModel();
+    final ExecutorService executor = Executors.newFixedThreadPool(nbThreads + 1);
+    // the parent can't find the test classes, so they are defined by the JPPF class loader from its URL classpath
+    try (final JPPFLocalClassLoader loader = new JPPFLocalClassLoader(null, ClassLoader.getSystemClassLoader().getParent())) {
+      loader.addURL(getClass().getProtectionDomain().getCodeSource().getLocation());
+      final CyclicBarrier barrier = new CyclicBarrier(nbThreads);
+      final List<Future<Class<?>[]>> futures = new ArrayList<>();
+      for (int i=0; i<nbThreads; i++) {
+        futures.add(executor.submit(() -> {
+          barrier.await();
+          final Class<?>[] result = new Class<?>[CLASSES.length];
+          for (int j=0; j<CLASSES.length; j++) result[j] = Class.forName(CLASSES[j].getName(), false, loader);
+          return result;
+        }));
+      }
+      final Class<?>[] first = futures.get(0).get();
+      for (int j=0; j<CLASSES.length; j++) {
+        assertSame(loader, first[j].getClassLoader());
+        assertNotSame(CLASSES[j], first[j]);
+      }
+      for (final Future<Class<?>[]> future: futures) assertArrayEquals(first, future.get());
+      // change the delegation model while looking up classes: every lookup must see one of the two models
+      final Future<?> toggler = executor.submit(() -> {
+        for (int i=0; i<1000; i++) AbstractJPPFClassLoader.setDelegationModel((i % 2 == 0) ? DelegationModel.URL_FIRST : DelegationModel.PARENT_FIRST);
+      });
+      futures.clear();
+      for (int i=0; i<nbThreads; i++) {
+        futures.add(executor.submit(() -> {
+          final Class<?>[] result = new Class<?>[CLASSES.length];
+          for (int k=0; k<100; k++) {
+            for (int j=0; j<CLASSES.length; j++) result[j] = loader.loadClass(CLASSES[j].getName());
+          }
+          return result;
+        }));
+      }
+      toggler.get();
+      for (final Future<Class<?>[]> future: futures) {
+        final Class<?>[] result = future.get();
+        for (int j=0; j<CLASSES.length; j++) assertEquals(CLASSES[j].getName(), result[j].getName());
+      }
+    } finally {
+      AbstractJPPFClassLoader.setDelegationModel(initialModel);
+      executor.shutdownNow();
+    }
+  }
+
+  /** A class to load. */
+  public static class Loaded1 { }
+  /** A class to load. */
+  public static class Loaded2 { }
+  /** A class to load. */
+  public static class Loaded3 { }
+  /** A class to load. */
+  public static class Loaded4 { }
+  /** A class to load. */
+  public static class Loaded5 { }
+}
@@ -0,0 +1,382 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.client;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.client.JPPFJob;
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.serialization.ObjectSerializer;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.stats.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the parallel serialization of the tasks sent by a client.
+ */
+public class TestTaskSerializationPipeline extends BaseTest {
+  /**
+   * Size of the payload of each task, so that each serialized task uses exactly one pooled buffer.
+   */
+  private static final int PAYLOAD_SIZE = 4 * 1024;
+
+  /**
+   * Test that the tasks are handed over in position order when their serialization completes in a different order.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testOrderedOutput() throws Exception {
+    final int nbTasks = 8;
+    final Pipeline pipeline = new Pipeline(4, nbTasks);
+    try {
+      final List<SlowTask> tasks = new ArrayList<>();
+      // the first tasks take longer to serialize
+      for (int i=0; i<nbTasks; i++) tasks.add(new SlowTask(i, 20L * (nbTasks - i)));
+      final List<Integer> completionOrder = new CopyOnWriteArrayList<>();
+      for (final SlowTask task: tasks) task.completionOrder = completionOrder;
+      final List<DataLocation> locations = new ArrayList<>();
+      final Object batch = pipeline.start(tasks);
+      assertTrue(pipeline.collect(batch, locations).isEmpty());
+      assertEquals(nbTasks, completionOrder.size());
+      assertNotEquals(0, (int) completionOrder.get(0));
+      assertEquals(nbTasks, locations.size());
+      for (int i=0; i<nbTasks; i++) assertEquals(i, deserialize(locations.get(i)).getPosition());
+      pipeline.releaseCollected(batch);
+    } finally {
+      pipeline.close();
+    }
+  }
+
+  /**
+   * Test that a task which is not serializable is reported and sent as an empty location without disturbing the other tasks,
+   * and that all the pooled buffers are released, including those used by the failed serialization.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testNotSerializableTask() throws Exception {
+    final int nbTasks = 6;
+    final Pipeline pipeline = new Pipeline(3, nbTasks);
+    try {
+      final List<SlowTask> tasks = new ArrayList<>();
+      for (int i=0; i<nbTasks; i++) tasks.add(new SlowTask(i, 0L));
+      tasks.get(2).notSerializable = new Object();
+      resetBufferPool(nbTasks);
+      final List<DataLocation> locations = new ArrayList<>();
+      final Object batch = pipeline.start(tasks);
+      final List<Task<?>> notSerializable = pipeline.collect(batch, locations);
+      assertEquals(1, notSerializable.size());
+      assertSame(tasks.get(2), notSerializable.get(0));
+      assertTrue(tasks.get(2).getThrowable() instanceof NotSerializableException);
+      assertEquals(nbTasks, locations.size());
+      assertEquals(0, locations.get(2).getSize());
+      for (int i=0; i<nbTasks; i++) {
+        if (i != 2) assertEquals(i, deserialize(locations.get(i)).getPosition());
+      }
+      // the partially serialized task already released its buffer, possibly reused by another task
+      assertEquals(1, IO.TEMP_BUFFER_POOL.size());
+      pipeline.releaseCollected(batch);
+      assertEquals(nbTasks, IO.TEMP_BUFFER_POOL.size());
+    } finally {
+      pipeline.close();
+    }
+  }
+
+  /**
+   * Test that when the serialization of a task fails, the send fails and the buffers of all the other serialized tasks are released.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testSerializationError() throws Exception {
+    final int nbTasks = 6;
+    final Pipeline pipeline = new Pipeline(3, nbTasks);
+    try {
+      final List<SlowTask> tasks = new ArrayList<>();
+      final List<Integer> started = new CopyOnWriteArrayList<>();
+      for (int i=0; i<nbTasks; i++) {
+        final SlowTask task = new SlowTask(i, 0L);
+        task.started = started;
+        tasks.add(task);
+      }
+      tasks.get(3).failure = "serialization failure";
+      resetBufferPool(nbTasks);
+      final List<DataLocation> locations = new ArrayList<>();
+      final Object batch = pipeline.start(tasks);
+      try {
+        pipeline.collect(batch, locations);
+        fail("the serialization failure should have been thrown");
+      } catch (final IOException e) {
+        assertEquals("serialization failure", e.getMessage());
+      }
+      // the tasks serialized in the background may complete after the failure, while those which did not start are cancelled
+      assertTrue(pipeline.closeAndWait(5000L));
+      assertTrue(started.contains(3));
+      assertEquals(nbTasks, IO.TEMP_BUFFER_POOL.size());
+    } finally {
+      pipeline.close();
+    }
+  }
+
+  /**
+   * Test that cancelling a batch releases the buffers of the tasks which were serialized but not handed over.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testCancel() throws Exception {
+    final int nbTasks = 6;
+    final Pipeline pipeline = new Pipeline(3, nbTasks);
+    try {
+      final List<SlowTask> tasks = new ArrayList<>();
+      final List<Integer> completionOrder = new CopyOnWriteArrayList<>();
+      for (int i=0; i<nbTasks; i++) {
+        final SlowTask task = new SlowTask(i, 0L);
+        task.completionOrder = completionOrder;
+        tasks.add(task);
+      }
+      resetBufferPool(nbTasks);
+      final Object batch = pipeline.start(tasks);
+      long start = System.nanoTime();
+      while ((completionOrder.size() < nbTasks) && (System.nanoTime() - start < 5_000_000_000L)) Thread.sleep(10L);
+      assertEquals(nbTasks, completionOrder.size());
+      pipeline.cancel(batch);
+      start = System.nanoTime();
+      while ((IO.TEMP_BUFFER_POOL.size() < nbTasks) && (System.nanoTime() - start < 5_000_000_000L)) Thread.sleep(10L);
+      assertEquals(nbTasks, IO.TEMP_BUFFER_POOL.size());
+    } finally {
+      pipeline.close();
+    }
+  }
+
+  /**
+   * Reset the pool of temporary buffers so that it holds exactly the specified number of buffers.
+   * Since each task uses a single buffer, serializing that many tasks never allocates a new buffer,
+   * even when a buffer released by a failed serialization is reused by another task.
+   * @param nbBuffers the number of buffers in the pool.
+   */
+  private static void resetBufferPool(final int nbBuffers) {
+    while (IO.TEMP_BUFFER_POOL.size() > 0) IO.TEMP_BUFFER_POOL.get();
+    for (int i=0; i<nbBuffers; i++) IO.TEMP_BUFFER_POOL.put(new byte[IO.TEMP_BUFFER_SIZE]);
+  }
+
+  /**
+   * Deserialize a task.
+   * @param location the serialized task.
+   * @return the deserialized task.
+   * @throws Exception if any error occurs.
+   */
+  private static Task<?> deserialize(final DataLocation location) throws Exception {
+    try (final InputStream is = location.getInputStream()) {
+      return (Task<?>) new ObjectSerializerImpl().deserialize(is);
+    }
+  }
+
+  /**
+   * Wraps a {@code TaskSerializationPipeline}, which is not accessible outside of its package.
+   */
+  private static class Pipeline {
+    /**
+     * The pipeline class.
+     */
+    private final Class<?> pipelineClass;
+    /**
+     * The batch class.
+     */
+    private final Class<?> batchClass;
+    /**
+     * The wrapped pipeline.
+     */
+    private final Object pipeline;
+
+    /**
+     * Create the pipeline.
+     * @param nbThreads the number of serialization threads.
+     * @param maxPending the maximum number of serialized tasks waiting to be written.
+     * @throws Exception if any error occurs.
+     */
+    Pipeline(final int nbThreads, final int maxPending) throws Exception {
+      pipelineClass = Class.forName("org.jppf.client.TaskSerializationPipeline");
+      batchClass = Class.forName("org.jppf.client.TaskSerializationPipeline$Batch");
+      final TypedProperties config = new TypedProperties()
+        .set(JPPFProperties.CLIENT_SERIALIZATION_THREADS, nbThreads)
+        .set(JPPFProperties.CLIENT_SERIALIZATION_MAX_PENDING, maxPending);
+      final Constructor<?> c = pipelineClass.getDeclaredConstructor(TypedProperties.class, JPPFStatistics.class);
+      c.setAccessible(true);
+      pipeline = c.newInstance(config, JPPFStatisticsHelper.createClientStatistics());
+    }
+
+    /**
+     * Start serializing the specified tasks.
+     * @param tasks the tasks to serialize.
+     * @return the batch of tasks.
+     * @throws Exception if any error occurs.
+     */
+    Object start(final List<? extends Task<?>> tasks) throws Exception {
+      final Method m = pipelineClass.getDeclaredMethod("start", JPPFJob.class, ObjectSerializer.class, ClassLoader.class, List.class, List.class);
+      return invoke(m, pipeline, new JPPFJob(), new ObjectSerializerImpl(), getClass().getClassLoader(), tasks, null);
+    }
+
+    /**
+     * Wait for the tasks of a batch to be serialized and add them to the specified list.
+     * @param batch the batch of tasks.
+     * @param locations the list to which the serialized tasks are added.
+     * @return the tasks that could not be serialized.
+     * @throws Exception if any error occurs.
+     */
+    @SuppressWarnings("unchecked")
+    List<Task<?>> collect(final Object batch, final List<DataLocation> locations) throws Exception {
+      return (List<Task<?>>) invoke(batchClass.getDeclaredMethod("collect", List.class), batch, locations);
+    }
+
+    /**
+     * Release the buffers of the collected tasks.
+     * @param batch the batch of tasks.
+     * @throws Exception if any error occurs.
+     */
+    void releaseCollected(final Object batch) throws Exception {
+      invoke(batchClass.getDeclaredMethod("releaseCollected"), batch);
+    }
+
+    /**
+     * Cancel the pending serializations of a batch.
+     * @param batch the batch of tasks.
+     * @throws Exception if any error occurs.
+     */
+    void cancel(final Object batch) throws Exception {
+      invoke(batchClass.getDeclaredMethod("cancel"), batch);
+    }
+
+    /**
+     * Stop the serialization threads.
+     * @throws Exception if any error occurs.
+     */
+    void close() throws Exception {
+      invoke(pipelineClass.getDeclaredMethod("close"), pipeline);
+    }
+
+    /**
+     * Stop the serialization threads and wait until the serializations in progress have completed.
+     * @param timeout the maximum time to wait, in milliseconds.
+     * @return {@code true} if all the serialization threads terminated, {@code false} if the timeout expired.
+     * @throws Exception if any error occurs.
+     */
+    boolean closeAndWait(final long timeout) throws Exception {
+      close();
+      final Field f = pipelineClass.getDeclaredField("executor");
+      f.setAccessible(true);
+      return ((ExecutorService) f.get(pipeline)).awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Invoke a non-public method.
+     * @param method the method to invoke.
+     * @param target the object on which to invoke the method.
+     * @param args the method arguments.
+     * @return the method's return value.
+     * @throws Exception if any error occurs.
+     */
+    private static Object invoke(final Method method, final Object target, final Object...args) throws Exception {
+      method.setAccessible(true);
+      try {
+        return method.invoke(target, args);
+      } catch (final InvocationTargetException e) {
+        final Throwable t = e.getCause();
+        if (t instanceof Exception) throw (Exception) t;
+        throw (Error) t;
+      }
+    }
+  }
+
+  /**
+   * A task whose serialization takes a specified time and can be made to fail.
+   */
+  public static class SlowTask extends AbstractTask<String> {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Written before the other fields, so that the serialization uses a pooled buffer before it fails.
+     */
+    private final byte[] a = new byte[PAYLOAD_SIZE];
+    /**
+     * A non-serializable object which makes the serialization fail, if not {@code null}.
+     */
+    Object notSerializable;
+    /**
+     * The message of an exception raised by the serialization, if not {@code null}.
+     */
+    transient String failure;
+    /**
+     * How long the serialization takes, in milliseconds.
+     */
+    private final transient long serializationTime;
+    /**
+     * Records the positions of the tasks in the order their serialization completes.
+     */
+    transient List<Integer> completionOrder;
+    /**
+     * Records the positions of the tasks in the order their serialization starts.
+     */
+    transient List<Integer> started;
+
+    /**
+     * Initialize this task.
+     * @param position the position of the task.
+     * @param serializationTime how long the serialization takes, in milliseconds.
+     */
+    public SlowTask(final int position, final long serializationTime) {
+      setPosition(position);
+      this.serializationTime = serializationTime;
+    }
+
+    @Override
+    public void run() {
+    }
+
+    /**
+     * Serialize this task.
+     * @param out the stream to write to.
+     * @throws IOException if any error occurs.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+      if (started != null) started.add(getPosition());
+      if (serializationTime > 0L) {
+        try {
+          Thread.sleep(serializationTime);
+        } catch (final InterruptedException e) {
+          throw new InterruptedIOException(e.getMessage());
+        }
+      }
+      if (failure != null) {
+        out.write(a);
+        throw new IOException(failure);
+      }
+      out.defaultWriteObject();
+      if (completionOrder != null) completionOrder.add(getPosition());
+    }
+  }
+}
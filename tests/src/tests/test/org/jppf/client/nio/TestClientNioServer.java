@@ -0,0 +1,154 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.client.nio;
+
+import static org.junit.Assert.*;
+
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.client.nio.*;
+import org.jppf.utils.TypedProperties;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link ClientNioServer}.
+ */
+public class TestClientNioServer extends BaseTest {
+  /**
+   * Test that the messages read over a channel are processed one at a time and in the order in which they were read,
+   * even when the client's executor has many threads.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 15000)
+  public void testReceivedMessagesOrdering() throws Exception {
+    final int nbMessages = 500;
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    final ClientNioServer server = new ClientNioServer("test", new TypedProperties(), executor);
+    try {
+      final StubContext context = new StubContext(server);
+      final List<ClientJobMessage> received = Collections.synchronizedList(new ArrayList<>());
+      final AtomicInteger active = new AtomicInteger(0), maxActive = new AtomicInteger(0);
+      final CountDownLatch latch = new CountDownLatch(nbMessages);
+      context.setHandler(new ClientJobContext.Handler() {
+        @Override
+        public void messageReceived(final ClientJobContext ctx, final ClientJobMessage message) throws Exception {
+          maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+          if (ThreadLocalRandom.current().nextInt(10) == 0) Thread.sleep(1L);
+          received.add(message);
+          active.decrementAndGet();
+          latch.countDown();
+        }
+
+        @Override
+        public void connectionError(final ClientJobContext ctx, final Exception e) {
+        }
+      });
+      final StubReader reader = new StubReader(server);
+      // read the messages in several batches, as successive selections of the channel would
+      for (int i=0; i<nbMessages; i+=50) {
+        context.available = 50;
+        reader.readAll(context);
+      }
+      assertTrue(latch.await(10L, TimeUnit.SECONDS));
+      assertEquals(1, maxActive.get());
+      assertEquals(context.read, received);
+    } finally {
+      server.shutdown();
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that the server closes a channel it is requested to accept, since it never listens for connections.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testAcceptClosesChannel() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final ClientNioServer server = new ClientNioServer("test", new TypedProperties(), executor);
+    try (final SocketChannel channel = SocketChannel.open()) {
+      server.accept(null, channel, null, false, false);
+      assertFalse(channel.isOpen());
+    } finally {
+      server.shutdown();
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * A context which reads a given number of empty messages without any underlying channel.
+   */
+  private static class StubContext extends ClientJobContext {
+    /**
+     * The messages read so far, in reading order.
+     */
+    final List<ClientJobMessage> read = new ArrayList<>();
+    /**
+     * The number of messages available for reading.
+     */
+    int available;
+
+    /**
+     * @param server the server that handles this context.
+     */
+    StubContext(final ClientNioServer server) {
+      super(server, null);
+    }
+
+    @Override
+    public boolean readMessage() throws Exception {
+      if (available <= 0) {
+        readByteCount = 0L;
+        return false;
+      }
+      available--;
+      final ClientJobMessage message = new ClientJobMessage(this);
+      read.add(message);
+      setReadMessage(message);
+      readByteCount = 1L;
+      return true;
+    }
+  }
+
+  /**
+   * Exposes the reading of the messages to this test.
+   */
+  private static class StubReader extends ClientJobMessageReader {
+    /**
+     * @param server the nio server.
+     */
+    StubReader(final ClientNioServer server) {
+      super(server);
+    }
+
+    /**
+     * Read all the messages available to the specified context.
+     * @param context the context to read from.
+     * @throws Exception if any error occurs.
+     */
+    void readAll(final ClientJobContext context) throws Exception {
+      doRead(context);
+    }
+  }
+}
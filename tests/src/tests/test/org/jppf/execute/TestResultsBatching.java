@@ -0,0 +1,227 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.execute;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.execute.NodeTaskWrapper;
+import org.jppf.execute.async.*;
+import org.jppf.node.protocol.*;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the batching of the results of completed tasks by {@link AbstractAsyncExecutionManager}.
+ */
+public class TestResultsBatching extends BaseTest {
+  /**
+   * Test that the batches of completed tasks are handed over in completion order, each with the positions of its tasks,
+   * and that the remaining results only hold the tasks which were not sent.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testBatchesInCompletionOrder() throws Exception {
+    final TestExecutionManager manager = new TestExecutionManager(2, 5);
+    try {
+      final List<BlockingTask> tasks = manager.execute(5);
+      for (final int pos: new int[] {3, 1, 4, 0, 2}) manager.complete(tasks.get(pos));
+      assertTrue(manager.finished.await(5000L, TimeUnit.MILLISECONDS));
+      assertEquals(Arrays.asList("partial [3, 1]", "partial [4, 0]", "final [2]"), manager.events);
+    } finally {
+      manager.shutdown();
+    }
+  }
+
+  /**
+   * Test that tasks which request to be resubmitted are not sent as partial results.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testResubmittedTasksNotBatched() throws Exception {
+    final TestExecutionManager manager = new TestExecutionManager(2, 4);
+    try {
+      final List<BlockingTask> tasks = manager.execute(4);
+      tasks.get(1).setResubmit(true);
+      for (final int pos: new int[] {1, 0, 3, 2}) manager.complete(tasks.get(pos));
+      assertTrue(manager.finished.await(5000L, TimeUnit.MILLISECONDS));
+      assertEquals(Arrays.asList("partial [0, 3]", "final [1, 2]"), manager.events);
+    } finally {
+      manager.shutdown();
+    }
+  }
+
+  /**
+   * Test that all the results are sent at once when batching is disabled.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testBatchingDisabled() throws Exception {
+    final TestExecutionManager manager = new TestExecutionManager(0, 3);
+    try {
+      final List<BlockingTask> tasks = manager.execute(3);
+      for (final int pos: new int[] {2, 0, 1}) manager.complete(tasks.get(pos));
+      assertTrue(manager.finished.await(5000L, TimeUnit.MILLISECONDS));
+      assertEquals(Arrays.asList("final [0, 1, 2] (all)"), manager.events);
+    } finally {
+      manager.shutdown();
+    }
+  }
+
+  /**
+   * An execution manager which records the notifications sent to its listeners.
+   */
+  private static class TestExecutionManager extends AbstractAsyncExecutionManager implements ExecutionManagerListener {
+    /**
+     * The notifications received by the listener, in the order they were received.
+     */
+    final List<String> events = new CopyOnWriteArrayList<>();
+    /**
+     * Released each time the processing of a completed task is done.
+     */
+    final Semaphore ended = new Semaphore(0);
+    /**
+     * Released when the whole bundle has completed.
+     */
+    final CountDownLatch finished = new CountDownLatch(1);
+
+    /**
+     * Initialize this execution manager.
+     * @param batchSize the size of the results batches.
+     * @param nbThreads the number of processing threads.
+     */
+    TestExecutionManager(final int batchSize, final int nbThreads) {
+      super(new TypedProperties().set(JPPFProperties.NODE_RESULTS_BATCH_SIZE, batchSize).set(JPPFProperties.PROCESSING_THREADS, nbThreads), JPPFProperties.PROCESSING_THREADS);
+      addExecutionManagerListener(this);
+    }
+
+    /**
+     * Start executing a bundle with the specified number of tasks.
+     * @param nbTasks the number of tasks.
+     * @return the tasks, in the order of their positions.
+     * @throws Exception if any error occurs.
+     */
+    List<BlockingTask> execute(final int nbTasks) throws Exception {
+      final TaskBundle bundle = new JPPFTaskBundle();
+      bundle.setUuid(JPPFUuid.normalUUID());
+      bundle.setTaskCount(nbTasks);
+      final List<BlockingTask> tasks = new ArrayList<>(nbTasks);
+      for (int i=0; i<nbTasks; i++) {
+        final BlockingTask task = new BlockingTask();
+        task.setPosition(i);
+        task.setJob(bundle);
+        tasks.add(task);
+      }
+      execute(new BundleWithTasks(bundle, new ArrayList<>(tasks)));
+      return tasks;
+    }
+
+    /**
+     * Let the specified task complete, and wait until its completion is processed.
+     * @param task the task to complete.
+     * @throws Exception if any error occurs.
+     */
+    void complete(final BlockingTask task) throws Exception {
+      task.release.countDown();
+      assertTrue(ended.tryAcquire(5000L, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    protected JobProcessingEntry setup(final BundleWithTasks bundleWithTasks) {
+      final JobProcessingEntry jobEntry = new JobProcessingEntry();
+      jobEntry.bundle = bundleWithTasks.getBundle();
+      jobEntry.taskList = bundleWithTasks.getTasks();
+      jobEntry.taskWrapperList = new ArrayList<>(jobEntry.taskList.size());
+      if (resultsBatchSize > 0) {
+        jobEntry.resultsBatch = new ArrayList<>();
+        jobEntry.sentPositions = new HashSet<>();
+      }
+      return jobEntry;
+    }
+
+    @Override
+    protected void cleanup(final JobProcessingEntry jobEntry) {
+    }
+
+    @Override
+    public void taskEnded(final NodeTaskWrapper taskWrapper) {
+      super.taskEnded(taskWrapper);
+      ended.release();
+    }
+
+    @Override
+    public void tasksExecuted(final TaskBundle bundle, final List<Task<?>> tasks) {
+      assertTrue(bundle.getParameter(BundleParameter.PARTIAL_RESULTS, false));
+      assertEquals(tasks.size(), bundle.getTaskCount());
+      final int[] positions = bundle.getParameter(BundleParameter.RESULTS_POSITIONS);
+      assertEquals(positionsOf(tasks), Arrays.toString(positions));
+      events.add("partial " + positionsOf(tasks));
+    }
+
+    @Override
+    public void bundleExecuted(final TaskBundle bundle, final List<Task<?>> tasks, final Throwable t) {
+      assertNull(t);
+      assertEquals(tasks.size(), bundle.getTaskCount());
+      final int[] positions = bundle.getParameter(BundleParameter.RESULTS_POSITIONS, null);
+      if (positions != null) assertEquals(positionsOf(tasks), Arrays.toString(positions));
+      events.add("final " + positionsOf(tasks) + (positions == null ? " (all)" : ""));
+      finished.countDown();
+    }
+
+    /**
+     * Get the positions of the specified tasks.
+     * @param tasks the tasks to process.
+     * @return a string representation of the positions, in the same order as the tasks.
+     */
+    private static String positionsOf(final List<Task<?>> tasks) {
+      final List<Integer> positions = new ArrayList<>(tasks.size());
+      for (final Task<?> task: tasks) positions.add(task.getPosition());
+      return positions.toString();
+    }
+  }
+
+  /**
+   * A task which completes when it is released.
+   */
+  private static class BlockingTask extends AbstractTask<Integer> {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Released to let this task complete.
+     */
+    final transient CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public void run() {
+      try {
+        release.await();
+        setResult(getPosition());
+      } catch (final InterruptedException e) {
+        setThrowable(e);
+      }
+    }
+  }
+}
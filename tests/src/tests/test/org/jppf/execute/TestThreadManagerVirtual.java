@@ -0,0 +1,163 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.execute;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.execute.*;
+import org.jppf.utils.TypedProperties;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link ThreadManagerVirtual}.
+ */
+public class TestThreadManagerVirtual extends BaseTest {
+  /**
+   * Test that the virtual thread manager is created when it is configured and the JVM supports virtual threads,
+   * and that the default thread manager is used otherwise.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testNewInstance() throws Exception {
+    final TypedProperties config = new TypedProperties()
+      .set(JPPFProperties.THREAD_MANAGER_CLASS, "virtual")
+      .set(JPPFProperties.PROCESSING_THREADS, 2)
+      .set(JPPFProperties.PROCESSING_VIRTUAL_THREADS_MAX, 16);
+    final ThreadManager manager = ThreadManager.newInstance(config, JPPFProperties.PROCESSING_THREADS);
+    try {
+      if (ThreadManagerVirtual.isSupported()) {
+        assertTrue(manager instanceof ThreadManagerVirtual);
+        assertEquals(16, manager.getPoolSize());
+        assertTrue(config.get(JPPFProperties.PROCESSING_VIRTUAL_THREADS));
+      } else {
+        // fallback to the default thread pool
+        assertTrue(manager instanceof ThreadManagerThreadPool);
+        assertEquals(2, manager.getPoolSize());
+        assertFalse(config.get(JPPFProperties.PROCESSING_VIRTUAL_THREADS));
+        try {
+          new ThreadManagerVirtual(16);
+          fail("creating a virtual thread manager should fail when virtual threads are not supported");
+        } catch (@SuppressWarnings("unused") final IllegalStateException expected) {
+        }
+      }
+      assertEquals(42, (int) manager.getExecutorService().submit(() -> 42).get());
+    } finally {
+      manager.getExecutorService().shutdownNow();
+    }
+  }
+
+  /**
+   * Test that no more tasks than the concurrency limit run at the same time, that the others are queued, and that raising the limit starts them.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testConcurrencyLimit() throws Exception {
+    final ThreadManagerVirtual manager = new ThreadManagerVirtual(3, Executors.defaultThreadFactory());
+    final ExecutorService executor = manager.getExecutorService();
+    try {
+      final int nbTasks = 10;
+      final AtomicInteger running = new AtomicInteger(0), maxRunning = new AtomicInteger(0);
+      final CountDownLatch release = new CountDownLatch(1);
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i=0; i<nbTasks; i++) {
+        futures.add(executor.submit(() -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          release.await();
+          running.decrementAndGet();
+          return null;
+        }));
+      }
+      Thread.sleep(200L);
+      assertEquals(3, running.get());
+      manager.setPoolSize(5);
+      assertEquals(5, manager.getPoolSize());
+      Thread.sleep(200L);
+      assertEquals(5, running.get());
+      release.countDown();
+      for (final Future<?> future: futures) future.get();
+      assertEquals(5, maxRunning.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that cancelling a task interrupts its thread, and that shutting down the executor returns the queued tasks and terminates it.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testCancellationAndShutdown() throws Exception {
+    final ThreadManagerVirtual manager = new ThreadManagerVirtual(1, Executors.defaultThreadFactory());
+    final ExecutorService executor = manager.getExecutorService();
+    final CountDownLatch started = new CountDownLatch(1), interrupted = new CountDownLatch(1);
+    final Future<?> running = executor.submit(() -> {
+      started.countDown();
+      try {
+        Thread.sleep(10_000L);
+      } catch (@SuppressWarnings("unused") final InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+    assertTrue(started.await(5L, TimeUnit.SECONDS));
+    executor.submit(() -> { });
+    assertTrue(running.cancel(true));
+    assertTrue(interrupted.await(5L, TimeUnit.SECONDS));
+    final CountDownLatch blocking = new CountDownLatch(1);
+    executor.submit(() -> {
+      blocking.await();
+      return null;
+    });
+    executor.submit(() -> { });
+    Thread.sleep(100L);
+    final List<Runnable> queued = executor.shutdownNow();
+    assertEquals(1, queued.size());
+    assertTrue(executor.isShutdown());
+    assertTrue(executor.awaitTermination(5L, TimeUnit.SECONDS));
+    try {
+      executor.submit(() -> { });
+      fail("a task should not be accepted after shutdown");
+    } catch (@SuppressWarnings("unused") final RejectedExecutionException expected) {
+    }
+  }
+
+  /**
+   * Test that tasks run in virtual threads, when the JVM supports them.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testVirtualThreads() throws Exception {
+    Assume.assumeTrue(ThreadManagerVirtual.isSupported());
+    final ThreadManagerVirtual manager = new ThreadManagerVirtual(4);
+    final ExecutorService executor = manager.getExecutorService();
+    try {
+      final Thread thread = executor.submit(Thread::currentThread).get();
+      assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+      assertTrue(thread.getName().startsWith(AbstractThreadManager.THREAD_NAME_PREFIX));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.io;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.channels.Pipe;
+import java.util.Random;
+
+import org.jppf.io.*;
+import org.jppf.utils.pooling.DirectSegmentPool;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link DirectBuffersLocation}.
+ */
+public class TestDirectBuffersLocation extends BaseTest {
+  /**
+   * Test that data written with the location's output stream is transferred through a non-blocking channel with scattering and gathering operations.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 10000)
+  public void testNonBlockingChannelTransfer() throws Exception {
+    final DirectSegmentPool pool = new DirectSegmentPool(16L * 1024L * 1024L);
+    for (final int size: new int[] { 1, 1000, 1024, 64 * 1024, 70_000, 1024 * 1024 + 17 }) {
+      final byte[] data = new byte[size];
+      new Random(size).nextBytes(data);
+      final DirectBuffersLocation source = DirectBuffersLocation.create(size, pool);
+      assertNotNull(source);
+      try (final OutputStream os = source.getOutputStream()) {
+        os.write(data);
+      }
+      final DataLocation dest = DirectBuffersLocation.create(size, pool);
+      assertNotNull(dest);
+      final Pipe pipe = Pipe.open();
+      pipe.sink().configureBlocking(false);
+      pipe.source().configureBlocking(false);
+      try {
+        final OutputDestination out = new ChannelOutputDestination(pipe.sink());
+        final InputSource in = new ChannelInputSource(pipe.source());
+        final DataLocation copy = source.copy();
+        int written = 0, read = 0;
+        while (read < size) {
+          if (written < size) written += copy.transferTo(out, false);
+          read += dest.transferFrom(in, false);
+        }
+        assertEquals(size, written);
+      } finally {
+        pipe.sink().close();
+        pipe.source().close();
+      }
+      assertArrayEquals("size=" + size, data, readFully(dest));
+      assertArrayEquals("size=" + size, data, readFully(source));
+    }
+  }
+
+  /**
+   * Test that the location cannot be created when the pool's maximum memory is exceeded, and that segments are reused once their locations are garbage-collected.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 10000)
+  public void testPoolMaxMemory() throws Exception {
+    final long maxMemory = 1024L * 1024L;
+    final DirectSegmentPool pool = new DirectSegmentPool(maxMemory);
+    assertNull(DirectBuffersLocation.create((int) maxMemory + 1, pool));
+    DirectBuffersLocation location = DirectBuffersLocation.create((int) maxMemory, pool);
+    assertNotNull(location);
+    assertEquals(maxMemory, pool.getAllocatedMemory());
+    assertNull(DirectBuffersLocation.create(1024, pool));
+    location = null;
+    while ((location = DirectBuffersLocation.create(64 * 1024, pool)) == null) {
+      System.gc();
+      Thread.sleep(10L);
+    }
+    assertEquals(maxMemory, pool.getAllocatedMemory());
+  }
+
+  /**
+   * Test that the segments are returned to the pool, without waiting for a garbage collection, once a location and all its copies are closed.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 10000)
+  public void testExplicitRelease() throws Exception {
+    final long maxMemory = 1024L * 1024L;
+    final DirectSegmentPool pool = new DirectSegmentPool(maxMemory);
+    final DirectBuffersLocation location = DirectBuffersLocation.create((int) maxMemory, pool);
+    assertNotNull(location);
+    final DirectBuffersLocation copy = (DirectBuffersLocation) location.copy();
+    location.close();
+    location.close();
+    assertNull(DirectBuffersLocation.create(1024, pool));
+    try {
+      location.copy();
+      fail("a closed location should not be copied");
+    } catch (@SuppressWarnings("unused") final IllegalStateException e) {
+    }
+    assertNotNull(copy.getInputStream());
+    copy.close();
+    final DirectBuffersLocation other = DirectBuffersLocation.create(64 * 1024, pool);
+    assertNotNull(other);
+    assertEquals(maxMemory, pool.getAllocatedMemory());
+    copy.close();
+    other.close();
+    assertNotNull(DirectBuffersLocation.create((int) maxMemory, pool));
+    assertEquals(maxMemory, pool.getAllocatedMemory());
+  }
+
+  /**
+   * Read the whole content of the specified location.
+   * @param location the location to read.
+   * @return the content as a byte array.
+   * @throws Exception if any error occurs.
+   */
+  private static byte[] readFully(final DataLocation location) throws Exception {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (final InputStream is = location.getInputStream()) {
+      final byte[] buf = new byte[777];
+      int n;
+      while ((n = is.read(buf)) > 0) baos.write(buf, 0, n);
+    }
+    return baos.toByteArray();
+  }
+}
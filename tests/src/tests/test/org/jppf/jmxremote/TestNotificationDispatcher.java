@@ -0,0 +1,201 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.jmxremote;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import javax.management.Notification;
+
+import org.jppf.job.*;
+import org.jppf.jmxremote.message.JMXNotification;
+import org.jppf.jmxremote.nio.NotificationDispatcher;
+import org.jppf.jmxremote.notification.NotificationBatch;
+import org.jppf.management.*;
+import org.jppf.utils.concurrent.ConcurrentUtils;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link NotificationDispatcher}.
+ */
+public class TestNotificationDispatcher extends BaseTest {
+  /**
+   * The listener IDs for all the notifications in these tests.
+   */
+  private static final Integer[] LISTENER_IDS = { 1 };
+
+  /**
+   * Test that the notifications of a connection are delivered in order, and that a blocked listener does not delay the notifications of other connections.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testLaneOrdering() throws Exception {
+    final NotificationDispatcher dispatcher = new NotificationDispatcher("test", 2, 1000, 0L);
+    try {
+      final CountDownLatch blocker = new CountDownLatch(1);
+      final List<Long> received1 = new CopyOnWriteArrayList<>(), received2 = new CopyOnWriteArrayList<>();
+      final Object connection1 = "connection-1", connection2 = "connection-2";
+      final int nbNotifs = 200;
+      final Consumer<JMXNotification> handler1 = notif -> {
+        awaitQuietly(blocker);
+        received1.add(notif.getNotification().getSequenceNumber());
+      };
+      final Consumer<JMXNotification> handler2 = notif -> received2.add(notif.getNotification().getSequenceNumber());
+      for (int i=0; i<nbNotifs; i++) dispatcher.dispatch(connection1, newNotification(i), handler1);
+      for (int i=0; i<nbNotifs; i++) dispatcher.dispatch(connection2, newNotification(i), handler2);
+      ConcurrentUtils.awaitCondition(() -> received2.size() == nbNotifs, 5000L, 10L, true);
+      assertTrue(received1.isEmpty());
+      blocker.countDown();
+      ConcurrentUtils.awaitCondition(() -> received1.size() == nbNotifs, 5000L, 10L, true);
+      for (int i=0; i<nbNotifs; i++) {
+        assertEquals(i, received1.get(i).longValue());
+        assertEquals(i, received2.get(i).longValue());
+      }
+      assertEquals(2 * nbNotifs, dispatcher.getDeliveredCount());
+      assertEquals(0L, dispatcher.getDroppedCount());
+    } finally {
+      dispatcher.close();
+    }
+  }
+
+  /**
+   * Test that task execution and job updated notifications are grouped into batches, with only the latest update for each job,
+   * and that other notifications flush the pending batches first.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testCoalescing() throws Exception {
+    final NotificationDispatcher dispatcher = new NotificationDispatcher("test", 2, 1000, 60_000L);
+    try {
+      final List<Notification> received = new CopyOnWriteArrayList<>();
+      final Object connection = "connection";
+      final Consumer<JMXNotification> handler = notif -> received.add(notif.getNotification());
+      for (int i=0; i<5; i++) {
+        dispatcher.dispatch(connection, new JMXNotification(i, newTaskNotification(i), LISTENER_IDS), handler);
+        dispatcher.dispatch(connection, new JMXNotification(i, newJobNotification("job", JobEventType.JOB_UPDATED, i), LISTENER_IDS), handler);
+      }
+      Thread.sleep(100L);
+      assertTrue(received.isEmpty());
+      dispatcher.dispatch(connection, new JMXNotification(5, newJobNotification("job", JobEventType.JOB_ENDED, 5), LISTENER_IDS), handler);
+      ConcurrentUtils.awaitCondition(() -> received.size() == 2, 5000L, 10L, true);
+      assertTrue(received.get(0) instanceof NotificationBatch);
+      final List<Notification> batch = ((NotificationBatch) received.get(0)).getNotifications();
+      assertEquals(6, batch.size());
+      int nbTasks = 0;
+      for (final Notification notif: batch) {
+        if (notif instanceof TaskExecutionNotification) assertEquals(nbTasks++, ((TaskExecutionNotification) notif).getTaskInformation().getJobPosition());
+        else assertEquals(4, ((JobNotification) notif).getJobInformation().getTaskCount());
+      }
+      assertEquals(5, nbTasks);
+      assertEquals(JobEventType.JOB_ENDED, ((JobNotification) received.get(1)).getEventType());
+      assertEquals(10L, dispatcher.getCoalescedCount());
+      assertEquals(1L, dispatcher.getBatchCount());
+      assertEquals(1L, dispatcher.getDeliveredCount());
+    } finally {
+      dispatcher.close();
+    }
+  }
+
+  /**
+   * Test that only task execution notifications are dropped when the queue of a connection is full.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testOverflow() throws Exception {
+    final int capacity = 5;
+    final NotificationDispatcher dispatcher = new NotificationDispatcher("test", 1, capacity, 0L);
+    try {
+      final CountDownLatch started = new CountDownLatch(1), blocker = new CountDownLatch(1);
+      final List<Notification> received = new CopyOnWriteArrayList<>();
+      final Object connection = "connection";
+      final Consumer<JMXNotification> handler = notif -> {
+        if (notif.getMessageID() < 0L) {
+          started.countDown();
+          awaitQuietly(blocker);
+        } else received.add(notif.getNotification());
+      };
+      dispatcher.dispatch(connection, newNotification(-1), handler);
+      started.await();
+      for (int i=0; i<2*capacity; i++) {
+        dispatcher.dispatch(connection, new JMXNotification(i, newTaskNotification(i), LISTENER_IDS), handler);
+        dispatcher.dispatch(connection, new JMXNotification(i, newJobNotification("job-" + i, JobEventType.JOB_RETURNED, i), LISTENER_IDS), handler);
+      }
+      blocker.countDown();
+      // the first 3 task notifications and all 10 job notifications are delivered
+      final int expected = (capacity + 1) / 2 + 2 * capacity;
+      ConcurrentUtils.awaitCondition(() -> dispatcher.getDeliveredCount() == expected + 1, 5000L, 10L, true);
+      assertEquals(expected, received.size());
+      assertEquals(2 * capacity - (capacity + 1) / 2, dispatcher.getDroppedCount());
+      int nbJobs = 0;
+      for (final Notification notif: received) {
+        if (notif instanceof JobNotification) assertEquals("job-" + nbJobs++, ((JobNotification) notif).getJobInformation().getJobUuid());
+      }
+      assertEquals(2 * capacity, nbJobs);
+    } finally {
+      dispatcher.close();
+    }
+  }
+
+  /**
+   * Create a simple notification message.
+   * @param sequence the sequence number of the notification.
+   * @return a new {@link JMXNotification}.
+   */
+  private static JMXNotification newNotification(final long sequence) {
+    return new JMXNotification(sequence, new Notification("test", "source", sequence), LISTENER_IDS);
+  }
+
+  /**
+   * Create a task execution notification.
+   * @param position the position of the task in its job.
+   * @return a new {@link TaskExecutionNotification}.
+   * @throws Exception if any error occurs.
+   */
+  private static TaskExecutionNotification newTaskNotification(final int position) throws Exception {
+    return new TaskExecutionNotification(ObjectNameCache.getObjectName(JPPFNodeTaskMonitorMBean.MBEAN_NAME), position, new TaskInformation("task-" + position, "job", "job", 1L, 1L, false, position), null, false);
+  }
+
+  /**
+   * Create a job notification.
+   * @param jobUuid the uuid of the job.
+   * @param type the type of job event.
+   * @param taskCount the number of tasks in the job.
+   * @return a new {@link JobNotification}.
+   */
+  private static JobNotification newJobNotification(final String jobUuid, final JobEventType type, final int taskCount) {
+    return new JobNotification("driver", type, new JobInformation(jobUuid, jobUuid, taskCount, taskCount, 0, false, false), null, System.currentTimeMillis());
+  }
+
+  /**
+   * Wait for the specified latch to count down, ignoring interruptions.
+   * @param latch the latch to wait for.
+   */
+  private static void awaitQuietly(final CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (@SuppressWarnings("unused") final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.job.persistence;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.jppf.io.MultipleBuffersLocation;
+import org.jppf.job.persistence.*;
+import org.jppf.node.protocol.*;
+import org.jppf.utils.JPPFUuid;
+import org.jppf.utils.streams.StreamUtils;
+
+/**
+ * Generates the elements of a job whose content is derived from a seed, and checks them against what a job persistence returns.
+ */
+public class JobPersistenceFixture {
+  /**
+   * The uuid of the job to persist.
+   */
+  private final String uuid = JPPFUuid.normalUUID();
+  /**
+   * The job header.
+   */
+  private final TaskBundle header = new JPPFTaskBundle();
+
+  /**
+   * @return the uuid of the job to persist.
+   */
+  public String getUuid() {
+    return uuid;
+  }
+
+  /**
+   * Get the information on the job header, data provider and tasks.
+   * @param nbTasks the number of tasks in the job.
+   * @return a list of {@link PersistenceInfo} instances.
+   */
+  public List<PersistenceInfo> jobInfos(final int nbTasks) {
+    final List<PersistenceInfo> infos = new ArrayList<>();
+    infos.add(info(PersistenceObjectType.JOB_HEADER, -1, 100));
+    infos.add(info(PersistenceObjectType.DATA_PROVIDER, -1, 200));
+    for (int i=0; i<nbTasks; i++) infos.add(info(PersistenceObjectType.TASK, i, 1000 + i));
+    return infos;
+  }
+
+  /**
+   * Create the information on a job element whose content is generated from a seed.
+   * @param type the type of job element.
+   * @param position the position of the task or result.
+   * @param seed the seed from which to generate the content.
+   * @return a {@link PersistenceInfo} instance.
+   */
+  public PersistenceInfo info(final PersistenceObjectType type, final int position, final int seed) {
+    return new PersistenceInfoImpl(uuid, header, type, position, new MultipleBuffersLocation(content(seed)));
+  }
+
+  /**
+   * Generate content from a seed.
+   * @param seed the seed from which to generate the content.
+   * @return an array of bytes whose length and values depend on the seed, empty if the seed is 0.
+   */
+  public static byte[] content(final int seed) {
+    final byte[] data = new byte[(seed == 0) ? 0 : 1 + (seed * 37) % 50_000];
+    new Random(seed).nextBytes(data);
+    return data;
+  }
+
+  /**
+   * Read and close the specified stream.
+   * @param is the stream to read.
+   * @return the content that was read.
+   * @throws Exception if any error occurs.
+   */
+  public static byte[] readFully(final InputStream is) throws Exception {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    StreamUtils.copyStream(is, baos, true);
+    return baos.toByteArray();
+  }
+
+  /**
+   * Check the content of a stored element.
+   * @param persistence the persistence to load from.
+   * @param type the type of job element.
+   * @param position the position of the task or result.
+   * @param seed the seed from which the content was generated.
+   * @throws Exception if any error occurs.
+   */
+  public void checkContent(final JobPersistence persistence, final PersistenceObjectType type, final int position, final int seed) throws Exception {
+    final List<InputStream> list = persistence.load(Arrays.asList(info(type, position, 0)));
+    assertEquals(1, list.size());
+    assertArrayEquals(type + "[" + position + "]", content(seed), readFully(list.get(0)));
+  }
+
+  /**
+   * Check the positions of the tasks and results of the job.
+   * @param persistence the persistence to query.
+   * @param nbTasks the expected number of tasks.
+   * @param resultPositions the expected positions of the results.
+   * @throws Exception if any error occurs.
+   */
+  public void checkPositions(final JobPersistence persistence, final int nbTasks, final int...resultPositions) throws Exception {
+    assertArrayEquals(range(nbTasks), persistence.getTaskPositions(uuid));
+    assertArrayEquals(resultPositions, persistence.getTaskResultPositions(uuid));
+  }
+
+  /**
+   * @param n the size of the range.
+   * @return an array containing the values 0 to n - 1.
+   */
+  public static int[] range(final int n) {
+    final int[] result = new int[n];
+    for (int i=0; i<n; i++) result[i] = i;
+    return result;
+  }
+}
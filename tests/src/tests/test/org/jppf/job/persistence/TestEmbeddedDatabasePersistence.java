@@ -0,0 +1,151 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.job.persistence;
+
+import static org.junit.Assert.*;
+import static test.org.jppf.job.persistence.JobPersistenceFixture.*;
+
+import java.io.InputStream;
+import java.util.*;
+
+import org.jppf.job.persistence.*;
+import org.jppf.job.persistence.impl.DefaultDatabasePersistence;
+import org.jppf.persistence.JPPFDatasourceFactory;
+import org.jppf.utils.TypedProperties;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the batched stores and streaming loads of {@link DefaultDatabasePersistence}, against an embedded in-memory H2 database.
+ */
+public class TestEmbeddedDatabasePersistence extends BaseTest {
+  /**
+   * Name of the datasource.
+   */
+  private static final String DS_NAME = "embeddedJobDS";
+  /**
+   * Maximum number of connections in the datasource.
+   */
+  private static final int POOL_SIZE = 4;
+  /**
+   * The number of tasks in the job.
+   */
+  private static final int NB_TASKS = 250;
+  /**
+   * Generates the job elements and checks their content.
+   */
+  private final JobPersistenceFixture fixture = new JobPersistenceFixture();
+  /**
+   * The uuid of the job to persist.
+   */
+  private final String uuid = fixture.getUuid();
+
+  /**
+   * Create the datasource.
+   * @throws Exception if any error occurs.
+   */
+  @BeforeClass
+  public static void setupDataSource() throws Exception {
+    final TypedProperties props = new TypedProperties()
+      .setString("driverClassName", "org.h2.Driver").setString("jdbcUrl", "jdbc:h2:mem:embedded_jppf;DB_CLOSE_DELAY=-1")
+      .setString("username", "sa").setString("password", "").setInt("maximumPoolSize", POOL_SIZE).setLong("connectionTimeout", 1000L);
+    JPPFDatasourceFactory.getInstance().createDataSource(DS_NAME, props);
+  }
+
+  /**
+   * Remove the datasource.
+   * @throws Exception if any error occurs.
+   */
+  @AfterClass
+  public static void teardownDataSource() throws Exception {
+    JPPFDatasourceFactory.getInstance().removeDataSource(DS_NAME);
+  }
+
+  /**
+   * Test storing a job with batched upserts, then loading its elements with streams read in order and out of order.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testUpsertStoreAndStreamingLoad() throws Exception {
+    final JobPersistence persistence = new DefaultDatabasePersistence("UPSERT_TABLE", DS_NAME);
+    persistence.store(fixture.jobInfos(NB_TASKS));
+    // store some results, along with elements which already exist
+    final List<PersistenceInfo> results = new ArrayList<>();
+    results.add(fixture.info(PersistenceObjectType.JOB_HEADER, -1, 101));
+    for (int i=0; i<NB_TASKS; i += 2) results.add(fixture.info(PersistenceObjectType.TASK_RESULT, i, 5000 + i));
+    persistence.store(results);
+    assertTrue(persistence.isJobPersisted(uuid));
+    assertEquals(NB_TASKS, persistence.getTaskPositions(uuid).length);
+    assertEquals(NB_TASKS / 2, persistence.getTaskResultPositions(uuid).length);
+
+    // read the streams one after the other
+    final List<PersistenceInfo> toLoad = new ArrayList<>();
+    for (int i=0; i<NB_TASKS; i++) toLoad.add(fixture.info(PersistenceObjectType.TASK, i, 0));
+    List<InputStream> streams = persistence.load(toLoad);
+    assertEquals(NB_TASKS, streams.size());
+    for (int i=0; i<NB_TASKS; i++) assertArrayEquals("task " + i, content(1000 + i), readFully(streams.get(i)));
+
+    // start reading a stream, then read the others before it
+    streams = persistence.load(Arrays.asList(fixture.info(PersistenceObjectType.JOB_HEADER, -1, 0),
+      fixture.info(PersistenceObjectType.TASK_RESULT, 0, 0), fixture.info(PersistenceObjectType.TASK_RESULT, 2, 0)));
+    assertEquals(3, streams.size());
+    final byte[] expected = content(101);
+    final InputStream first = streams.get(0);
+    final byte[] start = new byte[10];
+    assertEquals(10, first.read(start));
+    assertArrayEquals(content(5002), readFully(streams.get(2)));
+    assertArrayEquals(content(5000), readFully(streams.get(1)));
+    final byte[] rest = readFully(first);
+    final byte[] actual = new byte[start.length + rest.length];
+    System.arraycopy(start, 0, actual, 0, start.length);
+    System.arraycopy(rest, 0, actual, start.length, rest.length);
+    assertArrayEquals(expected, actual);
+
+    persistence.deleteJob(uuid);
+    assertFalse(persistence.isJobPersisted(uuid));
+    assertEquals(0, persistence.getTaskPositions(uuid).length);
+  }
+
+  /**
+   * Test that missing elements are skipped, and that closing unread streams releases the connection they share.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testMissingElementsAndUnreadStreams() throws Exception {
+    final JobPersistence persistence = new DefaultDatabasePersistence("MISSING_TABLE", DS_NAME);
+    persistence.store(fixture.jobInfos(10));
+    persistence.store(Arrays.asList(fixture.info(PersistenceObjectType.TASK_RESULT, 2, 3002)));
+    assertTrue(persistence.load(Arrays.asList(fixture.info(PersistenceObjectType.TASK_RESULT, 1, 0))).isEmpty());
+    final List<InputStream> streams = persistence.load(Arrays.asList(fixture.info(PersistenceObjectType.TASK_RESULT, 1, 0),
+      fixture.info(PersistenceObjectType.TASK_RESULT, 2, 0), fixture.info(PersistenceObjectType.TASK, 4, 0), fixture.info(PersistenceObjectType.TASK, 20, 0)));
+    assertEquals(2, streams.size());
+    assertArrayEquals(content(3002), readFully(streams.get(0)));
+    assertArrayEquals(content(1004), readFully(streams.get(1)));
+    // more partially read, then closed, loads than there are connections in the pool
+    for (int i=0; i<2 * POOL_SIZE; i++) {
+      final List<InputStream> list = persistence.load(fixture.jobInfos(10));
+      assertEquals(12, list.size());
+      assertEquals(content(100)[0], (byte) list.get(0).read());
+      for (final InputStream is: list) is.close();
+    }
+    fixture.checkContent(persistence, PersistenceObjectType.DATA_PROVIDER, -1, 200);
+    persistence.deleteJob(uuid);
+  }
+}
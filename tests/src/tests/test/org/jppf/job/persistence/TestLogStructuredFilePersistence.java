@@ -0,0 +1,172 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.job.persistence;
+
+import static org.junit.Assert.*;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+import org.jppf.job.persistence.*;
+import org.jppf.job.persistence.impl.LogStructuredFilePersistence;
+import org.jppf.utils.DeleteFileVisitor;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link LogStructuredFilePersistence}.
+ */
+public class TestLogStructuredFilePersistence extends BaseTest {
+  /**
+   * The root directory of the persistence.
+   */
+  private static final Path ROOT = Paths.get("log_persistence");
+  /**
+   * The number of tasks in the job.
+   */
+  private static final int NB_TASKS = 20;
+  /**
+   * Generates the job elements and checks their content.
+   */
+  private final JobPersistenceFixture fixture = new JobPersistenceFixture();
+  /**
+   * The uuid of the job to persist.
+   */
+  private final String uuid = fixture.getUuid();
+
+  /**
+   * Delete the persistence root directory.
+   * @throws Exception if any error occurs.
+   */
+  @Before
+  @After
+  public void cleanup() throws Exception {
+    if (Files.exists(ROOT)) Files.walkFileTree(ROOT, new DeleteFileVisitor());
+  }
+
+  /**
+   * Test that the stored elements are loaded with the same content and that the positions of the tasks and results are reported.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testStoreAndLoad() throws Exception {
+    final LogStructuredFilePersistence persistence = new LogStructuredFilePersistence(ROOT.toString());
+    assertFalse(persistence.isJobPersisted(uuid));
+    assertEquals(0, persistence.getTaskPositions(uuid).length);
+    persistence.store(fixture.jobInfos(NB_TASKS));
+    persistence.store(Arrays.asList(fixture.info(PersistenceObjectType.TASK_RESULT, 3, 2000), fixture.info(PersistenceObjectType.TASK_RESULT, 7, 0)));
+    assertTrue(persistence.isJobPersisted(uuid));
+    assertEquals(Arrays.asList(uuid), persistence.getPersistedJobUuids());
+    fixture.checkPositions(persistence, NB_TASKS, 3, 7);
+    fixture.checkContent(persistence, PersistenceObjectType.JOB_HEADER, -1, 100);
+    fixture.checkContent(persistence, PersistenceObjectType.TASK, 5, 1005);
+    fixture.checkContent(persistence, PersistenceObjectType.TASK_RESULT, 3, 2000);
+    fixture.checkContent(persistence, PersistenceObjectType.TASK_RESULT, 7, 0);
+    try {
+      persistence.load(Arrays.asList(fixture.info(PersistenceObjectType.TASK_RESULT, 4, 0)));
+      fail("loading a missing task result should raise an exception");
+    } catch (@SuppressWarnings("unused") final JobPersistenceException e) {
+    }
+    persistence.deleteJob(uuid);
+    assertFalse(persistence.isJobPersisted(uuid));
+    assertTrue(persistence.getPersistedJobUuids().isEmpty());
+    assertTrue(persistence.load(Arrays.asList(fixture.info(PersistenceObjectType.JOB_HEADER, -1, 0))).isEmpty());
+  }
+
+  /**
+   * Test that a new persistence instance, as after a driver restart, recovers the stored elements and discards a partially written record.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testRecovery() throws Exception {
+    LogStructuredFilePersistence persistence = new LogStructuredFilePersistence(ROOT.toString(), "never");
+    persistence.store(fixture.jobInfos(NB_TASKS));
+    persistence.store(Arrays.asList(fixture.info(PersistenceObjectType.TASK_RESULT, 1, 3000)));
+    final Path segment = ROOT.resolve(uuid).resolve("segment-0.log");
+    final long size = Files.size(segment);
+    // simulate a crash in the middle of a write
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      channel.write(java.nio.ByteBuffer.wrap(new byte[] { 3, 0, 0, 0, 2, 0, 0, 1, 0, 42, 42 }));
+    }
+    persistence = new LogStructuredFilePersistence(ROOT.toString());
+    assertTrue(persistence.isJobPersisted(uuid));
+    assertEquals(size, Files.size(segment));
+    fixture.checkPositions(persistence, NB_TASKS, 1);
+    fixture.checkContent(persistence, PersistenceObjectType.TASK_RESULT, 1, 3000);
+    fixture.checkContent(persistence, PersistenceObjectType.DATA_PROVIDER, -1, 200);
+    persistence.store(Arrays.asList(fixture.info(PersistenceObjectType.TASK_RESULT, 2, 3001)));
+    persistence = new LogStructuredFilePersistence(ROOT.toString());
+    fixture.checkPositions(persistence, NB_TASKS, 1, 2);
+    fixture.checkContent(persistence, PersistenceObjectType.TASK_RESULT, 2, 3001);
+  }
+
+  /**
+   * Test that the segments of a job are compacted once all its tasks have a result.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testCompaction() throws Exception {
+    final LogStructuredFilePersistence persistence = new LogStructuredFilePersistence(ROOT.toString(), "always", "1");
+    persistence.store(fixture.jobInfos(NB_TASKS));
+    // store each result twice, so that the first records become garbage
+    for (int n=0; n<2; n++) {
+      for (int i=0; i<NB_TASKS; i++) persistence.store(Arrays.asList(fixture.info(PersistenceObjectType.TASK_RESULT, i, 4000 + i)));
+    }
+    final Path dir = ROOT.resolve(uuid);
+    while (Files.exists(dir.resolve("segment-0.log")) || (dir.toFile().list().length != 1)) Thread.sleep(10L);
+    fixture.checkPositions(persistence, NB_TASKS, JobPersistenceFixture.range(NB_TASKS));
+    for (int i=0; i<NB_TASKS; i++) {
+      fixture.checkContent(persistence, PersistenceObjectType.TASK, i, 1000 + i);
+      fixture.checkContent(persistence, PersistenceObjectType.TASK_RESULT, i, 4000 + i);
+    }
+    fixture.checkContent(persistence, PersistenceObjectType.JOB_HEADER, -1, 100);
+    final LogStructuredFilePersistence persistence2 = new LogStructuredFilePersistence(ROOT.toString());
+    fixture.checkPositions(persistence2, NB_TASKS, JobPersistenceFixture.range(NB_TASKS));
+    fixture.checkContent(persistence2, PersistenceObjectType.TASK_RESULT, NB_TASKS - 1, 4000 + NB_TASKS - 1);
+  }
+
+  /**
+   * Test that the jobs remain accessible when there are more jobs than the maximum number of open segment files.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testMaxOpenFiles() throws Exception {
+    final LogStructuredFilePersistence persistence = new LogStructuredFilePersistence(ROOT.toString(), "always", "0", "2");
+    final JobPersistenceFixture[] fixtures = new JobPersistenceFixture[5];
+    for (int i=0; i<fixtures.length; i++) {
+      fixtures[i] = new JobPersistenceFixture();
+      persistence.store(fixtures[i].jobInfos(NB_TASKS));
+    }
+    for (int i=0; i<fixtures.length; i++) persistence.store(Arrays.asList(fixtures[i].info(PersistenceObjectType.TASK_RESULT, i, 5000 + i)));
+    for (int i=0; i<fixtures.length; i++) {
+      fixtures[i].checkPositions(persistence, NB_TASKS, i);
+      fixtures[i].checkContent(persistence, PersistenceObjectType.TASK, i, 1000 + i);
+      fixtures[i].checkContent(persistence, PersistenceObjectType.TASK_RESULT, i, 5000 + i);
+    }
+    final LogStructuredFilePersistence persistence2 = new LogStructuredFilePersistence(ROOT.toString(), "always", "0", "1");
+    for (int i=fixtures.length-1; i>=0; i--) fixtures[i].checkContent(persistence2, PersistenceObjectType.TASK_RESULT, i, 5000 + i);
+    try {
+      new LogStructuredFilePersistence(ROOT.toString(), "always", "0", "0");
+      fail("a maximum of 0 open files should be rejected");
+    } catch (@SuppressWarnings("unused") final IllegalArgumentException e) {
+    }
+  }
+}
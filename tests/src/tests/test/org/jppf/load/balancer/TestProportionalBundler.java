@@ -0,0 +1,100 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.load.balancer;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.load.balancer.impl.*;
+import org.jppf.utils.TypedProperties;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link ProportionalBundler}.
+ */
+public class TestProportionalBundler extends BaseTest {
+  /**
+   * Test that a bundle size set explicitly, or through the state of another bundler, is the one returned afterwards.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testExplicitBundleSize() throws Exception {
+    final ProportionalBundler b1 = newBundler(), b2 = newBundler();
+    try {
+      for (int i=0; i<20; i++) {
+        b1.feedback(1, 1_000_000d);
+        b2.feedback(1, 6_000_000d);
+      }
+      assertEquals(258, b1.getBundleSize());
+      assertEquals(42, b2.getBundleSize());
+      b1.setBundleSize(7);
+      assertEquals(7, b1.getBundleSize());
+      // b1 now has the same performance data as b2, hence the same share of the tasks
+      b1.setState(b2.getState());
+      assertEquals(150, b1.getBundleSize());
+      assertEquals(150, b2.getBundleSize());
+    } finally {
+      b1.dispose();
+      b2.dispose();
+    }
+  }
+
+  /**
+   * Test that the bundle sizes account for all the feedback, including the feedback received while the sizes are being computed by another thread.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 30000)
+  public void testConcurrentFeedback() throws Exception {
+    final ProportionalBundler b1 = newBundler(), b2 = newBundler();
+    final int nbThreads = 8;
+    final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i=0; i<nbThreads; i++) {
+        final ProportionalBundler bundler = (i % 2 == 0) ? b1 : b2;
+        final double time = (i % 2 == 0) ? 1_000_000d : 6_000_000d;
+        futures.add(executor.submit(() -> {
+          for (int j=0; j<10_000; j++) bundler.feedback(1, time);
+        }));
+      }
+      for (final Future<?> future: futures) future.get();
+      assertEquals(258, b1.getBundleSize());
+      assertEquals(42, b2.getBundleSize());
+    } finally {
+      executor.shutdownNow();
+      b1.dispose();
+      b2.dispose();
+    }
+  }
+
+  /**
+   * Create and setup a bundler with a small performance cache.
+   * @return a new {@link ProportionalBundler}.
+   */
+  private static ProportionalBundler newBundler() {
+    final TypedProperties config = new TypedProperties().setInt("performanceCacheSize", 10);
+    final ProportionalBundler bundler = new ProportionalBundler(new ProportionalProfile(config));
+    bundler.setup();
+    return bundler;
+  }
+}
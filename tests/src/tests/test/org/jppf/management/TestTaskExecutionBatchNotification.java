@@ -0,0 +1,141 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package test.org.jppf.management;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.management.*;
+
+import org.jppf.management.*;
+import org.jppf.management.forwarding.JPPFNodeForwardingNotification;
+import org.jppf.node.event.TaskExecutionEvent;
+import org.jppf.node.protocol.AbstractTask;
+import org.jppf.utils.JPPFConfiguration;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link TaskExecutionBatchNotification} and the batching of task notifications in the node task monitor.
+ */
+public class TestTaskExecutionBatchNotification extends BaseTest {
+  /**
+   * Test that the columnar fields of a batch hold the information on the tasks, and that the batch is unpacked into equivalent notifications.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testColumnsAndUnpack() throws Exception {
+    final ObjectName source = ObjectNameCache.getObjectName(JPPFNodeTaskMonitorMBean.MBEAN_NAME);
+    final List<TaskInformation> infos = new ArrayList<>();
+    for (int i=0; i<10; i++) infos.add(new TaskInformation("task" + i, "job" + (i % 2), "name" + (i % 2), i, 10L * i, i % 3 == 0, i));
+    TaskExecutionBatchNotification batch = new TaskExecutionBatchNotification(source, 1L, infos);
+    try (final ByteArrayOutputStream baos = new ByteArrayOutputStream(); final ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(batch);
+      oos.flush();
+      try (final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+        batch = (TaskExecutionBatchNotification) ois.readObject();
+      }
+    }
+    assertEquals(TaskExecutionBatchNotification.BATCH_TYPE, batch.getType());
+    assertEquals(10, batch.size());
+    for (int i=0; i<10; i++) {
+      assertEquals("task" + i, batch.getTaskIds()[i]);
+      assertEquals("job" + (i % 2), batch.getJobId(i));
+      assertEquals("name" + (i % 2), batch.getJobName(i));
+      assertEquals(i, batch.getCpuTimes()[i]);
+      assertEquals(10L * i, batch.getElapsedTimes()[i]);
+      assertEquals(i % 3 == 0, batch.hasError(i));
+      assertEquals(i, batch.getJobPositions()[i]);
+      assertEquals(infos.get(i).getTimestamp(), batch.getTimestamps()[i]);
+    }
+    final List<Notification> received = new ArrayList<>();
+    final TaskExecutionBatchUnpacker unpacker = new TaskExecutionBatchUnpacker((notif, handback) -> received.add(notif));
+    unpacker.handleNotification(batch, null);
+    unpacker.handleNotification(new JPPFNodeForwardingNotification(batch, "nodeUuid", JPPFNodeTaskMonitorMBean.MBEAN_NAME), null);
+    assertEquals(20, received.size());
+    for (int i=0; i<20; i++) {
+      final Notification notif = received.get(i);
+      final TaskExecutionNotification taskNotif;
+      if (i < 10) taskNotif = (TaskExecutionNotification) notif;
+      else {
+        assertEquals("nodeUuid", ((JPPFNodeForwardingNotification) notif).getNodeUuid());
+        taskNotif = (TaskExecutionNotification) ((JPPFNodeForwardingNotification) notif).getNotification();
+      }
+      final TaskInformation expected = infos.get(i % 10), actual = taskNotif.getTaskInformation();
+      assertFalse(taskNotif.isUserNotification());
+      assertEquals(expected.toString(), actual.toString());
+      assertEquals(expected.getTimestamp(), actual.getTimestamp());
+    }
+  }
+
+  /**
+   * Test that the node task monitor sends the executed tasks in batches, either when a batch is full or when the batch time has elapsed.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testNodeTaskMonitorBatching() throws Exception {
+    JPPFConfiguration.set(JPPFProperties.NODE_TASK_NOTIFICATIONS_BATCH_SIZE, 10).set(JPPFProperties.NODE_TASK_NOTIFICATIONS_BATCH_TIME, 200L);
+    try {
+      final JPPFNodeTaskMonitor monitor = new JPPFNodeTaskMonitor(null, JPPFNodeTaskMonitorMBean.MBEAN_NAME);
+      final BlockingQueue<Notification> received = new LinkedBlockingQueue<>();
+      monitor.addNotificationListener((notif, handback) -> received.offer(notif), null, null);
+      for (int i=0; i<25; i++) monitor.taskExecuted(new TaskExecutionEvent(new MyTask("task" + i), "job", "job", i, i, false));
+      for (final int expectedSize: new int[] { 10, 10, 5 }) {
+        final Notification notif = received.poll(5000L, TimeUnit.MILLISECONDS);
+        assertTrue(String.valueOf(notif), notif instanceof TaskExecutionBatchNotification);
+        assertEquals(expectedSize, ((TaskExecutionBatchNotification) notif).size());
+      }
+      assertEquals(25, (int) monitor.getTotalTasksExecuted());
+      monitor.taskExecuted(new TaskExecutionEvent(new MyTask("task25"), "job", "job", 0L, 0L, false));
+      monitor.taskNotification(new TaskExecutionEvent(new MyTask("task26"), "job", "job", "user object", true));
+      final TaskExecutionBatchNotification batch = (TaskExecutionBatchNotification) received.poll(5000L, TimeUnit.MILLISECONDS);
+      assertEquals("task25", batch.getTaskIds()[0]);
+      final TaskExecutionNotification userNotif = (TaskExecutionNotification) received.poll(5000L, TimeUnit.MILLISECONDS);
+      assertTrue(userNotif.isUserNotification());
+      assertEquals("user object", userNotif.getUserData());
+    } finally {
+      JPPFConfiguration.remove(JPPFProperties.NODE_TASK_NOTIFICATIONS_BATCH_SIZE);
+      JPPFConfiguration.remove(JPPFProperties.NODE_TASK_NOTIFICATIONS_BATCH_TIME);
+    }
+  }
+
+  /**
+   * A simple task with an id.
+   */
+  private static class MyTask extends AbstractTask<String> {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param id the task id.
+     */
+    MyTask(final String id) {
+      setId(id);
+    }
+  }
+}
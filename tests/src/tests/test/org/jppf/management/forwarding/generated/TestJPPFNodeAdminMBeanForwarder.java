@@ -20,6 +20,7 @@ package test.org.jppf.management.forwarding.generated;
 
 import java.util.Map;
 import org.jppf.classloader.DelegationModel;
+import org.jppf.management.DataProviderCacheInfo;
 import org.jppf.management.JPPFNodeAdminMBean;
 import org.jppf.management.JPPFNodeState;
 import org.jppf.management.JPPFSystemInformation;
@@ -103,6 +104,16 @@ public class TestJPPFNodeAdminMBeanForwarder extends AbstractTestForwarderProxy
     checkResults(results, NodePendingAction.class);
   }
 
+  /**
+   * Test invoking the {@code dataProviderCacheInfo} operation for all selected nodes.
+   * @throws Exception if any error occurs.
+   */
+  @Test
+  public void testDataProviderCacheInfo() throws Exception {
+    final ResultsMap<String, DataProviderCacheInfo> results = proxy.dataProviderCacheInfo(NodeSelector.ALL_NODES);
+    checkResults(results, DataProviderCacheInfo.class);
+  }
+
   /**
    * Test invoking the {@code cancelJob} operation for all selected nodes.
    * @throws Exception if any error occurs.
@@ -0,0 +1,88 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.node;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jppf.server.node.ExecutionSlots;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link ExecutionSlots}.
+ */
+public class TestExecutionSlots extends BaseTest {
+  /**
+   * Test that a slot is reserved only when one is available, and that releasing a slot more than once, or a slot that was never reserved, has no effect.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testAcquireAndRelease() throws Exception {
+    final ExecutionSlots slots = new ExecutionSlots(2);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      assertTrue(slots.acquire("a", () -> false));
+      assertTrue(slots.acquire("b", () -> false));
+      final Future<Boolean> future = executor.submit(() -> slots.acquire("c", () -> false));
+      Thread.sleep(200L);
+      assertFalse(future.isDone());
+      assertFalse(slots.release("x"));
+      assertTrue(slots.release("a"));
+      assertTrue(future.get());
+      assertFalse(slots.release("a"));
+      assertEquals(2, slots.getReservedSlots());
+      assertTrue(slots.release("b"));
+      assertTrue(slots.release("c"));
+      assertEquals(0, slots.getReservedSlots());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that no slot is reserved for a bundle cancelled while waiting, or when the slots are closed while waiting.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testCancelAndClose() throws Exception {
+    final ExecutionSlots slots = new ExecutionSlots(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      assertTrue(slots.acquire("a", () -> false));
+      final AtomicBoolean cancelled = new AtomicBoolean(false);
+      final Future<Boolean> cancelledFuture = executor.submit(() -> slots.acquire("b", cancelled::get));
+      final Future<Boolean> closedFuture = executor.submit(() -> slots.acquire("c", () -> false));
+      Thread.sleep(200L);
+      cancelled.set(true);
+      assertFalse(cancelledFuture.get());
+      assertFalse(closedFuture.isDone());
+      slots.close();
+      assertFalse(closedFuture.get());
+      assertEquals(1, slots.getReservedSlots());
+      assertFalse(slots.release("b"));
+      assertTrue(slots.release("a"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -181,4 +181,58 @@ public class TestTaskDependencies extends BaseTest {
     final List<Integer> sorted = graph.topologicalSortDFS();
     print(false, false, "topoplogical sort -> %s", sorted);
   }
+
+  /**
+   * Test that the available tasks on the longest remaining path of the graph are returned first.
+   * @throws Exception if any error occurs.
+   */
+  @Test
+  public void testCriticalPathOrder() throws Exception {
+    final MyTask[] tasks = new MyTask[7];
+    for (int i=0; i<tasks.length; i++) tasks[i] = new MyTask("T" + i, i);
+    tasks[0].dependsOn(tasks[1].dependsOn(tasks[2]));
+    tasks[6].dependsOn(tasks[5]);
+    TaskGraph graph = TaskGraphHelper.graphOf(Arrays.asList(tasks));
+    print(false, false, "graph = %s", graph);
+    assertEquals(4, graph.getAvailableCount());
+    assertArrayEquals(new int[] { 2, 5, 3, 4 }, graph.nextAvailableNodes(10, null));
+    assertArrayEquals(new int[] { 2, 5 }, graph.nextAvailableNodes(2, null));
+    assertArrayEquals(new int[] { 5, 4 }, graph.nextAvailableNodes(10, pos -> (pos == 2) || (pos == 3)));
+    graph.nodeDone(5);
+    graph = copyGraph(graph, new DefaultJavaSerialization());
+    assertArrayEquals(new int[] { 2, 3, 4, 6 }, graph.nextAvailableNodes(10, null));
+    graph.nodeDone(2);
+    assertArrayEquals(new int[] { 1, 3, 4, 6 }, graph.nextAvailableNodes(10, null));
+  }
+
+  /**
+   * Test the execution of a graph where a single task depends on a large number of tasks.
+   * @throws Exception if any error occurs.
+   */
+  @Test
+  public void testLargeFanIn() throws Exception {
+    final int nbTasks = 100_000;
+    final Map<Integer, Node> nodes = new HashMap<>(nbTasks + 1);
+    final Node last = new Node(nbTasks, false, null);
+    nodes.put(nbTasks, last);
+    for (int i=0; i<nbTasks; i++) {
+      final Node node = new Node(i, false, null);
+      nodes.put(i, node);
+      last.addDependency(node);
+    }
+    final TaskGraph graph = new TaskGraph(nodes);
+    assertEquals(nbTasks, graph.getAvailableCount());
+    assertTrue(graph.isDependendOn(0));
+    assertFalse(graph.isDependendOn(nbTasks));
+    for (int i=nbTasks-1; i>=0; i--) {
+      graph.nodeDone(i);
+      graph.nodeDone(i);
+    }
+    assertEquals(nbTasks, graph.getDoneCount());
+    assertArrayEquals(new int[] { nbTasks }, graph.nextAvailableNodes(10, null));
+    assertEquals(nbTasks, graph.nodeAt(nbTasks).getDependencies().size());
+    graph.nodeDone(nbTasks);
+    assertTrue(graph.isDone());
+    assertEquals(0, graph.getAvailableCount());
+  }
 }
@@ -0,0 +1,157 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.scheduling;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.scheduling.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link TimingWheel} and {@link JPPFScheduleHandler} when it uses a timing wheel.
+ */
+public class TestTimingWheel extends BaseTest {
+  /**
+   * Test that actions are run no earlier than their deadline and no later than a tick after it, and that cancelled actions are not run.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testScheduleAndCancel() throws Exception {
+    final TimingWheel wheel = new TimingWheel("TestTimingWheel", 5L, 16);
+    try {
+      final int nbTimeouts = 1000;
+      final CountDownLatch latch = new CountDownLatch(nbTimeouts / 2);
+      final AtomicInteger early = new AtomicInteger(0);
+      final TimingWheel.Timeout[] timeouts = new TimingWheel.Timeout[nbTimeouts];
+      for (int i=0; i<nbTimeouts; i++) {
+        // delays span several revolutions of the wheel
+        final long delay = 200L + (i % 200);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        timeouts[i] = wheel.schedule(() -> {
+          if (System.nanoTime() < deadline) early.incrementAndGet();
+          latch.countDown();
+        }, delay, TimeUnit.MILLISECONDS);
+      }
+      for (int i=1; i<nbTimeouts; i+=2) assertTrue(timeouts[i].cancel(false));
+      assertEquals(nbTimeouts / 2, wheel.getPendingCount());
+      assertTrue(latch.await(5L, TimeUnit.SECONDS));
+      for (int i=0; i<nbTimeouts; i+=2) timeouts[i].get(1L, TimeUnit.SECONDS);
+      assertEquals(0, early.get());
+      assertEquals(0L, wheel.getPendingCount());
+      assertEquals(nbTimeouts / 2, wheel.getFiredCount());
+      for (int i=0; i<nbTimeouts; i++) {
+        assertTrue(timeouts[i].isDone());
+        assertEquals(i % 2 == 1, timeouts[i].isCancelled());
+        assertFalse(timeouts[i].cancel(false));
+      }
+    } finally {
+      wheel.stop();
+    }
+  }
+
+  /**
+   * Test that a timing wheel resumes ticking after it parked with no pending timeout.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testScheduleAfterIdle() throws Exception {
+    final TimingWheel wheel = new TimingWheel("TestTimingWheel", 5L, 16);
+    try {
+      for (int i=0; i<3; i++) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(latch::countDown, 20L, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2L, TimeUnit.SECONDS));
+        Thread.sleep(150L);
+      }
+      assertEquals(3L, wheel.getFiredCount());
+    } finally {
+      wheel.stop();
+    }
+  }
+
+  /**
+   * Test that stopping a timing wheel cancels its pending timeouts, releasing the threads waiting for them, and rejects new ones.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testStopCancelsPending() throws Exception {
+    final TimingWheel wheel = new TimingWheel("TestTimingWheel", 5L, 16);
+    final AtomicInteger fired = new AtomicInteger(0);
+    final TimingWheel.Timeout scheduled = wheel.schedule(fired::incrementAndGet, 1L, TimeUnit.HOURS);
+    // let the worker move the first timeout into its slot, so both a slotted and a newly scheduled timeout are pending
+    Thread.sleep(50L);
+    final TimingWheel.Timeout recent = wheel.schedule(fired::incrementAndGet, 1L, TimeUnit.HOURS);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<?> waiter = executor.submit(() -> scheduled.get());
+      wheel.stop();
+      try {
+        waiter.get(5L, TimeUnit.SECONDS);
+        fail("waiting for a timeout cancelled by stop() should raise a CancellationException");
+      } catch (final ExecutionException e) {
+        assertTrue(e.getCause() instanceof CancellationException);
+      }
+      for (final TimingWheel.Timeout timeout: new TimingWheel.Timeout[] { scheduled, recent }) {
+        try {
+          timeout.get(5L, TimeUnit.SECONDS);
+          fail("a timeout cancelled by stop() should raise a CancellationException");
+        } catch (@SuppressWarnings("unused") final CancellationException e) {
+        }
+        assertTrue(timeout.isCancelled());
+      }
+      assertEquals(0L, wheel.getPendingCount());
+      assertEquals(0, fired.get());
+      try {
+        wheel.schedule(fired::incrementAndGet, 1L, TimeUnit.MILLISECONDS);
+        fail("scheduling on a stopped wheel should be rejected");
+      } catch (@SuppressWarnings("unused") final RejectedExecutionException e) {
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test the pending and fired counts of a schedule handler which uses a timing wheel.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testScheduleHandlerCounts() throws Exception {
+    final JPPFScheduleHandler handler = new JPPFScheduleHandler("TestTimingWheelHandler", true);
+    try {
+      final CountDownLatch latch = new CountDownLatch(5);
+      for (int i=0; i<10; i++) handler.scheduleAction("key" + i, new JPPFSchedule(50L), latch::countDown);
+      assertEquals(10L, handler.getPendingCount());
+      for (int i=5; i<10; i++) handler.cancelAction("key" + i);
+      assertEquals(5L, handler.getPendingCount());
+      assertTrue(latch.await(5L, TimeUnit.SECONDS));
+      Thread.sleep(50L);
+      assertEquals(0L, handler.getPendingCount());
+      assertEquals(5L, handler.getFiredCount());
+      for (int i=0; i<10; i++) assertFalse(handler.hasAction("key" + i));
+    } finally {
+      handler.clear(true);
+    }
+  }
+}
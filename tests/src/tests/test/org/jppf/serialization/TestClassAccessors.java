@@ -0,0 +1,376 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.serialization;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+
+import org.jppf.serialization.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the method handle based field accessors used by the default JPPF serialization.
+ * Since the accessors are internal to the serialization package, they are accessed through reflection.
+ */
+public class TestClassAccessors extends BaseTest {
+  /**
+   * Test that all the kinds of fields, including final, inherited private and shadowed fields, survive a round trip, and that transient fields are not serialized.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testFieldsRoundTrip() throws Exception {
+    final AllTypes source = new AllTypes(7, "final");
+    source.z = true;
+    source.b = (byte) -3;
+    source.c = '\u20ac';
+    source.s = Short.MIN_VALUE;
+    source.i = Integer.MAX_VALUE;
+    source.j = Long.MIN_VALUE;
+    source.f = 1.5f;
+    source.d = Math.PI;
+    source.ref = Integer.valueOf(12);
+    source.transientInt = 99;
+    source.value = 5;
+    source.setBaseValues(11, "base");
+    final AllTypes result = (AllTypes) roundTrip(source);
+    assertTrue(result.z);
+    assertEquals(source.b, result.b);
+    assertEquals(source.c, result.c);
+    assertEquals(source.s, result.s);
+    assertEquals(source.i, result.i);
+    assertEquals(source.j, result.j);
+    assertEquals(source.f, result.f, 0f);
+    assertEquals(source.d, result.d, 0d);
+    assertEquals(source.ref, result.ref);
+    assertEquals(7, result.finalInt);
+    assertEquals("final", result.finalString);
+    assertEquals(0, result.transientInt);
+    assertEquals(5, result.value);
+    assertEquals(11, result.getBaseValue());
+    assertEquals("base", result.getBaseString());
+  }
+
+  /**
+   * Test that the {@code writeObject()} and {@code readObject()} methods of a class are invoked, including for a superclass without such methods.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testReadWriteObjectHooks() throws Exception {
+    final WithHooks source = new WithHooks();
+    source.value = 21;
+    source.setBaseValues(3, "hooks");
+    final WithHooks result = (WithHooks) roundTrip(source);
+    assertEquals(21, result.value);
+    assertEquals(42, result.restored);
+    assertEquals(3, result.getBaseValue());
+    assertEquals("hooks", result.getBaseString());
+  }
+
+  /**
+   * Test that instance fields, including final ones, are accessed through method handles with their exact primitive type.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testMethodHandleAccess() throws Exception {
+    final AllTypes obj = new AllTypes(1, "a");
+    final Object finalAccessor = accessor(AllTypes.class, "finalInt");
+    assertNotNull(handle(finalAccessor, "getter"));
+    assertNotNull(handle(finalAccessor, "setter"));
+    invoke(finalAccessor, "setInt", int.class, obj, 17);
+    assertEquals(17, invoke(finalAccessor, "getInt", null, obj, null));
+    checkPrimitiveAccess(AllTypes.class, obj);
+    final Object refAccessor = accessor(AllTypes.class, "ref");
+    invoke(refAccessor, "set", Object.class, obj, "ref");
+    assertEquals("ref", invoke(refAccessor, "get", null, obj, null));
+  }
+
+  /**
+   * Test the reflection fallback, with static fields for which no method handle of the expected type can be created.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testReflectionFallback() throws Exception {
+    for (final String name: new String[] { "z", "b", "c", "s", "i", "j", "f", "d", "ref" }) {
+      final Object accessor = accessor(Statics.class, name);
+      assertNull(name, handle(accessor, "getter"));
+      assertNull(name, handle(accessor, "setter"));
+    }
+    checkPrimitiveAccess(Statics.class, null);
+    final Object refAccessor = accessor(Statics.class, "ref");
+    invoke(refAccessor, "set", Object.class, null, "static");
+    assertEquals("static", invoke(refAccessor, "get", null, null, null));
+    assertEquals("static", Statics.ref);
+    final Object constantAccessor = accessor(Statics.class, "CONSTANT");
+    assertEquals(42, invoke(constantAccessor, "getInt", null, null, null));
+    try {
+      invoke(constantAccessor, "setInt", int.class, null, 43);
+      fail("setting a static final field should fail");
+    } catch (final InvocationTargetException e) {
+      assertTrue(e.getCause() instanceof IllegalAccessException);
+    }
+  }
+
+  /**
+   * Write and read the fields {@code z, b, c, s, i, j, f, d} of the specified class through their typed accessors.
+   * @param clazz the class declaring the fields.
+   * @param obj the object holding the fields, or {@code null} for static fields.
+   * @throws Exception if any error occurs.
+   */
+  private static void checkPrimitiveAccess(final Class<?> clazz, final Object obj) throws Exception {
+    final Object[][] values = {
+      { "z", "Boolean", boolean.class, true }, { "b", "Byte", byte.class, (byte) 0x7f }, { "c", "Char", char.class, 'x' }, { "s", "Short", short.class, (short) -2 },
+      { "i", "Int", int.class, -123_456 }, { "j", "Long", long.class, 1L << 40 }, { "f", "Float", float.class, -0.25f }, { "d", "Double", double.class, 1e100d }
+    };
+    for (final Object[] v: values) {
+      final Object accessor = accessor(clazz, (String) v[0]);
+      invoke(accessor, "set" + v[1], (Class<?>) v[2], obj, v[3]);
+      assertEquals((String) v[0], v[3], invoke(accessor, "get" + v[1], null, obj, null));
+      final Field field = clazz.getDeclaredField((String) v[0]);
+      field.setAccessible(true);
+      assertEquals((String) v[0], v[3], field.get(obj));
+    }
+  }
+
+  /**
+   * Get the accessor for the specified field.
+   * @param clazz the class declaring the field.
+   * @param name the name of the field.
+   * @return the {@code ClassAccessors.FieldAccessor}.
+   * @throws Exception if any error occurs.
+   */
+  private static Object accessor(final Class<?> clazz, final String name) throws Exception {
+    final Class<?> accessorsClass = Class.forName("org.jppf.serialization.ClassAccessors");
+    final Method forClass = accessorsClass.getDeclaredMethod("forClass", Class.class);
+    forClass.setAccessible(true);
+    final Method getFieldAccessor = accessorsClass.getDeclaredMethod("getFieldAccessor", Field.class);
+    getFieldAccessor.setAccessible(true);
+    return getFieldAccessor.invoke(forClass.invoke(null, clazz), clazz.getDeclaredField(name));
+  }
+
+  /**
+   * Get a method handle held by the specified accessor.
+   * @param accessor the accessor.
+   * @param name the name of the method handle field, either "getter" or "setter".
+   * @return the method handle, or {@code null} if the accessor falls back to reflection.
+   * @throws Exception if any error occurs.
+   */
+  private static Object handle(final Object accessor, final String name) throws Exception {
+    final Field field = accessor.getClass().getDeclaredField(name);
+    field.setAccessible(true);
+    return field.get(accessor);
+  }
+
+  /**
+   * Invoke a get or set method of the specified accessor.
+   * @param accessor the accessor.
+   * @param name the name of the method.
+   * @param valueType the type of the value to set, or {@code null} for a get method.
+   * @param obj the object holding the field.
+   * @param value the value to set.
+   * @return the value returned by the method.
+   * @throws Exception if any error occurs.
+   */
+  private static Object invoke(final Object accessor, final String name, final Class<?> valueType, final Object obj, final Object value) throws Exception {
+    final Method method = (valueType == null) ? accessor.getClass().getDeclaredMethod(name, Object.class) : accessor.getClass().getDeclaredMethod(name, Object.class, valueType);
+    method.setAccessible(true);
+    return (valueType == null) ? method.invoke(accessor, obj) : method.invoke(accessor, obj, value);
+  }
+
+  /**
+   * Serialize then deserialize the specified object with the JPPF serialization.
+   * @param o the object to serialize.
+   * @return the deserialized object.
+   * @throws Exception if any error occurs.
+   */
+  private static Object roundTrip(final Object o) throws Exception {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (final ObjectOutputStream out = new JPPFObjectOutputStream(baos)) {
+      out.writeObject(o);
+    }
+    try (final ObjectInputStream in = new JPPFObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+      return in.readObject();
+    }
+  }
+
+  /**
+   * A superclass with private fields.
+   */
+  public static class Base implements Serializable {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * A private field shadowed in the subclass.
+     */
+    private int value;
+    /**
+     * A private reference field.
+     */
+    private String baseString;
+
+    /**
+     * Set the private fields.
+     * @param value the int field value.
+     * @param baseString the string field value.
+     */
+    public void setBaseValues(final int value, final String baseString) {
+      this.value = value;
+      this.baseString = baseString;
+    }
+
+    /**
+     * @return the private int field.
+     */
+    public int getBaseValue() {
+      return value;
+    }
+
+    /**
+     * @return the private string field.
+     */
+    public String getBaseString() {
+      return baseString;
+    }
+  }
+
+  /**
+   * A class with fields of all kinds.
+   */
+  public static class AllTypes extends Base {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /** */
+    boolean z;
+    /** */
+    byte b;
+    /** */
+    char c;
+    /** */
+    short s;
+    /** */
+    int i;
+    /** */
+    long j;
+    /** */
+    float f;
+    /** */
+    double d;
+    /** */
+    Object ref;
+    /**
+     * A final primitive field.
+     */
+    final int finalInt;
+    /**
+     * A final reference field.
+     */
+    final String finalString;
+    /**
+     * A transient field, not serialized.
+     */
+    transient int transientInt;
+    /**
+     * Shadows the field of the superclass.
+     */
+    int value;
+
+    /**
+     * @param finalInt a final primitive field.
+     * @param finalString a final reference field.
+     */
+    public AllTypes(final int finalInt, final String finalString) {
+      this.finalInt = finalInt;
+      this.finalString = finalString;
+    }
+  }
+
+  /**
+   * A class with {@code writeObject()} and {@code readObject()} methods.
+   */
+  public static class WithHooks extends Base {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * A serialized field.
+     */
+    int value;
+    /**
+     * A transient field restored by {@code readObject()}.
+     */
+    transient int restored;
+
+    /**
+     * Write the fields, followed by additional data.
+     * @param out the stream to write to.
+     * @throws IOException if any I/O error occurs.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+      out.defaultWriteObject();
+      out.writeInt(2 * value);
+    }
+
+    /**
+     * Read the fields and the additional data.
+     * @param in the stream to read from.
+     * @throws IOException if any I/O error occurs.
+     * @throws ClassNotFoundException if a class cannot be found.
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      restored = in.readInt();
+    }
+  }
+
+  /**
+   * A class with static fields, which cannot be accessed through method handles of instance field type.
+   */
+  public static class Statics {
+    /**
+     * A constant.
+     */
+    static final int CONSTANT = 42;
+    /** */
+    static boolean z;
+    /** */
+    static byte b;
+    /** */
+    static char c;
+    /** */
+    static short s;
+    /** */
+    static int i;
+    /** */
+    static long j;
+    /** */
+    static float f;
+    /** */
+    static double d;
+    /** */
+    static Object ref;
+  }
+}
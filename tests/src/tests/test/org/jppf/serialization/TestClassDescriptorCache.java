@@ -0,0 +1,293 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.serialization;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.serialization.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the process-wide cache of class descriptors used by the default JPPF serialization.
+ * Each test loads its classes with new class loaders, so that their descriptors are not already cached by a previous test.
+ */
+public class TestClassDescriptorCache extends BaseTest {
+  /**
+   * Test that the descriptors created by a serialization stream are reused by the next streams.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testReuseAcrossStreams() throws Exception {
+    final Object graph = deserialize(serialize(newGraph()), newLoader());
+    final ClassDescriptorCacheStatistics before = DefaultJPPFSerialization.getSerializationCacheStatistics();
+    final byte[] bytes = serialize(graph);
+    final ClassDescriptorCacheStatistics afterFirst = DefaultJPPFSerialization.getSerializationCacheStatistics();
+    assertTrue(afterFirst.getAdditions() > before.getAdditions());
+    final Object cd = cachedDescriptor("SERIALIZATION", graph.getClass());
+    assertNotNull(cd);
+    assertArrayEquals(bytes, serialize(graph));
+    final ClassDescriptorCacheStatistics afterSecond = DefaultJPPFSerialization.getSerializationCacheStatistics();
+    assertEquals(afterFirst.getAdditions(), afterSecond.getAdditions());
+    assertTrue(afterSecond.getHits() > afterFirst.getHits());
+    assertSame(cd, cachedDescriptor("SERIALIZATION", graph.getClass()));
+  }
+
+  /**
+   * Test that the serialization and deserialization descriptors of a class are cached separately.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testSeparateCaches() throws Exception {
+    final ClassLoader loader = newLoader();
+    final Object graph = deserialize(serialize(newGraph()), loader);
+    final Class<?> clazz = graph.getClass();
+    final Object deserializationCd = cachedDescriptor("DESERIALIZATION", clazz);
+    assertNotNull(deserializationCd);
+    assertNull(cachedDescriptor("SERIALIZATION", clazz));
+    final long deserializationAdditions = DefaultJPPFSerialization.getDeserializationCacheStatistics().getAdditions();
+    serialize(graph);
+    assertEquals(deserializationAdditions, DefaultJPPFSerialization.getDeserializationCacheStatistics().getAdditions());
+    final Object serializationCd = cachedDescriptor("SERIALIZATION", clazz);
+    assertNotNull(serializationCd);
+    assertNotSame(deserializationCd, serializationCd);
+    assertSame(deserializationCd, cachedDescriptor("DESERIALIZATION", clazz));
+  }
+
+  /**
+   * Test that classes with the same name, loaded by distinct class loaders, have distinct descriptors.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testDistinctClassLoaders() throws Exception {
+    final byte[] bytes = serialize(newGraph());
+    final Object graph1 = deserialize(bytes, newLoader()), graph2 = deserialize(bytes, newLoader());
+    final Class<?> class1 = graph1.getClass(), class2 = graph2.getClass();
+    assertEquals(class1.getName(), class2.getName());
+    assertNotSame(class1, class2);
+    checkGraph(graph1, class1.getClassLoader());
+    checkGraph(graph2, class2.getClassLoader());
+    for (final String cache: new String[] { "DESERIALIZATION", "SERIALIZATION" }) {
+      if ("SERIALIZATION".equals(cache)) {
+        serialize(graph1);
+        serialize(graph2);
+      }
+      final Object cd1 = cachedDescriptor(cache, class1), cd2 = cachedDescriptor(cache, class2);
+      assertNotNull(cd1);
+      assertNotNull(cd2);
+      assertNotSame(cd1, cd2);
+      assertSame(class1, descriptorClass(cd1));
+      assertSame(class2, descriptorClass(cd2));
+    }
+  }
+
+  /**
+   * Test that several threads which serialize and deserialize the same classes for the first time concurrently get consistent results.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 30000)
+  public void testConcurrentFirstUse() throws Exception {
+    final int nbThreads = 8;
+    final byte[] bytes = serialize(newGraph());
+    final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+    try {
+      for (int n=0; n<20; n++) {
+        final ClassLoader loader = newLoader();
+        final CyclicBarrier barrier = new CyclicBarrier(nbThreads);
+        final List<Future<?>> futures = new ArrayList<>(nbThreads);
+        for (int i=0; i<nbThreads; i++) {
+          futures.add(executor.submit(() -> {
+            barrier.await();
+            final Object graph = deserialize(bytes, loader);
+            checkGraph(graph, loader);
+            barrier.await();
+            checkGraph(deserialize(serialize(graph), loader), loader);
+            return null;
+          }));
+        }
+        for (final Future<?> future: futures) future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return a new graph of objects to serialize.
+   */
+  private static Node newGraph() {
+    final Leaf leaf = new Leaf();
+    leaf.value = 1234567890123L;
+    leaf.data = new double[] { 1d, 2d, 3d };
+    final Node second = new Node();
+    second.id = 2;
+    second.name = "second";
+    second.leaf = leaf;
+    final Node first = new Node();
+    first.id = 1;
+    first.name = "first";
+    first.next = second;
+    first.leaf = leaf;
+    return first;
+  }
+
+  /**
+   * Check that the specified object is a deserialized copy of the graph returned by {@link #newGraph()}, whose classes were loaded by the specified class loader.
+   * @param graph the graph to check.
+   * @param loader the expected class loader.
+   * @throws Exception if any error occurs.
+   */
+  private static void checkGraph(final Object graph, final ClassLoader loader) throws Exception {
+    assertSame(loader, graph.getClass().getClassLoader());
+    assertEquals(Node.class.getName(), graph.getClass().getName());
+    final Class<?> nodeClass = graph.getClass();
+    final Object second = nodeClass.getField("next").get(graph);
+    assertSame(nodeClass, second.getClass());
+    assertEquals(1, nodeClass.getField("id").getInt(graph));
+    assertEquals("first", nodeClass.getField("name").get(graph));
+    assertEquals(2, nodeClass.getField("id").getInt(second));
+    assertEquals("second", nodeClass.getField("name").get(second));
+    assertNull(nodeClass.getField("next").get(second));
+    final Object leaf = nodeClass.getField("leaf").get(graph);
+    assertSame(leaf, nodeClass.getField("leaf").get(second));
+    assertSame(loader, leaf.getClass().getClassLoader());
+    assertEquals(1234567890123L, leaf.getClass().getField("value").getLong(leaf));
+    assertArrayEquals(new double[] { 1d, 2d, 3d }, (double[]) leaf.getClass().getField("data").get(leaf), 0d);
+  }
+
+  /**
+   * Create a class loader which loads the test classes itself, rather than delegating to the class loader of this test.
+   * @return a new {@link ClassLoader}.
+   */
+  private static ClassLoader newLoader() {
+    final URL location = TestClassDescriptorCache.class.getProtectionDomain().getCodeSource().getLocation();
+    return new URLClassLoader(new URL[] { location }, null);
+  }
+
+  /**
+   * Get the descriptor of the specified class from one of the process-wide caches.
+   * @param cacheName the name of the cache, either "SERIALIZATION" or "DESERIALIZATION".
+   * @param clazz the class whose descriptor to get.
+   * @return the {@code ClassDescriptor}, or {@code null} if there is none in the cache.
+   * @throws Exception if any error occurs.
+   */
+  private static Object cachedDescriptor(final String cacheName, final Class<?> clazz) throws Exception {
+    final Class<?> cacheClass = Class.forName("org.jppf.serialization.ClassDescriptorCache");
+    final Field field = cacheClass.getDeclaredField(cacheName);
+    field.setAccessible(true);
+    final Method get = cacheClass.getDeclaredMethod("get", Class.class);
+    get.setAccessible(true);
+    return get.invoke(field.get(null), clazz);
+  }
+
+  /**
+   * Get the class described by the specified descriptor.
+   * @param cd the {@code ClassDescriptor}.
+   * @return the described class.
+   * @throws Exception if any error occurs.
+   */
+  private static Class<?> descriptorClass(final Object cd) throws Exception {
+    final Field field = cd.getClass().getDeclaredField("clazz");
+    field.setAccessible(true);
+    return (Class<?>) field.get(cd);
+  }
+
+  /**
+   * Serialize the specified object with the JPPF serialization.
+   * @param o the object to serialize.
+   * @return the serialized object.
+   * @throws Exception if any error occurs.
+   */
+  private static byte[] serialize(final Object o) throws Exception {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (final ObjectOutputStream out = new JPPFObjectOutputStream(baos)) {
+      out.writeObject(o);
+    }
+    return baos.toByteArray();
+  }
+
+  /**
+   * Deserialize an object with the JPPF serialization, loading its classes with the specified class loader.
+   * @param bytes the serialized object.
+   * @param loader the class loader to use.
+   * @return the deserialized object.
+   * @throws Exception if any error occurs.
+   */
+  private static Object deserialize(final byte[] bytes, final ClassLoader loader) throws Exception {
+    final Thread thread = Thread.currentThread();
+    final ClassLoader previous = thread.getContextClassLoader();
+    thread.setContextClassLoader(loader);
+    try (final ObjectInputStream in = new JPPFObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    } finally {
+      thread.setContextClassLoader(previous);
+    }
+  }
+
+  /**
+   * A node of the serialized graph.
+   */
+  public static class Node implements Serializable {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * An int field.
+     */
+    public int id;
+    /**
+     * A string field.
+     */
+    public String name;
+    /**
+     * The next node, if any.
+     */
+    public Node next;
+    /**
+     * A leaf shared by the nodes.
+     */
+    public Leaf leaf;
+  }
+
+  /**
+   * A leaf of the serialized graph.
+   */
+  public static class Leaf implements Serializable {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * A long field.
+     */
+    public long value;
+    /**
+     * An array field.
+     */
+    public double[] data;
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.serialization;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.util.*;
+
+import org.jppf.serialization.*;
+import org.jppf.utils.JPPFConfiguration;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the class handles written by the default JPPF serialization when {@code jppf.serialization.class.handles = true}.
+ */
+public class TestSerializationClassHandles extends BaseTest {
+  /**
+   * Test that a graph holding many instances of the same classes is deserialized identically, and is smaller, with class handles.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testRepeatedClasses() throws Exception {
+    final List<Object> list = new ArrayList<>();
+    for (int i=0; i<1000; i++) list.add((i % 2 == 0) ? new Item(i, "item-" + i) : new OtherItem(i));
+    final byte[] withoutHandles = serialize(list, false);
+    final byte[] withHandles = serialize(list, true);
+    assertTrue(withHandles.length < withoutHandles.length);
+    for (final byte[] bytes: new byte[][] { withoutHandles, withHandles }) {
+      @SuppressWarnings("unchecked")
+      final List<Object> result = (List<Object>) deserialize(bytes);
+      assertEquals(list, result);
+    }
+  }
+
+  /**
+   * Test that a graph holding more than 127 distinct classes, whose class handles no longer fit in a single byte, is deserialized identically.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testClassHandlesAbove127() throws Exception {
+    // each dimension of a nested array is a distinct class: String[], String[][], etc.
+    final int nbDimensions = 200;
+    final int[] dims = new int[nbDimensions];
+    Arrays.fill(dims, 1);
+    final Object array = Array.newInstance(String.class, dims);
+    Object innermost = array;
+    for (int i=1; i<nbDimensions; i++) innermost = Array.get(innermost, 0);
+    Array.set(innermost, 0, "value");
+    final List<Object> list = new ArrayList<>();
+    list.add(array);
+    for (int i=0; i<10; i++) list.add(new Item(i, "item-" + i));
+    @SuppressWarnings("unchecked")
+    final List<Object> result = (List<Object>) deserialize(serialize(list, true));
+    assertEquals(list.size(), result.size());
+    Object o = result.get(0);
+    for (int i=1; i<nbDimensions; i++) {
+      assertEquals(nbDimensions - i + 1, o.getClass().getName().lastIndexOf('[') + 1);
+      o = Array.get(o, 0);
+    }
+    assertEquals("value", Array.get(o, 0));
+    assertEquals(list.subList(1, list.size()), result.subList(1, result.size()));
+  }
+
+  /**
+   * Test the encoding of the class handles.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testUnsignedVarInt() throws Exception {
+    final int[] values = { 0, 1, 127, 128, 16_383, 16_384, 2_097_151, 2_097_152, Integer.MAX_VALUE, -1 };
+    final int[] sizes  = { 1, 1,   1,   2,      2,      3,         3,         4,                 5,  5 };
+    final byte[] buf = new byte[16];
+    for (int i=0; i<values.length; i++) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      assertEquals(sizes[i], SerializationUtils.writeUnsignedVarInt(out, values[i], buf));
+      assertEquals(sizes[i], out.size());
+      assertEquals(values[i], SerializationUtils.readUnsignedVarInt(new ByteArrayInputStream(out.toByteArray())));
+    }
+  }
+
+  /**
+   * Serialize the specified object with the JPPF serialization.
+   * @param o the object to serialize.
+   * @param useClassHandles whether to use class handles.
+   * @return the serialized object.
+   * @throws Exception if any error occurs.
+   */
+  private static byte[] serialize(final Object o, final boolean useClassHandles) throws Exception {
+    final boolean previous = JPPFConfiguration.get(JPPFProperties.SERIALIZATION_CLASS_HANDLES);
+    JPPFConfiguration.set(JPPFProperties.SERIALIZATION_CLASS_HANDLES, useClassHandles);
+    try {
+      final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      try (final ObjectOutputStream out = new JPPFObjectOutputStream(baos)) {
+        out.writeObject(o);
+      }
+      return baos.toByteArray();
+    } finally {
+      JPPFConfiguration.set(JPPFProperties.SERIALIZATION_CLASS_HANDLES, previous);
+    }
+  }
+
+  /**
+   * Deserialize an object with the JPPF serialization.
+   * @param bytes the serialized object.
+   * @return the deserialized object.
+   * @throws Exception if any error occurs.
+   */
+  private static Object deserialize(final byte[] bytes) throws Exception {
+    try (final ObjectInputStream in = new JPPFObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    }
+  }
+
+  /**
+   * A serializable class with a few fields.
+   */
+  public static class Item implements Serializable {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * An int field.
+     */
+    final int id;
+    /**
+     * A string field.
+     */
+    final String name;
+
+    /**
+     * @param id an int field.
+     * @param name a string field.
+     */
+    public Item(final int id, final String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof Item)) return false;
+      final Item other = (Item) obj;
+      return (id == other.id) && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return id;
+    }
+  }
+
+  /**
+   * Another serializable class.
+   */
+  public static class OtherItem implements Serializable {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * A long field.
+     */
+    final long value;
+
+    /**
+     * @param value a long field.
+     */
+    public OtherItem(final long value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return (obj instanceof OtherItem) && (value == ((OtherItem) obj).value);
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) value;
+    }
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.nio.nodeserver;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.server.JPPFDriver;
+import org.jppf.server.node.DataProviderCache;
+import org.jppf.server.protocol.*;
+import org.jppf.server.submission.SubmissionStatus;
+import org.jppf.utils.*;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the tracking by the server of the data providers cached by a node.
+ */
+public class TestNodeDataProviderTracker extends BaseTest {
+  /**
+   * The package of the tested classes.
+   */
+  private static final String PACKAGE = "org.jppf.server.nio.nodeserver.async.";
+  /**
+   * The driver which provides the job manager, not started.
+   */
+  private static JPPFDriver driver;
+
+  /**
+   * Create the driver.
+   * @throws Exception if any error occurs.
+   */
+  @BeforeClass
+  public static void setup() throws Exception {
+    driver = new JPPFDriver(new TypedProperties());
+  }
+
+  /**
+   * Release the resources used by the driver.
+   * @throws Exception if any error occurs.
+   */
+  @AfterClass
+  public static void teardown() throws Exception {
+    if (driver != null) {
+      driver.getQueue().close();
+      driver.getJobManager().close();
+    }
+  }
+
+  /**
+   * Test that the least recently used data provider is evicted when the maximum size is reached.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testLruEviction() throws Exception {
+    final Tracker tracker = new Tracker();
+    assertFalse(tracker.checkCached("app", "h1", 2));
+    assertFalse(tracker.checkCached("app", "h2", 2));
+    // h1 becomes the most recently used
+    assertTrue(tracker.checkCached("app", "h1", 2));
+    // evicts h2
+    assertFalse(tracker.checkCached("app", "h3", 2));
+    assertTrue(tracker.checkCached("app", "h1", 2));
+    assertTrue(tracker.checkCached("app", "h3", 2));
+    // evicts h1
+    assertFalse(tracker.checkCached("app", "h2", 2));
+    assertFalse(tracker.checkCached("app", "h1", 2));
+  }
+
+  /**
+   * Test that the tracker gives the same answers as the cache of the node for the same sequence of data providers.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testMirrorsNodeCache() throws Exception {
+    final int maxSize = 3;
+    final Tracker tracker = new Tracker();
+    final DataProviderCache cache = new DataProviderCache(maxSize);
+    final ClassLoader cl = new URLClassLoader(new URL[0], getClass().getClassLoader());
+    final Random rand = new Random(12345L);
+    for (int i=0; i<500; i++) {
+      final String hash = "h" + rand.nextInt(6);
+      final boolean cached = tracker.checkCached("app", hash, maxSize);
+      final TaskBundle bundle = new JPPFTaskBundle();
+      bundle.setTaskCount(1);
+      bundle.setParameter(BundleParameter.DATA_PROVIDER_HASH, hash);
+      if (cached) bundle.setParameter(BundleParameter.DATA_PROVIDER_CACHED, true);
+      cache.resolve(cl, bundle, cached ? null : new MemoryMapDataProvider());
+      assertFalse("divergence at step " + i + " for " + hash, bundle.getParameter(BundleParameter.DATA_PROVIDER_MISSING, false));
+    }
+    assertEquals(maxSize, cache.getInfo().getSize());
+  }
+
+  /**
+   * Test that the data providers are tracked separately for each client application, and that they can be removed individually.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testApplicationScoping() throws Exception {
+    final Tracker tracker = new Tracker();
+    assertFalse(tracker.checkCached("app1", "h1", 1));
+    assertFalse(tracker.checkCached("app2", "h1", 1));
+    // evicts h1 for app1 only
+    assertFalse(tracker.checkCached("app1", "h2", 1));
+    assertTrue(tracker.checkCached("app2", "h1", 1));
+    assertFalse(tracker.checkCached("app1", "h1", 1));
+    tracker.remove("app1", "h1");
+    assertTrue(tracker.checkCached("app2", "h1", 1));
+    assertFalse(tracker.checkCached("app1", "h1", 1));
+    // removing an unknown entry has no effect
+    tracker.remove("app3", "h1");
+    tracker.remove("app2", "h2");
+    assertTrue(tracker.checkCached("app2", "h1", 1));
+  }
+
+  /**
+   * Test that when the node reports a missing data provider, the tracker entry is removed and the tasks are requeued unexecuted,
+   * so that the next dispatch sends them along with the data provider.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testDataProviderMissing() throws Exception {
+    final Tracker tracker = new Tracker();
+    final TaskBundle header = new JPPFTaskBundle();
+    header.setUuid(JPPFUuid.normalUUID());
+    header.setName("data provider job");
+    header.setSLA(new JobSLA());
+    header.setMetadata(new JPPFJobMetadata());
+    header.getUuidPath().add("app");
+    header.setTaskCount(3);
+    header.setInitialTaskCount(3);
+    header.setCurrentTaskCount(3);
+    header.setParameter(BundleParameter.TASK_POSITIONS, new int[] {0, 1, 2});
+    final List<DataLocation> taskData = new ArrayList<>();
+    for (int i=0; i<3; i++) taskData.add(new MultipleBuffersLocation(("task " + i).getBytes()));
+    final DataLocation dataProvider = new MultipleBuffersLocation(new byte[0]);
+    final ServerTaskBundleClient clientBundle = new ServerTaskBundleClient(header, dataProvider, taskData, false);
+    final List<ServerTask> received = new ArrayList<>();
+    clientBundle.addCompletionListener(new ServerTaskBundleClient.CompletionListener() {
+      @Override
+      public void taskCompleted(final ServerTaskBundleClient bundle, final List<ServerTask> results) {
+        received.addAll(results);
+      }
+
+      @Override
+      public void bundleEnded(final ServerTaskBundleClient bundle) {
+      }
+    });
+    final ServerJob job = new ServerJob(new ReentrantLock(), driver.getJobManager(), header, dataProvider);
+    job.setSubmissionStatus(SubmissionStatus.PENDING);
+    job.addBundle(clientBundle);
+    // a previous job with the same data provider was sent to the node
+    assertFalse(tracker.checkCached("app", "h1", 4));
+    final ServerTaskBundleNode nodeBundle = job.createNodeDispatch(3);
+    nodeBundle.getJob().setParameter(BundleParameter.DATA_PROVIDER_HASH, "h1");
+    assertTrue(tracker.checkCached("app", "h1", 4));
+    tracker.dataProviderMissing(nodeBundle);
+    assertTrue(received.isEmpty());
+    assertEquals(3, job.getTaskCount());
+    assertEquals(3, clientBundle.getPendingTasksCount());
+    for (final ServerTask task: clientBundle.getTaskList()) assertEquals(TaskState.PENDING, task.getState());
+    // the next dispatch sends the data provider along with all the tasks
+    final ServerTaskBundleNode nodeBundle2 = job.createNodeDispatch(3);
+    assertEquals(3, nodeBundle2.getTaskCount());
+    assertFalse(tracker.checkCached("app", "h1", 4));
+  }
+
+  /**
+   * Wraps a {@code NodeDataProviderTracker}, which is not accessible outside of its package.
+   */
+  private static class Tracker {
+    /**
+     * The tracker class.
+     */
+    private final Class<?> trackerClass;
+    /**
+     * The wrapped tracker.
+     */
+    private final Object tracker;
+
+    /**
+     * Create the tracker.
+     * @throws Exception if any error occurs.
+     */
+    Tracker() throws Exception {
+      trackerClass = Class.forName(PACKAGE + "NodeDataProviderTracker");
+      final Constructor<?> c = trackerClass.getDeclaredConstructor();
+      c.setAccessible(true);
+      tracker = c.newInstance();
+    }
+
+    /**
+     * @param appUuid the uuid of the client application.
+     * @param hash the hash of the data provider.
+     * @param maxSize the maximum number of data providers the node keeps for each client application.
+     * @return {@code true} if the node has the data provider in its cache, {@code false} otherwise.
+     * @throws Exception if any error occurs.
+     */
+    boolean checkCached(final String appUuid, final String hash, final int maxSize) throws Exception {
+      return (Boolean) invoke(trackerClass.getDeclaredMethod("checkCached", String.class, String.class, int.class), tracker, appUuid, hash, maxSize);
+    }
+
+    /**
+     * @param appUuid the uuid of the client application.
+     * @param hash the hash of the data provider.
+     * @throws Exception if any error occurs.
+     */
+    void remove(final String appUuid, final String hash) throws Exception {
+      invoke(trackerClass.getDeclaredMethod("remove", String.class, String.class), tracker, appUuid, hash);
+    }
+
+    /**
+     * Process the bundle returned by the node because it did not find the data provider, as the server's node message handler does.
+     * @param nodeBundle the bundle that was dispatched to the node.
+     * @throws Exception if any error occurs.
+     */
+    void dataProviderMissing(final ServerTaskBundleNode nodeBundle) throws Exception {
+      final Class<?> handlerClass = Class.forName(PACKAGE + "AsyncNodeMessageHandler");
+      invoke(handlerClass.getDeclaredMethod("dataProviderMissing", trackerClass, ServerTaskBundleNode.class), null, tracker, nodeBundle);
+    }
+
+    /**
+     * Invoke a non-public method.
+     * @param method the method to invoke.
+     * @param target the object on which to invoke the method, {@code null} for a static method.
+     * @param args the method arguments.
+     * @return the method's return value.
+     * @throws Exception if any error occurs.
+     */
+    private static Object invoke(final Method method, final Object target, final Object...args) throws Exception {
+      method.setAccessible(true);
+      try {
+        return method.invoke(target, args);
+      } catch (final InvocationTargetException e) {
+        final Throwable t = e.getCause();
+        if (t instanceof Exception) throw (Exception) t;
+        throw (Error) t;
+      }
+    }
+  }
+}
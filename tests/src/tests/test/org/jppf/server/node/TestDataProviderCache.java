@@ -0,0 +1,159 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.node;
+
+import static org.junit.Assert.*;
+
+import java.net.*;
+
+import org.jppf.management.DataProviderCacheInfo;
+import org.jppf.node.protocol.*;
+import org.jppf.server.node.DataProviderCache;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link DataProviderCache}.
+ */
+public class TestDataProviderCache extends BaseTest {
+  /**
+   * Test that the least recently used data provider is evicted when the cache is full.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testLruEviction() throws Exception {
+    final DataProviderCache cache = new DataProviderCache(2);
+    final ClassLoader cl = newClassLoader();
+    final DataProvider dp1 = new MemoryMapDataProvider(), dp2 = new MemoryMapDataProvider(), dp3 = new MemoryMapDataProvider();
+    cache.put(cl, "h1", dp1);
+    cache.put(cl, "h2", dp2);
+    // h1 becomes the most recently used
+    assertSame(dp1, cache.get(cl, "h1"));
+    cache.put(cl, "h3", dp3);
+    assertNull(cache.get(cl, "h2"));
+    assertSame(dp1, cache.get(cl, "h1"));
+    assertSame(dp3, cache.get(cl, "h3"));
+    final DataProviderCacheInfo info = cache.getInfo();
+    assertEquals(2, info.getMaxSize());
+    assertEquals(2, info.getSize());
+    assertEquals(1, info.getNbClassLoaders());
+    assertEquals(3L, info.getHits());
+    assertEquals(1L, info.getMisses());
+  }
+
+  /**
+   * Test that the data providers are cached separately for each class loader, and that they are discarded along with their class loader.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testClassLoaderScoping() throws Exception {
+    final DataProviderCache cache = new DataProviderCache(1);
+    final ClassLoader cl1 = newClassLoader(), cl2 = newClassLoader();
+    final DataProvider dp1 = new MemoryMapDataProvider(), dp2 = new MemoryMapDataProvider(), dp3 = new MemoryMapDataProvider();
+    cache.put(cl1, "h1", dp1);
+    cache.put(cl2, "h1", dp2);
+    assertSame(dp1, cache.get(cl1, "h1"));
+    assertSame(dp2, cache.get(cl2, "h1"));
+    // evicts h1 for cl1 only
+    cache.put(cl1, "h2", dp3);
+    assertNull(cache.get(cl1, "h1"));
+    assertSame(dp3, cache.get(cl1, "h2"));
+    assertSame(dp2, cache.get(cl2, "h1"));
+    assertEquals(2, cache.getInfo().getNbClassLoaders());
+    cache.remove(cl1);
+    assertNull(cache.get(cl1, "h2"));
+    assertSame(dp2, cache.get(cl2, "h1"));
+    final DataProviderCacheInfo info = cache.getInfo();
+    assertEquals(1, info.getNbClassLoaders());
+    assertEquals(1, info.getSize());
+    // removing an unknown class loader has no effect
+    cache.remove(newClassLoader());
+    assertEquals(1, cache.getInfo().getNbClassLoaders());
+  }
+
+  /**
+   * Test that nothing is cached when the maximum size is 0.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testDisabled() throws Exception {
+    final DataProviderCache cache = new DataProviderCache(0);
+    final ClassLoader cl = newClassLoader();
+    cache.put(cl, "h1", new MemoryMapDataProvider());
+    assertNull(cache.get(cl, "h1"));
+    assertEquals(0, cache.getInfo().getSize());
+    assertEquals(0, cache.getInfo().getNbClassLoaders());
+  }
+
+  /**
+   * Test the resolution of the data provider of a received bundle, including the flagging of a bundle whose data provider is not in the cache.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testResolve() throws Exception {
+    final DataProviderCache cache = new DataProviderCache(2);
+    final ClassLoader cl = newClassLoader();
+    final DataProvider received = new MemoryMapDataProvider();
+    // not cached by the server
+    TaskBundle bundle = newBundle(null, false);
+    assertSame(received, cache.resolve(cl, bundle, received));
+    assertEquals(0, cache.getInfo().getSize());
+    // sent along with the tasks, the node caches it
+    bundle = newBundle("h1", false);
+    assertSame(received, cache.resolve(cl, bundle, received));
+    assertEquals(1, cache.getInfo().getSize());
+    // not sent, the node uses the cached one
+    bundle = newBundle("h1", true);
+    assertSame(received, cache.resolve(cl, bundle, null));
+    assertFalse(bundle.getParameter(BundleParameter.DATA_PROVIDER_MISSING, false));
+    assertEquals(3, bundle.getTaskCount());
+    // not sent but not in the cache: the bundle is returned to the server without being executed
+    bundle = newBundle("h2", true);
+    assertNull(cache.resolve(cl, bundle, null));
+    assertTrue(bundle.getParameter(BundleParameter.DATA_PROVIDER_MISSING, false));
+    assertEquals(0, bundle.getTaskCount());
+    // same for a class loader which was discarded
+    cache.remove(cl);
+    bundle = newBundle("h1", true);
+    assertNull(cache.resolve(cl, bundle, null));
+    assertTrue(bundle.getParameter(BundleParameter.DATA_PROVIDER_MISSING, false));
+  }
+
+  /**
+   * @return a new class loader.
+   */
+  private static ClassLoader newClassLoader() {
+    return new URLClassLoader(new URL[0], TestDataProviderCache.class.getClassLoader());
+  }
+
+  /**
+   * Create a bundle with 3 tasks and the specified data provider parameters.
+   * @param hash the hash of the data provider, if any.
+   * @param cached whether the server expects the node to have the data provider in its cache.
+   * @return a new {@link TaskBundle}.
+   */
+  private static TaskBundle newBundle(final String hash, final boolean cached) {
+    final TaskBundle bundle = new JPPFTaskBundle();
+    bundle.setTaskCount(3);
+    if (hash != null) bundle.setParameter(BundleParameter.DATA_PROVIDER_HASH, hash);
+    if (cached) bundle.setParameter(BundleParameter.DATA_PROVIDER_CACHED, true);
+    return bundle;
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.protocol;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.server.JPPFDriver;
+import org.jppf.server.protocol.*;
+import org.jppf.server.submission.SubmissionStatus;
+import org.jppf.utils.*;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the processing of the partial results of a job dispatch by {@link ServerJob} and {@link ServerTaskBundleNode}.
+ * The node messages are simulated the same way the driver's node message handler processes them.
+ */
+public class TestPartialResults extends BaseTest {
+  /**
+   * The driver which provides the job manager, not started.
+   */
+  private static JPPFDriver driver;
+
+  /**
+   * Create the driver.
+   * @throws Exception if any error occurs.
+   */
+  @BeforeClass
+  public static void setup() throws Exception {
+    driver = new JPPFDriver(new TypedProperties());
+  }
+
+  /**
+   * Release the resources used by the driver.
+   * @throws Exception if any error occurs.
+   */
+  @AfterClass
+  public static void teardown() throws Exception {
+    if (driver != null) {
+      driver.getQueue().close();
+      driver.getJobManager().close();
+    }
+  }
+
+  /**
+   * Test that final results received before all the partial results were processed are deferred,
+   * and that each result is then applied once to the task at its position.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testFinalResultsBeforePartialResults() throws Exception {
+    final TestJob job = new TestJob(6);
+    final ServerTaskBundleNode nodeBundle = job.serverJob.createNodeDispatch(6);
+    job.finalResults(nodeBundle, 2, 3, 5);
+    assertTrue(job.received.isEmpty());
+    job.partialResults(nodeBundle, 4, 1);
+    assertEquals(Arrays.asList(Arrays.asList(1, 4)), job.received);
+    assertEquals(0, job.ended);
+    job.partialResults(nodeBundle, 0);
+    assertEquals(Arrays.asList(Arrays.asList(1, 4), Arrays.asList(0), Arrays.asList(2, 3, 5)), job.received);
+    job.checkResults(0, 1, 2, 3, 4, 5);
+    assertEquals(0, job.clientBundle.getPendingTasksCount());
+    assertEquals(1, job.ended);
+  }
+
+  /**
+   * Test that a result which was already received as a partial result is not applied again with the final results.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testResultsAppliedOnce() throws Exception {
+    final TestJob job = new TestJob(4);
+    final ServerTaskBundleNode nodeBundle = job.serverJob.createNodeDispatch(4);
+    job.partialResults(nodeBundle, 0, 1);
+    // the final results also hold a result for position 1
+    job.finalResults(nodeBundle, 1, 2, 3);
+    assertEquals(Arrays.asList(Arrays.asList(0, 1), Arrays.asList(2, 3)), job.received);
+    job.checkResults(0, 1, 2, 3);
+    assertEquals(1, job.ended);
+  }
+
+  /**
+   * Test that when a dispatch fails after some partial results were received, only the other tasks are requeued,
+   * and that the results of the requeued tasks are applied once they are dispatched again.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testResubmitAfterPartialResults() throws Exception {
+    final TestJob job = new TestJob(4);
+    final ServerTaskBundleNode nodeBundle = job.serverJob.createNodeDispatch(4);
+    job.partialResults(nodeBundle, 0, 2);
+    // same processing as when the connection with the node fails
+    nodeBundle.taskCompleted(new Exception("node connection error"));
+    nodeBundle.resubmit();
+    final List<DataLocation> results = new ArrayList<>();
+    for (final ServerTask task: nodeBundle.getTaskList()) {
+      results.add(task.getInitialTask());
+      if (!nodeBundle.isReturned(task.getPosition())) task.resubmit();
+    }
+    nodeBundle.resultsReceived(results);
+    assertEquals(Arrays.asList(Arrays.asList(0, 2)), job.received);
+    job.checkResults(0, 2);
+    assertEquals(2, job.serverJob.getTaskCount());
+    assertEquals(2, job.clientBundle.getPendingTasksCount());
+    assertEquals(TaskState.PENDING, job.taskAt(1).getState());
+    assertEquals(TaskState.PENDING, job.taskAt(3).getState());
+    assertEquals(0, job.ended);
+    final ServerTaskBundleNode nodeBundle2 = job.serverJob.createNodeDispatch(4);
+    assertEquals(2, nodeBundle2.getTaskCount());
+    job.finalResults(nodeBundle2, 1, 3);
+    assertEquals(Arrays.asList(Arrays.asList(0, 2), Arrays.asList(1, 3)), job.received);
+    job.checkResults(0, 1, 2, 3);
+    assertEquals(1, job.ended);
+  }
+
+  /**
+   * Test that partial and final results received after a job was cancelled are not applied,
+   * while the results received before the cancellation are kept.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testCancelAfterPartialResults() throws Exception {
+    final TestJob job = new TestJob(3);
+    final ServerTaskBundleNode nodeBundle = job.serverJob.createNodeDispatch(3);
+    job.partialResults(nodeBundle, 1);
+    // same processing of the dispatches as when the job is cancelled
+    assertTrue(job.serverJob.setCancelled(false));
+    job.serverJob.cancelDispatch(nodeBundle);
+    job.partialResults(nodeBundle, 0);
+    job.finalResults(nodeBundle, 2);
+    assertEquals(Arrays.asList(Arrays.asList(1)), job.received);
+    job.checkResults(1);
+    assertNotEquals(TaskState.RESULT, job.taskAt(0).getState());
+    assertNotEquals(TaskState.RESULT, job.taskAt(2).getState());
+    // the tasks that were not returned are back in the job, so they can be cancelled
+    assertEquals(2, job.serverJob.getTaskCount());
+    assertEquals(0, job.serverJob.getNodeJobInformation().length);
+  }
+
+  /**
+   * A job with a single client bundle, which records the results sent to the client.
+   */
+  private static class TestJob implements ServerTaskBundleClient.CompletionListener {
+    /**
+     * The server-side job.
+     */
+    final ServerJob serverJob;
+    /**
+     * The client bundle.
+     */
+    final ServerTaskBundleClient clientBundle;
+    /**
+     * The positions of the tasks whose results were sent to the client, sorted within each notification, in the order of the notifications.
+     */
+    final List<List<Integer>> received = new ArrayList<>();
+    /**
+     * Mapping of task positions to the results sent by the simulated node.
+     */
+    final Map<Integer, DataLocation> results = new HashMap<>();
+    /**
+     * Number of times the client bundle ended.
+     */
+    int ended;
+
+    /**
+     * Create the job.
+     * @param nbTasks the number of tasks in the job.
+     * @throws Exception if any error occurs.
+     */
+    TestJob(final int nbTasks) throws Exception {
+      final TaskBundle header = new JPPFTaskBundle();
+      header.setUuid(JPPFUuid.normalUUID());
+      header.setName("partial results job");
+      header.setSLA(new JobSLA());
+      header.setMetadata(new JPPFJobMetadata());
+      header.setTaskCount(nbTasks);
+      header.setInitialTaskCount(nbTasks);
+      header.setCurrentTaskCount(nbTasks);
+      final int[] positions = new int[nbTasks];
+      final List<DataLocation> tasks = new ArrayList<>(nbTasks);
+      for (int i=0; i<nbTasks; i++) {
+        positions[i] = i;
+        tasks.add(new MultipleBuffersLocation(("task " + i).getBytes()));
+      }
+      header.setParameter(BundleParameter.TASK_POSITIONS, positions);
+      final DataLocation dataProvider = new MultipleBuffersLocation(new byte[0]);
+      clientBundle = new ServerTaskBundleClient(header, dataProvider, tasks, false);
+      clientBundle.addCompletionListener(this);
+      serverJob = new ServerJob(new ReentrantLock(), driver.getJobManager(), header, dataProvider);
+      serverJob.setSubmissionStatus(SubmissionStatus.PENDING);
+      serverJob.addBundle(clientBundle);
+    }
+
+    @Override
+    public synchronized void taskCompleted(final ServerTaskBundleClient bundle, final List<ServerTask> tasks) {
+      // a cancelled dispatch notifies the client bundle without any result
+      if (tasks.isEmpty()) return;
+      final List<Integer> positions = new ArrayList<>(tasks.size());
+      for (final ServerTask task: tasks) positions.add(task.getPosition());
+      Collections.sort(positions);
+      received.add(positions);
+    }
+
+    @Override
+    public synchronized void bundleEnded(final ServerTaskBundleClient bundle) {
+      ended++;
+    }
+
+    /**
+     * Simulate the receipt of partial results from the node.
+     * @param nodeBundle the dispatched bundle.
+     * @param positions the positions of the tasks whose results are sent.
+     */
+    void partialResults(final ServerTaskBundleNode nodeBundle, final int...positions) {
+      try {
+        nodeBundle.partialResultsReceived(positions, newResults(positions));
+      } finally {
+        final Runnable deferred = nodeBundle.partialResultsProcessed(positions.length);
+        if (deferred != null) deferred.run();
+      }
+    }
+
+    /**
+     * Simulate the receipt of the final results from the node.
+     * @param nodeBundle the dispatched bundle.
+     * @param positions the positions of the tasks whose results are sent.
+     */
+    void finalResults(final ServerTaskBundleNode nodeBundle, final int...positions) {
+      final List<DataLocation> received = newResults(positions);
+      final Map<Integer, DataLocation> map = new HashMap<>();
+      for (int i=0; i<positions.length; i++) map.put(positions[i], received.get(i));
+      final List<DataLocation> aligned = new ArrayList<>(nodeBundle.getTaskCount());
+      for (final ServerTask task: nodeBundle.getTaskList()) aligned.add(map.get(task.getPosition()));
+      final Runnable processing = () -> nodeBundle.resultsReceived(aligned);
+      if (!nodeBundle.deferResults(nodeBundle.getTaskCount() - positions.length, processing)) processing.run();
+    }
+
+    /**
+     * Create new results for the specified positions, the first result created for a position is the one expected for the task at this position.
+     * @param positions the positions of the tasks.
+     * @return a list of results in the same order as the positions.
+     */
+    List<DataLocation> newResults(final int...positions) {
+      final List<DataLocation> list = new ArrayList<>(positions.length);
+      for (final int pos: positions) {
+        final DataLocation result = new MultipleBuffersLocation(("result " + pos).getBytes());
+        results.putIfAbsent(pos, result);
+        list.add(result);
+      }
+      return list;
+    }
+
+    /**
+     * Check that the tasks at the specified positions hold the result first sent for their position.
+     * @param positions the positions of the tasks to check.
+     */
+    void checkResults(final int...positions) {
+      for (final int pos: positions) {
+        final ServerTask task = taskAt(pos);
+        assertEquals(TaskState.RESULT, task.getState());
+        assertSame("wrong result for position " + pos, results.get(pos), task.getResult());
+      }
+    }
+
+    /**
+     * Get the task at the specified position.
+     * @param position the position of the task.
+     * @return a {@link ServerTask} instance.
+     */
+    ServerTask taskAt(final int position) {
+      for (final ServerTask task: clientBundle.getTaskList()) {
+        if (task.getPosition() == position) return task;
+      }
+      throw new IllegalArgumentException("no task at position " + position);
+    }
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.queue;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.io.MultipleBuffersLocation;
+import org.jppf.job.persistence.*;
+import org.jppf.node.protocol.JPPFTaskBundle;
+import org.jppf.server.queue.PersistencePipeline;
+import org.jppf.utils.stats.JPPFStatisticsHelper;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link PersistencePipeline}.
+ */
+public class TestPersistencePipeline extends BaseTest {
+  /**
+   * Test that the futures provided by {@code whenPersisted()} complete after the operations submitted before them, and in submission order.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testOrdering() throws Exception {
+    final RecordingPersistence persistence = new RecordingPersistence();
+    final PersistencePipeline pipeline = new PersistencePipeline(persistence, JPPFStatisticsHelper.createServerStatistics(), 2, 1000);
+    try {
+      assertTrue(pipeline.whenPersisted("job1").isDone());
+      final List<String> events = persistence.events;
+      pipeline.store("job1", infos("job1", 0, 1));
+      final CompletableFuture<Void> future1 = pipeline.whenPersisted("job1");
+      future1.thenRun(() -> events.add("barrier1"));
+      pipeline.store("job1", infos("job1", 2));
+      pipeline.delete("job1");
+      final CompletableFuture<Void> future2 = pipeline.whenPersisted("job1");
+      final CompletableFuture<Void> done = future2.thenRun(() -> events.add("barrier2"));
+      Thread.sleep(100L);
+      assertFalse(future1.isDone());
+      assertFalse(future2.isDone());
+      persistence.release.countDown();
+      done.get();
+      assertEquals(Arrays.asList("store job1 [0, 1]", "barrier1", "store job1 [2]", "delete job1", "barrier2"), events);
+      assertEquals(0L, pipeline.getPending());
+    } finally {
+      persistence.release.countDown();
+      pipeline.close();
+    }
+  }
+
+  /**
+   * Test that an error raised by a store completes the next future exceptionally, and only that one.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testFailurePropagation() throws Exception {
+    final RecordingPersistence persistence = new RecordingPersistence();
+    final PersistencePipeline pipeline = new PersistencePipeline(persistence, JPPFStatisticsHelper.createServerStatistics(), 2, 1000);
+    try {
+      persistence.failingPosition = 1;
+      pipeline.store("job1", infos("job1", 0, 1));
+      pipeline.store("job2", infos("job2", 0));
+      // the futures are requested while the stores are still pending
+      final CompletableFuture<Void> future1 = pipeline.whenPersisted("job1");
+      final CompletableFuture<Void> future2 = pipeline.whenPersisted("job2");
+      persistence.release.countDown();
+      try {
+        future1.get();
+        fail("the store error should be propagated");
+      } catch (final ExecutionException e) {
+        assertTrue(e.getCause() instanceof JobPersistenceException);
+      }
+      future2.get();
+      persistence.failingPosition = -1;
+      pipeline.store("job1", infos("job1", 2));
+      pipeline.whenPersisted("job1").get();
+      final List<String> actions = new CopyOnWriteArrayList<>();
+      pipeline.store("job1", infos("job1", 3));
+      pipeline.afterPending("job1", () -> actions.add("done"));
+      pipeline.flush("job1");
+      assertEquals(Arrays.asList("done"), actions);
+    } finally {
+      pipeline.close();
+    }
+  }
+
+  /**
+   * Test that an error raised by a store is reported by a future requested after the job's operations have all been performed.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000)
+  public void testFailureAfterDrain() throws Exception {
+    final RecordingPersistence persistence = new RecordingPersistence();
+    persistence.release.countDown();
+    final PersistencePipeline pipeline = new PersistencePipeline(persistence, JPPFStatisticsHelper.createServerStatistics(), 2, 1000);
+    try {
+      persistence.failingPosition = 1;
+      pipeline.store("job1", infos("job1", 0, 1));
+      while (pipeline.getPending() > 0L) Thread.sleep(10L);
+      // let the job's queue drain, so that its entry is removed
+      Thread.sleep(100L);
+      try {
+        pipeline.whenPersisted("job1").get();
+        fail("the store error should be propagated after the queue has drained");
+      } catch (final ExecutionException e) {
+        assertTrue(e.getCause() instanceof JobPersistenceException);
+      }
+      // the error is reported only once
+      assertTrue(pipeline.whenPersisted("job1").isDone());
+      pipeline.whenPersisted("job1").get();
+      persistence.failingPosition = -1;
+      pipeline.store("job1", infos("job1", 1));
+      pipeline.whenPersisted("job1").get();
+    } finally {
+      pipeline.close();
+    }
+  }
+
+  /**
+   * Create job elements to store.
+   * @param jobUuid the uuid of the job.
+   * @param positions the positions of the tasks.
+   * @return a list of {@link PersistenceInfo} instances.
+   */
+  private static List<PersistenceInfo> infos(final String jobUuid, final int...positions) {
+    final List<PersistenceInfo> infos = new ArrayList<>(positions.length);
+    for (final int pos: positions) {
+      infos.add(new PersistenceInfoImpl(jobUuid, new JPPFTaskBundle(), PersistenceObjectType.TASK_RESULT, pos, new MultipleBuffersLocation(new byte[] { (byte) pos })));
+    }
+    return infos;
+  }
+
+  /**
+   * A persistence which records the store and delete operations, waits for a latch before performing them and may fail for a given position.
+   */
+  private static class RecordingPersistence implements JobPersistence {
+    /**
+     * The operations performed.
+     */
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    /**
+     * Released to let the operations proceed.
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+    /**
+     * The position of a task whose storage fails, or -1 if none fails.
+     */
+    private volatile int failingPosition = -1;
+
+    @Override
+    public void store(final Collection<PersistenceInfo> infos) throws JobPersistenceException {
+      await();
+      final List<Integer> positions = new ArrayList<>();
+      for (final PersistenceInfo info: infos) {
+        if (info.getPosition() == failingPosition) throw new JobPersistenceException("failing on position " + failingPosition);
+        positions.add(info.getPosition());
+      }
+      events.add("store " + infos.iterator().next().getJobUuid() + " " + positions);
+    }
+
+    @Override
+    public void deleteJob(final String jobUuid) throws JobPersistenceException {
+      await();
+      events.add("delete " + jobUuid);
+    }
+
+    /**
+     * Wait until the operations are allowed to proceed.
+     * @throws JobPersistenceException if the wait is interrupted.
+     */
+    private void await() throws JobPersistenceException {
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        throw new JobPersistenceException(e);
+      }
+    }
+
+    @Override
+    public List<InputStream> load(final Collection<PersistenceInfo> infos) throws JobPersistenceException {
+      return new ArrayList<>();
+    }
+
+    @Override
+    public List<String> getPersistedJobUuids() throws JobPersistenceException {
+      return new ArrayList<>();
+    }
+
+    @Override
+    public int[] getTaskPositions(final String jobUuid) throws JobPersistenceException {
+      return new int[0];
+    }
+
+    @Override
+    public int[] getTaskResultPositions(final String jobUuid) throws JobPersistenceException {
+      return new int[0];
+    }
+
+    @Override
+    public boolean isJobPersisted(final String jobUuid) throws JobPersistenceException {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package test.org.jppf.utils.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.utils.collections.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link ConcurrentLinkedSetSortedMap}.
+ */
+public class TestConcurrentLinkedSetSortedMap extends BaseTest {
+  /**
+   * Test that values are ordered by descending key, then in insertion order, and that moving a value to the end of its set
+   * yields a round-robin order among the values with the same key.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 10000)
+  public void testOrdering() throws Exception {
+    final ConcurrentLinkedSetSortedMap<Integer, String> map = new ConcurrentLinkedSetSortedMap<>(new DescendingIntegerComparator());
+    assertTrue(map.isEmpty());
+    assertTrue(map.putValue(0, "a"));
+    assertTrue(map.putValue(0, "b"));
+    assertTrue(map.putValue(5, "c"));
+    assertTrue(map.putValue(0, "d"));
+    assertFalse(map.putValue(0, "a"));
+    assertEquals(4, map.size());
+    assertEquals(Arrays.asList("c", "a", "b", "d"), map.allValues());
+    map.moveToEnd(0, "a");
+    assertEquals(Arrays.asList("c", "b", "d", "a"), map.allValues());
+    map.moveToEnd(0, "b");
+    assertEquals(Arrays.asList("c", "d", "a", "b"), map.allValues());
+    map.moveToEnd(0, "c");
+    assertEquals(Arrays.asList("c", "d", "a", "b"), map.allValues());
+    assertFalse(map.removeValue(0, "c"));
+    assertTrue(map.removeValue(5, "c"));
+    assertEquals(Arrays.asList("d", "a", "b"), map.allValues());
+    assertEquals(3, map.size());
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertTrue(map.allValues().isEmpty());
+  }
+
+  /**
+   * Test that no value is lost or duplicated when values are concurrently added, moved and removed under the same keys.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 20000)
+  public void testConcurrentUpdates() throws Exception {
+    final ConcurrentLinkedSetSortedMap<Integer, String> map = new ConcurrentLinkedSetSortedMap<>(new DescendingIntegerComparator());
+    final int nbThreads = 8, nbValues = 2000, nbKeys = 3;
+    final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i=0; i<nbThreads; i++) {
+        final int thread = i;
+        futures.add(executor.submit(() -> {
+          for (int j=0; j<nbValues; j++) {
+            final String value = thread + "-" + j;
+            final int key = j % nbKeys;
+            assertTrue(map.putValue(key, value));
+            map.moveToEnd(key, value);
+            // remove every other value, so that sets are often emptied and recreated
+            if ((j % 2) == 0) assertTrue(map.removeValue(key, value));
+          }
+        }));
+      }
+      for (final Future<?> future: futures) future.get();
+    } finally {
+      executor.shutdownNow();
+    }
+    final List<String> values = map.allValues();
+    assertEquals(nbThreads * nbValues / 2, map.size());
+    assertEquals(map.size(), values.size());
+    assertEquals(values.size(), new HashSet<>(values).size());
+    for (final String value: values) assertEquals(1, Integer.parseInt(value.substring(value.indexOf('-') + 1)) % 2);
+  }
+}
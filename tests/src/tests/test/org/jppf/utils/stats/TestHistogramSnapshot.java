@@ -0,0 +1,193 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.utils.stats;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.utils.TypedProperties;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.stats.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link HistogramSnapshot}.
+ */
+public class TestHistogramSnapshot extends BaseTest {
+  /**
+   * Maximum relative error of the percentiles computed by a histogram snapshot.
+   */
+  private static final double MAX_ERROR = 0.032d;
+
+  /**
+   * Test that the percentiles of a uniform distribution of values are within the expected error, and that the other values are exact.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 10000)
+  public void testPercentiles() throws Exception {
+    final HistogramSnapshot snapshot = new HistogramSnapshot("test");
+    assertEquals(0d, snapshot.getPercentile(99d), 0d);
+    final List<Double> values = new ArrayList<>();
+    for (int i=1; i<=10_000; i++) values.add((double) i);
+    Collections.shuffle(values, new Random(1L));
+    for (final double value: values) snapshot.addValues(value, 1L);
+    assertEquals(10_000L, snapshot.getValueCount());
+    assertEquals(50_005_000d, snapshot.getTotal(), 0d);
+    assertEquals(1d, snapshot.getMin(), 0d);
+    assertEquals(10_000d, snapshot.getMax(), 0d);
+    assertEquals(5000.5d, snapshot.getAvg(), 0d);
+    for (final double p: new double[] { 50d, 90d, 99d, 99.9d }) {
+      final double expected = 100d * p;
+      assertEquals("p=" + p, expected, snapshot.getPercentile(p), expected * MAX_ERROR);
+    }
+    assertEquals(1d, snapshot.getPercentile(0d), MAX_ERROR);
+    assertEquals(10_000d, snapshot.getPercentile(100d), 0d);
+    snapshot.reset();
+    assertEquals(0L, snapshot.getValueCount());
+    assertEquals(0d, snapshot.getPercentile(50d), 0d);
+  }
+
+  /**
+   * Test that multiple percentiles computed in a single traversal, in any order, are the same as those computed separately,
+   * and that the cached result is discarded when the snapshot is updated.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 10000)
+  public void testMultiplePercentiles() throws Exception {
+    final HistogramSnapshot snapshot = new HistogramSnapshot("test");
+    final double[] percentiles = { 99.9d, 0d, 50d, 100d, 90d, 50d };
+    assertArrayEquals(new double[percentiles.length], snapshot.getPercentiles(percentiles), 0d);
+    for (int i=1; i<=10_000; i++) snapshot.addValues(i, 1L);
+    final double[] values = snapshot.getPercentiles(percentiles);
+    assertEquals(percentiles.length, values.length);
+    for (int i=0; i<percentiles.length; i++) {
+      final HistogramSnapshot copy = (HistogramSnapshot) snapshot.copy();
+      assertEquals("p=" + percentiles[i], copy.getPercentile(percentiles[i]), values[i], 0d);
+    }
+    assertEquals(10_000d, values[3], 0d);
+    assertArrayEquals(values, snapshot.getPercentiles(percentiles), 0d);
+    Thread.sleep(1L);
+    snapshot.addValues(1_000_000d * 10_000L, 10_000L);
+    assertEquals(1_000_000d, snapshot.getPercentiles(percentiles)[4], 1_000_000d * MAX_ERROR);
+  }
+
+  /**
+   * Test that aggregated values are recorded as their average, in the same way as a {@link NonCumulativeSnapshot}.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 10000)
+  public void testAggregatedValues() throws Exception {
+    final HistogramSnapshot histogram = new HistogramSnapshot("test");
+    final NonCumulativeSnapshot reference = new NonCumulativeSnapshot("test");
+    for (final JPPFSnapshot snapshot: new JPPFSnapshot[] { histogram, reference }) {
+      snapshot.addValues(100d, 4L);
+      snapshot.addValues(7d, 1L);
+    }
+    assertEquals(reference.getTotal(), histogram.getTotal(), 0d);
+    assertEquals(reference.getLatest(), histogram.getLatest(), 0d);
+    assertEquals(reference.getMin(), histogram.getMin(), 0d);
+    assertEquals(reference.getMax(), histogram.getMax(), 0d);
+    assertEquals(reference.getAvg(), histogram.getAvg(), 0d);
+    assertEquals(reference.getValueCount(), histogram.getValueCount());
+    assertEquals(25d, histogram.getPercentile(50d), 25d * MAX_ERROR);
+    assertTrue(Double.isNaN(reference.getPercentile(50d)));
+  }
+
+  /**
+   * Test that no update is lost when values are added concurrently by multiple threads.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 20000)
+  public void testConcurrentUpdates() throws Exception {
+    final HistogramSnapshot snapshot = new HistogramSnapshot("test");
+    final int nbThreads = 8, nbValues = 100_000;
+    final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i=0; i<nbThreads; i++) {
+        final int offset = i;
+        futures.add(executor.submit(() -> {
+          for (int j=0; j<nbValues; j++) snapshot.addValues(1 + ((j + offset) % 1000), 1L);
+        }));
+      }
+      for (final Future<?> future: futures) future.get();
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals((long) nbThreads * nbValues, snapshot.getValueCount());
+    assertEquals(1d, snapshot.getMin(), 0d);
+    assertEquals(1000d, snapshot.getMax(), 0d);
+    assertEquals(500.5d, snapshot.getAvg(), 1e-6d);
+    assertEquals(500d, snapshot.getPercentile(50d), 500d * MAX_ERROR);
+  }
+
+  /**
+   * Test that copies and serialized forms of a snapshot have the same values and percentiles.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 10000)
+  public void testCopyAndSerialization() throws Exception {
+    final HistogramSnapshot snapshot = new HistogramSnapshot("test");
+    for (int i=1; i<=1000; i++) snapshot.addValues(i * 0.5d, 1L);
+    final JPPFSnapshot copy = snapshot.copy();
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (final ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(snapshot);
+    }
+    final JPPFSnapshot deserialized;
+    try (final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+      deserialized = (JPPFSnapshot) ois.readObject();
+    }
+    for (final JPPFSnapshot other: new JPPFSnapshot[] { copy, deserialized }) {
+      assertTrue(JPPFStatisticsHelper.isHistogram(other));
+      assertEquals(snapshot.getLabel(), other.getLabel());
+      assertEquals(snapshot.getValueCount(), other.getValueCount());
+      assertEquals(snapshot.getTotal(), other.getTotal(), 0d);
+      assertEquals(snapshot.getMin(), other.getMin(), 0d);
+      assertEquals(snapshot.getMax(), other.getMax(), 0d);
+      for (final double p: JPPFStatisticsHelper.PERCENTILES) assertEquals(snapshot.getPercentile(p), other.getPercentile(p), 0d);
+    }
+  }
+
+  /**
+   * Test that the server timing snapshots are created as histograms only when configured to.
+   * @throws Exception if any error occurs
+   */
+  @Test(timeout = 10000)
+  public void testServerStatisticsOptIn() throws Exception {
+    final TypedProperties config = new TypedProperties();
+    JPPFStatistics stats = JPPFStatisticsHelper.createServerStatistics(config);
+    assertTrue(JPPFStatisticsHelper.isNonCumulative(stats.getSnapshot(JPPFStatisticsHelper.TASK_QUEUE_TIME)));
+    config.set(JPPFProperties.STATISTICS_HISTOGRAMS_ENABLED, true);
+    stats = JPPFStatisticsHelper.createServerStatistics(config);
+    for (final String label: new String[] { JPPFStatisticsHelper.TASK_QUEUE_TIME, JPPFStatisticsHelper.NODE_EXECUTION, JPPFStatisticsHelper.TRANSPORT_TIME }) {
+      assertTrue(label, JPPFStatisticsHelper.isHistogram(stats.getSnapshot(label)));
+    }
+    assertTrue(JPPFStatisticsHelper.isNonCumulative(stats.getSnapshot(JPPFStatisticsHelper.JOB_TASKS)));
+    stats.addValues(JPPFStatisticsHelper.TASK_QUEUE_TIME, 12d, 1L);
+    final TypedProperties props = new TypedProperties();
+    JPPFStatisticsHelper.toProperties(props, stats.getSnapshot(JPPFStatisticsHelper.TASK_QUEUE_TIME));
+    assertEquals(12d, props.getDouble(JPPFStatisticsHelper.TASK_QUEUE_TIME + ".p99"), 0d);
+  }
+}